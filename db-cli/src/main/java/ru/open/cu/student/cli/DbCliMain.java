@@ -2,30 +2,41 @@ package ru.open.cu.student.cli;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import ru.open.cu.student.protocol.BinaryCodec;
 import ru.open.cu.student.protocol.DbErrorPos;
 import ru.open.cu.student.protocol.DbRequest;
 import ru.open.cu.student.protocol.DbResponse;
 import ru.open.cu.student.protocol.FrameIO;
 import ru.open.cu.student.protocol.JsonCodec;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.net.Socket;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
 public final class DbCliMain {
     private static final Logger log = LoggerFactory.getLogger(DbCliMain.class);
+    private static final int PIPELINE_WINDOW = 64;
 
     public static void main(String[] args) {
         String host = "127.0.0.1";
         int port = 54321;
         boolean trace = false;
+        boolean batch = false;
+        boolean binary = false;
+        String priority = null;
+        Long timeoutMs = null;
         String file = null;
 
         for (int i = 0; i < args.length; i++) {
@@ -34,46 +45,90 @@ public final class DbCliMain {
                 case "--port" -> port = Integer.parseInt(args[++i]);
                 case "--trace" -> trace = true;
                 case "--file" -> file = args[++i];
+                case "--batch" -> batch = true;
+                case "--binary" -> binary = true;
+                case "--priority" -> priority = args[++i];
+                case "--timeoutMs" -> timeoutMs = Long.parseLong(args[++i]);
                 default -> {
                     System.err.println("Unknown arg: " + args[i]);
-                    System.err.println("Usage: --host <host> --port <port> [--trace] [--file <path>]");
+                    System.err.println("Usage: --host <host> --port <port> [--trace] [--binary] [--priority high|normal|low] [--timeoutMs <ms>] [--file <path> [--batch]]");
                     System.exit(2);
                 }
             }
         }
 
+        Wire wire = new Wire(binary, priority, timeoutMs);
         try (Socket socket = new Socket(host, port)) {
             log.info("Connected to {}:{}", host, port);
             System.out.println("Connected. End SQL statements with ';'. Type \\help for help, \\q to quit.");
 
             if (file != null) {
-                runFile(socket, Path.of(file), trace);
+                runFile(socket, Path.of(file), trace, batch, wire);
                 return;
             }
 
-            repl(socket, trace);
+            repl(socket, trace, wire);
         } catch (IOException e) {
             System.err.println("Failed to connect or communicate with server: " + e.getMessage());
             System.exit(1);
         }
     }
 
-    private static void runFile(Socket socket, Path path, boolean trace) throws IOException {
+    private static void runFile(Socket socket, Path path, boolean trace, boolean batch, Wire wire) throws IOException {
         String content = Files.readString(path, StandardCharsets.UTF_8);
         SplitResult split = splitStatementsWithRemainder(content);
-        List<String> statements = split.statements;
+        List<String> statements = new ArrayList<>();
+        for (String sql : split.statements) {
+            if (!sql.isBlank()) statements.add(sql);
+        }
         if (!split.remainder.trim().isEmpty()) {
             System.err.println("Warning: trailing SQL without ';' at end of file will be ignored");
         }
-        for (String sql : statements) {
-            if (sql.isBlank()) continue;
-            System.out.println(">>> " + oneLine(sql));
-            DbResponse resp = sendQuery(socket, sql, trace);
+
+        if (batch) {
+            DbResponse resp = sendBatch(socket, statements, trace, wire);
+            List<DbResponse> results = resp.results == null ? List.of() : resp.results;
+            for (int i = 0; i < results.size(); i++) {
+                System.out.println(">>> " + oneLine(statements.get(i)));
+                printResponse(results.get(i));
+            }
+            if (results.isEmpty()) {
+                printResponse(resp);
+            }
+            return;
+        }
+
+        OutputStream out = new BufferedOutputStream(socket.getOutputStream());
+        InputStream in = new BufferedInputStream(socket.getInputStream());
+        ArrayDeque<String> inFlight = new ArrayDeque<>();
+        int next = 0;
+        int done = 0;
+        while (done < statements.size()) {
+            while (next < statements.size() && inFlight.size() < PIPELINE_WINDOW) {
+                String requestId = UUID.randomUUID().toString();
+                DbRequest req = new DbRequest("query", requestId, statements.get(next), trace);
+                FrameIO.writeFrame(out, wire.encode(req), false);
+                inFlight.addLast(requestId);
+                next++;
+            }
+            out.flush();
+
+            byte[] respFrame = FrameIO.readFrame(in);
+            if (respFrame == null) {
+                throw new IOException("Server closed connection");
+            }
+            DbResponse resp = decode(respFrame);
+            String expected = inFlight.pollFirst();
+            if (resp.requestId != null && !resp.requestId.equals(expected)) {
+                throw new IOException("Out of order response: expected " + expected + " got " + resp.requestId);
+            }
+            System.out.println(">>> " + oneLine(statements.get(done)));
             printResponse(resp);
+            done++;
         }
     }
 
-    private static void repl(Socket socket, boolean trace) throws IOException {
+    private static void repl(Socket socket, boolean trace, Wire wire) throws IOException {
         BufferedReader reader = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
         StringBuilder buf = new StringBuilder();
 
@@ -103,7 +158,7 @@ public final class DbCliMain {
 
             for (String sql : split.statements) {
                 if (sql.isBlank()) continue;
-                DbResponse resp = sendQuery(socket, sql, trace);
+                DbResponse resp = sendQuery(socket, sql, trace, wire);
                 printResponse(resp);
             }
 
@@ -120,17 +175,41 @@ public final class DbCliMain {
         System.out.println("End SQL statements with ';'.");
     }
 
-    private static DbResponse sendQuery(Socket socket, String sql, boolean trace) throws IOException {
+    private static DbResponse sendQuery(Socket socket, String sql, boolean trace, Wire wire) throws IOException {
         String requestId = UUID.randomUUID().toString();
         DbRequest req = new DbRequest("query", requestId, sql, trace);
-        byte[] payload = JsonCodec.toJsonBytes(req);
-        FrameIO.writeFrame(socket.getOutputStream(), payload);
+        FrameIO.writeFrame(socket.getOutputStream(), wire.encode(req));
+
+        byte[] respFrame = FrameIO.readFrame(socket.getInputStream());
+        if (respFrame == null) {
+            throw new IOException("Server closed connection");
+        }
+        return decode(respFrame);
+    }
+
+    private static DbResponse sendBatch(Socket socket, List<String> statements, boolean trace, Wire wire) throws IOException {
+        DbRequest req = DbRequest.batch(UUID.randomUUID().toString(), statements, trace);
+        FrameIO.writeFrame(socket.getOutputStream(), wire.encode(req));
 
         byte[] respFrame = FrameIO.readFrame(socket.getInputStream());
         if (respFrame == null) {
             throw new IOException("Server closed connection");
         }
-        return JsonCodec.fromJsonBytes(respFrame, DbResponse.class);
+        return decode(respFrame);
+    }
+
+    private record Wire(boolean binary, String priority, Long timeoutMs) {
+        byte[] encode(DbRequest req) {
+            DbRequest r = priority == null ? req : req.withPriority(priority);
+            r = timeoutMs == null ? r : r.withTimeout(timeoutMs);
+            return binary ? BinaryCodec.encodeRequest(r) : JsonCodec.toJsonBytes(r);
+        }
+    }
+
+    private static DbResponse decode(byte[] frame) {
+        return BinaryCodec.isBinary(frame)
+                ? BinaryCodec.decodeResponse(frame)
+                : JsonCodec.fromJsonBytes(frame, DbResponse.class);
     }
 
     private static void printResponse(DbResponse resp) {
@@ -150,6 +229,10 @@ public final class DbCliMain {
             return;
         }
 
+        if (resp.queueTimeMicros != null && resp.queueTimeMicros >= 1_000) {
+            System.out.println("(queued " + resp.queueTimeMicros / 1_000 + " ms)");
+        }
+
         if (resp.explain != null && !resp.explain.isBlank()) {
             System.out.println(resp.explain);
         }
@@ -1,8 +1,10 @@
 package ru.open.cu.student.catalog.manager;
 
 import ru.open.cu.student.catalog.model.ColumnDefinition;
+import ru.open.cu.student.catalog.model.ColumnStatistics;
 import ru.open.cu.student.catalog.model.IndexDefinition;
 import ru.open.cu.student.catalog.model.TableDefinition;
+import ru.open.cu.student.catalog.model.TableStatistics;
 import ru.open.cu.student.catalog.model.TypeDefinition;
 import ru.open.cu.student.index.IndexType;
 
@@ -25,11 +27,38 @@ public interface CatalogManager {
 
     void updatePagesCount(TableDefinition table, int pagesCount);
 
-    IndexDefinition createIndex(String indexName, String tableName, String columnName, IndexType indexType);
+    default IndexDefinition createIndex(String indexName, String tableName, String columnName, IndexType indexType) {
+        return createIndex(indexName, tableName, List.of(columnName), List.of(), indexType);
+    }
+
+    default IndexDefinition createIndex(String indexName, String tableName, String columnName, List<String> includeColumns, IndexType indexType) {
+        return createIndex(indexName, tableName, List.of(columnName), includeColumns, indexType);
+    }
+
+    default IndexDefinition createIndex(String indexName, String tableName, List<String> columnNames, List<String> includeColumns, IndexType indexType) {
+        return createIndex(indexName, tableName, columnNames, includeColumns, indexType, false);
+    }
+
+    IndexDefinition createIndex(
+            String indexName,
+            String tableName,
+            List<String> columnNames,
+            List<String> includeColumns,
+            IndexType indexType,
+            boolean unique
+    );
 
     IndexDefinition getIndex(String indexName);
 
     List<IndexDefinition> listIndexes(TableDefinition table);
+
+    void updateStatistics(TableStatistics tableStatistics, List<ColumnStatistics> columnStatistics);
+
+    TableStatistics getTableStatistics(TableDefinition table);
+
+    ColumnStatistics getColumnStatistics(ColumnDefinition column);
+
+    long getVersion();
 }
 
 
@@ -1,8 +1,10 @@
 package ru.open.cu.student.catalog.manager;
 
 import ru.open.cu.student.catalog.model.ColumnDefinition;
+import ru.open.cu.student.catalog.model.ColumnStatistics;
 import ru.open.cu.student.catalog.model.IndexDefinition;
 import ru.open.cu.student.catalog.model.TableDefinition;
+import ru.open.cu.student.catalog.model.TableStatistics;
 import ru.open.cu.student.catalog.model.TypeDefinition;
 import ru.open.cu.student.index.IndexType;
 import ru.open.cu.student.memory.buffer.BufferPoolManager;
@@ -31,6 +33,8 @@ public final class DefaultCatalogManager implements CatalogManager {
     private static final String COLUMNS_FILE = "column_definitions.dat";
     private static final String TYPES_FILE = "types_definitions.dat";
     private static final String INDEXES_FILE = "index_definitions.dat";
+    private static final String TABLE_STATS_FILE = "table_statistics.dat";
+    private static final String COLUMN_STATS_FILE = "column_statistics.dat";
 
     private final Path root;
     private final BufferPoolManager bufferPool;
@@ -48,11 +52,16 @@ public final class DefaultCatalogManager implements CatalogManager {
     private final Map<String, IndexDefinition> indexesByName = new HashMap<>();
     private final Map<Integer, List<IndexDefinition>> indexesByTableOid = new HashMap<>();
 
+    private final Map<Integer, TableStatistics> tableStatsByOid = new HashMap<>();
+    private final Map<Integer, ColumnStatistics> columnStatsByOid = new HashMap<>();
+
     private int nextTableOid = 1;
     private int nextColumnOid = 1;
     private int nextTypeOid = 1;
     private int nextIndexOid = 1;
 
+    private long version;
+
     public DefaultCatalogManager(Path root, BufferPoolManager bufferPool) {
         this.root = Objects.requireNonNull(root, "root");
         this.bufferPool = Objects.requireNonNull(bufferPool, "bufferPool");
@@ -75,6 +84,14 @@ public final class DefaultCatalogManager implements CatalogManager {
         readAllRecords(TABLES_FILE, bytes -> indexTable(TableDefinition.fromBytes(bytes)));
         readAllRecords(COLUMNS_FILE, bytes -> indexColumn(ColumnDefinition.fromBytes(bytes)));
         readAllRecords(INDEXES_FILE, bytes -> indexIndex(IndexDefinition.fromBytes(bytes)));
+        readAllRecords(TABLE_STATS_FILE, bytes -> {
+            TableStatistics stats = TableStatistics.fromBytes(bytes);
+            tableStatsByOid.put(stats.getTableOid(), stats);
+        });
+        readAllRecords(COLUMN_STATS_FILE, bytes -> {
+            ColumnStatistics stats = ColumnStatistics.fromBytes(bytes);
+            columnStatsByOid.put(stats.getColumnOid(), stats);
+        });
 
         recomputeNextOids();
     }
@@ -245,6 +262,7 @@ public final class DefaultCatalogManager implements CatalogManager {
             appendRecord(COLUMNS_FILE, stored.toBytes());
         }
 
+        version++;
         return table;
     }
 
@@ -300,24 +318,51 @@ public final class DefaultCatalogManager implements CatalogManager {
     }
 
     @Override
-    public synchronized IndexDefinition createIndex(String indexName, String tableName, String columnName, IndexType indexType) {
+    public synchronized IndexDefinition createIndex(
+            String indexName,
+            String tableName,
+            List<String> columnNames,
+            List<String> includeColumns,
+            IndexType indexType,
+            boolean unique
+    ) {
         Objects.requireNonNull(indexName, "indexName");
         Objects.requireNonNull(tableName, "tableName");
-        Objects.requireNonNull(columnName, "columnName");
+        Objects.requireNonNull(columnNames, "columnNames");
+        Objects.requireNonNull(includeColumns, "includeColumns");
         Objects.requireNonNull(indexType, "indexType");
 
         if (indexesByName.containsKey(indexName)) {
             throw new IllegalArgumentException("Index exists: " + indexName);
         }
+        if (columnNames.isEmpty()) {
+            throw new IllegalArgumentException("Index needs at least one key column: " + indexName);
+        }
 
         TableDefinition table = getTable(tableName);
         if (table == null) {
             throw new IllegalArgumentException("Table not found: " + tableName);
         }
 
-        ColumnDefinition column = getColumn(table, columnName);
-        if (column == null) {
-            throw new IllegalArgumentException("Column not found: " + tableName + "." + columnName);
+        List<Integer> keyOids = new ArrayList<>(columnNames.size());
+        List<Integer> includeOids = new ArrayList<>(includeColumns.size());
+        ColumnDefinition column = null;
+        for (String name : columnNames) {
+            ColumnDefinition key = resolveIndexColumn(table, name, keyOids, includeOids);
+            if (column == null) column = key;
+            keyOids.add(key.getOid());
+        }
+        for (String includeName : includeColumns) {
+            includeOids.add(resolveIndexColumn(table, includeName, keyOids, includeOids).getOid());
+        }
+        if (!includeOids.isEmpty() && indexType != IndexType.BTREE) {
+            throw new IllegalArgumentException("INCLUDE columns require a BTREE index: " + indexName);
+        }
+        if (keyOids.size() > 1 && indexType != IndexType.BTREE) {
+            throw new IllegalArgumentException("Multi-column keys require a BTREE index: " + indexName);
+        }
+        if (unique && !includeOids.isEmpty()) {
+            throw new IllegalArgumentException("UNIQUE indexes do not support INCLUDE columns: " + indexName);
         }
 
         int oid = nextIndexOid++;
@@ -327,19 +372,33 @@ public final class DefaultCatalogManager implements CatalogManager {
                 oid,
                 indexName,
                 table.getOid(),
-                column.getOid(),
+                keyOids,
                 column.getTypeOid(),
                 indexType,
                 fileNode,
                 0,
-                0
+                0,
+                includeOids,
+                unique
         );
 
         indexIndex(def);
         appendRecord(INDEXES_FILE, def.toBytes());
+        version++;
         return def;
     }
 
+    private ColumnDefinition resolveIndexColumn(TableDefinition table, String name, List<Integer> keyOids, List<Integer> includeOids) {
+        ColumnDefinition column = getColumn(table, name);
+        if (column == null) {
+            throw new IllegalArgumentException("Column not found: " + table.getName() + "." + name);
+        }
+        if (keyOids.contains(column.getOid()) || includeOids.contains(column.getOid())) {
+            throw new IllegalArgumentException("Duplicate index column: " + name);
+        }
+        return column;
+    }
+
     @Override
     public synchronized IndexDefinition getIndex(String indexName) {
         return indexesByName.get(indexName);
@@ -350,6 +409,38 @@ public final class DefaultCatalogManager implements CatalogManager {
         Objects.requireNonNull(table, "table");
         return indexesByTableOid.getOrDefault(table.getOid(), List.of());
     }
-}
 
+    @Override
+    public synchronized void updateStatistics(TableStatistics tableStatistics, List<ColumnStatistics> columnStatistics) {
+        Objects.requireNonNull(tableStatistics, "tableStatistics");
+        Objects.requireNonNull(columnStatistics, "columnStatistics");
+        if (!tablesByOid.containsKey(tableStatistics.getTableOid())) {
+            throw new IllegalArgumentException("Table not found: oid=" + tableStatistics.getTableOid());
+        }
+
+        for (ColumnStatistics stats : columnStatistics) {
+            columnStatsByOid.put(stats.getColumnOid(), stats);
+            appendRecord(COLUMN_STATS_FILE, stats.toBytes());
+        }
+        tableStatsByOid.put(tableStatistics.getTableOid(), tableStatistics);
+        appendRecord(TABLE_STATS_FILE, tableStatistics.toBytes());
+        version++;
+    }
 
+    @Override
+    public synchronized TableStatistics getTableStatistics(TableDefinition table) {
+        Objects.requireNonNull(table, "table");
+        return tableStatsByOid.get(table.getOid());
+    }
+
+    @Override
+    public synchronized ColumnStatistics getColumnStatistics(ColumnDefinition column) {
+        Objects.requireNonNull(column, "column");
+        return columnStatsByOid.get(column.getOid());
+    }
+
+    @Override
+    public synchronized long getVersion() {
+        return version;
+    }
+}
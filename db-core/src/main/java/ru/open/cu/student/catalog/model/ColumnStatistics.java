@@ -0,0 +1,204 @@
+package ru.open.cu.student.catalog.model;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+public final class ColumnStatistics {
+    private static final int UINT16_MAX = 0xFFFF;
+    private static final byte TAG_INT64 = 1;
+    private static final byte TAG_VARCHAR = 2;
+
+    private final int tableOid;
+    private final int columnOid;
+    private final long distinctCount;
+    private final double nullFraction;
+    private final List<Object> mostCommonValues;
+    private final double[] mostCommonFrequencies;
+    private final List<Object> histogramBounds;
+
+    public ColumnStatistics(
+            int tableOid,
+            int columnOid,
+            long distinctCount,
+            double nullFraction,
+            List<Object> mostCommonValues,
+            double[] mostCommonFrequencies,
+            List<Object> histogramBounds
+    ) {
+        Objects.requireNonNull(mostCommonValues, "mostCommonValues");
+        Objects.requireNonNull(mostCommonFrequencies, "mostCommonFrequencies");
+        Objects.requireNonNull(histogramBounds, "histogramBounds");
+        if (mostCommonValues.size() != mostCommonFrequencies.length) {
+            throw new IllegalArgumentException("mostCommonValues and mostCommonFrequencies size mismatch");
+        }
+        this.tableOid = tableOid;
+        this.columnOid = columnOid;
+        this.distinctCount = distinctCount;
+        this.nullFraction = nullFraction;
+        this.mostCommonValues = List.copyOf(mostCommonValues);
+        this.mostCommonFrequencies = mostCommonFrequencies.clone();
+        this.histogramBounds = List.copyOf(histogramBounds);
+    }
+
+    public int getTableOid() {
+        return tableOid;
+    }
+
+    public int getColumnOid() {
+        return columnOid;
+    }
+
+    public long getDistinctCount() {
+        return distinctCount;
+    }
+
+    public double getNullFraction() {
+        return nullFraction;
+    }
+
+    public List<Object> getMostCommonValues() {
+        return mostCommonValues;
+    }
+
+    public double[] getMostCommonFrequencies() {
+        return mostCommonFrequencies.clone();
+    }
+
+    public double getMostCommonFrequency(int i) {
+        return mostCommonFrequencies[i];
+    }
+
+    public double getMostCommonTotalFrequency() {
+        double sum = 0;
+        for (double f : mostCommonFrequencies) {
+            sum += f;
+        }
+        return sum;
+    }
+
+    public List<Object> getHistogramBounds() {
+        return histogramBounds;
+    }
+
+    public byte[] toBytes() {
+        List<byte[]> mcv = encodeValues(mostCommonValues);
+        List<byte[]> hist = encodeValues(histogramBounds);
+
+        int capacity = Integer.BYTES * 2 + Long.BYTES + Double.BYTES
+                + Short.BYTES + encodedSize(mcv) + Double.BYTES * mostCommonFrequencies.length
+                + Short.BYTES + encodedSize(hist);
+
+        ByteBuffer buf = ByteBuffer.allocate(capacity);
+        buf.putInt(tableOid);
+        buf.putInt(columnOid);
+        buf.putLong(distinctCount);
+        buf.putDouble(nullFraction);
+        putUInt16(buf, mcv.size());
+        for (int i = 0; i < mcv.size(); i++) {
+            buf.put(mcv.get(i));
+            buf.putDouble(mostCommonFrequencies[i]);
+        }
+        putUInt16(buf, hist.size());
+        for (byte[] v : hist) {
+            buf.put(v);
+        }
+        return buf.array();
+    }
+
+    public static ColumnStatistics fromBytes(byte[] bytes) {
+        ByteBuffer buf = ByteBuffer.wrap(bytes);
+        int tableOid = buf.getInt();
+        int columnOid = buf.getInt();
+        long distinctCount = buf.getLong();
+        double nullFraction = buf.getDouble();
+
+        int mcvCount = readUInt16(buf);
+        List<Object> mcv = new ArrayList<>(mcvCount);
+        double[] freqs = new double[mcvCount];
+        for (int i = 0; i < mcvCount; i++) {
+            mcv.add(readValue(buf));
+            freqs[i] = buf.getDouble();
+        }
+
+        int histCount = readUInt16(buf);
+        List<Object> hist = new ArrayList<>(histCount);
+        for (int i = 0; i < histCount; i++) {
+            hist.add(readValue(buf));
+        }
+        return new ColumnStatistics(tableOid, columnOid, distinctCount, nullFraction, mcv, freqs, hist);
+    }
+
+    private static List<byte[]> encodeValues(List<Object> values) {
+        if (values.size() > UINT16_MAX) {
+            throw new IllegalArgumentException("Too many values");
+        }
+        List<byte[]> out = new ArrayList<>(values.size());
+        for (Object v : values) {
+            if (v instanceof Long l) {
+                out.add(ByteBuffer.allocate(1 + Long.BYTES).put(TAG_INT64).putLong(l).array());
+            } else if (v instanceof String s) {
+                byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+                if (utf8.length > UINT16_MAX) {
+                    throw new IllegalArgumentException("String too long");
+                }
+                out.add(ByteBuffer.allocate(1 + Short.BYTES + utf8.length)
+                        .put(TAG_VARCHAR).putShort((short) utf8.length).put(utf8).array());
+            } else {
+                throw new IllegalArgumentException("Unsupported statistics value: " + v);
+            }
+        }
+        return out;
+    }
+
+    private static int encodedSize(List<byte[]> values) {
+        int size = 0;
+        for (byte[] v : values) {
+            size += v.length;
+        }
+        return size;
+    }
+
+    private static Object readValue(ByteBuffer buf) {
+        byte tag = buf.get();
+        return switch (tag) {
+            case TAG_INT64 -> buf.getLong();
+            case TAG_VARCHAR -> {
+                byte[] utf8 = new byte[readUInt16(buf)];
+                buf.get(utf8);
+                yield new String(utf8, StandardCharsets.UTF_8);
+            }
+            default -> throw new IllegalStateException("Unknown statistics value tag: " + tag);
+        };
+    }
+
+    private static int readUInt16(ByteBuffer buf) {
+        return buf.getShort() & UINT16_MAX;
+    }
+
+    private static void putUInt16(ByteBuffer buf, int value) {
+        buf.putShort((short) value);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ColumnStatistics that)) return false;
+        return tableOid == that.tableOid
+                && columnOid == that.columnOid
+                && distinctCount == that.distinctCount
+                && Double.compare(nullFraction, that.nullFraction) == 0
+                && mostCommonValues.equals(that.mostCommonValues)
+                && Arrays.equals(mostCommonFrequencies, that.mostCommonFrequencies)
+                && histogramBounds.equals(that.histogramBounds);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(tableOid, columnOid, distinctCount, nullFraction, mostCommonValues,
+                Arrays.hashCode(mostCommonFrequencies), histogramBounds);
+    }
+}
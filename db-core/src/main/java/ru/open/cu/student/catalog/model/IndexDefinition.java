@@ -4,6 +4,8 @@ import ru.open.cu.student.index.IndexType;
 
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 
 public final class IndexDefinition {
@@ -13,6 +15,7 @@ public final class IndexDefinition {
     private final String name;
     private final int tableOid;
     private final int columnOid;
+    private final List<Integer> columnOids;
     private final int keyTypeOid;
     private final IndexType indexType;
     private final String fileNode;
@@ -20,6 +23,8 @@ public final class IndexDefinition {
     
     private final int metaPageId;
     private final int rootPageId;
+    private final List<Integer> includeColumnOids;
+    private final boolean unique;
 
     public IndexDefinition(
             int oid,
@@ -31,16 +36,53 @@ public final class IndexDefinition {
             String fileNode,
             int metaPageId,
             int rootPageId
+    ) {
+        this(oid, name, tableOid, List.of(columnOid), keyTypeOid, indexType, fileNode, metaPageId, rootPageId, List.of());
+    }
+
+    public IndexDefinition(
+            int oid,
+            String name,
+            int tableOid,
+            List<Integer> columnOids,
+            int keyTypeOid,
+            IndexType indexType,
+            String fileNode,
+            int metaPageId,
+            int rootPageId,
+            List<Integer> includeColumnOids
+    ) {
+        this(oid, name, tableOid, columnOids, keyTypeOid, indexType, fileNode, metaPageId, rootPageId, includeColumnOids, false);
+    }
+
+    public IndexDefinition(
+            int oid,
+            String name,
+            int tableOid,
+            List<Integer> columnOids,
+            int keyTypeOid,
+            IndexType indexType,
+            String fileNode,
+            int metaPageId,
+            int rootPageId,
+            List<Integer> includeColumnOids,
+            boolean unique
     ) {
         this.oid = oid;
         this.name = Objects.requireNonNull(name, "name");
         this.tableOid = tableOid;
-        this.columnOid = columnOid;
+        this.columnOids = List.copyOf(Objects.requireNonNull(columnOids, "columnOids"));
+        if (this.columnOids.isEmpty()) {
+            throw new IllegalArgumentException("Index needs at least one key column: " + name);
+        }
+        this.columnOid = this.columnOids.get(0);
         this.keyTypeOid = keyTypeOid;
         this.indexType = Objects.requireNonNull(indexType, "indexType");
         this.fileNode = Objects.requireNonNull(fileNode, "fileNode");
         this.metaPageId = metaPageId;
         this.rootPageId = rootPageId;
+        this.includeColumnOids = List.copyOf(Objects.requireNonNull(includeColumnOids, "includeColumnOids"));
+        this.unique = unique;
     }
 
     public int getOid() {
@@ -59,6 +101,10 @@ public final class IndexDefinition {
         return columnOid;
     }
 
+    public List<Integer> getColumnOids() {
+        return columnOids;
+    }
+
     public int getKeyTypeOid() {
         return keyTypeOid;
     }
@@ -79,6 +125,18 @@ public final class IndexDefinition {
         return rootPageId;
     }
 
+    public List<Integer> getIncludeColumnOids() {
+        return includeColumnOids;
+    }
+
+    public boolean isUnique() {
+        return unique;
+    }
+
+    public boolean covers(int columnOid) {
+        return columnOids.contains(columnOid) || includeColumnOids.contains(columnOid);
+    }
+
     public byte[] toBytes() {
         byte[] nameBytes = utf8(name);
         byte[] fileBytes = utf8(fileNode);
@@ -87,7 +145,10 @@ public final class IndexDefinition {
 
         int capacity = Integer.BYTES * 7
                 + Short.BYTES + nameBytes.length
-                + Short.BYTES + fileBytes.length;
+                + Short.BYTES + fileBytes.length
+                + Integer.BYTES * (1 + includeColumnOids.size())
+                + Integer.BYTES * columnOids.size()
+                + 1;
 
         ByteBuffer buf = ByteBuffer.allocate(capacity);
         buf.putInt(oid);
@@ -99,6 +160,15 @@ public final class IndexDefinition {
         buf.putInt(rootPageId);
         putString(buf, nameBytes);
         putString(buf, fileBytes);
+        buf.putInt(includeColumnOids.size());
+        for (int includeOid : includeColumnOids) {
+            buf.putInt(includeOid);
+        }
+        buf.putInt(columnOids.size() - 1);
+        for (int i = 1; i < columnOids.size(); i++) {
+            buf.putInt(columnOids.get(i));
+        }
+        buf.put((byte) (unique ? 1 : 0));
         return buf.array();
     }
 
@@ -114,9 +184,25 @@ public final class IndexDefinition {
         int rootPageId = buf.getInt();
         String name = readString(buf);
         String fileNode = readString(buf);
+        List<Integer> includeColumnOids = new ArrayList<>();
+        if (buf.hasRemaining()) {
+            int count = buf.getInt();
+            for (int i = 0; i < count; i++) {
+                includeColumnOids.add(buf.getInt());
+            }
+        }
+        List<Integer> columnOids = new ArrayList<>();
+        columnOids.add(columnOid);
+        if (buf.hasRemaining()) {
+            int count = buf.getInt();
+            for (int i = 0; i < count; i++) {
+                columnOids.add(buf.getInt());
+            }
+        }
+        boolean unique = buf.hasRemaining() && buf.get() != 0;
 
         IndexType type = IndexType.values()[indexTypeOrd];
-        return new IndexDefinition(oid, name, tableOid, columnOid, keyTypeOid, type, fileNode, metaPageId, rootPageId);
+        return new IndexDefinition(oid, name, tableOid, columnOids, keyTypeOid, type, fileNode, metaPageId, rootPageId, includeColumnOids, unique);
     }
 
     private static void putString(ByteBuffer buf, byte[] utf8Bytes) {
@@ -155,18 +241,20 @@ public final class IndexDefinition {
         if (!(o instanceof IndexDefinition that)) return false;
         return oid == that.oid
                 && tableOid == that.tableOid
-                && columnOid == that.columnOid
+                && columnOids.equals(that.columnOids)
                 && keyTypeOid == that.keyTypeOid
                 && metaPageId == that.metaPageId
                 && rootPageId == that.rootPageId
                 && name.equals(that.name)
                 && indexType == that.indexType
-                && fileNode.equals(that.fileNode);
+                && fileNode.equals(that.fileNode)
+                && includeColumnOids.equals(that.includeColumnOids)
+                && unique == that.unique;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(oid, name, tableOid, columnOid, keyTypeOid, indexType, fileNode, metaPageId, rootPageId);
+        return Objects.hash(oid, name, tableOid, columnOids, keyTypeOid, indexType, fileNode, metaPageId, rootPageId, includeColumnOids, unique);
     }
 }
 
@@ -0,0 +1,69 @@
+package ru.open.cu.student.catalog.model;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+public final class TableStatistics {
+    private final int tableOid;
+    private final long rowCount;
+    private final int pagesCount;
+    private final long sampledRows;
+
+    public TableStatistics(int tableOid, long rowCount, int pagesCount, long sampledRows) {
+        if (rowCount < 0) throw new IllegalArgumentException("rowCount must be >= 0");
+        if (pagesCount < 0) throw new IllegalArgumentException("pagesCount must be >= 0");
+        this.tableOid = tableOid;
+        this.rowCount = rowCount;
+        this.pagesCount = pagesCount;
+        this.sampledRows = sampledRows;
+    }
+
+    public int getTableOid() {
+        return tableOid;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public int getPagesCount() {
+        return pagesCount;
+    }
+
+    public long getSampledRows() {
+        return sampledRows;
+    }
+
+    public byte[] toBytes() {
+        ByteBuffer buf = ByteBuffer.allocate(Integer.BYTES * 2 + Long.BYTES * 2);
+        buf.putInt(tableOid);
+        buf.putLong(rowCount);
+        buf.putInt(pagesCount);
+        buf.putLong(sampledRows);
+        return buf.array();
+    }
+
+    public static TableStatistics fromBytes(byte[] bytes) {
+        ByteBuffer buf = ByteBuffer.wrap(bytes);
+        int tableOid = buf.getInt();
+        long rowCount = buf.getLong();
+        int pagesCount = buf.getInt();
+        long sampledRows = buf.getLong();
+        return new TableStatistics(tableOid, rowCount, pagesCount, sampledRows);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof TableStatistics that)) return false;
+        return tableOid == that.tableOid
+                && rowCount == that.rowCount
+                && pagesCount == that.pagesCount
+                && sampledRows == that.sampledRows;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(tableOid, rowCount, pagesCount, sampledRows);
+    }
+}
@@ -0,0 +1,27 @@
+package ru.open.cu.student.engine;
+
+import java.util.List;
+
+public final class BatchExecutionException extends RuntimeException {
+    private final int failedIndex;
+    private final List<ExecutionResult> completed;
+
+    public BatchExecutionException(int failedIndex, List<ExecutionResult> completed, RuntimeException cause) {
+        super("Batch statement " + failedIndex + " failed: " + cause.getMessage(), cause);
+        this.failedIndex = failedIndex;
+        this.completed = List.copyOf(completed);
+    }
+
+    public int getFailedIndex() {
+        return failedIndex;
+    }
+
+    public List<ExecutionResult> getCompleted() {
+        return completed;
+    }
+
+    @Override
+    public synchronized RuntimeException getCause() {
+        return (RuntimeException) super.getCause();
+    }
+}
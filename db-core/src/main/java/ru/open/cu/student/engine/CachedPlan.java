@@ -0,0 +1,27 @@
+package ru.open.cu.student.engine;
+
+import ru.open.cu.student.optimizer.node.PhysicalPlanNode;
+import ru.open.cu.student.sql.semantic.ExprType;
+import ru.open.cu.student.sql.semantic.QueryType;
+
+import java.util.List;
+import java.util.Objects;
+
+public record CachedPlan(
+        String sql,
+        QueryType type,
+        PhysicalPlanNode plan,
+        List<ExprType> parameterTypes,
+        List<String> columns,
+        List<String> columnTypes,
+        long catalogVersion
+) {
+    public CachedPlan {
+        Objects.requireNonNull(sql, "sql");
+        Objects.requireNonNull(type, "type");
+        Objects.requireNonNull(plan, "plan");
+        parameterTypes = List.copyOf(Objects.requireNonNull(parameterTypes, "parameterTypes"));
+        columns = List.copyOf(Objects.requireNonNull(columns, "columns"));
+        columnTypes = List.copyOf(Objects.requireNonNull(columnTypes, "columnTypes"));
+    }
+}
@@ -1,13 +1,29 @@
 package ru.open.cu.student.engine;
 
+import ru.open.cu.student.execution.memory.QueryMemoryContext;
+
 import java.util.List;
 
 public record ExecutionResult(
         List<String> columns,
         List<List<Object>> rows,
         int affected,
-        String explain
-) {
-}
+        String explain,
+        List<String> columnTypes,
+        QueryMemoryContext memory
+) implements AutoCloseable {
+    public ExecutionResult(List<String> columns, List<List<Object>> rows, int affected, String explain, List<String> columnTypes) {
+        this(columns, rows, affected, explain, columnTypes, null);
+    }
 
+    public ExecutionResult(List<String> columns, List<List<Object>> rows, int affected, String explain) {
+        this(columns, rows, affected, explain, List.of(), null);
+    }
 
+    @Override
+    public void close() {
+        if (memory != null) {
+            memory.close();
+        }
+    }
+}
@@ -1,5 +1,9 @@
 package ru.open.cu.student.engine;
 
+import ru.open.cu.student.execution.profile.ExecutionProfile;
+import ru.open.cu.student.execution.profile.OperatorMetrics;
+import ru.open.cu.student.optimizer.RowEstimator;
+import ru.open.cu.student.optimizer.node.PhysicalExplainNode;
 import ru.open.cu.student.optimizer.node.PhysicalPlanNode;
 import ru.open.cu.student.planner.node.LogicalPlanNode;
 import ru.open.cu.student.sql.ast.Statement;
@@ -7,6 +11,7 @@ import ru.open.cu.student.sql.lexer.Token;
 import ru.open.cu.student.sql.semantic.QueryTree;
 
 import java.util.List;
+import java.util.Locale;
 import java.util.Objects;
 
 public final class ExplainFormatter {
@@ -46,6 +51,61 @@ public final class ExplainFormatter {
 
         return sb.toString();
     }
-}
 
+    public static String formatAnalyze(
+            PhysicalPlanNode physicalPlan,
+            ExecutionProfile profile,
+            RowEstimator estimator,
+            long executionNanos,
+            long peakMemoryBytes
+    ) {
+        Objects.requireNonNull(physicalPlan, "physicalPlan");
+        Objects.requireNonNull(profile, "profile");
+        Objects.requireNonNull(estimator, "estimator");
+
+        PhysicalPlanNode root = physicalPlan;
+        while (root instanceof PhysicalExplainNode ex) {
+            root = ex.inner();
+        }
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("EXPLAIN_ANALYZE:\n");
+        appendAnalyze(sb, root, profile, estimator, 1);
+        sb.append(String.format(Locale.ROOT, "Execution time: %.3f ms%n", executionNanos / 1_000_000.0));
+        sb.append(String.format(Locale.ROOT, "Peak memory: %d bytes%n", peakMemoryBytes));
+        return sb.toString();
+    }
+
+    private static void appendAnalyze(
+            StringBuilder sb,
+            PhysicalPlanNode node,
+            ExecutionProfile profile,
+            RowEstimator estimator,
+            int indent
+    ) {
+        sb.append("  ".repeat(indent)).append(node.displayName());
+        sb.append(String.format(Locale.ROOT, " (estimated rows=%.0f)", estimator.estimate(node)));
+
+        OperatorMetrics m = profile.metrics(node);
+        if (m == null) {
+            sb.append(" (never executed)");
+        } else {
+            sb.append(String.format(
+                    Locale.ROOT,
+                    " (actual rows=%d loops=%d time=%.3f ms) (buffers hit=%d miss=%d pages_read=%d) (allocated=%d bytes)",
+                    m.getRows(),
+                    m.getLoops(),
+                    m.getTimeNanos() / 1_000_000.0,
+                    m.getBufferHits(),
+                    m.getBufferMisses(),
+                    m.getPagesRead(),
+                    m.getBytesAllocated()
+            ));
+        }
+        sb.append('\n');
 
+        for (PhysicalPlanNode child : node.children()) {
+            appendAnalyze(sb, child, profile, estimator, indent + 1);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package ru.open.cu.student.engine;
+
+import java.util.List;
+
+public interface ResultSink {
+    void begin(List<String> columns, List<String> columnTypes);
+
+    void row(List<Object> row);
+}
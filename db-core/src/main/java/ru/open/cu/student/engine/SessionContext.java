@@ -1,7 +1,16 @@
 package ru.open.cu.student.engine;
 
+import ru.open.cu.student.execution.CancellationToken;
 
-public record SessionContext(String sessionId, String requestId, boolean trace) {
+import java.util.Objects;
+
+public record SessionContext(
+        String sessionId,
+        String requestId,
+        boolean trace,
+        CancellationToken cancellation,
+        boolean retainResultMemory
+) {
     public SessionContext {
         if (sessionId != null && sessionId.isBlank()) {
             throw new IllegalArgumentException("sessionId is blank");
@@ -9,7 +18,18 @@ public record SessionContext(String sessionId, String requestId, boolean trace)
         if (requestId != null && requestId.isBlank()) {
             throw new IllegalArgumentException("requestId is blank");
         }
+        Objects.requireNonNull(cancellation, "cancellation");
     }
-}
 
+    public SessionContext(String sessionId, String requestId, boolean trace, CancellationToken cancellation) {
+        this(sessionId, requestId, trace, cancellation, false);
+    }
 
+    public SessionContext(String sessionId, String requestId, boolean trace) {
+        this(sessionId, requestId, trace, CancellationToken.NONE);
+    }
+
+    public SessionContext retainingResultMemory() {
+        return new SessionContext(sessionId, requestId, trace, cancellation, true);
+    }
+}
@@ -3,15 +3,23 @@ package ru.open.cu.student.engine;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import ru.open.cu.student.catalog.manager.CatalogManager;
+import ru.open.cu.student.catalog.model.TypeDefinition;
+import ru.open.cu.student.execution.CancellationToken;
 import ru.open.cu.student.execution.Executor;
 import ru.open.cu.student.execution.ExecutorFactory;
 import ru.open.cu.student.execution.ExecutorFactoryImpl;
 import ru.open.cu.student.execution.QueryExecutionEngine;
 import ru.open.cu.student.execution.QueryExecutionEngineImpl;
+import ru.open.cu.student.execution.memory.MemoryPool;
+import ru.open.cu.student.execution.memory.QueryMemoryContext;
+import ru.open.cu.student.execution.profile.ExecutionProfile;
 import ru.open.cu.student.index.IndexManager;
 import ru.open.cu.student.memory.buffer.BufferPoolManager;
+import ru.open.cu.student.optimizer.CostModel;
 import ru.open.cu.student.optimizer.Optimizer;
 import ru.open.cu.student.optimizer.OptimizerImpl;
+import ru.open.cu.student.optimizer.ParameterBinder;
+import ru.open.cu.student.optimizer.RowEstimator;
 import ru.open.cu.student.optimizer.node.PhysicalPlanNode;
 import ru.open.cu.student.planner.Planner;
 import ru.open.cu.student.planner.PlannerImpl;
@@ -20,65 +28,224 @@ import ru.open.cu.student.sql.ast.Statement;
 import ru.open.cu.student.sql.lexer.SqlLexer;
 import ru.open.cu.student.sql.lexer.Token;
 import ru.open.cu.student.sql.parser.SqlParser;
+import ru.open.cu.student.sql.semantic.ExplainQueryTree;
 import ru.open.cu.student.sql.semantic.QueryTree;
 import ru.open.cu.student.sql.semantic.QueryType;
 import ru.open.cu.student.sql.semantic.SelectQueryTree;
 import ru.open.cu.student.sql.semantic.SqlSemanticAnalyzer;
+import ru.open.cu.student.storage.HeapFileRegistry;
 
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.function.Supplier;
+import java.util.concurrent.ConcurrentHashMap;
 
 
 public final class SqlService {
     private static final Logger log = LoggerFactory.getLogger(SqlService.class);
     private static final boolean LOG_PIPELINE = Boolean.parseBoolean(System.getProperty("db.logPipeline", "true"));
+    private static final int GLOBAL_PLAN_CACHE_SIZE = Integer.getInteger("db.planCache.size", 256);
+    private static final int SESSION_PLAN_CACHE_SIZE = Integer.getInteger("db.planCache.sessionSize", 32);
+    private static final long MEMORY_POOL_BYTES = Long.getLong("db.memory.poolBytes", Runtime.getRuntime().maxMemory() / 2);
+    public static final long DEFAULT_QUERY_MEMORY_BUDGET_BYTES = Long.getLong("db.memory.queryBudgetBytes", 256L * 1024 * 1024);
 
     private final Path root;
     private final BufferPoolManager bufferPool;
     private final CatalogManager catalog;
     private final IndexManager indexManager;
+    private final HeapFileRegistry heapFiles;
 
     private final SqlSemanticAnalyzer semanticAnalyzer = new SqlSemanticAnalyzer();
     private final Planner planner = new PlannerImpl();
 
     private final Optimizer optimizer;
+    private final RowEstimator rowEstimator;
     private final ExecutorFactory executorFactory;
     private final QueryExecutionEngine engine = new QueryExecutionEngineImpl();
 
+    private final PlanCache globalPlans = new PlanCache(GLOBAL_PLAN_CACHE_SIZE);
+    private final Map<String, SessionStatements> sessions = new ConcurrentHashMap<>();
+    private final MemoryPool memoryPool = new MemoryPool(MEMORY_POOL_BYTES);
+    private final long queryMemoryBudgetBytes;
+
     public SqlService(Path root, BufferPoolManager bufferPool, CatalogManager catalog) {
-        this(root, bufferPool, catalog, new IndexManager(root, bufferPool, catalog));
+        this(root, bufferPool, catalog, new IndexManager(root, bufferPool, catalog), new HeapFileRegistry());
+    }
+
+    public SqlService(
+            Path root,
+            BufferPoolManager bufferPool,
+            CatalogManager catalog,
+            IndexManager indexManager,
+            HeapFileRegistry heapFiles
+    ) {
+        this(root, bufferPool, catalog, indexManager, heapFiles, DEFAULT_QUERY_MEMORY_BUDGET_BYTES);
     }
 
-    public SqlService(Path root, BufferPoolManager bufferPool, CatalogManager catalog, IndexManager indexManager) {
+    public SqlService(
+            Path root,
+            BufferPoolManager bufferPool,
+            CatalogManager catalog,
+            IndexManager indexManager,
+            HeapFileRegistry heapFiles,
+            long queryMemoryBudgetBytes
+    ) {
+        if (queryMemoryBudgetBytes <= 0) throw new IllegalArgumentException("queryMemoryBudgetBytes must be > 0");
         this.root = Objects.requireNonNull(root, "root");
         this.bufferPool = Objects.requireNonNull(bufferPool, "bufferPool");
         this.catalog = Objects.requireNonNull(catalog, "catalog");
         this.indexManager = Objects.requireNonNull(indexManager, "indexManager");
+        this.heapFiles = Objects.requireNonNull(heapFiles, "heapFiles");
+        this.queryMemoryBudgetBytes = queryMemoryBudgetBytes;
 
-        this.optimizer = new OptimizerImpl(this.catalog);
-        this.executorFactory = new ExecutorFactoryImpl(this.root, bufferPool, this.catalog, this.indexManager);
+        this.optimizer = new OptimizerImpl(this.catalog, new CostModel(bufferPool.getPoolSize()));
+        this.rowEstimator = new RowEstimator(this.catalog);
+        this.executorFactory = new ExecutorFactoryImpl(this.root, bufferPool, this.catalog, this.heapFiles, this.indexManager);
     }
 
     public ExecutionResult execute(SessionContext ctx, String sql) {
         Objects.requireNonNull(ctx, "ctx");
-        return executeInternal(sql, ctx.trace(), ctx.sessionId(), ctx.requestId());
+        return withCancellation(ctx, () -> executeInternal(sql, ctx.trace(), ctx.sessionId(), ctx.requestId(), true, null));
+    }
+
+    public ExecutionResult execute(SessionContext ctx, String sql, ResultSink sink) {
+        Objects.requireNonNull(ctx, "ctx");
+        Objects.requireNonNull(sink, "sink");
+        return withCancellation(ctx, () -> executeInternal(sql, ctx.trace(), ctx.sessionId(), ctx.requestId(), true, sink));
     }
 
     public ExecutionResult execute(String sql) {
-        return executeInternal(sql, false, null, null);
+        return released(executeInternal(sql, false, null, null, true, null));
     }
 
     public ExecutionResult execute(String sql, boolean trace) {
-        return executeInternal(sql, trace, null, null);
+        return released(executeInternal(sql, trace, null, null, true, null));
+    }
+
+    public List<ExecutionResult> executeBatch(SessionContext ctx, List<String> statements) {
+        Objects.requireNonNull(ctx, "ctx");
+        if (statements == null) throw new IllegalArgumentException("statements is null");
+
+        List<ExecutionResult> results = new ArrayList<>(statements.size());
+        CancellationToken previous = CancellationToken.bind(ctx.cancellation());
+        try {
+            for (int i = 0; i < statements.size(); i++) {
+                try {
+                    ExecutionResult r = executeInternal(statements.get(i), ctx.trace(), ctx.sessionId(), ctx.requestId(), false, null);
+                    results.add(ctx.retainResultMemory() ? r : released(r));
+                } catch (RuntimeException e) {
+                    throw new BatchExecutionException(i, results, e);
+                }
+            }
+        } finally {
+            CancellationToken.restore(previous);
+            bufferPool.flushAllPages();
+        }
+        return results;
     }
 
-    private ExecutionResult executeInternal(String sql, boolean trace, String sessionId, String requestId) {
+    public ExecutionResult prepare(SessionContext ctx, String name, String sql) {
+        Objects.requireNonNull(ctx, "ctx");
+        if (name == null || name.isBlank()) throw new IllegalArgumentException("statement name is empty");
         if (sql == null) throw new IllegalArgumentException("sql is null");
 
+        CachedPlan plan = planFor(sql, ctx.sessionId());
+        session(ctx.sessionId()).prepare(name, plan);
+        log.info("Prepared sessionId={} requestId={} name={} params={}",
+                ctx.sessionId(), ctx.requestId(), name, plan.parameterTypes().size());
+        return new ExecutionResult(plan.columns(), List.of(), 0, null, plan.columnTypes());
+    }
+
+    public ExecutionResult executePrepared(SessionContext ctx, String name, List<Object> params) {
+        return executePrepared(ctx, name, params, null);
+    }
+
+    public ExecutionResult executePrepared(SessionContext ctx, String name, List<Object> params, ResultSink sink) {
+        Objects.requireNonNull(ctx, "ctx");
+        return withCancellation(ctx, () -> executePreparedInternal(ctx, name, params, sink));
+    }
+
+    private ExecutionResult executePreparedInternal(SessionContext ctx, String name, List<Object> params, ResultSink sink) {
+        if (name == null) throw new IllegalArgumentException("statement name is null");
+
         long startNs = System.nanoTime();
+        SessionStatements statements = session(ctx.sessionId());
+        CachedPlan plan = statements.prepared(name);
+        if (plan == null) {
+            throw new IllegalArgumentException("Prepared statement not found: " + name);
+        }
+        if (plan.catalogVersion() != catalog.getVersion()) {
+            plan = planFor(plan.sql(), ctx.sessionId());
+            statements.prepare(name, plan);
+        }
+        return run(plan, params == null ? List.of() : params, null, startNs, ctx.sessionId(), ctx.requestId(), true, sink);
+    }
+
+    private ExecutionResult withCancellation(SessionContext ctx, Supplier<ExecutionResult> body) {
+        CancellationToken previous = CancellationToken.bind(ctx.cancellation());
+        try {
+            ExecutionResult r = body.get();
+            return ctx.retainResultMemory() ? r : released(r);
+        } finally {
+            CancellationToken.restore(previous);
+        }
+    }
+
+    private static ExecutionResult released(ExecutionResult r) {
+        if (r.memory() == null) {
+            return r;
+        }
+        r.close();
+        return new ExecutionResult(r.columns(), r.rows(), r.affected(), r.explain(), r.columnTypes());
+    }
+
+    public void closeSession(String sessionId) {
+        if (sessionId != null) {
+            sessions.remove(sessionId);
+        }
+    }
+
+    public PlanCache globalPlanCache() {
+        return globalPlans;
+    }
+
+    public MemoryPool memoryPool() {
+        return memoryPool;
+    }
+
+    public HeapFileRegistry heapFiles() {
+        return heapFiles;
+    }
+
+    private QueryMemoryContext newMemoryContext() {
+        return new QueryMemoryContext(memoryPool, Math.min(queryMemoryBudgetBytes, memoryPool.getCapacityBytes()));
+    }
+
+    private ExecutionResult executeInternal(
+            String sql,
+            boolean trace,
+            String sessionId,
+            String requestId,
+            boolean flush,
+            ResultSink sink
+    ) {
+        if (sql == null) throw new IllegalArgumentException("sql is null");
+        CancellationToken.checkpoint();
+
+        long startNs = System.nanoTime();
+
+        String key = PlanCache.normalize(sql);
+        if (!trace) {
+            CachedPlan cached = cachedPlan(sessionId, key);
+            if (cached != null) {
+                return run(cached, List.of(), null, startNs, sessionId, requestId, flush, sink);
+            }
+        }
 
-        
         SqlLexer lexer = new SqlLexer();
         SqlParser parser = new SqlParser();
         List<Token> tokens = lexer.tokenize(sql);
@@ -102,35 +269,213 @@ public final class SqlService {
             );
         }
 
-        
+        if (queryTree instanceof ExplainQueryTree ex && ex.analyze()) {
+            return explainAnalyze(ex, physicalPlan, pipelineText, startNs, sessionId, requestId);
+        }
+
         if (queryTree.getType() == QueryType.EXPLAIN) {
             long tookMs = (System.nanoTime() - startNs) / 1_000_000;
             log.info("Query done sessionId={} requestId={} type={} tookMs={}", sessionId, requestId, queryTree.getType(), tookMs);
             return new ExecutionResult(List.of(), List.of(), 0, pipelineText);
         }
 
-        Executor executor = executorFactory.createExecutor(physicalPlan);
-        List<List<Object>> rows = engine.execute(executor);
+        CachedPlan plan = toCachedPlan(sql, queryTree, physicalPlan);
+        if (isCacheable(queryTree.getType())) {
+            cachePlan(sessionId, key, plan);
+        }
+        return run(plan, List.of(), trace ? pipelineText : null, startNs, sessionId, requestId, flush, sink);
+    }
+
+    private ExecutionResult run(
+            CachedPlan plan,
+            List<Object> params,
+            String explain,
+            long startNs,
+            String sessionId,
+            String requestId,
+            boolean flush,
+            ResultSink sink
+    ) {
+        PhysicalPlanNode bound = ParameterBinder.bind(plan.plan(), plan.parameterTypes(), params);
+        List<List<Object>> rows;
+        long rowCount;
+        int modified = 0;
+        QueryMemoryContext memory = newMemoryContext();
+        try {
+            QueryMemoryContext previous = QueryMemoryContext.bind(memory);
+            try {
+                Executor executor = executorFactory.createExecutor(bound);
+                if (isModification(plan.type())) {
+                    if (sink != null) {
+                        sink.begin(plan.columns(), plan.columnTypes());
+                    }
+                    modified = ((Number) engine.execute(executor).get(0).get(0)).intValue();
+                    rows = List.of();
+                    rowCount = 0;
+                } else if (sink == null) {
+                    rows = engine.execute(executor);
+                    rowCount = rows.size();
+                } else {
+                    sink.begin(plan.columns(), plan.columnTypes());
+                    rows = List.of();
+                    rowCount = engine.execute(executor, sink::row);
+                }
+            } finally {
+                QueryMemoryContext.restore(previous);
+            }
 
-        
-        if (queryTree.getType() != QueryType.SELECT) {
-            bufferPool.flushAllPages();
+            if (flush && plan.type() != QueryType.SELECT) {
+                bufferPool.flushAllPages();
+            }
+        } catch (RuntimeException | Error e) {
+            memory.close();
+            throw e;
+        }
+        long peakMemory = memory.getPeakBytes();
+        if (rows.isEmpty() && (sink == null || rowCount == 0)) {
+            memory.close();
+            memory = null;
+        }
+
+        int affected = plan.type() == QueryType.INSERT ? 1 : modified;
+
+        long tookMs = (System.nanoTime() - startNs) / 1_000_000;
+        log.info("Query done sessionId={} requestId={} type={} tookMs={} rows={} affected={} peakMemBytes={}",
+                sessionId, requestId, plan.type(), tookMs, rowCount, affected, peakMemory);
+
+        return new ExecutionResult(plan.columns(), rows, affected, explain, plan.columnTypes(), memory);
+    }
+
+    private CachedPlan planFor(String sql, String sessionId) {
+        String key = PlanCache.normalize(sql);
+        CachedPlan cached = cachedPlan(sessionId, key);
+        if (cached != null) {
+            return cached;
+        }
+
+        List<Token> tokens = new SqlLexer().tokenize(sql);
+        Statement ast = new SqlParser().parse(tokens);
+        QueryTree queryTree = semanticAnalyzer.analyze(ast, catalog);
+        if (!isCacheable(queryTree.getType())) {
+            throw new IllegalArgumentException("Only SELECT, INSERT, UPDATE and DELETE statements can be prepared");
         }
+        PhysicalPlanNode physicalPlan = optimizer.optimize(planner.plan(queryTree));
+
+        CachedPlan plan = toCachedPlan(sql, queryTree, physicalPlan);
+        cachePlan(sessionId, key, plan);
+        return plan;
+    }
 
+    private CachedPlan toCachedPlan(String sql, QueryTree queryTree, PhysicalPlanNode physicalPlan) {
         List<String> columns = List.of();
+        List<String> columnTypes = List.of();
         if (queryTree instanceof SelectQueryTree s) {
             columns = s.targetColumns().stream().map(c -> c.getName()).toList();
+            columnTypes = s.targetColumns().stream().map(c -> {
+                TypeDefinition type = catalog.getTypeByOid(c.getTypeOid());
+                return type == null ? "UNKNOWN" : type.getName();
+            }).toList();
         }
+        return new CachedPlan(
+                sql,
+                queryTree.getType(),
+                physicalPlan,
+                ParameterBinder.parameterTypes(physicalPlan),
+                columns,
+                columnTypes,
+                catalog.getVersion()
+        );
+    }
 
-        int affected = queryTree.getType() == QueryType.INSERT ? 1 : 0;
+    private CachedPlan cachedPlan(String sessionId, String key) {
+        long version = catalog.getVersion();
+        SessionStatements statements = sessionId == null ? null : session(sessionId);
+        if (statements != null) {
+            CachedPlan plan = statements.plans.get(key, version);
+            if (plan != null) {
+                return plan;
+            }
+        }
+        CachedPlan plan = globalPlans.get(key, version);
+        if (plan != null && statements != null) {
+            statements.plans.put(key, plan);
+        }
+        return plan;
+    }
 
-        long tookMs = (System.nanoTime() - startNs) / 1_000_000;
-        log.info("Query done sessionId={} requestId={} type={} tookMs={} rows={} affected={}",
-                sessionId, requestId, queryTree.getType(), tookMs, rows.size(), affected);
+    private void cachePlan(String sessionId, String key, CachedPlan plan) {
+        globalPlans.put(key, plan);
+        if (sessionId != null) {
+            session(sessionId).plans.put(key, plan);
+        }
+    }
 
-        String explain = (trace ? pipelineText : null);
-        return new ExecutionResult(columns, rows, affected, explain);
+    private SessionStatements session(String sessionId) {
+        String id = sessionId == null ? "" : sessionId;
+        return sessions.computeIfAbsent(id, ignored -> new SessionStatements(SESSION_PLAN_CACHE_SIZE));
     }
-}
 
+    private static boolean isCacheable(QueryType type) {
+        return type == QueryType.SELECT || type == QueryType.INSERT || isModification(type);
+    }
+
+    private static boolean isModification(QueryType type) {
+        return type == QueryType.DELETE || type == QueryType.UPDATE;
+    }
+
+    private ExecutionResult explainAnalyze(
+            ExplainQueryTree queryTree,
+            PhysicalPlanNode physicalPlan,
+            String pipelineText,
+            long startNs,
+            String sessionId,
+            String requestId
+    ) {
+        ExecutionProfile profile = new ExecutionProfile();
+        long rowCount;
+        long execNs;
+        long peakMemory;
+        try (QueryMemoryContext memory = newMemoryContext()) {
+            QueryMemoryContext previous = QueryMemoryContext.bind(memory);
+            try {
+                Executor executor = executorFactory.createExecutor(physicalPlan, profile);
+                long execStartNs = System.nanoTime();
+                rowCount = engine.execute(executor, row -> {
+                });
+                execNs = System.nanoTime() - execStartNs;
+            } finally {
+                QueryMemoryContext.restore(previous);
+            }
+            peakMemory = memory.getPeakBytes();
+        }
+
+        if (queryTree.inner().getType() != QueryType.SELECT) {
+            bufferPool.flushAllPages();
+        }
+
+        String analyzeText = ExplainFormatter.formatAnalyze(physicalPlan, profile, rowEstimator, execNs, peakMemory);
+        log.info("EXPLAIN ANALYZE sessionId={} requestId={}\n{}", sessionId, requestId, analyzeText);
 
+        long tookMs = (System.nanoTime() - startNs) / 1_000_000;
+        log.info("Query done sessionId={} requestId={} type={} tookMs={} rows={}",
+                sessionId, requestId, queryTree.getType(), tookMs, rowCount);
+        return new ExecutionResult(List.of(), List.of(), 0, pipelineText + "\n" + analyzeText);
+    }
+
+    private static final class SessionStatements {
+        private final PlanCache plans;
+        private final Map<String, CachedPlan> prepared = new HashMap<>();
+
+        SessionStatements(int planCacheSize) {
+            this.plans = new PlanCache(planCacheSize);
+        }
+
+        synchronized void prepare(String name, CachedPlan plan) {
+            prepared.put(name, plan);
+        }
+
+        synchronized CachedPlan prepared(String name) {
+            return prepared.get(name);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package ru.open.cu.student.execution;
+
+import java.util.concurrent.TimeUnit;
+
+public final class CancellationToken {
+    public static final CancellationToken NONE = new CancellationToken(0);
+
+    private static final ThreadLocal<CancellationToken> CURRENT = new ThreadLocal<>();
+
+    private final long deadlineNanos;
+    private final long timeoutMs;
+    private volatile boolean cancelled;
+
+    private CancellationToken(long timeoutMs) {
+        this.timeoutMs = timeoutMs;
+        this.deadlineNanos = timeoutMs > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs) : 0;
+    }
+
+    public static CancellationToken create() {
+        return new CancellationToken(0);
+    }
+
+    public static CancellationToken withTimeout(long timeoutMs) {
+        if (timeoutMs <= 0) throw new IllegalArgumentException("timeoutMs must be > 0");
+        return new CancellationToken(timeoutMs);
+    }
+
+    public void cancel() {
+        if (this == NONE) throw new IllegalStateException("NONE token cannot be cancelled");
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public long remainingNanos() {
+        if (deadlineNanos == 0) return Long.MAX_VALUE;
+        return Math.max(0, deadlineNanos - System.nanoTime());
+    }
+
+    public void throwIfCancelled() {
+        if (cancelled) {
+            throw new QueryCancelledException("Query was cancelled", false);
+        }
+        if (remainingNanos() == 0) {
+            throw new QueryCancelledException("Query exceeded timeout of " + timeoutMs + " ms", true);
+        }
+    }
+
+    public static CancellationToken bind(CancellationToken token) {
+        CancellationToken previous = CURRENT.get();
+        if (token == null || token == NONE) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(token);
+        }
+        return previous;
+    }
+
+    public static void restore(CancellationToken previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    public static void checkpoint() {
+        CancellationToken token = CURRENT.get();
+        if (token != null) {
+            token.throwIfCancelled();
+        }
+    }
+}
@@ -1,9 +1,12 @@
 package ru.open.cu.student.execution;
 
+import ru.open.cu.student.execution.profile.ExecutionProfile;
 import ru.open.cu.student.optimizer.node.PhysicalPlanNode;
 
 public interface ExecutorFactory {
     Executor createExecutor(PhysicalPlanNode plan);
+
+    Executor createExecutor(PhysicalPlanNode plan, ExecutionProfile profile);
 }
 
 
@@ -1,71 +1,231 @@
 package ru.open.cu.student.execution;
 
 import ru.open.cu.student.catalog.manager.CatalogManager;
+import ru.open.cu.student.catalog.model.ColumnDefinition;
+import ru.open.cu.student.catalog.model.IndexDefinition;
+import ru.open.cu.student.catalog.model.TableDefinition;
+import ru.open.cu.student.catalog.model.TypeDefinition;
 import ru.open.cu.student.execution.executors.*;
+import ru.open.cu.student.execution.profile.ExecutionProfile;
+import ru.open.cu.student.index.DiskBTreeIndex;
 import ru.open.cu.student.index.Index;
 import ru.open.cu.student.index.IndexManager;
+import ru.open.cu.student.index.IndexType;
 import ru.open.cu.student.memory.buffer.BufferPoolManager;
 import ru.open.cu.student.optimizer.node.*;
+import ru.open.cu.student.sql.semantic.UpdateQueryTree;
+import ru.open.cu.student.storage.HeapFileRegistry;
 import ru.open.cu.student.storage.TableHeap;
+import ru.open.cu.student.storage.TID;
+import ru.open.cu.student.storage.TidBitmap;
 
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Objects;
+import java.util.function.Supplier;
 
 public final class ExecutorFactoryImpl implements ExecutorFactory {
     private final Path root;
     private final BufferPoolManager bufferPool;
     private final CatalogManager catalog;
+    private final HeapFileRegistry heapFiles;
     private final IndexManager indexManager;
 
-    public ExecutorFactoryImpl(Path root, BufferPoolManager bufferPool, CatalogManager catalog, IndexManager indexManager) {
+    public ExecutorFactoryImpl(
+            Path root,
+            BufferPoolManager bufferPool,
+            CatalogManager catalog,
+            HeapFileRegistry heapFiles,
+            IndexManager indexManager
+    ) {
         this.root = Objects.requireNonNull(root, "root");
         this.bufferPool = Objects.requireNonNull(bufferPool, "bufferPool");
         this.catalog = Objects.requireNonNull(catalog, "catalog");
+        this.heapFiles = Objects.requireNonNull(heapFiles, "heapFiles");
         this.indexManager = Objects.requireNonNull(indexManager, "indexManager");
     }
 
     @Override
     public Executor createExecutor(PhysicalPlanNode plan) {
         Objects.requireNonNull(plan, "plan");
+        return create(plan, null);
+    }
+
+    @Override
+    public Executor createExecutor(PhysicalPlanNode plan, ExecutionProfile profile) {
+        Objects.requireNonNull(plan, "plan");
+        Objects.requireNonNull(profile, "profile");
+        return create(plan, profile);
+    }
 
+    private Executor create(PhysicalPlanNode plan, ExecutionProfile profile) {
         if (plan instanceof PhysicalExplainNode ex) {
-            
-            return createExecutor(ex.inner());
+            return create(ex.inner(), profile);
         }
+        Executor executor = createNode(plan, profile);
+        return profile == null ? executor : profile.instrument(plan, executor);
+    }
 
+    private Executor createNode(PhysicalPlanNode plan, ExecutionProfile profile) {
         if (plan instanceof PhysicalCreateTableNode ct) {
             return new CreateTableExecutor(catalog, ct.query());
         }
 
         if (plan instanceof PhysicalCreateIndexNode ci) {
-            return new CreateIndexExecutor(root, bufferPool, catalog, indexManager, ci.query());
+            return new CreateIndexExecutor(root, bufferPool, catalog, heapFiles, indexManager, ci.query());
+        }
+
+        if (plan instanceof PhysicalAnalyzeNode an) {
+            return new AnalyzeExecutor(root, bufferPool, catalog, heapFiles, an.query());
+        }
+
+        if (plan instanceof PhysicalVacuumNode vac) {
+            return new VacuumExecutor(root, bufferPool, catalog, heapFiles, vac.query());
         }
 
         if (plan instanceof PhysicalInsertNode ins) {
-            return new InsertExecutor(root, bufferPool, catalog, indexManager, ins.query());
+            return new InsertExecutor(root, bufferPool, catalog, heapFiles, indexManager, ins.query());
+        }
+
+        if (plan instanceof PhysicalDeleteNode del) {
+            TableHeap tableHeap = new TableHeap(root, bufferPool, catalog, heapFiles, del.query().table());
+            return new DeleteExecutor(
+                    tableHeap,
+                    tidSource(del.child(), tableHeap),
+                    del.query().filter(),
+                    indexedColumns(del.query().table(), del.query().columns())
+            );
+        }
+
+        if (plan instanceof PhysicalUpdateNode upd) {
+            UpdateQueryTree q = upd.query();
+            TableHeap tableHeap = new TableHeap(root, bufferPool, catalog, heapFiles, q.table());
+            int[] setPositions = q.setColumns().stream().mapToInt(ColumnDefinition::getPosition).toArray();
+            return new UpdateExecutor(
+                    tableHeap,
+                    tidSource(upd.child(), tableHeap),
+                    q.filter(),
+                    setPositions,
+                    q.setValues(),
+                    indexedColumns(q.table(), q.columns())
+            );
         }
 
         if (plan instanceof PhysicalProjectNode p) {
-            return new ProjectExecutor(createExecutor(p.child()), p.columns());
+            return new ProjectExecutor(create(p.child(), profile), p.columns());
         }
 
         if (plan instanceof PhysicalFilterNode f) {
-            return new FilterExecutor(createExecutor(f.child()), f.predicate());
+            return new FilterExecutor(create(f.child(), profile), f.predicate());
+        }
+
+        if (plan instanceof PhysicalHashAggregateNode agg) {
+            return new HashAggregateExecutor(
+                    create(agg.child(), profile),
+                    agg.groupBy(),
+                    agg.aggregates(),
+                    isSingleInt64Key(agg.groupBy()),
+                    root.resolve("tmp")
+            );
+        }
+
+        if (plan instanceof PhysicalStreamAggregateNode agg) {
+            return new StreamAggregateExecutor(create(agg.child(), profile), agg.groupBy(), agg.aggregates());
+        }
+
+        if (plan instanceof PhysicalHashJoinNode j) {
+            return new HashJoinExecutor(
+                    create(j.left(), profile),
+                    create(j.right(), profile),
+                    j.join().leftKey().getPosition(),
+                    j.join().rightKey().getPosition(),
+                    catalog.getColumns(j.join().table()).size(),
+                    j.join().type(),
+                    j.buildLeft(),
+                    root.resolve("tmp")
+            );
+        }
+
+        if (plan instanceof PhysicalMergeJoinNode j) {
+            return new MergeJoinExecutor(
+                    create(j.left(), profile),
+                    create(j.right(), profile),
+                    j.join().leftKey().getPosition(),
+                    j.join().rightKey().getPosition(),
+                    catalog.getColumns(j.join().table()).size(),
+                    j.join().type()
+            );
+        }
+
+        if (plan instanceof PhysicalIndexNestedLoopJoinNode j) {
+            TableHeap tableHeap = new TableHeap(root, bufferPool, catalog, heapFiles, j.join().table());
+            return new IndexNestedLoopJoinExecutor(
+                    create(j.left(), profile),
+                    indexManager.getOrCreate(j.index()),
+                    tableHeap,
+                    j.join().leftKey().getPosition(),
+                    tableHeap.getColumns().size(),
+                    j.join().type()
+            );
+        }
+
+        if (plan instanceof PhysicalMetadataCountNode count) {
+            TableHeap tableHeap = new TableHeap(root, bufferPool, catalog, heapFiles, count.table());
+            return new MetadataCountExecutor(tableHeap::countRows, count.aggregates().size());
+        }
+
+        if (plan instanceof PhysicalIndexCountNode count) {
+            Index idx = indexManager.getOrCreate(count.index());
+            Comparable<?> key = (Comparable<?>) count.value();
+            return new MetadataCountExecutor(() -> idx.count(key), count.aggregates().size());
         }
 
         if (plan instanceof PhysicalSeqScanNode scan) {
-            TableHeap tableHeap = new TableHeap(root, bufferPool, catalog, scan.table());
+            TableHeap tableHeap = new TableHeap(root, bufferPool, catalog, heapFiles, scan.table());
             return new SeqScanExecutor(tableHeap);
         }
 
         if (plan instanceof PhysicalHashIndexScanNode scan) {
-            TableHeap tableHeap = new TableHeap(root, bufferPool, catalog, scan.table());
+            TableHeap tableHeap = new TableHeap(root, bufferPool, catalog, heapFiles, scan.table());
             Index idx = indexManager.getOrCreate(scan.index());
             return new HashIndexScanExecutor(idx, (Comparable<?>) scan.value(), tableHeap);
         }
 
+        if (plan instanceof PhysicalMultiRangeIndexScanNode scan) {
+            TableHeap tableHeap = new TableHeap(root, bufferPool, catalog, heapFiles, scan.table());
+            return new MultiRangeIndexScanExecutor(indexManager.getOrCreate(scan.index()), scan.ranges(), tableHeap);
+        }
+
+        if (plan instanceof PhysicalBitmapHeapScanNode scan) {
+            TableHeap tableHeap = new TableHeap(root, bufferPool, catalog, heapFiles, scan.table());
+            return new BitmapHeapScanExecutor(tableHeap, bitmapSource(scan.bitmap(), profile));
+        }
+
+        if (plan instanceof PhysicalBTreeIndexScanNode scan && scan.indexOnly()
+                && indexManager.getOrCreate(scan.index()) instanceof DiskBTreeIndex btree) {
+            List<ColumnDefinition> columns = catalog.getColumns(scan.table());
+            IndexDefinition def = scan.index();
+            List<Integer> oids = new ArrayList<>(def.getColumnOids());
+            oids.addAll(def.getIncludeColumnOids());
+            int[] positions = new int[oids.size()];
+            for (int i = 0; i < positions.length; i++) {
+                positions[i] = positionOf(columns, oids.get(i));
+            }
+            return new IndexOnlyScanExecutor(
+                    btree,
+                    (Comparable<?>) scan.from(),
+                    scan.fromInclusive(),
+                    (Comparable<?>) scan.to(),
+                    scan.toInclusive(),
+                    columns.size(),
+                    positions
+            );
+        }
+
         if (plan instanceof PhysicalBTreeIndexScanNode scan) {
-            TableHeap tableHeap = new TableHeap(root, bufferPool, catalog, scan.table());
+            TableHeap tableHeap = new TableHeap(root, bufferPool, catalog, heapFiles, scan.table());
             Index idx = indexManager.getOrCreate(scan.index());
             return new BTreeIndexScanExecutor(
                     idx,
@@ -79,6 +239,122 @@ public final class ExecutorFactoryImpl implements ExecutorFactory {
 
         throw new UnsupportedOperationException("Unsupported physical node: " + plan.getClass().getSimpleName());
     }
+
+    private Supplier<Iterator<TID>> tidSource(PhysicalPlanNode access, TableHeap tableHeap) {
+        if (access instanceof PhysicalFilterNode f) {
+            return tidSource(f.child(), tableHeap);
+        }
+        if (access instanceof PhysicalSeqScanNode) {
+            return () -> tableHeap.scanTids().iterator();
+        }
+        if (access instanceof PhysicalHashIndexScanNode scan) {
+            Index idx = indexManager.getOrCreate(scan.index());
+            Comparable<?> key = (Comparable<?>) scan.value();
+            return () -> idx.search(key).iterator();
+        }
+        if (access instanceof PhysicalBTreeIndexScanNode scan) {
+            Index idx = indexManager.getOrCreate(scan.index());
+            return () -> idx.scan(
+                    (Comparable<?>) scan.from(),
+                    scan.fromInclusive(),
+                    (Comparable<?>) scan.to(),
+                    scan.toInclusive(),
+                    false
+            );
+        }
+        if (access instanceof PhysicalMultiRangeIndexScanNode scan) {
+            Index idx = indexManager.getOrCreate(scan.index());
+            return () -> MultiRangeIndexScanExecutor.tids(idx, scan.ranges());
+        }
+        if (access instanceof PhysicalBitmapHeapScanNode scan) {
+            Supplier<TidBitmap> bitmap = bitmapSource(scan.bitmap(), null);
+            return () -> bitmap.get().tids();
+        }
+        throw new UnsupportedOperationException("Unsupported access path for modification: " + access.getClass().getSimpleName());
+    }
+
+    private Supplier<TidBitmap> bitmapSource(PhysicalPlanNode node, ExecutionProfile profile) {
+        Supplier<TidBitmap> source = createBitmapSource(node, profile);
+        return profile == null ? source : profile.instrumentBitmap(node, source);
+    }
+
+    private Supplier<TidBitmap> createBitmapSource(PhysicalPlanNode node, ExecutionProfile profile) {
+        if (node instanceof PhysicalBitmapIndexScanNode scan) {
+            Index idx = indexManager.getOrCreate(scan.index());
+            if (scan.index().getIndexType() == IndexType.HASH) {
+                Comparable<?> key = (Comparable<?>) scan.from();
+                return () -> {
+                    TidBitmap bitmap = new TidBitmap();
+                    bitmap.addAll(idx.search(key).iterator());
+                    return bitmap;
+                };
+            }
+            return () -> {
+                TidBitmap bitmap = new TidBitmap();
+                bitmap.addAll(idx.scan(
+                        (Comparable<?>) scan.from(),
+                        scan.fromInclusive(),
+                        (Comparable<?>) scan.to(),
+                        scan.toInclusive(),
+                        false
+                ));
+                return bitmap;
+            };
+        }
+        if (node instanceof PhysicalBitmapAndNode and) {
+            List<Supplier<TidBitmap>> inputs = new ArrayList<>();
+            for (PhysicalPlanNode input : and.inputs()) {
+                inputs.add(bitmapSource(input, profile));
+            }
+            return () -> {
+                TidBitmap out = inputs.get(0).get();
+                for (int i = 1; i < inputs.size() && out.cardinality() > 0; i++) {
+                    out = out.and(inputs.get(i).get());
+                }
+                return out;
+            };
+        }
+        if (node instanceof PhysicalBitmapOrNode or) {
+            List<Supplier<TidBitmap>> inputs = new ArrayList<>();
+            for (PhysicalPlanNode input : or.inputs()) {
+                inputs.add(bitmapSource(input, profile));
+            }
+            return () -> {
+                TidBitmap out = inputs.get(0).get();
+                for (int i = 1; i < inputs.size(); i++) {
+                    out = out.or(inputs.get(i).get());
+                }
+                return out;
+            };
+        }
+        throw new UnsupportedOperationException("Unsupported bitmap node: " + node.getClass().getSimpleName());
+    }
+
+    private List<IndexedColumn> indexedColumns(TableDefinition table, List<ColumnDefinition> columns) {
+        List<IndexedColumn> out = new ArrayList<>();
+        for (IndexDefinition def : catalog.listIndexes(table)) {
+            IndexedColumn idx = IndexedColumn.of(indexManager.getOrCreate(def), columns);
+            if (idx != null) {
+                out.add(idx);
+            }
+        }
+        return out;
+    }
+
+    private static int positionOf(List<ColumnDefinition> columns, int columnOid) {
+        for (ColumnDefinition c : columns) {
+            if (c.getOid() == columnOid) {
+                return c.getPosition();
+            }
+        }
+        throw new IllegalStateException("Unknown column oid: " + columnOid);
+    }
+
+    private boolean isSingleInt64Key(List<ColumnDefinition> groupBy) {
+        if (groupBy.size() != 1) return false;
+        TypeDefinition type = catalog.getTypeByOid(groupBy.get(0).getTypeOid());
+        return type != null && "INT64".equals(type.getName());
+    }
 }
 
 
@@ -0,0 +1,14 @@
+package ru.open.cu.student.execution;
+
+public final class QueryCancelledException extends RuntimeException {
+    private final boolean timedOut;
+
+    public QueryCancelledException(String message, boolean timedOut) {
+        super(message);
+        this.timedOut = timedOut;
+    }
+
+    public boolean isTimedOut() {
+        return timedOut;
+    }
+}
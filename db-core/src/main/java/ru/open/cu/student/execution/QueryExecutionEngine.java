@@ -1,9 +1,10 @@
 package ru.open.cu.student.execution;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface QueryExecutionEngine {
     List<List<Object>> execute(Executor executor);
-}
-
 
+    long execute(Executor executor, Consumer<List<Object>> sink);
+}
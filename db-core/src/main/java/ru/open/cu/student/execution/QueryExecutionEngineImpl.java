@@ -1,27 +1,48 @@
 package ru.open.cu.student.execution;
 
+import ru.open.cu.student.execution.memory.QueryMemoryContext;
+
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 public final class QueryExecutionEngineImpl implements QueryExecutionEngine {
+    private static final int CHECK_INTERVAL_MASK = 255;
+
     @Override
     public List<List<Object>> execute(Executor executor) {
+        QueryMemoryContext memory = QueryMemoryContext.current();
+        List<List<Object>> rows = new ArrayList<>();
+        execute(executor, row -> {
+            memory.reserve(QueryMemoryContext.estimateRowBytes(row), "ResultSet");
+            rows.add(row);
+        });
+        return rows;
+    }
+
+    @Override
+    public long execute(Executor executor, Consumer<List<Object>> sink) {
         if (executor == null) {
             throw new IllegalArgumentException("executor is null");
         }
+        if (sink == null) {
+            throw new IllegalArgumentException("sink is null");
+        }
 
-        List<List<Object>> rows = new ArrayList<>();
+        long count = 0;
         try {
+            CancellationToken.checkpoint();
             executor.open();
             List<Object> row;
             while ((row = executor.next()) != null) {
-                rows.add(row);
+                sink.accept(row);
+                if ((++count & CHECK_INTERVAL_MASK) == 0) {
+                    CancellationToken.checkpoint();
+                }
             }
         } finally {
             executor.close();
         }
-        return rows;
+        return count;
     }
 }
-
-
@@ -0,0 +1,145 @@
+package ru.open.cu.student.execution.aggregate;
+
+import ru.open.cu.student.index.KeyOrder;
+import ru.open.cu.student.sql.semantic.AggregateFunction;
+import ru.open.cu.student.sql.semantic.ExprType;
+import ru.open.cu.student.sql.semantic.ResolvedAggregate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+
+public final class AggregateAccumulators {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final List<ResolvedAggregate> aggregates;
+    private final int[] argPositions;
+    private final boolean[] objectTyped;
+
+    private final long[][] values;
+    private final long[][] counts;
+    private final Object[][] objects;
+    private int capacity;
+
+    public AggregateAccumulators(List<ResolvedAggregate> aggregates) {
+        this.aggregates = List.copyOf(Objects.requireNonNull(aggregates, "aggregates"));
+        int n = this.aggregates.size();
+        this.argPositions = new int[n];
+        this.objectTyped = new boolean[n];
+        this.values = new long[n][];
+        this.counts = new long[n][];
+        this.objects = new Object[n][];
+
+        for (int i = 0; i < n; i++) {
+            ResolvedAggregate agg = this.aggregates.get(i);
+            argPositions[i] = agg.argument() == null ? -1 : agg.argument().getPosition();
+            objectTyped[i] = agg.resultType() != ExprType.INT64;
+        }
+        grow(INITIAL_CAPACITY);
+    }
+
+    public int size() {
+        return aggregates.size();
+    }
+
+    public void ensureCapacity(int groups) {
+        if (groups <= capacity) return;
+        grow(Math.max(groups, capacity * 2));
+    }
+
+    public void reset(int group) {
+        for (int i = 0; i < aggregates.size(); i++) {
+            values[i][group] = 0;
+            counts[i][group] = 0;
+            if (objectTyped[i]) objects[i][group] = null;
+        }
+    }
+
+    public void update(int group, List<Object> row) {
+        for (int i = 0; i < aggregates.size(); i++) {
+            ResolvedAggregate agg = aggregates.get(i);
+            if (agg.isCountStar()) {
+                counts[i][group]++;
+                continue;
+            }
+
+            Object v = row.get(argPositions[i]);
+            if (v == null) continue;
+
+            AggregateFunction fn = agg.function();
+            if (fn == AggregateFunction.COUNT) {
+                counts[i][group]++;
+                continue;
+            }
+
+            if (objectTyped[i]) {
+                Object current = objects[i][group];
+                if (current == null || (fn == AggregateFunction.MIN ? cmp(v, current) < 0 : cmp(v, current) > 0)) {
+                    objects[i][group] = v;
+                }
+                counts[i][group]++;
+                continue;
+            }
+
+            long x = ((Number) v).longValue();
+            long seen = counts[i][group];
+            switch (fn) {
+                case SUM, AVG -> values[i][group] = Math.addExact(values[i][group], x);
+                case MIN -> values[i][group] = seen == 0 ? x : Math.min(values[i][group], x);
+                case MAX -> values[i][group] = seen == 0 ? x : Math.max(values[i][group], x);
+                default -> throw new IllegalStateException("Unsupported aggregate: " + fn);
+            }
+            counts[i][group] = seen + 1;
+        }
+    }
+
+    public void appendResults(int group, List<Object> out) {
+        for (int i = 0; i < aggregates.size(); i++) {
+            AggregateFunction fn = aggregates.get(i).function();
+            long count = counts[i][group];
+            if (fn == AggregateFunction.COUNT) {
+                out.add(count);
+            } else if (count == 0) {
+                out.add(null);
+            } else if (objectTyped[i]) {
+                out.add(objects[i][group]);
+            } else if (fn == AggregateFunction.AVG) {
+                out.add(values[i][group] / count);
+            } else {
+                out.add(values[i][group]);
+            }
+        }
+    }
+
+    public List<Object> results(int group) {
+        List<Object> out = new ArrayList<>(aggregates.size());
+        appendResults(group, out);
+        return out;
+    }
+
+    public int bytesPerGroup() {
+        int bytes = 0;
+        for (int i = 0; i < aggregates.size(); i++) {
+            bytes += 2 * Long.BYTES;
+            if (objectTyped[i]) bytes += Long.BYTES;
+        }
+        return bytes;
+    }
+
+    private void grow(int newCapacity) {
+        for (int i = 0; i < aggregates.size(); i++) {
+            values[i] = values[i] == null ? new long[newCapacity] : Arrays.copyOf(values[i], newCapacity);
+            counts[i] = counts[i] == null ? new long[newCapacity] : Arrays.copyOf(counts[i], newCapacity);
+            if (objectTyped[i]) {
+                objects[i] = objects[i] == null ? new Object[newCapacity] : Arrays.copyOf(objects[i], newCapacity);
+            }
+        }
+        capacity = newCapacity;
+    }
+
+    private static int cmp(Object a, Object b) {
+        return KeyOrder.compare(a, b);
+    }
+}
@@ -0,0 +1,108 @@
+package ru.open.cu.student.execution.aggregate;
+
+import java.util.Arrays;
+
+
+public final class Int64GroupTable {
+    private static final int INITIAL_SLOTS = 64;
+    private static final double MAX_LOAD = 0.5;
+
+    private long[] slotKeys;
+    private int[] slotGroups;
+    private int mask;
+
+    private long[] groupKeys;
+    private int size;
+    private int nullGroup = -1;
+
+    public Int64GroupTable() {
+        allocate(INITIAL_SLOTS);
+        this.groupKeys = new long[INITIAL_SLOTS];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int find(long key) {
+        int slot = mix(key) & mask;
+        while (true) {
+            int g = slotGroups[slot];
+            if (g < 0) return -1;
+            if (slotKeys[slot] == key) return g;
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    public int insert(long key) {
+        if (size + 1 > slotGroups.length * MAX_LOAD) {
+            rehash(slotGroups.length * 2);
+        }
+        int group = nextGroup(key);
+        place(key, group);
+        return group;
+    }
+
+    public int findNull() {
+        return nullGroup;
+    }
+
+    public int insertNull() {
+        if (nullGroup >= 0) {
+            throw new IllegalStateException("NULL group already exists");
+        }
+        nullGroup = nextGroup(0);
+        return nullGroup;
+    }
+
+    public boolean isNullGroup(int group) {
+        return group == nullGroup;
+    }
+
+    public long keyOf(int group) {
+        return groupKeys[group];
+    }
+
+    public static int bytesPerGroup() {
+        return Long.BYTES + 2 * (Long.BYTES + Integer.BYTES);
+    }
+
+    public static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 32;
+        h ^= h >>> 16;
+        return (int) h;
+    }
+
+    private int nextGroup(long key) {
+        int group = size++;
+        if (group >= groupKeys.length) {
+            groupKeys = Arrays.copyOf(groupKeys, groupKeys.length * 2);
+        }
+        groupKeys[group] = key;
+        return group;
+    }
+
+    private void place(long key, int group) {
+        int slot = mix(key) & mask;
+        while (slotGroups[slot] >= 0) {
+            slot = (slot + 1) & mask;
+        }
+        slotKeys[slot] = key;
+        slotGroups[slot] = group;
+    }
+
+    private void rehash(int newSlots) {
+        allocate(newSlots);
+        for (int g = 0; g < size; g++) {
+            if (g != nullGroup) place(groupKeys[g], g);
+        }
+    }
+
+    private void allocate(int slots) {
+        slotKeys = new long[slots];
+        slotGroups = new int[slots];
+        Arrays.fill(slotGroups, -1);
+        mask = slots - 1;
+    }
+}
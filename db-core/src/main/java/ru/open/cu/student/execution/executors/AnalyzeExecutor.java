@@ -0,0 +1,68 @@
+package ru.open.cu.student.execution.executors;
+
+import ru.open.cu.student.catalog.manager.CatalogManager;
+import ru.open.cu.student.catalog.model.TableDefinition;
+import ru.open.cu.student.execution.Executor;
+import ru.open.cu.student.memory.buffer.BufferPoolManager;
+import ru.open.cu.student.optimizer.stats.StatisticsCollector;
+import ru.open.cu.student.sql.semantic.AnalyzeQueryTree;
+import ru.open.cu.student.storage.HeapFileRegistry;
+import ru.open.cu.student.storage.TableHeap;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Objects;
+
+public final class AnalyzeExecutor implements Executor {
+    private final Path root;
+    private final BufferPoolManager bufferPool;
+    private final CatalogManager catalog;
+    private final HeapFileRegistry heapFiles;
+    private final AnalyzeQueryTree query;
+    private final StatisticsCollector collector;
+
+    private boolean executed;
+
+    public AnalyzeExecutor(Path root, BufferPoolManager bufferPool, CatalogManager catalog, HeapFileRegistry heapFiles, AnalyzeQueryTree query) {
+        this(root, bufferPool, catalog, heapFiles, query, new StatisticsCollector());
+    }
+
+    public AnalyzeExecutor(
+            Path root,
+            BufferPoolManager bufferPool,
+            CatalogManager catalog,
+            HeapFileRegistry heapFiles,
+            AnalyzeQueryTree query,
+            StatisticsCollector collector
+    ) {
+        this.root = Objects.requireNonNull(root, "root");
+        this.bufferPool = Objects.requireNonNull(bufferPool, "bufferPool");
+        this.catalog = Objects.requireNonNull(catalog, "catalog");
+        this.heapFiles = Objects.requireNonNull(heapFiles, "heapFiles");
+        this.query = Objects.requireNonNull(query, "query");
+        this.collector = Objects.requireNonNull(collector, "collector");
+    }
+
+    @Override
+    public void open() {
+        
+    }
+
+    @Override
+    public List<Object> next() {
+        if (executed) return null;
+        executed = true;
+
+        for (TableDefinition table : query.tables()) {
+            TableHeap heap = new TableHeap(root, bufferPool, catalog, heapFiles, table);
+            StatisticsCollector.Result stats = collector.collect(heap);
+            catalog.updateStatistics(stats.table(), stats.columns());
+        }
+        return null;
+    }
+
+    @Override
+    public void close() {
+        
+    }
+}
@@ -31,17 +31,21 @@ public final class BTreeIndexScanExecutor implements Executor {
 
     @Override
     public void open() {
-        List<TID> tids = index.rangeSearch(from, fromInclusive, to, toInclusive);
-        this.tidIterator = tids.iterator();
+        this.tidIterator = index.scan(from, fromInclusive, to, toInclusive, false);
         this.isOpen = true;
     }
 
     @Override
     public List<Object> next() {
         if (!isOpen) throw new IllegalStateException("Executor is not open");
-        if (tidIterator == null || !tidIterator.hasNext()) return null;
-        TID tid = tidIterator.next();
-        return table.readRow(tid);
+        if (tidIterator == null) return null;
+        while (tidIterator.hasNext()) {
+            List<Object> row = table.readRow(tidIterator.next());
+            if (row != null) {
+                return row;
+            }
+        }
+        return null;
     }
 
     @Override
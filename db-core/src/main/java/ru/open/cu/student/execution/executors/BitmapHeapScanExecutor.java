@@ -0,0 +1,50 @@
+package ru.open.cu.student.execution.executors;
+
+import ru.open.cu.student.execution.Executor;
+import ru.open.cu.student.storage.TableHeap;
+import ru.open.cu.student.storage.TidBitmap;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+public final class BitmapHeapScanExecutor implements Executor {
+    private final TableHeap table;
+    private final Supplier<TidBitmap> bitmap;
+
+    private Iterator<TidBitmap.PageSlots> pages;
+    private Iterator<List<Object>> rows;
+    private boolean isOpen;
+
+    public BitmapHeapScanExecutor(TableHeap table, Supplier<TidBitmap> bitmap) {
+        this.table = Objects.requireNonNull(table, "table");
+        this.bitmap = Objects.requireNonNull(bitmap, "bitmap");
+    }
+
+    @Override
+    public void open() {
+        this.pages = bitmap.get().pages();
+        this.rows = null;
+        this.isOpen = true;
+    }
+
+    @Override
+    public List<Object> next() {
+        if (!isOpen) throw new IllegalStateException("Executor is not open");
+        if (pages == null) return null;
+        while (rows == null || !rows.hasNext()) {
+            if (!pages.hasNext()) return null;
+            TidBitmap.PageSlots page = pages.next();
+            rows = table.readPageRows(page.pageId(), page.slots()).iterator();
+        }
+        return rows.next();
+    }
+
+    @Override
+    public void close() {
+        isOpen = false;
+        pages = null;
+        rows = null;
+    }
+}
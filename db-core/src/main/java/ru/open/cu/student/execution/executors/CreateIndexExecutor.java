@@ -1,11 +1,13 @@
 package ru.open.cu.student.execution.executors;
 
 import ru.open.cu.student.catalog.manager.CatalogManager;
+import ru.open.cu.student.catalog.model.ColumnDefinition;
 import ru.open.cu.student.catalog.model.IndexDefinition;
 import ru.open.cu.student.execution.Executor;
 import ru.open.cu.student.index.IndexManager;
 import ru.open.cu.student.memory.buffer.BufferPoolManager;
 import ru.open.cu.student.sql.semantic.CreateIndexQueryTree;
+import ru.open.cu.student.storage.HeapFileRegistry;
 import ru.open.cu.student.storage.TableHeap;
 
 import java.nio.file.Path;
@@ -16,15 +18,24 @@ public final class CreateIndexExecutor implements Executor {
     private final Path root;
     private final BufferPoolManager bufferPool;
     private final CatalogManager catalog;
+    private final HeapFileRegistry heapFiles;
     private final IndexManager indexManager;
     private final CreateIndexQueryTree query;
 
     private boolean executed;
 
-    public CreateIndexExecutor(Path root, BufferPoolManager bufferPool, CatalogManager catalog, IndexManager indexManager, CreateIndexQueryTree query) {
+    public CreateIndexExecutor(
+            Path root,
+            BufferPoolManager bufferPool,
+            CatalogManager catalog,
+            HeapFileRegistry heapFiles,
+            IndexManager indexManager,
+            CreateIndexQueryTree query
+    ) {
         this.root = Objects.requireNonNull(root, "root");
         this.bufferPool = Objects.requireNonNull(bufferPool, "bufferPool");
         this.catalog = Objects.requireNonNull(catalog, "catalog");
+        this.heapFiles = Objects.requireNonNull(heapFiles, "heapFiles");
         this.indexManager = Objects.requireNonNull(indexManager, "indexManager");
         this.query = Objects.requireNonNull(query, "query");
     }
@@ -39,15 +50,21 @@ public final class CreateIndexExecutor implements Executor {
         if (executed) return null;
         executed = true;
 
+        TableHeap tableHeap = new TableHeap(root, bufferPool, catalog, heapFiles, query.table());
+        if (query.unique()) {
+            indexManager.checkUnique(query.indexName().text(), tableHeap, query.columns());
+        }
+
         IndexDefinition def = catalog.createIndex(
                 query.indexName().text(),
                 query.table().getName(),
-                query.column().getName(),
-                query.indexType()
+                query.columns().stream().map(ColumnDefinition::getName).toList(),
+                query.includeColumns().stream().map(ColumnDefinition::getName).toList(),
+                query.indexType(),
+                query.unique()
         );
 
-        TableHeap tableHeap = new TableHeap(root, bufferPool, catalog, query.table());
-        indexManager.createAndBuild(def, tableHeap, query.column());
+        indexManager.createAndBuild(def, tableHeap, query.columns(), query.includeColumns());
 
         return null;
     }
@@ -0,0 +1,114 @@
+package ru.open.cu.student.execution.executors;
+
+import ru.open.cu.student.execution.CancellationToken;
+import ru.open.cu.student.execution.Executor;
+import ru.open.cu.student.execution.memory.QueryMemoryContext;
+import ru.open.cu.student.sql.semantic.ResolvedExpr;
+import ru.open.cu.student.sql.semantic.ResolvedInList;
+import ru.open.cu.student.storage.TableHeap;
+import ru.open.cu.student.storage.TID;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Supplier;
+
+public final class DeleteExecutor implements Executor {
+    static final int CHECK_INTERVAL_MASK = 255;
+
+    private final TableHeap table;
+    private final Supplier<Iterator<TID>> tids;
+    private final ResolvedExpr filter;
+    private final List<IndexedColumn> indexes;
+
+    private boolean executed;
+
+    public DeleteExecutor(TableHeap table, Supplier<Iterator<TID>> tids, ResolvedExpr filter, List<IndexedColumn> indexes) {
+        this.table = Objects.requireNonNull(table, "table");
+        this.tids = Objects.requireNonNull(tids, "tids");
+        this.filter = filter;
+        this.indexes = List.copyOf(Objects.requireNonNull(indexes, "indexes"));
+    }
+
+    @Override
+    public void open() {
+        executed = false;
+    }
+
+    @Override
+    public List<Object> next() {
+        if (executed) return null;
+        executed = true;
+
+        QueryMemoryContext memory = QueryMemoryContext.current();
+        List<TID> matched = new ArrayList<>();
+        List<List<Object>> rows = new ArrayList<>();
+        long reservedBytes = 0;
+        try {
+            reservedBytes = collectMatching(table, tids.get(), filter, matched, rows, memory, "Delete");
+
+            long deleted = 0;
+            for (int i = 0; i < matched.size(); i++) {
+                if (((i + 1) & CHECK_INTERVAL_MASK) == 0) {
+                    CancellationToken.checkpoint();
+                }
+                TID tid = matched.get(i);
+                if (!table.deleteRow(tid)) continue;
+                deleted++;
+                List<Object> row = rows.get(i);
+                for (IndexedColumn idx : indexes) {
+                    Comparable<?> key = idx.key(row);
+                    if (key != null) {
+                        idx.index().delete(key, tid);
+                    }
+                }
+            }
+            return List.of(deleted);
+        } finally {
+            memory.release(reservedBytes);
+        }
+    }
+
+    @Override
+    public void close() {
+        
+    }
+
+    static long collectMatching(
+            TableHeap table,
+            Iterator<TID> source,
+            ResolvedExpr filter,
+            List<TID> matched,
+            List<List<Object>> rows,
+            QueryMemoryContext memory,
+            String operator
+    ) {
+        Map<ResolvedInList, Set<Object>> inLists = filter == null ? Map.of() : FilterExecutor.hashInLists(filter);
+        long reservedBytes = 0;
+        long consumed = 0;
+        try {
+            while (source.hasNext()) {
+                if ((++consumed & CHECK_INTERVAL_MASK) == 0) {
+                    CancellationToken.checkpoint();
+                }
+                TID tid = source.next();
+                List<Object> row = table.readRow(tid);
+                if (row == null) continue;
+                if (filter == null || FilterExecutor.evalBool(filter, row, inLists)) {
+                    int rowBytes = QueryMemoryContext.estimateRowBytes(row);
+                    memory.reserve(rowBytes, operator);
+                    reservedBytes += rowBytes;
+                    matched.add(tid);
+                    rows.add(row);
+                }
+            }
+            return reservedBytes;
+        } catch (RuntimeException e) {
+            memory.release(reservedBytes);
+            throw e;
+        }
+    }
+}
@@ -1,23 +1,36 @@
 package ru.open.cu.student.execution.executors;
 
+import ru.open.cu.student.execution.CancellationToken;
 import ru.open.cu.student.execution.Executor;
+import ru.open.cu.student.index.KeyOrder;
 import ru.open.cu.student.sql.semantic.ResolvedBinaryExpr;
 import ru.open.cu.student.sql.semantic.ResolvedColumnRef;
 import ru.open.cu.student.sql.semantic.ResolvedConst;
 import ru.open.cu.student.sql.semantic.ResolvedExpr;
+import ru.open.cu.student.sql.semantic.ResolvedInList;
 
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 
 public final class FilterExecutor implements Executor {
+    private static final int HASHED_IN_LIST_MIN_VALUES = 8;
+    private static final int CHECK_INTERVAL_MASK = 255;
+
     private final Executor child;
     private final ResolvedExpr predicate;
+    private final Map<ResolvedInList, Set<Object>> inLists;
 
     private boolean isOpen;
+    private long consumed;
 
     public FilterExecutor(Executor child, ResolvedExpr predicate) {
         this.child = Objects.requireNonNull(child, "child");
         this.predicate = Objects.requireNonNull(predicate, "predicate");
+        this.inLists = hashInLists(predicate);
     }
 
     @Override
@@ -33,7 +46,10 @@ public final class FilterExecutor implements Executor {
         while (true) {
             List<Object> row = child.next();
             if (row == null) return null;
-            if (evalBool(predicate, row)) {
+            if ((++consumed & CHECK_INTERVAL_MASK) == 0) {
+                CancellationToken.checkpoint();
+            }
+            if (evalBool(predicate, row, inLists)) {
                 return row;
             }
         }
@@ -45,15 +61,39 @@ public final class FilterExecutor implements Executor {
         child.close();
     }
 
-    private boolean evalBool(ResolvedExpr expr, List<Object> row) {
-        Object v = eval(expr, row);
+    static boolean evalBool(ResolvedExpr expr, List<Object> row) {
+        return evalBool(expr, row, Map.of());
+    }
+
+    static boolean evalBool(ResolvedExpr expr, List<Object> row, Map<ResolvedInList, Set<Object>> inLists) {
+        Object v = eval(expr, row, inLists);
         if (!(v instanceof Boolean b)) {
             throw new IllegalStateException("Predicate did not evaluate to boolean: " + v);
         }
         return b;
     }
 
-    private Object eval(ResolvedExpr expr, List<Object> row) {
+    static Map<ResolvedInList, Set<Object>> hashInLists(ResolvedExpr expr) {
+        Map<ResolvedInList, Set<Object>> out = new IdentityHashMap<>();
+        collectInLists(expr, out);
+        return out;
+    }
+
+    private static void collectInLists(ResolvedExpr expr, Map<ResolvedInList, Set<Object>> out) {
+        if (expr instanceof ResolvedBinaryExpr b) {
+            collectInLists(b.left(), out);
+            collectInLists(b.right(), out);
+        } else if (expr instanceof ResolvedInList in && in.values().size() >= HASHED_IN_LIST_MIN_VALUES
+                && in.values().stream().allMatch(v -> v instanceof ResolvedConst)) {
+            Set<Object> values = new HashSet<>();
+            for (ResolvedExpr v : in.values()) {
+                values.add(((ResolvedConst) v).value());
+            }
+            out.put(in, values);
+        }
+    }
+
+    private static Object eval(ResolvedExpr expr, List<Object> row, Map<ResolvedInList, Set<Object>> inLists) {
         if (expr instanceof ResolvedConst c) {
             return c.value();
         }
@@ -63,14 +103,17 @@ public final class FilterExecutor implements Executor {
         if (expr instanceof ResolvedBinaryExpr b) {
             String op = b.op();
             if (op.equals("AND")) {
-                return evalBool(b.left(), row) && evalBool(b.right(), row);
+                return evalBool(b.left(), row, inLists) && evalBool(b.right(), row, inLists);
             }
             if (op.equals("OR")) {
-                return evalBool(b.left(), row) || evalBool(b.right(), row);
+                return evalBool(b.left(), row, inLists) || evalBool(b.right(), row, inLists);
             }
 
-            Object l = eval(b.left(), row);
-            Object r = eval(b.right(), row);
+            Object l = eval(b.left(), row, inLists);
+            Object r = eval(b.right(), row, inLists);
+            if (l == null || r == null) {
+                return false;
+            }
 
             return switch (op) {
                 case "=" -> Objects.equals(l, r);
@@ -82,18 +125,33 @@ public final class FilterExecutor implements Executor {
                 default -> throw new IllegalStateException("Unsupported operator: " + op);
             };
         }
+        if (expr instanceof ResolvedInList in) {
+            Object v = eval(in.operand(), row, inLists);
+            if (v == null) {
+                return false;
+            }
+            Set<Object> hashed = inLists.get(in);
+            if (hashed != null) {
+                return hashed.contains(v);
+            }
+            for (ResolvedExpr value : in.values()) {
+                if (Objects.equals(v, eval(value, row, inLists))) {
+                    return true;
+                }
+            }
+            return false;
+        }
         throw new IllegalStateException("Unsupported resolved expr: " + expr.getClass().getSimpleName());
     }
 
-    @SuppressWarnings({"rawtypes", "unchecked"})
     private static int cmp(Object a, Object b) {
         if (a == null || b == null) {
             throw new IllegalStateException("Cannot compare nulls");
         }
-        if (!(a instanceof Comparable ca)) {
+        if (!(a instanceof Comparable<?>)) {
             throw new IllegalStateException("Not comparable: " + a);
         }
-        return ca.compareTo(b);
+        return KeyOrder.compare(a, b);
     }
 }
 
@@ -0,0 +1,306 @@
+package ru.open.cu.student.execution.executors;
+
+import ru.open.cu.student.catalog.model.ColumnDefinition;
+import ru.open.cu.student.execution.CancellationToken;
+import ru.open.cu.student.execution.Executor;
+import ru.open.cu.student.execution.aggregate.AggregateAccumulators;
+import ru.open.cu.student.execution.aggregate.Int64GroupTable;
+import ru.open.cu.student.execution.memory.QueryMemoryContext;
+import ru.open.cu.student.execution.spill.SpillFile;
+import ru.open.cu.student.sql.semantic.ResolvedAggregate;
+
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+
+public final class HashAggregateExecutor implements Executor {
+    public static final long DEFAULT_MEMORY_BUDGET_BYTES = Long.getLong("db.hashAgg.memoryBudgetBytes", 64L * 1024 * 1024);
+
+    private static final int SPILL_PARTITIONS = 8;
+    private static final int MAX_SPILL_DEPTH = 4;
+    private static final int GENERIC_ENTRY_OVERHEAD = 64;
+    private static final int CHECK_INTERVAL_MASK = 255;
+
+    private final Executor child;
+    private final List<ColumnDefinition> groupBy;
+    private final List<ResolvedAggregate> aggregates;
+    private final Path spillDir;
+    private final long memoryBudgetBytes;
+
+    private final int[] keyPositions;
+    private final boolean int64Key;
+
+    private final Deque<Partition> pending = new ArrayDeque<>();
+    private final List<SpillFile> spillFiles = new ArrayList<>();
+
+    private GroupTable table;
+    private AggregateAccumulators accumulators;
+    private int outputGroup;
+    private boolean isOpen;
+    private long spilledRows;
+    private QueryMemoryContext memory;
+    private long reservedBytes;
+
+    private record Partition(SpillFile file, int depth) {
+    }
+
+    private interface RowSource {
+        List<Object> next();
+    }
+
+    public HashAggregateExecutor(
+            Executor child,
+            List<ColumnDefinition> groupBy,
+            List<ResolvedAggregate> aggregates,
+            boolean int64Key,
+            Path spillDir
+    ) {
+        this(child, groupBy, aggregates, int64Key, spillDir, DEFAULT_MEMORY_BUDGET_BYTES);
+    }
+
+    public HashAggregateExecutor(
+            Executor child,
+            List<ColumnDefinition> groupBy,
+            List<ResolvedAggregate> aggregates,
+            boolean int64Key,
+            Path spillDir,
+            long memoryBudgetBytes
+    ) {
+        this.child = Objects.requireNonNull(child, "child");
+        this.groupBy = List.copyOf(Objects.requireNonNull(groupBy, "groupBy"));
+        this.aggregates = List.copyOf(Objects.requireNonNull(aggregates, "aggregates"));
+        this.spillDir = Objects.requireNonNull(spillDir, "spillDir");
+        if (memoryBudgetBytes <= 0) {
+            throw new IllegalArgumentException("memoryBudgetBytes must be > 0");
+        }
+        if (int64Key && this.groupBy.size() != 1) {
+            throw new IllegalArgumentException("INT64 group table requires exactly one group key");
+        }
+        this.memoryBudgetBytes = memoryBudgetBytes;
+        this.keyPositions = this.groupBy.stream().mapToInt(ColumnDefinition::getPosition).toArray();
+        this.int64Key = int64Key;
+    }
+
+    @Override
+    public void open() {
+        memory = QueryMemoryContext.current();
+        child.open();
+        isOpen = true;
+        aggregate(child::next, 0);
+    }
+
+    @Override
+    public List<Object> next() {
+        if (!isOpen) throw new IllegalStateException("Executor is not open");
+
+        while (true) {
+            if (table != null && outputGroup < table.size()) {
+                int g = outputGroup++;
+                List<Object> out = new ArrayList<>(keyPositions.length + aggregates.size());
+                table.appendKey(g, out);
+                accumulators.appendResults(g, out);
+                return out;
+            }
+
+            Partition p = pending.pollFirst();
+            if (p == null) return null;
+
+            p.file.rewind();
+            aggregate(p.file::read, p.depth);
+            p.file.close();
+        }
+    }
+
+    @Override
+    public void close() {
+        isOpen = false;
+        table = null;
+        accumulators = null;
+        pending.clear();
+        for (SpillFile f : spillFiles) {
+            f.close();
+        }
+        spillFiles.clear();
+        releaseMemory();
+        child.close();
+    }
+
+    long spilledRows() {
+        return spilledRows;
+    }
+
+    private void aggregate(RowSource source, int depth) {
+        releaseMemory();
+        table = int64Key ? new Int64Table() : new GenericTable();
+        accumulators = new AggregateAccumulators(aggregates);
+        outputGroup = 0;
+
+        SpillFile[] partitions = null;
+        long usedBytes = 0;
+        int perGroupBytes = accumulators.bytesPerGroup();
+
+        long consumed = 0;
+        List<Object> row;
+        while ((row = source.next()) != null) {
+            if ((++consumed & CHECK_INTERVAL_MASK) == 0) {
+                CancellationToken.checkpoint();
+            }
+            int g = table.find(row);
+            if (g < 0 && partitions == null) {
+                long groupBytes = perGroupBytes + table.estimateNewGroupBytes(row);
+                boolean granted = usedBytes + groupBytes <= memoryBudgetBytes && memory.tryReserve(groupBytes);
+                if (granted || depth >= MAX_SPILL_DEPTH || table.size() == 0) {
+                    if (!granted) {
+                        memory.reserve(groupBytes, "HashAggregate");
+                    }
+                    reservedBytes += groupBytes;
+                    g = table.insert(row);
+                    accumulators.ensureCapacity(g + 1);
+                    usedBytes += groupBytes;
+                } else {
+                    partitions = new SpillFile[SPILL_PARTITIONS];
+                }
+            }
+            if (g < 0) {
+                int p = Math.floorMod(Int64GroupTable.mix(table.hash(row) + depth), SPILL_PARTITIONS);
+                if (partitions[p] == null) {
+                    partitions[p] = SpillFile.create(spillDir, "hashagg-");
+                    spillFiles.add(partitions[p]);
+                }
+                partitions[p].write(row);
+                spilledRows++;
+                continue;
+            }
+            accumulators.update(g, row);
+        }
+
+        if (depth == 0 && keyPositions.length == 0 && table.size() == 0) {
+            table.insert(List.of());
+            accumulators.ensureCapacity(1);
+        }
+
+        if (partitions != null) {
+            for (SpillFile f : partitions) {
+                if (f != null) pending.addLast(new Partition(f, depth + 1));
+            }
+        }
+    }
+
+    private void releaseMemory() {
+        if (memory != null) {
+            memory.release(reservedBytes);
+        }
+        reservedBytes = 0;
+    }
+
+    private interface GroupTable {
+        int size();
+
+        int find(List<Object> row);
+
+        int insert(List<Object> row);
+
+        void appendKey(int group, List<Object> out);
+
+        long hash(List<Object> row);
+
+        int estimateNewGroupBytes(List<Object> row);
+    }
+
+    private final class Int64Table implements GroupTable {
+        private final Int64GroupTable table = new Int64GroupTable();
+        private final int pos = keyPositions[0];
+
+        @Override
+        public int size() {
+            return table.size();
+        }
+
+        @Override
+        public int find(List<Object> row) {
+            Long key = (Long) row.get(pos);
+            return key == null ? table.findNull() : table.find(key);
+        }
+
+        @Override
+        public int insert(List<Object> row) {
+            Long key = (Long) row.get(pos);
+            return key == null ? table.insertNull() : table.insert(key);
+        }
+
+        @Override
+        public void appendKey(int group, List<Object> out) {
+            out.add(table.isNullGroup(group) ? null : table.keyOf(group));
+        }
+
+        @Override
+        public long hash(List<Object> row) {
+            Long key = (Long) row.get(pos);
+            return key == null ? 0 : key;
+        }
+
+        @Override
+        public int estimateNewGroupBytes(List<Object> row) {
+            return Int64GroupTable.bytesPerGroup();
+        }
+    }
+
+    private final class GenericTable implements GroupTable {
+        private final Map<List<Object>, Integer> groups = new HashMap<>();
+        private final List<List<Object>> keys = new ArrayList<>();
+
+        @Override
+        public int size() {
+            return keys.size();
+        }
+
+        @Override
+        public int find(List<Object> row) {
+            Integer g = groups.get(extractKey(row));
+            return g == null ? -1 : g;
+        }
+
+        @Override
+        public int insert(List<Object> row) {
+            List<Object> key = extractKey(row);
+            int g = keys.size();
+            keys.add(key);
+            groups.put(key, g);
+            return g;
+        }
+
+        @Override
+        public void appendKey(int group, List<Object> out) {
+            out.addAll(keys.get(group));
+        }
+
+        @Override
+        public long hash(List<Object> row) {
+            return extractKey(row).hashCode();
+        }
+
+        @Override
+        public int estimateNewGroupBytes(List<Object> row) {
+            int bytes = GENERIC_ENTRY_OVERHEAD;
+            for (int pos : keyPositions) {
+                Object v = row.get(pos);
+                bytes += (v instanceof String s) ? 40 + 2 * s.length() : 16;
+            }
+            return bytes;
+        }
+
+        private List<Object> extractKey(List<Object> row) {
+            List<Object> key = new ArrayList<>(keyPositions.length);
+            for (int pos : keyPositions) {
+                key.add(row.get(pos));
+            }
+            return key;
+        }
+    }
+}
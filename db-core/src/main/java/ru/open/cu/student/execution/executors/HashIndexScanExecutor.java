@@ -33,9 +33,14 @@ public final class HashIndexScanExecutor implements Executor {
     @Override
     public List<Object> next() {
         if (!isOpen) throw new IllegalStateException("Executor is not open");
-        if (tidIterator == null || !tidIterator.hasNext()) return null;
-        TID tid = tidIterator.next();
-        return table.readRow(tid);
+        if (tidIterator == null) return null;
+        while (tidIterator.hasNext()) {
+            List<Object> row = table.readRow(tidIterator.next());
+            if (row != null) {
+                return row;
+            }
+        }
+        return null;
     }
 
     @Override
@@ -0,0 +1,290 @@
+package ru.open.cu.student.execution.executors;
+
+import ru.open.cu.student.execution.CancellationToken;
+import ru.open.cu.student.execution.Executor;
+import ru.open.cu.student.execution.aggregate.Int64GroupTable;
+import ru.open.cu.student.execution.memory.QueryMemoryContext;
+import ru.open.cu.student.execution.spill.SpillFile;
+import ru.open.cu.student.sql.ast.JoinType;
+
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+public final class HashJoinExecutor implements Executor {
+    public static final long DEFAULT_MEMORY_BUDGET_BYTES = Long.getLong("db.hashJoin.memoryBudgetBytes", 64L * 1024 * 1024);
+
+    private static final int SPILL_PARTITIONS = 8;
+    private static final int MAX_SPILL_DEPTH = 4;
+    private static final int CHECK_INTERVAL_MASK = 255;
+
+    private final Executor left;
+    private final Executor right;
+    private final int leftKeyPos;
+    private final int rightKeyPos;
+    private final int rightWidth;
+    private final JoinType type;
+    private final boolean buildLeft;
+    private final Path spillDir;
+    private final long memoryBudgetBytes;
+
+    private final Deque<PartitionPair> pending = new ArrayDeque<>();
+    private final List<SpillFile> spillFiles = new ArrayList<>();
+
+    private QueryMemoryContext memory;
+    private long reservedBytes;
+
+    private ProbePass pass;
+    private boolean isOpen;
+    private long spilledRows;
+
+    private record PartitionPair(SpillFile build, SpillFile probe, int depth) {
+    }
+
+    private interface RowSource {
+        List<Object> next();
+    }
+
+    public HashJoinExecutor(
+            Executor left,
+            Executor right,
+            int leftKeyPos,
+            int rightKeyPos,
+            int rightWidth,
+            JoinType type,
+            boolean buildLeft,
+            Path spillDir
+    ) {
+        this(left, right, leftKeyPos, rightKeyPos, rightWidth, type, buildLeft, spillDir, DEFAULT_MEMORY_BUDGET_BYTES);
+    }
+
+    public HashJoinExecutor(
+            Executor left,
+            Executor right,
+            int leftKeyPos,
+            int rightKeyPos,
+            int rightWidth,
+            JoinType type,
+            boolean buildLeft,
+            Path spillDir,
+            long memoryBudgetBytes
+    ) {
+        this.left = Objects.requireNonNull(left, "left");
+        this.right = Objects.requireNonNull(right, "right");
+        this.type = Objects.requireNonNull(type, "type");
+        this.spillDir = Objects.requireNonNull(spillDir, "spillDir");
+        if (memoryBudgetBytes <= 0) {
+            throw new IllegalArgumentException("memoryBudgetBytes must be > 0");
+        }
+        this.leftKeyPos = leftKeyPos;
+        this.rightKeyPos = rightKeyPos;
+        this.rightWidth = rightWidth;
+        this.buildLeft = buildLeft;
+        this.memoryBudgetBytes = memoryBudgetBytes;
+    }
+
+    @Override
+    public void open() {
+        memory = QueryMemoryContext.current();
+        left.open();
+        right.open();
+        isOpen = true;
+        Executor build = buildLeft ? left : right;
+        Executor probe = buildLeft ? right : left;
+        startPass(build::next, probe::next, 0);
+    }
+
+    @Override
+    public List<Object> next() {
+        if (!isOpen) throw new IllegalStateException("Executor is not open");
+
+        while (true) {
+            if (pass != null) {
+                List<Object> row = pass.next();
+                if (row != null) return row;
+                pass = null;
+            }
+
+            PartitionPair p = pending.pollFirst();
+            if (p == null) return null;
+
+            p.build.rewind();
+            p.probe.rewind();
+            startPass(p.build::read, p.probe::read, p.depth);
+        }
+    }
+
+    @Override
+    public void close() {
+        isOpen = false;
+        pass = null;
+        pending.clear();
+        for (SpillFile f : spillFiles) {
+            f.close();
+        }
+        spillFiles.clear();
+        releaseMemory();
+        left.close();
+        right.close();
+    }
+
+    long spilledRows() {
+        return spilledRows;
+    }
+
+    private void startPass(RowSource build, RowSource probe, int depth) {
+        int buildKeyPos = buildLeft ? leftKeyPos : rightKeyPos;
+        int probeKeyPos = buildLeft ? rightKeyPos : leftKeyPos;
+
+        releaseMemory();
+        List<List<Object>> rows = new ArrayList<>();
+        long usedBytes = 0;
+        SpillFile[] buildParts = null;
+
+        long consumed = 0;
+        List<Object> row;
+        while ((row = build.next()) != null) {
+            if ((++consumed & CHECK_INTERVAL_MASK) == 0) {
+                CancellationToken.checkpoint();
+            }
+            if (buildParts != null) {
+                writePartition(buildParts, row, buildKeyPos, depth);
+                continue;
+            }
+            int rowBytes = JoinRows.estimateBytes(row);
+            boolean granted = usedBytes + rowBytes <= memoryBudgetBytes && memory.tryReserve(rowBytes);
+            if (!granted && depth < MAX_SPILL_DEPTH) {
+                buildParts = new SpillFile[SPILL_PARTITIONS];
+                for (List<Object> r : rows) {
+                    writePartition(buildParts, r, buildKeyPos, depth);
+                }
+                writePartition(buildParts, row, buildKeyPos, depth);
+                rows = null;
+                releaseMemory();
+                continue;
+            }
+            if (!granted) {
+                memory.reserve(rowBytes, "HashJoin");
+            }
+            reservedBytes += rowBytes;
+            usedBytes += rowBytes;
+            rows.add(row);
+        }
+
+        if (buildParts == null) {
+            Map<Object, List<Integer>> table = new HashMap<>();
+            for (int i = 0; i < rows.size(); i++) {
+                Object key = rows.get(i).get(buildKeyPos);
+                if (key != null) {
+                    table.computeIfAbsent(key, ignored -> new ArrayList<>(1)).add(i);
+                }
+            }
+            pass = new ProbePass(rows, table, probe, probeKeyPos);
+            return;
+        }
+
+        SpillFile[] probeParts = new SpillFile[SPILL_PARTITIONS];
+        while ((row = probe.next()) != null) {
+            writePartition(probeParts, row, probeKeyPos, depth);
+        }
+        for (int i = 0; i < SPILL_PARTITIONS; i++) {
+            if (buildParts[i] == null && probeParts[i] == null) continue;
+            if (buildParts[i] == null) buildParts[i] = newSpillFile();
+            if (probeParts[i] == null) probeParts[i] = newSpillFile();
+            pending.addLast(new PartitionPair(buildParts[i], probeParts[i], depth + 1));
+        }
+    }
+
+    private void releaseMemory() {
+        if (memory != null) {
+            memory.release(reservedBytes);
+        }
+        reservedBytes = 0;
+    }
+
+    private void writePartition(SpillFile[] parts, List<Object> row, int keyPos, int depth) {
+        Object key = row.get(keyPos);
+        long h = key == null ? 0 : (key instanceof Long l ? l : key.hashCode());
+        int p = Math.floorMod(Int64GroupTable.mix(h + depth), SPILL_PARTITIONS);
+        if (parts[p] == null) {
+            parts[p] = newSpillFile();
+        }
+        parts[p].write(row);
+        spilledRows++;
+    }
+
+    private SpillFile newSpillFile() {
+        SpillFile f = SpillFile.create(spillDir, "hashjoin-");
+        spillFiles.add(f);
+        return f;
+    }
+
+    private final class ProbePass {
+        private final List<List<Object>> buildRows;
+        private final Map<Object, List<Integer>> table;
+        private final RowSource probe;
+        private final int probeKeyPos;
+        private final BitSet matched;
+
+        private List<Object> probeRow;
+        private List<Integer> matches;
+        private int matchIdx;
+        private boolean probeDone;
+        private int unmatchedIdx;
+
+        ProbePass(List<List<Object>> buildRows, Map<Object, List<Integer>> table, RowSource probe, int probeKeyPos) {
+            this.buildRows = buildRows;
+            this.table = table;
+            this.probe = probe;
+            this.probeKeyPos = probeKeyPos;
+            this.matched = new BitSet(buildRows.size());
+        }
+
+        List<Object> next() {
+            while (true) {
+                if (matches != null && matchIdx < matches.size()) {
+                    int b = matches.get(matchIdx++);
+                    matched.set(b);
+                    return combine(buildRows.get(b), probeRow);
+                }
+                matches = null;
+
+                if (probeDone) {
+                    if (type != JoinType.LEFT || !buildLeft) return null;
+                    unmatchedIdx = matched.nextClearBit(unmatchedIdx);
+                    if (unmatchedIdx >= buildRows.size()) return null;
+                    return JoinRows.concat(buildRows.get(unmatchedIdx++), null, rightWidth);
+                }
+
+                probeRow = probe.next();
+                if (probeRow == null) {
+                    probeDone = true;
+                    continue;
+                }
+
+                Object key = probeRow.get(probeKeyPos);
+                List<Integer> found = key == null ? null : table.get(key);
+                if (found == null) {
+                    if (type == JoinType.LEFT && !buildLeft) {
+                        return JoinRows.concat(probeRow, null, rightWidth);
+                    }
+                    continue;
+                }
+                matches = found;
+                matchIdx = 0;
+            }
+        }
+
+        private List<Object> combine(List<Object> buildRow, List<Object> probeRow) {
+            return buildLeft
+                    ? JoinRows.concat(buildRow, probeRow, rightWidth)
+                    : JoinRows.concat(probeRow, buildRow, rightWidth);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package ru.open.cu.student.execution.executors;
+
+import ru.open.cu.student.execution.Executor;
+import ru.open.cu.student.index.Index;
+import ru.open.cu.student.sql.ast.JoinType;
+import ru.open.cu.student.storage.TableHeap;
+import ru.open.cu.student.storage.TID;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+
+public final class IndexNestedLoopJoinExecutor implements Executor {
+    private final Executor left;
+    private final Index index;
+    private final TableHeap rightTable;
+    private final int leftKeyPos;
+    private final int rightWidth;
+    private final JoinType type;
+
+    private List<Object> leftRow;
+    private Iterator<TID> matches;
+    private boolean matched;
+    private boolean isOpen;
+
+    public IndexNestedLoopJoinExecutor(Executor left, Index index, TableHeap rightTable, int leftKeyPos, int rightWidth, JoinType type) {
+        this.left = Objects.requireNonNull(left, "left");
+        this.index = Objects.requireNonNull(index, "index");
+        this.rightTable = Objects.requireNonNull(rightTable, "rightTable");
+        this.type = Objects.requireNonNull(type, "type");
+        this.leftKeyPos = leftKeyPos;
+        this.rightWidth = rightWidth;
+    }
+
+    @Override
+    public void open() {
+        left.open();
+        leftRow = null;
+        matches = null;
+        isOpen = true;
+    }
+
+    @Override
+    public List<Object> next() {
+        if (!isOpen) throw new IllegalStateException("Executor is not open");
+
+        while (true) {
+            while (matches != null && matches.hasNext()) {
+                List<Object> rightRow = rightTable.readRow(matches.next());
+                if (rightRow != null) {
+                    matched = true;
+                    return JoinRows.concat(leftRow, rightRow, rightWidth);
+                }
+            }
+            if (matches != null && !matched && type == JoinType.LEFT) {
+                matches = null;
+                return JoinRows.concat(leftRow, null, rightWidth);
+            }
+
+            leftRow = left.next();
+            if (leftRow == null) {
+                matches = null;
+                return null;
+            }
+
+            Object key = leftRow.get(leftKeyPos);
+            List<TID> tids = key == null ? List.of() : index.search((Comparable<?>) key);
+            if (tids.isEmpty()) {
+                matches = null;
+                if (type == JoinType.LEFT) {
+                    return JoinRows.concat(leftRow, null, rightWidth);
+                }
+                continue;
+            }
+            matches = tids.iterator();
+            matched = false;
+        }
+    }
+
+    @Override
+    public void close() {
+        isOpen = false;
+        leftRow = null;
+        matches = null;
+        left.close();
+    }
+}
@@ -0,0 +1,66 @@
+package ru.open.cu.student.execution.executors;
+
+import ru.open.cu.student.execution.Executor;
+import ru.open.cu.student.index.DiskBTreeIndex;
+import ru.open.cu.student.index.IndexEntry;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+
+public final class IndexOnlyScanExecutor implements Executor {
+    private final DiskBTreeIndex index;
+    private final Comparable<?> from;
+    private final boolean fromInclusive;
+    private final Comparable<?> to;
+    private final boolean toInclusive;
+    private final int width;
+    private final int[] positions;
+
+    private Iterator<IndexEntry> entries;
+    private boolean isOpen;
+
+    public IndexOnlyScanExecutor(
+            DiskBTreeIndex index,
+            Comparable<?> from,
+            boolean fromInclusive,
+            Comparable<?> to,
+            boolean toInclusive,
+            int width,
+            int[] positions
+    ) {
+        this.index = Objects.requireNonNull(index, "index");
+        this.from = from;
+        this.fromInclusive = fromInclusive;
+        this.to = to;
+        this.toInclusive = toInclusive;
+        this.width = width;
+        this.positions = Objects.requireNonNull(positions, "positions");
+    }
+
+    @Override
+    public void open() {
+        this.entries = index.scanEntries(from, fromInclusive, to, toInclusive);
+        this.isOpen = true;
+    }
+
+    @Override
+    public List<Object> next() {
+        if (!isOpen) throw new IllegalStateException("Executor is not open");
+        if (entries == null || !entries.hasNext()) return null;
+
+        List<Object> values = entries.next().values();
+        Object[] row = new Object[width];
+        for (int i = 0; i < positions.length; i++) {
+            row[positions[i]] = values.get(i);
+        }
+        return Arrays.asList(row);
+    }
+
+    @Override
+    public void close() {
+        isOpen = false;
+        entries = null;
+    }
+}
@@ -0,0 +1,64 @@
+package ru.open.cu.student.execution.executors;
+
+import ru.open.cu.student.catalog.model.ColumnDefinition;
+import ru.open.cu.student.catalog.model.IndexDefinition;
+import ru.open.cu.student.index.CompositeKey;
+import ru.open.cu.student.index.Index;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+public record IndexedColumn(Index index, int position, int[] extraPositions) {
+    public IndexedColumn {
+        Objects.requireNonNull(index, "index");
+        Objects.requireNonNull(extraPositions, "extraPositions");
+        if (position < 0) {
+            throw new IllegalArgumentException("position must be >= 0");
+        }
+    }
+
+    public IndexedColumn(Index index, int position) {
+        this(index, position, new int[0]);
+    }
+
+    public static IndexedColumn of(Index index, List<ColumnDefinition> columns) {
+        IndexDefinition def = index.getDefinition();
+        int position = positionOf(columns, def.getColumnOid());
+        if (position < 0) {
+            return null;
+        }
+        List<Integer> extraOids = new ArrayList<>(def.getColumnOids().subList(1, def.getColumnOids().size()));
+        extraOids.addAll(def.getIncludeColumnOids());
+        int[] extra = new int[extraOids.size()];
+        for (int i = 0; i < extra.length; i++) {
+            extra[i] = positionOf(columns, extraOids.get(i));
+            if (extra[i] < 0) {
+                throw new IllegalStateException("Index column missing for index " + def.getName());
+            }
+        }
+        return new IndexedColumn(index, position, extra);
+    }
+
+    Comparable<?> key(List<Object> row) {
+        Object key = row.get(position);
+        if (extraPositions.length == 0 || key == null) {
+            return (Comparable<?>) key;
+        }
+        List<Object> values = new ArrayList<>(1 + extraPositions.length);
+        values.add(key);
+        for (int pos : extraPositions) {
+            values.add(row.get(pos));
+        }
+        return new CompositeKey(values);
+    }
+
+    private static int positionOf(List<ColumnDefinition> columns, int columnOid) {
+        for (ColumnDefinition c : columns) {
+            if (c.getOid() == columnOid) {
+                return c.getPosition();
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,28 @@
+package ru.open.cu.student.execution.executors;
+
+import ru.open.cu.student.execution.memory.QueryMemoryContext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+final class JoinRows {
+    private JoinRows() {
+    }
+
+    static List<Object> concat(List<Object> left, List<Object> right, int rightWidth) {
+        List<Object> out = new ArrayList<>(left.size() + rightWidth);
+        out.addAll(left);
+        if (right != null) {
+            out.addAll(right);
+        } else {
+            for (int i = 0; i < rightWidth; i++) {
+                out.add(null);
+            }
+        }
+        return out;
+    }
+
+    static int estimateBytes(List<Object> row) {
+        return QueryMemoryContext.estimateRowBytes(row);
+    }
+}
@@ -0,0 +1,111 @@
+package ru.open.cu.student.execution.executors;
+
+import ru.open.cu.student.execution.Executor;
+import ru.open.cu.student.execution.memory.QueryMemoryContext;
+import ru.open.cu.student.index.KeyOrder;
+import ru.open.cu.student.sql.ast.JoinType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+public final class MergeJoinExecutor implements Executor {
+    private final Executor left;
+    private final Executor right;
+    private final int leftKeyPos;
+    private final int rightKeyPos;
+    private final int rightWidth;
+    private final JoinType type;
+
+    private List<Object> leftRow;
+    private List<Object> rightRow;
+    private final List<List<Object>> group = new ArrayList<>();
+    private Object groupKey;
+    private int groupIdx;
+    private boolean isOpen;
+    private QueryMemoryContext memory;
+    private long reservedBytes;
+
+    public MergeJoinExecutor(Executor left, Executor right, int leftKeyPos, int rightKeyPos, int rightWidth, JoinType type) {
+        this.left = Objects.requireNonNull(left, "left");
+        this.right = Objects.requireNonNull(right, "right");
+        this.type = Objects.requireNonNull(type, "type");
+        this.leftKeyPos = leftKeyPos;
+        this.rightKeyPos = rightKeyPos;
+        this.rightWidth = rightWidth;
+    }
+
+    @Override
+    public void open() {
+        memory = QueryMemoryContext.current();
+        left.open();
+        right.open();
+        leftRow = left.next();
+        rightRow = right.next();
+        group.clear();
+        groupKey = null;
+        isOpen = true;
+    }
+
+    @Override
+    public List<Object> next() {
+        if (!isOpen) throw new IllegalStateException("Executor is not open");
+
+        while (leftRow != null) {
+            Object key = leftRow.get(leftKeyPos);
+
+            if (groupKey != null && key != null && KeyOrder.compare(key, groupKey) == 0) {
+                if (groupIdx < group.size()) {
+                    return JoinRows.concat(leftRow, group.get(groupIdx++), rightWidth);
+                }
+                leftRow = left.next();
+                groupIdx = 0;
+                continue;
+            }
+
+            if (key != null) {
+                while (rightRow != null && KeyOrder.compare(rightRow.get(rightKeyPos), key) < 0) {
+                    rightRow = right.next();
+                }
+                if (rightRow != null && KeyOrder.compare(rightRow.get(rightKeyPos), key) == 0) {
+                    clearGroup();
+                    groupKey = key;
+                    groupIdx = 0;
+                    while (rightRow != null && KeyOrder.compare(rightRow.get(rightKeyPos), key) == 0) {
+                        int rowBytes = JoinRows.estimateBytes(rightRow);
+                        memory.reserve(rowBytes, "MergeJoin");
+                        reservedBytes += rowBytes;
+                        group.add(rightRow);
+                        rightRow = right.next();
+                    }
+                    continue;
+                }
+            }
+
+            List<Object> unmatched = leftRow;
+            leftRow = left.next();
+            if (type == JoinType.LEFT) {
+                return JoinRows.concat(unmatched, null, rightWidth);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void close() {
+        isOpen = false;
+        clearGroup();
+        leftRow = null;
+        rightRow = null;
+        left.close();
+        right.close();
+    }
+
+    private void clearGroup() {
+        group.clear();
+        if (memory != null) {
+            memory.release(reservedBytes);
+        }
+        reservedBytes = 0;
+    }
+}
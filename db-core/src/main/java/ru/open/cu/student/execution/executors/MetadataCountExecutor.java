@@ -0,0 +1,43 @@
+package ru.open.cu.student.execution.executors;
+
+import ru.open.cu.student.execution.Executor;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.LongSupplier;
+
+public final class MetadataCountExecutor implements Executor {
+    private final LongSupplier counter;
+    private final int width;
+
+    private boolean emitted;
+    private boolean isOpen;
+
+    public MetadataCountExecutor(LongSupplier counter, int width) {
+        this.counter = Objects.requireNonNull(counter, "counter");
+        if (width <= 0) {
+            throw new IllegalArgumentException("width must be > 0");
+        }
+        this.width = width;
+    }
+
+    @Override
+    public void open() {
+        emitted = false;
+        isOpen = true;
+    }
+
+    @Override
+    public List<Object> next() {
+        if (!isOpen) throw new IllegalStateException("Executor is not open");
+        if (emitted) return null;
+        emitted = true;
+        return Collections.nCopies(width, counter.getAsLong());
+    }
+
+    @Override
+    public void close() {
+        isOpen = false;
+    }
+}
@@ -0,0 +1,95 @@
+package ru.open.cu.student.execution.executors;
+
+import ru.open.cu.student.execution.Executor;
+import ru.open.cu.student.index.Index;
+import ru.open.cu.student.index.IndexType;
+import ru.open.cu.student.optimizer.node.KeyRange;
+import ru.open.cu.student.storage.TableHeap;
+import ru.open.cu.student.storage.TID;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Supplier;
+
+public final class MultiRangeIndexScanExecutor implements Executor {
+    private final Index index;
+    private final List<KeyRange> ranges;
+    private final TableHeap table;
+
+    private Iterator<TID> tidIterator;
+    private boolean isOpen;
+
+    public MultiRangeIndexScanExecutor(Index index, List<KeyRange> ranges, TableHeap table) {
+        this.index = Objects.requireNonNull(index, "index");
+        this.ranges = List.copyOf(Objects.requireNonNull(ranges, "ranges"));
+        this.table = Objects.requireNonNull(table, "table");
+    }
+
+    @Override
+    public void open() {
+        this.tidIterator = tids(index, ranges);
+        this.isOpen = true;
+    }
+
+    @Override
+    public List<Object> next() {
+        if (!isOpen) throw new IllegalStateException("Executor is not open");
+        if (tidIterator == null) return null;
+        while (tidIterator.hasNext()) {
+            List<Object> row = table.readRow(tidIterator.next());
+            if (row != null) {
+                return row;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void close() {
+        isOpen = false;
+        tidIterator = null;
+    }
+
+    public static Iterator<TID> tids(Index index, List<KeyRange> ranges) {
+        Objects.requireNonNull(index, "index");
+        Objects.requireNonNull(ranges, "ranges");
+        if (index.getDefinition().getIndexType() == IndexType.HASH) {
+            Set<Object> keys = new LinkedHashSet<>();
+            for (KeyRange r : ranges) {
+                keys.add(r.from());
+            }
+            Iterator<Object> it = keys.iterator();
+            return concat(() -> it.hasNext() ? index.search((Comparable<?>) it.next()).iterator() : null);
+        }
+        Iterator<KeyRange> it = KeyRange.normalize(ranges).iterator();
+        return concat(() -> {
+            if (!it.hasNext()) return null;
+            KeyRange r = it.next();
+            return index.scan((Comparable<?>) r.from(), r.fromInclusive(), (Comparable<?>) r.to(), r.toInclusive(), false);
+        });
+    }
+
+    private static Iterator<TID> concat(Supplier<Iterator<TID>> batches) {
+        return new Iterator<>() {
+            Iterator<TID> current = batches.get();
+
+            @Override
+            public boolean hasNext() {
+                while (current != null && !current.hasNext()) {
+                    current = batches.get();
+                }
+                return current != null;
+            }
+
+            @Override
+            public TID next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return current.next();
+            }
+        };
+    }
+}
@@ -27,9 +27,14 @@ public final class SeqScanExecutor implements Executor {
     @Override
     public List<Object> next() {
         if (!isOpen) throw new IllegalStateException("Executor is not open");
-        if (iterator == null || !iterator.hasNext()) return null;
-        TID tid = iterator.next();
-        return table.readRow(tid);
+        if (iterator == null) return null;
+        while (iterator.hasNext()) {
+            List<Object> row = table.readRow(iterator.next());
+            if (row != null) {
+                return row;
+            }
+        }
+        return null;
     }
 
     @Override
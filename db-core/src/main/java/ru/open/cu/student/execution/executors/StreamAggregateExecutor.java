@@ -0,0 +1,105 @@
+package ru.open.cu.student.execution.executors;
+
+import ru.open.cu.student.catalog.model.ColumnDefinition;
+import ru.open.cu.student.execution.CancellationToken;
+import ru.open.cu.student.execution.Executor;
+import ru.open.cu.student.execution.aggregate.AggregateAccumulators;
+import ru.open.cu.student.sql.semantic.ResolvedAggregate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+
+public final class StreamAggregateExecutor implements Executor {
+    private static final int CHECK_INTERVAL_MASK = 255;
+
+    private final Executor child;
+    private final List<ResolvedAggregate> aggregates;
+    private final int[] keyPositions;
+
+    private AggregateAccumulators accumulators;
+    private List<Object> currentKey;
+    private boolean emittedAny;
+    private boolean done;
+    private boolean isOpen;
+    private long consumed;
+
+    public StreamAggregateExecutor(Executor child, List<ColumnDefinition> groupBy, List<ResolvedAggregate> aggregates) {
+        this.child = Objects.requireNonNull(child, "child");
+        this.aggregates = List.copyOf(Objects.requireNonNull(aggregates, "aggregates"));
+        this.keyPositions = Objects.requireNonNull(groupBy, "groupBy").stream().mapToInt(ColumnDefinition::getPosition).toArray();
+    }
+
+    @Override
+    public void open() {
+        child.open();
+        accumulators = new AggregateAccumulators(aggregates);
+        accumulators.ensureCapacity(1);
+        currentKey = null;
+        emittedAny = false;
+        done = false;
+        isOpen = true;
+    }
+
+    @Override
+    public List<Object> next() {
+        if (!isOpen) throw new IllegalStateException("Executor is not open");
+        if (done) return null;
+
+        while (true) {
+            List<Object> row = child.next();
+            if ((++consumed & CHECK_INTERVAL_MASK) == 0) {
+                CancellationToken.checkpoint();
+            }
+            if (row == null) {
+                done = true;
+                if (currentKey != null) {
+                    return emit();
+                }
+                if (keyPositions.length == 0 && !emittedAny) {
+                    currentKey = List.of();
+                    return emit();
+                }
+                return null;
+            }
+
+            List<Object> key = extractKey(row);
+            if (currentKey == null) {
+                currentKey = key;
+            } else if (!currentKey.equals(key)) {
+                List<Object> out = emit();
+                currentKey = key;
+                accumulators.update(0, row);
+                return out;
+            }
+            accumulators.update(0, row);
+        }
+    }
+
+    @Override
+    public void close() {
+        isOpen = false;
+        accumulators = null;
+        currentKey = null;
+        child.close();
+    }
+
+    private List<Object> emit() {
+        List<Object> out = new ArrayList<>(currentKey.size() + aggregates.size());
+        out.addAll(currentKey);
+        accumulators.appendResults(0, out);
+        accumulators.reset(0);
+        currentKey = null;
+        emittedAny = true;
+        return out;
+    }
+
+    private List<Object> extractKey(List<Object> row) {
+        List<Object> key = new ArrayList<>(keyPositions.length);
+        for (int pos : keyPositions) {
+            key.add(row.get(pos));
+        }
+        return key;
+    }
+}
@@ -0,0 +1,129 @@
+package ru.open.cu.student.execution.executors;
+
+import ru.open.cu.student.execution.CancellationToken;
+import ru.open.cu.student.execution.Executor;
+import ru.open.cu.student.execution.memory.QueryMemoryContext;
+import ru.open.cu.student.index.UniqueViolationException;
+import ru.open.cu.student.sql.semantic.ResolvedExpr;
+import ru.open.cu.student.storage.TableHeap;
+import ru.open.cu.student.storage.TID;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+public final class UpdateExecutor implements Executor {
+    private final TableHeap table;
+    private final Supplier<Iterator<TID>> tids;
+    private final ResolvedExpr filter;
+    private final int[] setPositions;
+    private final List<Object> setValues;
+    private final List<IndexedColumn> indexes;
+
+    private boolean executed;
+
+    public UpdateExecutor(
+            TableHeap table,
+            Supplier<Iterator<TID>> tids,
+            ResolvedExpr filter,
+            int[] setPositions,
+            List<Object> setValues,
+            List<IndexedColumn> indexes
+    ) {
+        this.table = Objects.requireNonNull(table, "table");
+        this.tids = Objects.requireNonNull(tids, "tids");
+        this.filter = filter;
+        this.setPositions = Objects.requireNonNull(setPositions, "setPositions").clone();
+        this.setValues = new ArrayList<>(Objects.requireNonNull(setValues, "setValues"));
+        this.indexes = List.copyOf(Objects.requireNonNull(indexes, "indexes"));
+        if (this.setPositions.length != this.setValues.size()) {
+            throw new IllegalArgumentException("setPositions and setValues must have the same size");
+        }
+    }
+
+    @Override
+    public void open() {
+        executed = false;
+    }
+
+    @Override
+    public List<Object> next() {
+        if (executed) return null;
+        executed = true;
+
+        QueryMemoryContext memory = QueryMemoryContext.current();
+        List<TID> matched = new ArrayList<>();
+        List<List<Object>> rows = new ArrayList<>();
+        long reservedBytes = 0;
+        try {
+            reservedBytes = DeleteExecutor.collectMatching(table, tids.get(), filter, matched, rows, memory, "Update");
+
+            long updated = 0;
+            for (int i = 0; i < matched.size(); i++) {
+                if (((i + 1) & DeleteExecutor.CHECK_INTERVAL_MASK) == 0) {
+                    CancellationToken.checkpoint();
+                }
+                TID tid = matched.get(i);
+                List<Object> oldRow = rows.get(i);
+                List<Object> newRow = new ArrayList<>(oldRow);
+                for (int j = 0; j < setPositions.length; j++) {
+                    newRow.set(setPositions[j], setValues.get(j));
+                }
+
+                TID newTid = table.updateRow(tid, newRow);
+                try {
+                    moveIndexEntries(oldRow, tid, newRow, newTid);
+                } catch (UniqueViolationException e) {
+                    TID restored = table.updateRow(newTid, oldRow);
+                    moveIndexEntries(oldRow, tid, oldRow, restored);
+                    throw e;
+                }
+                updated++;
+            }
+            return List.of(updated);
+        } finally {
+            memory.release(reservedBytes);
+        }
+    }
+
+    private void moveIndexEntries(List<Object> fromRow, TID fromTid, List<Object> toRow, TID toTid) {
+        boolean sameSlot = toTid.equals(fromTid);
+        List<IndexedColumn> moved = new ArrayList<>(indexes.size());
+        for (IndexedColumn idx : indexes) {
+            Comparable<?> fromKey = idx.key(fromRow);
+            Comparable<?> toKey = idx.key(toRow);
+            if (sameSlot && Objects.equals(fromKey, toKey)) continue;
+            if (fromKey != null) {
+                idx.index().delete(fromKey, fromTid);
+            }
+            try {
+                if (toKey != null) {
+                    idx.index().insert(toKey, toTid);
+                }
+            } catch (UniqueViolationException e) {
+                if (fromKey != null) {
+                    idx.index().insert(fromKey, fromTid);
+                }
+                for (IndexedColumn done : moved) {
+                    Comparable<?> doneKey = done.key(toRow);
+                    if (doneKey != null) {
+                        done.index().delete(doneKey, toTid);
+                    }
+                    Comparable<?> originalKey = done.key(fromRow);
+                    if (originalKey != null) {
+                        done.index().insert(originalKey, fromTid);
+                    }
+                }
+                throw e;
+            }
+            moved.add(idx);
+        }
+    }
+
+    @Override
+    public void close() {
+        
+    }
+}
@@ -0,0 +1,52 @@
+package ru.open.cu.student.execution.executors;
+
+import ru.open.cu.student.catalog.manager.CatalogManager;
+import ru.open.cu.student.catalog.model.TableDefinition;
+import ru.open.cu.student.execution.Executor;
+import ru.open.cu.student.memory.buffer.BufferPoolManager;
+import ru.open.cu.student.sql.semantic.VacuumQueryTree;
+import ru.open.cu.student.storage.HeapFileRegistry;
+import ru.open.cu.student.storage.TableHeap;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Objects;
+
+public final class VacuumExecutor implements Executor {
+    private final Path root;
+    private final BufferPoolManager bufferPool;
+    private final CatalogManager catalog;
+    private final HeapFileRegistry heapFiles;
+    private final VacuumQueryTree query;
+
+    private boolean executed;
+
+    public VacuumExecutor(Path root, BufferPoolManager bufferPool, CatalogManager catalog, HeapFileRegistry heapFiles, VacuumQueryTree query) {
+        this.root = Objects.requireNonNull(root, "root");
+        this.bufferPool = Objects.requireNonNull(bufferPool, "bufferPool");
+        this.catalog = Objects.requireNonNull(catalog, "catalog");
+        this.heapFiles = Objects.requireNonNull(heapFiles, "heapFiles");
+        this.query = Objects.requireNonNull(query, "query");
+    }
+
+    @Override
+    public void open() {
+        
+    }
+
+    @Override
+    public List<Object> next() {
+        if (executed) return null;
+        executed = true;
+
+        for (TableDefinition table : query.tables()) {
+            new TableHeap(root, bufferPool, catalog, heapFiles, table).vacuum(0.0);
+        }
+        return null;
+    }
+
+    @Override
+    public void close() {
+        
+    }
+}
@@ -0,0 +1,7 @@
+package ru.open.cu.student.execution.memory;
+
+public final class MemoryLimitExceededException extends RuntimeException {
+    public MemoryLimitExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,38 @@
+package ru.open.cu.student.execution.memory;
+
+public final class MemoryPool {
+    private final long capacityBytes;
+    private long usedBytes;
+    private long peakBytes;
+
+    public MemoryPool(long capacityBytes) {
+        if (capacityBytes <= 0) throw new IllegalArgumentException("capacityBytes must be > 0");
+        this.capacityBytes = capacityBytes;
+    }
+
+    public long getCapacityBytes() {
+        return capacityBytes;
+    }
+
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    public synchronized long getPeakBytes() {
+        return peakBytes;
+    }
+
+    synchronized boolean tryAcquire(long bytes) {
+        if (usedBytes + bytes > capacityBytes) return false;
+        usedBytes += bytes;
+        peakBytes = Math.max(peakBytes, usedBytes);
+        return true;
+    }
+
+    synchronized void release(long bytes) {
+        if (bytes > usedBytes) {
+            throw new IllegalStateException("Releasing " + bytes + " bytes but only " + usedBytes + " are in use");
+        }
+        usedBytes -= bytes;
+    }
+}
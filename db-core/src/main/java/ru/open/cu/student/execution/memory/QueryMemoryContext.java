@@ -0,0 +1,99 @@
+package ru.open.cu.student.execution.memory;
+
+import java.util.List;
+import java.util.Objects;
+
+public final class QueryMemoryContext implements AutoCloseable {
+    private static final ThreadLocal<QueryMemoryContext> CURRENT = new ThreadLocal<>();
+    private static final QueryMemoryContext UNTRACKED = new QueryMemoryContext();
+
+    private final MemoryPool pool;
+    private final long budgetBytes;
+    private long reservedBytes;
+    private long peakBytes;
+
+    public QueryMemoryContext(MemoryPool pool, long budgetBytes) {
+        this.pool = Objects.requireNonNull(pool, "pool");
+        if (budgetBytes <= 0) throw new IllegalArgumentException("budgetBytes must be > 0");
+        this.budgetBytes = budgetBytes;
+    }
+
+    private QueryMemoryContext() {
+        this.pool = null;
+        this.budgetBytes = Long.MAX_VALUE;
+    }
+
+    public static QueryMemoryContext current() {
+        QueryMemoryContext ctx = CURRENT.get();
+        return ctx == null ? UNTRACKED : ctx;
+    }
+
+    public static QueryMemoryContext bind(QueryMemoryContext ctx) {
+        QueryMemoryContext previous = CURRENT.get();
+        CURRENT.set(ctx);
+        return previous;
+    }
+
+    public static void restore(QueryMemoryContext previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    public static int estimateRowBytes(List<Object> row) {
+        int bytes = 48 + 8 * row.size();
+        for (Object v : row) {
+            bytes += (v instanceof String s) ? 40 + 2 * s.length() : 16;
+        }
+        return bytes;
+    }
+
+    public synchronized boolean tryReserve(long bytes) {
+        if (pool == null) return true;
+        if (bytes < 0) throw new IllegalArgumentException("bytes must be >= 0");
+        if (reservedBytes + bytes > budgetBytes || !pool.tryAcquire(bytes)) {
+            return false;
+        }
+        reservedBytes += bytes;
+        peakBytes = Math.max(peakBytes, reservedBytes);
+        return true;
+    }
+
+    public void reserve(long bytes, String operator) {
+        if (tryReserve(bytes)) return;
+        throw new MemoryLimitExceededException(String.format(
+                "Query memory limit exceeded in %s: requested %d bytes with %d of %d bytes in use (pool %d of %d bytes)",
+                operator, bytes, getReservedBytes(), budgetBytes, pool.getUsedBytes(), pool.getCapacityBytes()));
+    }
+
+    public synchronized void release(long bytes) {
+        if (pool == null || bytes == 0) return;
+        if (bytes > reservedBytes) {
+            throw new IllegalStateException("Releasing " + bytes + " bytes but only " + reservedBytes + " are reserved");
+        }
+        reservedBytes -= bytes;
+        pool.release(bytes);
+    }
+
+    public synchronized long getReservedBytes() {
+        return reservedBytes;
+    }
+
+    public synchronized long getPeakBytes() {
+        return peakBytes;
+    }
+
+    public long getBudgetBytes() {
+        return budgetBytes;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (pool != null && reservedBytes > 0) {
+            pool.release(reservedBytes);
+            reservedBytes = 0;
+        }
+    }
+}
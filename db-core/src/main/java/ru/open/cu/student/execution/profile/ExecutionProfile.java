@@ -0,0 +1,32 @@
+package ru.open.cu.student.execution.profile;
+
+import ru.open.cu.student.execution.Executor;
+import ru.open.cu.student.optimizer.node.PhysicalPlanNode;
+import ru.open.cu.student.storage.TidBitmap;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+public final class ExecutionProfile {
+    private final Map<PhysicalPlanNode, OperatorMetrics> metrics = new IdentityHashMap<>();
+
+    public Executor instrument(PhysicalPlanNode node, Executor executor) {
+        Objects.requireNonNull(node, "node");
+        Objects.requireNonNull(executor, "executor");
+        OperatorMetrics m = metrics.computeIfAbsent(node, n -> new OperatorMetrics());
+        return new InstrumentedExecutor(executor, m);
+    }
+
+    public Supplier<TidBitmap> instrumentBitmap(PhysicalPlanNode node, Supplier<TidBitmap> source) {
+        Objects.requireNonNull(node, "node");
+        Objects.requireNonNull(source, "source");
+        OperatorMetrics m = metrics.computeIfAbsent(node, n -> new OperatorMetrics());
+        return new InstrumentedBitmapSource(source, m);
+    }
+
+    public OperatorMetrics metrics(PhysicalPlanNode node) {
+        return metrics.get(node);
+    }
+}
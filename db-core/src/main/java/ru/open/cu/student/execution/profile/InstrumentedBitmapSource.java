@@ -0,0 +1,37 @@
+package ru.open.cu.student.execution.profile;
+
+import ru.open.cu.student.memory.buffer.BufferPoolCounters;
+import ru.open.cu.student.storage.TidBitmap;
+
+import java.util.function.Supplier;
+
+final class InstrumentedBitmapSource implements Supplier<TidBitmap> {
+    private final Supplier<TidBitmap> delegate;
+    private final OperatorMetrics metrics;
+
+    InstrumentedBitmapSource(Supplier<TidBitmap> delegate, OperatorMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public TidBitmap get() {
+        metrics.addLoop();
+        BufferPoolCounters.Snapshot startBuffers = BufferPoolCounters.current();
+        long startAllocated = InstrumentedExecutor.allocatedBytes();
+        long startNanos = System.nanoTime();
+        TidBitmap bitmap = null;
+        try {
+            bitmap = delegate.get();
+            return bitmap;
+        } finally {
+            long nanos = System.nanoTime() - startNanos;
+            long allocated = InstrumentedExecutor.allocatedBytes() - startAllocated;
+            BufferPoolCounters.Snapshot buffers = BufferPoolCounters.current().minus(startBuffers);
+            metrics.add(nanos, buffers.hits(), buffers.misses(), buffers.pagesRead(), Math.max(0, allocated));
+            if (bitmap != null) {
+                metrics.addRows(bitmap.cardinality());
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package ru.open.cu.student.execution.profile;
+
+import ru.open.cu.student.execution.Executor;
+import ru.open.cu.student.memory.buffer.BufferPoolCounters;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+final class InstrumentedExecutor implements Executor {
+    private static final com.sun.management.ThreadMXBean THREADS = allocationBean();
+
+    private final Executor delegate;
+    private final OperatorMetrics metrics;
+
+    private long startNanos;
+    private long startAllocated;
+    private BufferPoolCounters.Snapshot startBuffers;
+
+    InstrumentedExecutor(Executor delegate, OperatorMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void open() {
+        metrics.addLoop();
+        begin();
+        try {
+            delegate.open();
+        } finally {
+            end();
+        }
+    }
+
+    @Override
+    public List<Object> next() {
+        begin();
+        try {
+            List<Object> row = delegate.next();
+            if (row != null) {
+                metrics.addRow();
+            }
+            return row;
+        } finally {
+            end();
+        }
+    }
+
+    @Override
+    public void close() {
+        begin();
+        try {
+            delegate.close();
+        } finally {
+            end();
+        }
+    }
+
+    private void begin() {
+        startBuffers = BufferPoolCounters.current();
+        startAllocated = allocatedBytes();
+        startNanos = System.nanoTime();
+    }
+
+    private void end() {
+        long nanos = System.nanoTime() - startNanos;
+        long allocated = allocatedBytes() - startAllocated;
+        BufferPoolCounters.Snapshot buffers = BufferPoolCounters.current().minus(startBuffers);
+        metrics.add(nanos, buffers.hits(), buffers.misses(), buffers.pagesRead(), Math.max(0, allocated));
+    }
+
+    static long allocatedBytes() {
+        return THREADS == null ? 0 : THREADS.getCurrentThreadAllocatedBytes();
+    }
+
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+                && bean.isThreadAllocatedMemorySupported()) {
+            if (!bean.isThreadAllocatedMemoryEnabled()) {
+                bean.setThreadAllocatedMemoryEnabled(true);
+            }
+            return bean;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,59 @@
+package ru.open.cu.student.execution.profile;
+
+public final class OperatorMetrics {
+    private long rows;
+    private long loops;
+    private long timeNanos;
+    private long bufferHits;
+    private long bufferMisses;
+    private long pagesRead;
+    private long bytesAllocated;
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getLoops() {
+        return loops;
+    }
+
+    public long getTimeNanos() {
+        return timeNanos;
+    }
+
+    public long getBufferHits() {
+        return bufferHits;
+    }
+
+    public long getBufferMisses() {
+        return bufferMisses;
+    }
+
+    public long getPagesRead() {
+        return pagesRead;
+    }
+
+    public long getBytesAllocated() {
+        return bytesAllocated;
+    }
+
+    void addRow() {
+        rows++;
+    }
+
+    void addRows(long n) {
+        rows += n;
+    }
+
+    void addLoop() {
+        loops++;
+    }
+
+    void add(long nanos, long hits, long misses, long read, long allocated) {
+        timeNanos += nanos;
+        bufferHits += hits;
+        bufferMisses += misses;
+        pagesRead += read;
+        bytesAllocated += allocated;
+    }
+}
@@ -0,0 +1,131 @@
+package ru.open.cu.student.execution.spill;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+
+public final class SpillFile implements AutoCloseable {
+    private static final byte TAG_NULL = 0;
+    private static final byte TAG_INT64 = 1;
+    private static final byte TAG_VARCHAR = 2;
+
+    private final Path path;
+    private DataOutputStream out;
+    private DataInputStream in;
+    private long rowCount;
+    private long bytesWritten;
+
+    private SpillFile(Path path) throws IOException {
+        this.path = path;
+        this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)));
+    }
+
+    public static SpillFile create(Path dir, String prefix) {
+        Objects.requireNonNull(dir, "dir");
+        try {
+            Files.createDirectories(dir);
+            return new SpillFile(Files.createTempFile(dir, prefix, ".spill"));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create spill file in " + dir, e);
+        }
+    }
+
+    public long rowCount() {
+        return rowCount;
+    }
+
+    public long bytesWritten() {
+        return bytesWritten;
+    }
+
+    public void write(List<Object> row) {
+        if (out == null) throw new IllegalStateException("Spill file is not writable: " + path);
+        try {
+            int before = out.size();
+            out.writeShort(row.size());
+            for (Object v : row) {
+                if (v == null) {
+                    out.writeByte(TAG_NULL);
+                } else if (v instanceof Long l) {
+                    out.writeByte(TAG_INT64);
+                    out.writeLong(l);
+                } else if (v instanceof String s) {
+                    out.writeByte(TAG_VARCHAR);
+                    out.writeUTF(s);
+                } else {
+                    throw new IllegalArgumentException("Unsupported spill value: " + v.getClass().getSimpleName());
+                }
+            }
+            bytesWritten += out.size() - before;
+            rowCount++;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write spill file: " + path, e);
+        }
+    }
+
+    public void rewind() {
+        try {
+            if (out != null) {
+                out.close();
+                out = null;
+            }
+            if (in != null) {
+                in.close();
+            }
+            in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open spill file: " + path, e);
+        }
+    }
+
+    public List<Object> read() {
+        if (in == null) throw new IllegalStateException("Spill file is not readable, call rewind() first: " + path);
+        try {
+            int n;
+            try {
+                n = in.readUnsignedShort();
+            } catch (EOFException eof) {
+                return null;
+            }
+            List<Object> row = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                byte tag = in.readByte();
+                row.add(switch (tag) {
+                    case TAG_NULL -> null;
+                    case TAG_INT64 -> in.readLong();
+                    case TAG_VARCHAR -> in.readUTF();
+                    default -> throw new IllegalStateException("Corrupted spill file (bad tag " + tag + "): " + path);
+                });
+            }
+            return row;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read spill file: " + path, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            if (out != null) out.close();
+            if (in != null) in.close();
+        } catch (IOException ignored) {
+        } finally {
+            out = null;
+            in = null;
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package ru.open.cu.student.index;
+
+final class BloomFilter {
+    private static final int BITS_PER_KEY = 10;
+    private static final int PROBES = 7;
+    private static final long MIN_CAPACITY = 1024;
+
+    private final long[] words;
+    private final long bitCount;
+    private final long capacity;
+    private long added;
+
+    BloomFilter(long expectedKeys) {
+        this.capacity = Math.max(MIN_CAPACITY, expectedKeys);
+        this.words = new long[(int) ((capacity * BITS_PER_KEY + 63) >>> 6)];
+        this.bitCount = (long) words.length << 6;
+    }
+
+    void add(long hash) {
+        long h = mix(hash);
+        for (int i = 0; i < PROBES; i++) {
+            long bit = bit(h, i);
+            words[(int) (bit >>> 6)] |= 1L << bit;
+        }
+        added++;
+    }
+
+    boolean mightContain(long hash) {
+        long h = mix(hash);
+        for (int i = 0; i < PROBES; i++) {
+            long bit = bit(h, i);
+            if ((words[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    boolean isSaturated() {
+        return added > capacity;
+    }
+
+    private long bit(long h, int i) {
+        return Math.floorMod((int) h + (long) i * (int) (h >>> 32), bitCount);
+    }
+
+    private static long mix(long x) {
+        x ^= x >>> 33;
+        x *= 0xff51afd7ed558ccdL;
+        x ^= x >>> 33;
+        x *= 0xc4ceb9fe1a85ec53L;
+        x ^= x >>> 33;
+        return x;
+    }
+}
@@ -0,0 +1,38 @@
+package ru.open.cu.student.index;
+
+import java.util.List;
+import java.util.Objects;
+
+public record CompositeKey(List<Object> values) implements Comparable<CompositeKey> {
+    public CompositeKey {
+        Objects.requireNonNull(values, "values");
+        if (values.isEmpty()) {
+            throw new IllegalArgumentException("values must not be empty");
+        }
+        values = List.copyOf(values);
+    }
+
+    public static CompositeKey of(Object... values) {
+        return new CompositeKey(List.of(values));
+    }
+
+    @Override
+    public int compareTo(CompositeKey other) {
+        int n = Math.min(values.size(), other.values.size());
+        for (int i = 0; i < n; i++) {
+            int c = KeyOrder.compare(values.get(i), other.values.get(i));
+            if (c != 0) return c;
+        }
+        return values.size() - other.values.size();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("(");
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(values.get(i));
+        }
+        return sb.append(')').toString();
+    }
+}
@@ -1,8 +1,11 @@
 package ru.open.cu.student.index;
 
 import ru.open.cu.student.catalog.manager.CatalogManager;
+import ru.open.cu.student.catalog.model.ColumnDefinition;
 import ru.open.cu.student.catalog.model.IndexDefinition;
+import ru.open.cu.student.catalog.model.TableDefinition;
 import ru.open.cu.student.catalog.model.TypeDefinition;
+import ru.open.cu.student.execution.CancellationToken;
 import ru.open.cu.student.memory.buffer.BufferPoolManager;
 import ru.open.cu.student.memory.buffer.PageKey;
 import ru.open.cu.student.memory.page.HeapPage;
@@ -10,29 +13,32 @@ import ru.open.cu.student.memory.page.Page;
 import ru.open.cu.student.storage.TID;
 
 import java.io.IOException;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 
 public final class DiskBTreeIndex implements Index {
-    private static final ByteOrder ORDER = ByteOrder.BIG_ENDIAN;
-
-    private static final int META_MAGIC = 0x42494458; 
-    private static final int META_VERSION = 1;
-    private static final int NODE_MAGIC = 0x424E4F44; 
+    private static final int META_MAGIC = 0x42494458;
+    private static final int META_VERSION = 6;
+    private static final int NODE_MAGIC = 0x424E4F44;
+    private static final int POSTING_MAGIC = 0x42504F53;
 
     private static final int HEAP_HEADER_SIZE = 10;
     private static final int PAGE_CAPACITY = HeapPage.PAGE_SIZE - HEAP_HEADER_SIZE;
 
-    
+
     private static final int META_MAGIC_OFF = HEAP_HEADER_SIZE;
     private static final int META_VERSION_OFF = HEAP_HEADER_SIZE + 4;
     private static final int META_ROOT_OFF = HEAP_HEADER_SIZE + 8;
@@ -40,31 +46,58 @@ public final class DiskBTreeIndex implements Index {
     private static final int META_LEFTMOST_LEAF_OFF = HEAP_HEADER_SIZE + 16;
     private static final int META_NEXT_PAGE_ID_OFF = HEAP_HEADER_SIZE + 20;
 
-    
+
     private static final int NODE_MAGIC_OFF = HEAP_HEADER_SIZE;
     private static final int NODE_IS_LEAF_OFF = HEAP_HEADER_SIZE + 4;
-    private static final int NODE_PARENT_OFF = HEAP_HEADER_SIZE + 8;
-    private static final int NODE_LEFT_SIB_OFF = HEAP_HEADER_SIZE + 12;
-    private static final int NODE_RIGHT_SIB_OFF = HEAP_HEADER_SIZE + 16;
-    private static final int NODE_KEYCOUNT_OFF = HEAP_HEADER_SIZE + 20;
-    private static final int NODE_HDR_SIZE = 24;
-    private static final int NODE_DATA_START_OFF = HEAP_HEADER_SIZE + NODE_HDR_SIZE;
+    private static final int NODE_LEFT_SIB_OFF = HEAP_HEADER_SIZE + 8;
+    private static final int NODE_RIGHT_SIB_OFF = HEAP_HEADER_SIZE + 12;
+    private static final int NODE_KEYCOUNT_OFF = HEAP_HEADER_SIZE + 16;
+    private static final int NODE_FIRST_CHILD_OFF = HEAP_HEADER_SIZE + 20;
+    private static final int NODE_FREE_END_OFF = HEAP_HEADER_SIZE + 24;
+    private static final int NODE_PREFIX_LEN_OFF = HEAP_HEADER_SIZE + 28;
+    private static final int NODE_EPOCH_OFF = HEAP_HEADER_SIZE + 32;
+    private static final int NODE_HDR_SIZE = 36;
+    private static final int NODE_SLOTS_OFF = HEAP_HEADER_SIZE + NODE_HDR_SIZE;
+    private static final int SLOT_SIZE = Short.BYTES;
+    private static final int MAX_VARCHAR_KEY_BYTES = 1024;
+    private static final int MIN_FILL_BYTES = PAGE_CAPACITY / 4;
+    private static final int MOVED = -2;
+
+
+    private static final int POSTING_COUNT_OFF = 0;
+    private static final int POSTING_OVERFLOW_OFF = 4;
+    private static final int POSTING_LEN_OFF = 8;
+    private static final int POSTING_HDR_SIZE = 10;
+    private static final int MAX_INLINE_POSTING_BYTES = PAGE_CAPACITY / 16;
+
+
+    private static final int OVERFLOW_MAGIC_OFF = HEAP_HEADER_SIZE;
+    private static final int OVERFLOW_NEXT_OFF = HEAP_HEADER_SIZE + 4;
+    private static final int OVERFLOW_COUNT_OFF = HEAP_HEADER_SIZE + 8;
+    private static final int OVERFLOW_USED_OFF = HEAP_HEADER_SIZE + 12;
+    private static final int OVERFLOW_DATA_OFF = HEAP_HEADER_SIZE + 16;
+    private static final int OVERFLOW_CAPACITY = HeapPage.PAGE_SIZE - OVERFLOW_DATA_OFF;
+    private static final byte[] NO_POSTINGS = new byte[0];
 
     private record Meta(int rootPageId, int height, int leftmostLeafPageId, int nextPageId) {
     }
 
+
+    private record Posting(int count, int overflowPageId, byte[] inline) {
+    }
+
     private static final class Node {
         final int pageId;
         boolean isLeaf;
-        int parentPageId;
         int leftSiblingPageId;
         int rightSiblingPageId;
-        final ArrayList<Comparable<?>> keys = new ArrayList<>();
+        int epoch;
+        final ArrayList<byte[]> keys = new ArrayList<>();
+
+
+        final ArrayList<Posting> postings = new ArrayList<>();
 
-        
-        final ArrayList<List<TID>> values = new ArrayList<>();
 
-        
         final ArrayList<Integer> children = new ArrayList<>();
 
         Node(int pageId) {
@@ -77,9 +110,15 @@ public final class DiskBTreeIndex implements Index {
     private final CatalogManager catalog;
     private final IndexDefinition def;
     private final String fileId;
-    private final TypeDefinition keyType;
+    private final boolean[] int64Columns;
+    private final boolean composite;
+    private final boolean int64Keys;
+    private final int maxKeyBytes;
 
-    private Meta meta;
+    private final ReentrantReadWriteLock rootLatch = new ReentrantReadWriteLock();
+    private final ConcurrentHashMap<Integer, ReentrantReadWriteLock> latches = new ConcurrentHashMap<>();
+    private final Object metaLock = new Object();
+    private volatile Meta meta;
 
     public DiskBTreeIndex(Path root, BufferPoolManager bufferPool, CatalogManager catalog, IndexDefinition def) {
         this.root = Objects.requireNonNull(root, "root");
@@ -91,11 +130,25 @@ public final class DiskBTreeIndex implements Index {
         }
         this.fileId = def.getFileNode();
 
-        TypeDefinition t = catalog.getTypeByOid(def.getKeyTypeOid());
-        if (t == null) {
-            throw new IllegalStateException("Unknown key type oid: " + def.getKeyTypeOid());
+        List<Integer> typeOids = new ArrayList<>();
+        typeOids.add(def.getKeyTypeOid());
+        List<Integer> columnOids = new ArrayList<>(def.getColumnOids().subList(1, def.getColumnOids().size()));
+        columnOids.addAll(def.getIncludeColumnOids());
+        typeOids.addAll(columnTypeOids(catalog, def, columnOids));
+        this.int64Columns = new boolean[typeOids.size()];
+        for (int i = 0; i < typeOids.size(); i++) {
+            TypeDefinition t = catalog.getTypeByOid(typeOids.get(i));
+            if (t == null) {
+                throw new IllegalStateException("Unknown key type oid: " + typeOids.get(i));
+            }
+            if (!t.getName().equals("INT64") && !t.getName().equals("VARCHAR")) {
+                throw new IllegalStateException("Unsupported key type: " + t.getName());
+            }
+            int64Columns[i] = t.getName().equals("INT64");
         }
-        this.keyType = t;
+        this.composite = int64Columns.length > 1;
+        this.int64Keys = !composite && int64Columns[0];
+        this.maxKeyBytes = int64Keys ? Long.BYTES : MAX_VARCHAR_KEY_BYTES;
 
         initOrLoad();
     }
@@ -106,94 +159,526 @@ public final class DiskBTreeIndex implements Index {
     }
 
     @Override
-    public synchronized void insert(Comparable<?> key, TID tid) {
+    public void insert(Comparable<?> key, TID tid) {
         Objects.requireNonNull(key, "key");
         Objects.requireNonNull(tid, "tid");
 
-        Deque<Integer> path = new ArrayDeque<>();
-        Node leaf = findLeaf(key, path);
-
-        insertIntoLeaf(leaf, key, tid);
+        byte[] k = encodeEntryKey(key);
+        if (k.length > maxKeyBytes) {
+            throw new IllegalArgumentException("Index key too large: " + k.length + " bytes (max " + maxKeyBytes + ")");
+        }
 
-        if (estimateSize(leaf) <= PAGE_CAPACITY) {
-            writeNode(leaf);
-            return;
+        int leafId = descend(k, true);
+        try {
+            if (insertInPlace(leafId, k, tid)) {
+                return;
+            }
+        } finally {
+            unlockPage(leafId, true);
         }
 
-        splitLeaf(leaf, path);
+        insertWithSplit(k, tid);
     }
 
     @Override
-    public synchronized List<TID> search(Comparable<?> key) {
+    public boolean delete(Comparable<?> key, TID tid) {
         Objects.requireNonNull(key, "key");
+        Objects.requireNonNull(tid, "tid");
 
-        Node leaf = findLeaf(key, null);
-        int pos = lowerBound(leaf.keys, key);
-        if (pos >= leaf.keys.size() || cmp(leaf.keys.get(pos), key) != 0) {
-            return List.of();
+        byte[] k = encodeEntryKey(key);
+        if (k.length > maxKeyBytes) {
+            return false;
+        }
+
+        int leafId = descend(k, true);
+        boolean underflow;
+        try {
+            if (!deleteInPlace(leafId, k, tidValue(tid))) {
+                return false;
+            }
+            underflow = leafId != meta.rootPageId && usedBytes(nodeBytes(leafId)) < MIN_FILL_BYTES;
+        } finally {
+            unlockPage(leafId, true);
+        }
+
+        if (underflow) {
+            rebalance(k);
         }
-        return List.copyOf(leaf.values.get(pos));
+        return true;
     }
 
     @Override
-    public synchronized List<TID> rangeSearch(Comparable<?> from, boolean fromInclusive, Comparable<?> to, boolean toInclusive) {
-        if (from != null && to != null) {
-            if (cmp(from, to) > 0) return List.of();
+    public List<TID> search(Comparable<?> key) {
+        Objects.requireNonNull(key, "key");
+        if (composite) {
+            return rangeSearch(key, true, key, true);
         }
 
-        int leafPageId;
-        int startPos;
+        byte[] k = encodeKey(key);
+        int leafId = descend(k, false);
+        try {
+            byte[] buf = nodeBytes(leafId);
+            int count = readInt(buf, NODE_KEYCOUNT_OFF);
+            int pos = lowerBound(buf, count, k);
+            if (pos >= count || compareAt(buf, pos, k) != 0) {
+                return List.of();
+            }
+            Posting posting = postingAt(buf, pos);
+            long[] values = postingValues(posting);
+            List<TID> out = new ArrayList<>(posting.count());
+            for (int i = 0; i < posting.count(); i++) {
+                out.add(tidOf(values[i]));
+            }
+            return out;
+        } finally {
+            unlockPage(leafId, false);
+        }
+    }
 
-        if (from == null) {
-            leafPageId = meta.leftmostLeafPageId;
-            startPos = 0;
-        } else {
-            Node leaf = findLeaf(from, null);
-            leafPageId = leaf.pageId;
-            startPos = lowerBound(leaf.keys, from);
+    @Override
+    public long count(Comparable<?> key) {
+        Objects.requireNonNull(key, "key");
+        if (composite) {
+            long n = 0;
+            Iterator<TID> it = scan(key, true, key, true, false);
+            while (it.hasNext()) {
+                it.next();
+                n++;
+            }
+            return n;
+        }
+
+        byte[] k = encodeKey(key);
+        int leafId = descend(k, false);
+        try {
+            byte[] buf = nodeBytes(leafId);
+            int count = readInt(buf, NODE_KEYCOUNT_OFF);
+            int pos = lowerBound(buf, count, k);
+            if (pos >= count || compareAt(buf, pos, k) != 0) {
+                return 0;
+            }
+            return postingAt(buf, pos).count();
+        } finally {
+            unlockPage(leafId, false);
         }
+    }
 
+    @Override
+    public List<TID> rangeSearch(Comparable<?> from, boolean fromInclusive, Comparable<?> to, boolean toInclusive) {
         List<TID> out = new ArrayList<>();
+        Iterator<TID> it = scan(from, fromInclusive, to, toInclusive, false);
+        while (it.hasNext()) {
+            out.add(it.next());
+        }
+        return out;
+    }
+
+    @Override
+    public Iterator<TID> scan(Comparable<?> from, boolean fromInclusive, Comparable<?> to, boolean toInclusive, boolean descending) {
+        return cursor(from, fromInclusive, to, toInclusive, descending, false);
+    }
+
+    public Iterator<IndexEntry> scanEntries(Comparable<?> from, boolean fromInclusive, Comparable<?> to, boolean toInclusive) {
+        LeafCursor cursor = cursor(from, fromInclusive, to, toInclusive, false, true);
+        return new Iterator<>() {
+            private byte[] lastKey;
+            private List<Object> lastValues;
+
+            @Override
+            public boolean hasNext() {
+                return cursor.hasNext();
+            }
+
+            @Override
+            public IndexEntry next() {
+                TID tid = cursor.next();
+                byte[] k = cursor.batch.currentKey();
+                if (k != lastKey) {
+                    lastKey = k;
+                    lastValues = decodeKey(k);
+                }
+                return new IndexEntry(lastValues, tid);
+            }
+        };
+    }
+
+    private LeafCursor cursor(
+            Comparable<?> from,
+            boolean fromInclusive,
+            Comparable<?> to,
+            boolean toInclusive,
+            boolean descending,
+            boolean withKeys
+    ) {
+        byte[] lo = from == null ? null : encodeKey(from);
+        byte[] hi = to == null ? null : encodeKey(to);
+        boolean empty = false;
+        if (composite && lo != null && !fromInclusive) {
+            lo = prefixSuccessor(lo);
+            fromInclusive = true;
+            empty = lo == null;
+        }
+        if (composite && hi != null && toInclusive) {
+            hi = prefixSuccessor(hi);
+            toInclusive = false;
+        }
+        LeafCursor cursor = new LeafCursor(lo, fromInclusive, hi, toInclusive, descending, withKeys);
+        cursor.exhausted |= empty;
+        return cursor;
+    }
+
+    void bulkLoad(Iterator<IndexBuildSorter.Entry> sorted, int fillFactor) {
+        if (fillFactor < 10 || fillFactor > 100) {
+            throw new IllegalArgumentException("fillFactor must be between 10 and 100: " + fillFactor);
+        }
+        rootLatch.writeLock().lock();
+        try {
+            bulkLoadLocked(sorted, fillFactor);
+        } finally {
+            rootLatch.writeLock().unlock();
+        }
+    }
+
+    private void bulkLoadLocked(Iterator<IndexBuildSorter.Entry> sorted, int fillFactor) {
+        if (meta.height != 1 || readInt(nodeBytes(meta.rootPageId), NODE_KEYCOUNT_OFF) != 0) {
+            throw new IllegalStateException("Bulk load requires an empty index: " + def.getName());
+        }
+        int target = PAGE_CAPACITY * fillFactor / 100;
+
+        List<byte[]> lowKeys = new ArrayList<>();
+        List<Integer> pageIds = new ArrayList<>();
+
+        Node leaf = newNode(meta.rootPageId, true);
+        int fixedBytes = 0;
+        int keyBytes = 0;
+        byte[] low = null;
+        byte[] prev = null;
+        long[] values = new long[16];
+        int valueCount = 0;
+        while (true) {
+            IndexBuildSorter.Entry e = sorted.hasNext() ? sorted.next() : null;
+            byte[] k = e == null ? null : encodeEntryKey(e.key());
+            if (k != null && k.length > maxKeyBytes) {
+                throw new IllegalArgumentException("Index key too large: " + k.length + " bytes (max " + maxKeyBytes + ")");
+            }
+            int c = k == null || prev == null ? 1 : compareKeys(k, prev);
+            if (c < 0) {
+                throw new IllegalArgumentException("Bulk load input is not sorted");
+            }
+
+            if (c > 0 && prev != null) {
+                Posting posting = newPosting(values, valueCount);
+                int entry = SLOT_SIZE + Short.BYTES + POSTING_HDR_SIZE + posting.inline().length;
+                int n = leaf.keys.size() + 1;
+                int prefixLen = leaf.keys.isEmpty() ? 0 : commonPrefix(leaf.keys.get(0), prev);
+                int size = NODE_HDR_SIZE + prefixLen + fixedBytes + entry + keyBytes + prev.length - n * prefixLen;
+                if (!leaf.keys.isEmpty() && size > target) {
+                    Node next = newNode(allocatePageId(), true);
+                    next.leftSiblingPageId = leaf.pageId;
+                    leaf.rightSiblingPageId = next.pageId;
+                    writeNode(leaf);
+                    lowKeys.add(low);
+                    pageIds.add(leaf.pageId);
+                    low = separator(leaf.keys.get(leaf.keys.size() - 1), prev);
+                    leaf = next;
+                    fixedBytes = 0;
+                    keyBytes = 0;
+                }
+                leaf.keys.add(prev);
+                leaf.postings.add(posting);
+                fixedBytes += entry;
+                keyBytes += prev.length;
+                valueCount = 0;
+            }
+            if (e == null) {
+                break;
+            }
+            if (valueCount == values.length) {
+                values = Arrays.copyOf(values, valueCount * 2);
+            }
+            values[valueCount++] = tidValue(e.tid());
+            prev = k;
+        }
+        writeNode(leaf);
+        lowKeys.add(low);
+        pageIds.add(leaf.pageId);
+
+        int height = 1;
+        while (pageIds.size() > 1) {
+            List<byte[]> parentLowKeys = new ArrayList<>();
+            List<Integer> parentIds = new ArrayList<>();
+            Node node = null;
+            int nodeSize = 0;
+            for (int i = 0; i < pageIds.size(); i++) {
+                byte[] sep = lowKeys.get(i);
+                int entry = sep == null ? 0 : SLOT_SIZE + Short.BYTES + sep.length + Integer.BYTES;
+                if (node != null && nodeSize + entry > target) {
+                    writeNode(node);
+                    node = null;
+                }
+                if (node == null) {
+                    node = newNode(allocatePageId(), false);
+                    node.children.add(pageIds.get(i));
+                    parentLowKeys.add(sep);
+                    parentIds.add(node.pageId);
+                    nodeSize = NODE_HDR_SIZE;
+                } else {
+                    node.keys.add(sep);
+                    node.children.add(pageIds.get(i));
+                    nodeSize += entry;
+                }
+            }
+            writeNode(node);
+            lowKeys = parentLowKeys;
+            pageIds = parentIds;
+            height++;
+        }
 
-        int currentLeafId = leafPageId;
-        int pos = startPos;
+        setRoot(pageIds.get(0), height);
+    }
+
+    Comparator<Comparable<?>> keyOrder() {
+        if (composite) {
+            return (a, b) -> Arrays.compareUnsigned(encodeKey(a), encodeKey(b));
+        }
+        if (int64Keys) {
+            return Comparator.comparingLong(k -> ((Number) k).longValue());
+        }
+        return (a, b) -> KeyOrder.compareUtf8((String) a, (String) b);
+    }
+
+    private final class LeafCursor implements Iterator<TID> {
+        private final byte[] from;
+        private final boolean fromInclusive;
+        private final byte[] to;
+        private final boolean toInclusive;
+        private final boolean descending;
+        private final boolean withKeys;
+
+        private final PostingBuffer batch = new PostingBuffer();
+        private int leafPageId = -1;
+        private int leafEpoch;
+        private byte[] lastKey;
+        private byte[] hotKey;
+        private boolean exhausted;
+
+        private LeafCursor(byte[] from, boolean fromInclusive, byte[] to, boolean toInclusive, boolean descending, boolean withKeys) {
+            this.from = from;
+            this.fromInclusive = fromInclusive;
+            this.to = to;
+            this.toInclusive = toInclusive;
+            this.descending = descending;
+            this.withKeys = withKeys;
+            this.exhausted = from != null && to != null && compareKeys(from, to) > 0;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!batch.hasNext()) {
+                if (exhausted) return false;
+                CancellationToken.checkpoint();
+                loadNextLeaf();
+            }
+            return true;
+        }
+
+        @Override
+        public TID next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            return tidOf(batch.next());
+        }
+
+        private void loadNextLeaf() {
+            long resumeAfter = batch.lastValue();
+            batch.clear();
+
+            int leafId = MOVED;
+            if (hotKey != null) {
+                leafId = descend(hotKey, false);
+            } else if (leafPageId != -1) {
+                leafId = descending ? lockLeftSibling(leafPageId, leafEpoch) : lockRightSibling(leafPageId, leafEpoch);
+                if (leafId == -1) {
+                    exhausted = true;
+                    return;
+                }
+            }
+            if (leafId == MOVED) {
+                byte[] anchor = lastKey != null ? lastKey : descending ? to : from;
+                if (anchor == null && !descending) {
+                    leafId = meta.leftmostLeafPageId;
+                    lockPage(leafId, false);
+                } else {
+                    leafId = descend(anchor, false);
+                }
+            }
 
-        while (currentLeafId != -1) {
-            Node leaf = readNode(currentLeafId);
-            if (!leaf.isLeaf) {
-                throw new IllegalStateException("Expected leaf, got internal: pageId=" + currentLeafId);
+            try {
+                collect(leafId, resumeAfter);
+            } finally {
+                unlockPage(leafId, false);
             }
+        }
 
-            while (pos < leaf.keys.size()) {
-                Comparable<?> k = leaf.keys.get(pos);
+        private void collect(int leafId, long resumeAfter) {
+            byte[] buf = nodeBytes(leafId);
+            if (readInt(buf, NODE_IS_LEAF_OFF) == 0) {
+                throw new IllegalStateException("Expected leaf, got internal: pageId=" + leafId);
+            }
+            leafPageId = leafId;
+            leafEpoch = readInt(buf, NODE_EPOCH_OFF);
+
+            int n = readInt(buf, NODE_KEYCOUNT_OFF);
+            if (hotKey != null) {
+                int pos = lowerBound(buf, n, hotKey);
+                if (pos < n && compareAt(buf, pos, hotKey) == 0 && !collectOverflow(buf, pos, true, resumeAfter)) {
+                    return;
+                }
+                lastKey = hotKey;
+                hotKey = null;
+            }
 
-                if (from != null) {
-                    int cFrom = cmp(k, from);
-                    if (cFrom < 0 || (!fromInclusive && cFrom == 0)) {
-                        pos++;
+            int pos;
+            if (descending) {
+                pos = lastKey != null ? lowerBound(buf, n, lastKey) - 1 : to != null ? upperBound(buf, n, to) - 1 : n - 1;
+            } else {
+                pos = lastKey != null ? upperBound(buf, n, lastKey) : from != null ? lowerBound(buf, n, from) : 0;
+            }
+            int step = descending ? -1 : 1;
+            int lastPos = -1;
+            try {
+                for (; pos >= 0 && pos < n; pos += step) {
+                    boolean aboveFrom = true;
+                    if (from != null) {
+                        int c = compareAt(buf, pos, from);
+                        aboveFrom = c > 0 || (fromInclusive && c == 0);
+                    }
+                    boolean belowTo = true;
+                    if (to != null) {
+                        int c = compareAt(buf, pos, to);
+                        belowTo = c < 0 || (toInclusive && c == 0);
+                    }
+                    if (!(descending ? aboveFrom : belowTo)) {
+                        exhausted = true;
+                        return;
+                    }
+                    if (!(aboveFrom && belowTo)) {
                         continue;
                     }
+                    int valueOff = valueOffset(buf, pos);
+                    if (readInt(buf, valueOff + POSTING_OVERFLOW_OFF) != -1) {
+                        if (!collectOverflow(buf, pos, false, 0)) {
+                            hotKey = keyAt(buf, pos);
+                            return;
+                        }
+                    } else {
+                        batch.addSegment(withKeys ? keyAt(buf, pos) : null, buf, valueOff + POSTING_HDR_SIZE, readUShort(buf, valueOff + POSTING_LEN_OFF));
+                    }
+                    lastPos = pos;
+                }
+            } finally {
+                if (lastPos >= 0) {
+                    lastKey = keyAt(buf, lastPos);
                 }
+            }
+        }
 
-                if (to != null) {
-                    int cTo = cmp(k, to);
-                    if (cTo > 0 || (!toInclusive && cTo == 0)) {
-                        return out;
+        private boolean collectOverflow(byte[] buf, int pos, boolean resume, long resumeAfter) {
+            int pageId = readInt(buf, valueOffset(buf, pos) + POSTING_OVERFLOW_OFF);
+            byte[] segmentKey = withKeys ? keyAt(buf, pos) : null;
+            int before = batch.size();
+            while (pageId != -1) {
+                byte[] page = overflowBytes(pageId);
+                int next = readInt(page, OVERFLOW_NEXT_OFF);
+                int count = readInt(page, OVERFLOW_COUNT_OFF);
+                int used = readInt(page, OVERFLOW_USED_OFF);
+                if (!resume) {
+                    batch.addSegment(segmentKey, page, OVERFLOW_DATA_OFF, used);
+                } else {
+                    long[] values = decodePostings(page, OVERFLOW_DATA_OFF, count);
+                    int skip = upperBound(values, count, resumeAfter);
+                    if (skip < count) {
+                        byte[] rest = encodePostings(values, skip, count);
+                        batch.addSegment(segmentKey, rest, 0, rest.length);
                     }
                 }
-
-                out.addAll(leaf.values.get(pos));
-                pos++;
+                pageId = next;
+                if (batch.size() > before) {
+                    return next == -1;
+                }
             }
+            return true;
+        }
+    }
 
-            currentLeafId = leaf.rightSiblingPageId;
+    private static final class PostingBuffer {
+        private byte[] data = new byte[256];
+        private final ArrayList<byte[]> keys = new ArrayList<>();
+        private int length;
+        private int pos;
+        private int segmentEnd;
+        private int segment;
+        private long value;
+
+        void clear() {
+            length = 0;
             pos = 0;
+            segmentEnd = 0;
+            segment = 0;
+            keys.clear();
         }
 
-        return out;
+        void addSegment(byte[] key, byte[] src, int off, int len) {
+            if (len == 0) return;
+            keys.add(key);
+            if (length + 5 + len > data.length) {
+                data = Arrays.copyOf(data, Math.max(data.length * 2, length + 5 + len));
+            }
+            length = writeVarLong(data, length, len);
+            System.arraycopy(src, off, data, length, len);
+            length += len;
+        }
+
+        boolean hasNext() {
+            return pos < length;
+        }
+
+        int size() {
+            return length;
+        }
+
+        long next() {
+            if (pos == segmentEnd) {
+                int len = (int) readVarLong();
+                segmentEnd = pos + len;
+                segment++;
+                value = unzigzag(readVarLong());
+            } else {
+                value += readVarLong();
+            }
+            return value;
+        }
+
+        long lastValue() {
+            return value;
+        }
+
+        byte[] currentKey() {
+            return keys.get(segment - 1);
+        }
+
+        private long readVarLong() {
+            long v = 0;
+            int shift = 0;
+            while (true) {
+                byte b = data[pos++];
+                v |= (long) (b & 0x7F) << shift;
+                if (b >= 0) return v;
+                shift += 7;
+            }
+        }
     }
 
-    
+
     int debugHeight() {
         return meta.height;
     }
@@ -202,7 +687,11 @@ public final class DiskBTreeIndex implements Index {
         return meta.rootPageId;
     }
 
-    
+    int debugPageCount() {
+        return meta.nextPageId;
+    }
+
+
     private void initOrLoad() {
         Path file = root.resolve(fileId);
         try {
@@ -228,26 +717,21 @@ public final class DiskBTreeIndex implements Index {
     }
 
     private void initializeNew() {
-        
+
         Page metaPage = new HeapPage(0);
         bufferPool.newPage(key(0), metaPage);
 
-        
+
         Page rootLeaf = new HeapPage(1);
         bufferPool.newPage(key(1), rootLeaf);
 
         meta = new Meta(1, 1, 1, 2);
 
-        Node leaf = new Node(1);
-        leaf.isLeaf = true;
-        leaf.parentPageId = -1;
-        leaf.leftSiblingPageId = -1;
-        leaf.rightSiblingPageId = -1;
-        writeNode(leaf);
+        writeNode(newNode(1, true));
 
         writeMeta();
 
-        
+
         bufferPool.flushAllPages();
     }
 
@@ -286,357 +770,1266 @@ public final class DiskBTreeIndex implements Index {
         bufferPool.updatePage(key(0), page);
     }
 
-    
-    private Node findLeaf(Comparable<?> key, Deque<Integer> pathOut) {
-        int currentId = meta.rootPageId;
-        while (true) {
-            Node n = readNode(currentId);
-            if (pathOut != null) pathOut.addLast(currentId);
-            if (n.isLeaf) return n;
 
-            int childIdx = childIndex(n.keys, key);
-            currentId = n.children.get(childIdx);
+    private int descend(byte[] key, boolean exclusiveLeaf) {
+        int id;
+        int level;
+        rootLatch.readLock().lock();
+        try {
+            Meta m = meta;
+            id = m.rootPageId;
+            level = m.height - 1;
+            lockPage(id, exclusiveLeaf && level == 0);
+        } finally {
+            rootLatch.readLock().unlock();
         }
-    }
 
-    private void insertIntoLeaf(Node leaf, Comparable<?> key, TID tid) {
-        int pos = lowerBound(leaf.keys, key);
-        if (pos < leaf.keys.size() && cmp(leaf.keys.get(pos), key) == 0) {
-            leaf.values.get(pos).add(tid);
-            return;
+        while (level > 0) {
+            int child;
+            try {
+                byte[] buf = nodeBytes(id);
+                int count = readInt(buf, NODE_KEYCOUNT_OFF);
+                child = childAt(buf, key == null ? count : upperBound(buf, count, key));
+                lockPage(child, exclusiveLeaf && level == 1);
+            } finally {
+                unlockPage(id, false);
+            }
+            id = child;
+            level--;
         }
-        leaf.keys.add(pos, key);
-        List<TID> list = new ArrayList<>();
-        list.add(tid);
-        leaf.values.add(pos, list);
+        return id;
     }
 
-    private void splitLeaf(Node leaf, Deque<Integer> path) {
-        int splitPos = (leaf.keys.size() + 1) / 2;
-
-        Node right = new Node(allocatePageId());
-        right.isLeaf = true;
-        right.parentPageId = leaf.parentPageId;
-
-        right.keys.addAll(leaf.keys.subList(splitPos, leaf.keys.size()));
-        right.values.addAll(leaf.values.subList(splitPos, leaf.values.size()));
-
-        leaf.keys.subList(splitPos, leaf.keys.size()).clear();
-        leaf.values.subList(splitPos, leaf.values.size()).clear();
-
-        
-        right.rightSiblingPageId = leaf.rightSiblingPageId;
-        right.leftSiblingPageId = leaf.pageId;
-        leaf.rightSiblingPageId = right.pageId;
+    private void insertWithSplit(byte[] key, TID tid) {
+        Deque<Integer> held = new ArrayDeque<>();
+        boolean rootHeld = true;
+        rootLatch.writeLock().lock();
+        try {
+            int id = meta.rootPageId;
+            int level = meta.height - 1;
+            while (true) {
+                lockPage(id, true);
+                byte[] buf = nodeBytes(id);
+                if (level > 0 && hasRoomForSeparator(buf)) {
+                    unlockAll(held);
+                    if (rootHeld) {
+                        rootLatch.writeLock().unlock();
+                        rootHeld = false;
+                    }
+                }
+                held.addLast(id);
+                if (level == 0) break;
+                id = childAt(buf, upperBound(buf, readInt(buf, NODE_KEYCOUNT_OFF), key));
+                level--;
+            }
 
-        if (right.rightSiblingPageId != -1) {
-            Node oldRight = readNode(right.rightSiblingPageId);
-            oldRight.leftSiblingPageId = right.pageId;
-            writeNode(oldRight);
+            int leafId = held.getLast();
+            if (insertInPlace(leafId, key, tid)) {
+                return;
+            }
+            Node leaf = readNode(leafId);
+            insertIntoLeaf(leaf, key, tid);
+            if (estimateSize(leaf) <= PAGE_CAPACITY) {
+                writeNode(leaf);
+                return;
+            }
+            splitLeaf(leaf, new ArrayDeque<>(held));
+        } finally {
+            unlockAll(held);
+            if (rootHeld) {
+                rootLatch.writeLock().unlock();
+            }
         }
+    }
 
-        writeNode(leaf);
-        writeNode(right);
-
-        Comparable<?> separator = right.keys.get(0);
+    private boolean hasRoomForSeparator(byte[] buf) {
+        int count = readInt(buf, NODE_KEYCOUNT_OFF);
+        int free = readInt(buf, NODE_FREE_END_OFF) - slotPos(count + 1);
+        return free >= Short.BYTES + maxKeyBytes + Integer.BYTES;
+    }
 
-        
-        if (path != null && !path.isEmpty()) {
-            path.removeLast();
+    private int lockRightSibling(int pageId, int epoch) {
+        lockPage(pageId, false);
+        try {
+            byte[] buf = nodeBytes(pageId);
+            if (readInt(buf, NODE_EPOCH_OFF) != epoch) {
+                return MOVED;
+            }
+            int right = readInt(buf, NODE_RIGHT_SIB_OFF);
+            if (right != -1) {
+                lockPage(right, false);
+            }
+            return right;
+        } finally {
+            unlockPage(pageId, false);
         }
+    }
 
-        if (leaf.parentPageId == -1 || path == null || path.isEmpty()) {
-            
-            Node root = new Node(allocatePageId());
-            root.isLeaf = false;
-            root.parentPageId = -1;
-            root.leftSiblingPageId = -1;
-            root.rightSiblingPageId = -1;
-            root.keys.add(separator);
-            root.children.add(leaf.pageId);
-            root.children.add(right.pageId);
+    private int lockLeftSibling(int pageId, int epoch) {
+        int left;
+        lockPage(pageId, false);
+        try {
+            byte[] buf = nodeBytes(pageId);
+            if (readInt(buf, NODE_EPOCH_OFF) != epoch) {
+                return MOVED;
+            }
+            left = readInt(buf, NODE_LEFT_SIB_OFF);
+        } finally {
+            unlockPage(pageId, false);
+        }
+        if (left == -1) return -1;
 
-            leaf.parentPageId = root.pageId;
-            right.parentPageId = root.pageId;
-            writeNode(leaf);
-            writeNode(right);
-            writeNode(root);
 
-            meta = new Meta(root.pageId, meta.height + 1, meta.leftmostLeafPageId, meta.nextPageId);
-            writeMeta();
-            return;
+        lockPage(left, false);
+        boolean linked = readInt(nodeBytes(left), NODE_RIGHT_SIB_OFF) == pageId;
+        if (linked) {
+            lockPage(pageId, false);
+            linked = readInt(nodeBytes(pageId), NODE_EPOCH_OFF) == epoch;
+            unlockPage(pageId, false);
+        }
+        if (!linked) {
+            unlockPage(left, false);
+            return MOVED;
         }
+        return left;
+    }
 
-        int parentId = leaf.parentPageId;
-        Node parent = readNode(parentId);
-        insertIntoInternal(parent, separator, right.pageId, leaf.pageId);
-        writeNode(parent);
+    private ReentrantReadWriteLock latch(int pageId) {
+        return latches.computeIfAbsent(pageId, id -> new ReentrantReadWriteLock());
+    }
 
-        if (estimateSize(parent) > PAGE_CAPACITY) {
-            splitInternal(parent, path);
+    private void lockPage(int pageId, boolean exclusive) {
+        bufferPool.pinPage(key(pageId));
+        ReentrantReadWriteLock l = latch(pageId);
+        if (exclusive) {
+            l.writeLock().lock();
+        } else {
+            l.readLock().lock();
         }
     }
 
-    private void insertIntoInternal(Node parent, Comparable<?> key, int rightChildId, int leftChildId) {
-        int leftPos = parent.children.indexOf(leftChildId);
-        if (leftPos < 0) {
-            leftPos = childIndex(parent.keys, key);
+    private void unlockPage(int pageId, boolean exclusive) {
+        ReentrantReadWriteLock l = latch(pageId);
+        if (exclusive) {
+            l.writeLock().unlock();
+        } else {
+            l.readLock().unlock();
         }
-
-        int keyPos = leftPos;
-        parent.keys.add(keyPos, key);
-        parent.children.add(leftPos + 1, rightChildId);
+        bufferPool.unpinPage(key(pageId));
     }
 
-    private void splitInternal(Node node, Deque<Integer> path) {
-        if (node.isLeaf) throw new IllegalStateException("splitInternal called on leaf");
-
-        int mid = node.keys.size() / 2;
-        Comparable<?> separator = node.keys.get(mid);
-
-        Node right = new Node(allocatePageId());
-        right.isLeaf = false;
-        right.parentPageId = node.parentPageId;
-
-        
-        right.keys.addAll(node.keys.subList(mid + 1, node.keys.size()));
-        right.children.addAll(node.children.subList(mid + 1, node.children.size()));
-
-        
-        node.keys.subList(mid, node.keys.size()).clear();
-        node.children.subList(mid + 1, node.children.size()).clear();
-
-        
-        for (Integer childId : right.children) {
-            Node child = readNode(childId);
-            child.parentPageId = right.pageId;
-            writeNode(child);
+    private void unlockAll(Deque<Integer> held) {
+        while (!held.isEmpty()) {
+            unlockPage(held.pollFirst(), true);
         }
+    }
 
-        writeNode(node);
-        writeNode(right);
+    private boolean insertInPlace(int leafId, byte[] key, TID tid) {
+        PageKey k = key(leafId);
+        Page page = bufferPool.getPage(k).getPage();
+        byte[] buf = page.bytes();
 
-        
-        if (path != null && !path.isEmpty()) {
-            path.removeLast();
+        int count = readInt(buf, NODE_KEYCOUNT_OFF);
+        int prefixLen = readInt(buf, NODE_PREFIX_LEN_OFF);
+        if (!hasPrefix(buf, prefixLen, key)) {
+            return false;
         }
-
-        if (node.parentPageId == -1 || path == null || path.isEmpty()) {
-            Node newRoot = new Node(allocatePageId());
-            newRoot.isLeaf = false;
-            newRoot.parentPageId = -1;
-            newRoot.keys.add(separator);
-            newRoot.children.add(node.pageId);
-            newRoot.children.add(right.pageId);
-
-            node.parentPageId = newRoot.pageId;
-            right.parentPageId = newRoot.pageId;
-            writeNode(node);
-            writeNode(right);
-            writeNode(newRoot);
-
-            meta = new Meta(newRoot.pageId, meta.height + 1, meta.leftmostLeafPageId, meta.nextPageId);
-            writeMeta();
-            return;
+        int suffixLen = key.length - prefixLen;
+        int pos = lowerBound(buf, count, key);
+        boolean existing = pos < count && compareAt(buf, pos, key) == 0;
+        if (existing && def.isUnique()) {
+            List<Object> values = decodeKey(key);
+            throw new UniqueViolationException(def.getName(), values.size() == 1 ? values.get(0) : new CompositeKey(values));
         }
 
-        int parentId = node.parentPageId;
-        Node parent = readNode(parentId);
-        insertIntoInternal(parent, separator, right.pageId, node.pageId);
-        writeNode(parent);
+        Posting posting;
+        if (existing) {
+            posting = addToPosting(postingAt(buf, pos), tid);
+            if (posting.overflowPageId() != -1) {
+                writePostingHeader(buf, valueOffset(buf, pos), posting);
+                bufferPool.updatePage(k, page);
+                return true;
+            }
+        } else {
+            posting = newPosting(new long[]{tidValue(tid)}, 1);
+        }
 
-        if (estimateSize(parent) > PAGE_CAPACITY) {
-            splitInternal(parent, path);
+        int entrySize = Short.BYTES + suffixLen + POSTING_HDR_SIZE + posting.inline().length;
+        int slotsEnd = NODE_SLOTS_OFF + (existing ? count : count + 1) * SLOT_SIZE;
+        int freeEnd = readInt(buf, NODE_FREE_END_OFF);
+        if (freeEnd - entrySize < slotsEnd) {
+            return false;
         }
-    }
 
-    private int allocatePageId() {
-        int id = meta.nextPageId;
-        meta = new Meta(meta.rootPageId, meta.height, meta.leftmostLeafPageId, id + 1);
-        writeMeta();
+        int off = freeEnd - entrySize;
+        writeUShort(buf, off, suffixLen);
+        System.arraycopy(key, prefixLen, buf, off + Short.BYTES, suffixLen);
+        writePosting(buf, off + Short.BYTES + suffixLen, posting);
+        if (!existing) {
+            System.arraycopy(buf, slotPos(pos), buf, slotPos(pos + 1), (count - pos) * SLOT_SIZE);
+            writeInt(buf, NODE_KEYCOUNT_OFF, count + 1);
+        }
+        writeUShort(buf, slotPos(pos), off);
+        writeInt(buf, NODE_FREE_END_OFF, off);
 
-        PageKey k = key(id);
-        Page page = new HeapPage(id);
-        bufferPool.newPage(k, page);
         bufferPool.updatePage(k, page);
-        return id;
+        return true;
     }
 
-    
-    private Node readNode(int pageId) {
-        Page page = bufferPool.getPage(key(pageId)).getPage();
+    private boolean deleteInPlace(int leafId, byte[] key, long v) {
+        PageKey k = key(leafId);
+        Page page = bufferPool.getPage(k).getPage();
         byte[] buf = page.bytes();
 
-        int magic = readInt(buf, NODE_MAGIC_OFF);
-        if (magic != NODE_MAGIC) {
-            throw new IllegalStateException("Bad node magic at pageId=" + pageId + ": " + Integer.toHexString(magic));
+        int count = readInt(buf, NODE_KEYCOUNT_OFF);
+        int pos = lowerBound(buf, count, key);
+        if (pos >= count || compareAt(buf, pos, key) != 0) {
+            return false;
+        }
+        Posting before = postingAt(buf, pos);
+        Posting posting = removeFromPosting(before, v);
+        if (posting == null) {
+            return false;
         }
 
-        Node n = new Node(pageId);
-        n.isLeaf = readInt(buf, NODE_IS_LEAF_OFF) != 0;
-        n.parentPageId = readInt(buf, NODE_PARENT_OFF);
-        n.leftSiblingPageId = readInt(buf, NODE_LEFT_SIB_OFF);
-        n.rightSiblingPageId = readInt(buf, NODE_RIGHT_SIB_OFF);
-        int keyCount = readInt(buf, NODE_KEYCOUNT_OFF);
-
-        int off = NODE_DATA_START_OFF;
-        for (int i = 0; i < keyCount; i++) {
-            int len = readUShort(buf, off);
-            off += Short.BYTES;
-            Comparable<?> key = decodeKey(buf, off, len);
-            off += len;
-            n.keys.add(key);
-        }
-
-        if (n.isLeaf) {
-            for (int i = 0; i < keyCount; i++) {
-                int tidCount = readInt(buf, off);
-                off += Integer.BYTES;
-                List<TID> tids = new ArrayList<>(tidCount);
-                for (int t = 0; t < tidCount; t++) {
-                    TID tid = TID.readFrom(ByteBuffer.wrap(buf, off, TID.BYTES).order(ORDER));
-                    off += TID.BYTES;
-                    tids.add(tid);
-                }
-                n.values.add(tids);
-            }
+        if (posting.count() == 0) {
+            System.arraycopy(buf, slotPos(pos + 1), buf, slotPos(pos), (count - pos - 1) * SLOT_SIZE);
+            writeInt(buf, NODE_KEYCOUNT_OFF, count - 1);
         } else {
-            int childCount = readInt(buf, off);
-            off += Integer.BYTES;
-            for (int i = 0; i < childCount; i++) {
-                n.children.add(readInt(buf, off));
-                off += Integer.BYTES;
+            if (posting.inline().length > before.inline().length) {
+                throw new IllegalStateException("Posting list grew on delete: pageId=" + leafId);
             }
+            writePosting(buf, valueOffset(buf, pos), posting);
         }
-
-        return n;
+        bufferPool.updatePage(k, page);
+        return true;
     }
 
-    private void writeNode(Node node) {
-        PageKey k = key(node.pageId);
+    private void rebalance(byte[] key) {
+        Deque<Integer> held = new ArrayDeque<>();
+        rootLatch.writeLock().lock();
+        try {
+            int id = meta.rootPageId;
+            for (int level = meta.height - 1; ; level--) {
+                lockPage(id, true);
+                held.addLast(id);
+                if (level == 0) break;
+                byte[] buf = nodeBytes(id);
+                id = childAt(buf, upperBound(buf, readInt(buf, NODE_KEYCOUNT_OFF), key));
+            }
+
+            List<Integer> path = new ArrayList<>(held);
+            int depth = path.size() - 1;
+            while (depth > 0 && rebalanceNode(path.get(depth - 1), path.get(depth))) {
+                depth--;
+            }
+            while (meta.height > 1) {
+                byte[] buf = nodeBytes(meta.rootPageId);
+                if (readInt(buf, NODE_KEYCOUNT_OFF) != 0) break;
+                setRoot(readInt(buf, NODE_FIRST_CHILD_OFF), meta.height - 1);
+            }
+        } finally {
+            unlockAll(held);
+            rootLatch.writeLock().unlock();
+        }
+    }
+
+    private boolean rebalanceNode(int parentId, int nodeId) {
+        if (usedBytes(nodeBytes(nodeId)) >= MIN_FILL_BYTES) {
+            return false;
+        }
+        Node parent = readNode(parentId);
+        int idx = parent.children.indexOf(nodeId);
+        if (idx < 0) {
+            throw new IllegalStateException("Child " + nodeId + " not found in parent " + parentId);
+        }
+        if (parent.children.size() < 2) {
+            return false;
+        }
+
+        int sep = idx + 1 < parent.children.size() ? idx : idx - 1;
+        int leftId = parent.children.get(sep);
+        int rightId = parent.children.get(sep + 1);
+        int siblingId = leftId == nodeId ? rightId : leftId;
+        if (siblingId == rightId) {
+            lockPage(rightId, true);
+        } else {
+            unlockPage(nodeId, true);
+            lockPage(leftId, true);
+            lockPage(nodeId, true);
+        }
+        try {
+            Node left = readNode(leftId);
+            Node right = readNode(rightId);
+            return left.isLeaf ? rebalanceLeaves(parent, sep, left, right) : rebalanceInternal(parent, sep, left, right);
+        } finally {
+            unlockPage(siblingId, true);
+        }
+    }
+
+    private boolean rebalanceLeaves(Node parent, int sep, Node left, Node right) {
+        Node merged = newNode(left.pageId, true);
+        merged.keys.addAll(left.keys);
+        merged.keys.addAll(right.keys);
+        merged.postings.addAll(left.postings);
+        merged.postings.addAll(right.postings);
+
+        if (estimateSize(merged) <= PAGE_CAPACITY) {
+            merged.leftSiblingPageId = left.leftSiblingPageId;
+            merged.rightSiblingPageId = right.rightSiblingPageId;
+            merged.epoch = left.epoch + 1;
+            writeNode(merged);
+            if (right.rightSiblingPageId != -1) {
+                lockPage(right.rightSiblingPageId, true);
+                try {
+                    updateNodeField(right.rightSiblingPageId, NODE_LEFT_SIB_OFF, left.pageId);
+                } finally {
+                    unlockPage(right.rightSiblingPageId, true);
+                }
+            }
+            retire(right);
+            parent.keys.remove(sep);
+            parent.children.remove(sep + 1);
+            writeNode(parent);
+            return true;
+        }
+
+        int split = splitPoint(merged);
+        if (split == left.keys.size()) {
+            return false;
+        }
+        byte[] previous = parent.keys.set(sep, separator(merged.keys.get(split - 1), merged.keys.get(split)));
+        if (estimateSize(parent) > PAGE_CAPACITY) {
+            parent.keys.set(sep, previous);
+            return false;
+        }
+        int n = merged.keys.size();
+        left.keys.clear();
+        left.keys.addAll(merged.keys.subList(0, split));
+        left.postings.clear();
+        left.postings.addAll(merged.postings.subList(0, split));
+        right.keys.clear();
+        right.keys.addAll(merged.keys.subList(split, n));
+        right.postings.clear();
+        right.postings.addAll(merged.postings.subList(split, n));
+        left.epoch++;
+        right.epoch++;
+        writeNode(left);
+        writeNode(right);
+        writeNode(parent);
+        return false;
+    }
+
+    private boolean rebalanceInternal(Node parent, int sep, Node left, Node right) {
+        Node merged = newNode(left.pageId, false);
+        merged.keys.addAll(left.keys);
+        merged.keys.add(parent.keys.get(sep));
+        merged.keys.addAll(right.keys);
+        merged.children.addAll(left.children);
+        merged.children.addAll(right.children);
+
+        if (estimateSize(merged) <= PAGE_CAPACITY) {
+            merged.epoch = left.epoch + 1;
+            writeNode(merged);
+            retire(right);
+            parent.keys.remove(sep);
+            parent.children.remove(sep + 1);
+            writeNode(parent);
+            return true;
+        }
+
+        int mid = internalSplitPoint(merged);
+        if (mid == left.keys.size()) {
+            return false;
+        }
+        byte[] previous = parent.keys.set(sep, merged.keys.get(mid));
+        if (estimateSize(parent) > PAGE_CAPACITY) {
+            parent.keys.set(sep, previous);
+            return false;
+        }
+        int n = merged.keys.size();
+        left.keys.clear();
+        left.keys.addAll(merged.keys.subList(0, mid));
+        left.children.clear();
+        left.children.addAll(merged.children.subList(0, mid + 1));
+        right.keys.clear();
+        right.keys.addAll(merged.keys.subList(mid + 1, n));
+        right.children.clear();
+        right.children.addAll(merged.children.subList(mid + 1, n + 1));
+        writeNode(left);
+        writeNode(right);
+        writeNode(parent);
+        return false;
+    }
+
+    private int internalSplitPoint(Node node) {
+        int n = node.keys.size();
+        int[] sums = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            sums[i + 1] = sums[i] + SLOT_SIZE + entrySize(node, i, 0);
+        }
+        int mid = n / 2;
+        for (int d = 0; d <= n; d++) {
+            for (int pos : new int[]{mid - d, mid + d}) {
+                if (pos >= 0 && pos < n
+                        && NODE_HDR_SIZE + sums[pos] <= PAGE_CAPACITY
+                        && NODE_HDR_SIZE + sums[n] - sums[pos + 1] <= PAGE_CAPACITY) {
+                    return pos;
+                }
+            }
+        }
+        throw new IllegalStateException("Internal entries do not fit into two pages: pageId=" + node.pageId);
+    }
+
+    private void retire(Node node) {
+        Node dead = newNode(node.pageId, node.isLeaf);
+        dead.epoch = node.epoch + 1;
+        if (!dead.isLeaf) {
+            dead.children.add(-1);
+        }
+        writeNode(dead);
+    }
+
+    private static int usedBytes(byte[] buf) {
+        int count = readInt(buf, NODE_KEYCOUNT_OFF);
+        boolean leaf = readInt(buf, NODE_IS_LEAF_OFF) != 0;
+        int size = NODE_HDR_SIZE + readInt(buf, NODE_PREFIX_LEN_OFF);
+        for (int i = 0; i < count; i++) {
+            int valueOff = valueOffset(buf, i);
+            size += SLOT_SIZE + valueOff - slotOffset(buf, i);
+            size += leaf ? POSTING_HDR_SIZE + readUShort(buf, valueOff + POSTING_LEN_OFF) : Integer.BYTES;
+        }
+        return size;
+    }
+
+    private void insertIntoLeaf(Node leaf, byte[] key, TID tid) {
+        int pos = lowerBound(leaf.keys, key);
+        if (pos < leaf.keys.size() && compareKeys(leaf.keys.get(pos), key) == 0) {
+            leaf.postings.set(pos, addToPosting(leaf.postings.get(pos), tid));
+            return;
+        }
+        leaf.keys.add(pos, key);
+        leaf.postings.add(pos, newPosting(new long[]{tidValue(tid)}, 1));
+    }
+
+    private void splitLeaf(Node leaf, Deque<Integer> path) {
+        int splitPos = splitPoint(leaf);
+
+        Node right = newNode(allocatePageId(), true);
+        right.keys.addAll(leaf.keys.subList(splitPos, leaf.keys.size()));
+        right.postings.addAll(leaf.postings.subList(splitPos, leaf.postings.size()));
+
+        leaf.keys.subList(splitPos, leaf.keys.size()).clear();
+        leaf.postings.subList(splitPos, leaf.postings.size()).clear();
+
+
+        right.rightSiblingPageId = leaf.rightSiblingPageId;
+        right.leftSiblingPageId = leaf.pageId;
+        leaf.rightSiblingPageId = right.pageId;
+        writeNode(right);
+
+        if (right.rightSiblingPageId != -1) {
+            lockPage(right.rightSiblingPageId, true);
+            try {
+                updateNodeField(right.rightSiblingPageId, NODE_LEFT_SIB_OFF, right.pageId);
+            } finally {
+                unlockPage(right.rightSiblingPageId, true);
+            }
+        }
+        writeNode(leaf);
+
+        insertSeparator(leaf, separator(leaf.keys.get(leaf.keys.size() - 1), right.keys.get(0)), right.pageId, path);
+    }
+
+    private int splitPoint(Node leaf) {
+        int n = leaf.keys.size();
+        int[] sums = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            sums[i + 1] = sums[i] + SLOT_SIZE + entrySize(leaf, i, 0);
+        }
+        int mid = (n + 1) / 2;
+        for (int d = 0; d < n; d++) {
+            for (int pos : new int[]{mid - d, mid + d}) {
+                if (pos >= 1 && pos < n
+                        && rangeSize(leaf, sums, 0, pos) <= PAGE_CAPACITY
+                        && rangeSize(leaf, sums, pos, n) <= PAGE_CAPACITY) {
+                    return pos;
+                }
+            }
+        }
+        throw new IllegalStateException("Leaf entries do not fit into two pages: pageId=" + leaf.pageId);
+    }
+
+    private int rangeSize(Node leaf, int[] sums, int from, int to) {
+        int count = to - from;
+        int prefixLen = count < 2 ? 0 : commonPrefix(leaf.keys.get(from), leaf.keys.get(to - 1));
+        return NODE_HDR_SIZE + prefixLen + sums[to] - sums[from] - count * prefixLen;
+    }
+
+    private void splitInternal(Node node, Deque<Integer> path) {
+        if (node.isLeaf) throw new IllegalStateException("splitInternal called on leaf");
+
+        int mid = node.keys.size() / 2;
+        byte[] separator = node.keys.get(mid);
+
+        Node right = newNode(allocatePageId(), false);
+
+
+        right.keys.addAll(node.keys.subList(mid + 1, node.keys.size()));
+        right.children.addAll(node.children.subList(mid + 1, node.children.size()));
+
+
+        node.keys.subList(mid, node.keys.size()).clear();
+        node.children.subList(mid + 1, node.children.size()).clear();
+
+        writeNode(right);
+        writeNode(node);
+
+        insertSeparator(node, separator, right.pageId, path);
+    }
+
+
+    private void insertSeparator(Node left, byte[] separator, int rightId, Deque<Integer> path) {
+        path.removeLast();
+        if (path.isEmpty()) {
+            Node root = newNode(allocatePageId(), false);
+            root.keys.add(separator);
+            root.children.add(left.pageId);
+            root.children.add(rightId);
+            writeNode(root);
+            setRoot(root.pageId, meta.height + 1);
+            return;
+        }
+
+        Node parent = readNode(path.getLast());
+        insertIntoInternal(parent, separator, rightId, left.pageId);
+
+        if (estimateSize(parent) > PAGE_CAPACITY) {
+            splitInternal(parent, path);
+        } else {
+            writeNode(parent);
+        }
+    }
+
+    private void insertIntoInternal(Node parent, byte[] key, int rightChildId, int leftChildId) {
+        int leftPos = parent.children.indexOf(leftChildId);
+        if (leftPos < 0) {
+            leftPos = childIndex(parent.keys, key);
+        }
+
+        int keyPos = leftPos;
+        parent.keys.add(keyPos, key);
+        parent.children.add(leftPos + 1, rightChildId);
+    }
+
+    private void setRoot(int rootPageId, int height) {
+        synchronized (metaLock) {
+            meta = new Meta(rootPageId, height, meta.leftmostLeafPageId, meta.nextPageId);
+            writeMeta();
+        }
+    }
+
+    private int allocatePageId() {
+        int id;
+        synchronized (metaLock) {
+            id = meta.nextPageId;
+            meta = new Meta(meta.rootPageId, meta.height, meta.leftmostLeafPageId, id + 1);
+            writeMeta();
+        }
+
+        bufferPool.newDirtyPage(key(id), new HeapPage(id));
+        return id;
+    }
+
+
+    private byte[] nodeBytes(int pageId) {
+        byte[] buf = bufferPool.getPage(key(pageId)).getPage().bytes();
+        int magic = readInt(buf, NODE_MAGIC_OFF);
+        if (magic != NODE_MAGIC) {
+            throw new IllegalStateException("Bad node magic at pageId=" + pageId + ": " + Integer.toHexString(magic));
+        }
+        return buf;
+    }
+
+    private static Node newNode(int pageId, boolean isLeaf) {
+        Node n = new Node(pageId);
+        n.isLeaf = isLeaf;
+        n.leftSiblingPageId = -1;
+        n.rightSiblingPageId = -1;
+        return n;
+    }
+
+    private void updateNodeField(int pageId, int offset, int value) {
+        PageKey k = key(pageId);
+        Page page = bufferPool.getPage(k).getPage();
+        writeInt(page.bytes(), offset, value);
+        bufferPool.updatePage(k, page);
+    }
+
+    private Node readNode(int pageId) {
+        byte[] buf = nodeBytes(pageId);
+
+        Node n = new Node(pageId);
+        n.isLeaf = readInt(buf, NODE_IS_LEAF_OFF) != 0;
+        n.leftSiblingPageId = readInt(buf, NODE_LEFT_SIB_OFF);
+        n.rightSiblingPageId = readInt(buf, NODE_RIGHT_SIB_OFF);
+        n.epoch = readInt(buf, NODE_EPOCH_OFF);
+        int keyCount = readInt(buf, NODE_KEYCOUNT_OFF);
+
+        if (!n.isLeaf) {
+            n.children.add(readInt(buf, NODE_FIRST_CHILD_OFF));
+        }
+        for (int i = 0; i < keyCount; i++) {
+            n.keys.add(keyAt(buf, i));
+            int valueOff = valueOffset(buf, i);
+            if (n.isLeaf) {
+                n.postings.add(postingAt(buf, i));
+            } else {
+                n.children.add(readInt(buf, valueOff));
+            }
+        }
+
+        return n;
+    }
+
+    private void writeNode(Node node) {
+        PageKey k = key(node.pageId);
         Page page = bufferPool.getPage(k).getPage();
         byte[] buf = page.bytes();
 
-        
-        java.util.Arrays.fill(buf, HEAP_HEADER_SIZE, HeapPage.PAGE_SIZE, (byte) 0);
+        if (node.isLeaf && node.postings.size() != node.keys.size()) {
+            throw new IllegalStateException("leaf values/keys mismatch");
+        }
+        if (!node.isLeaf && node.children.size() != node.keys.size() + 1) {
+            throw new IllegalStateException("internal children/keys mismatch");
+        }
+
+
+        Arrays.fill(buf, HEAP_HEADER_SIZE, HeapPage.PAGE_SIZE, (byte) 0);
 
         writeInt(buf, NODE_MAGIC_OFF, NODE_MAGIC);
         writeInt(buf, NODE_IS_LEAF_OFF, node.isLeaf ? 1 : 0);
-        writeInt(buf, NODE_PARENT_OFF, node.parentPageId);
         writeInt(buf, NODE_LEFT_SIB_OFF, node.leftSiblingPageId);
         writeInt(buf, NODE_RIGHT_SIB_OFF, node.rightSiblingPageId);
         writeInt(buf, NODE_KEYCOUNT_OFF, node.keys.size());
-
-        int off = NODE_DATA_START_OFF;
-        for (Comparable<?> key : node.keys) {
-            byte[] kb = encodeKey(key);
+        writeInt(buf, NODE_FIRST_CHILD_OFF, node.isLeaf ? -1 : node.children.get(0));
+        writeInt(buf, NODE_EPOCH_OFF, node.epoch);
+
+        int prefixLen = prefixLength(node);
+        int slotsEnd = slotPos(node.keys.size());
+        int off = HeapPage.PAGE_SIZE - prefixLen;
+        if (prefixLen > 0) {
+            System.arraycopy(node.keys.get(0), 0, buf, off, prefixLen);
+        }
+        writeInt(buf, NODE_PREFIX_LEN_OFF, prefixLen);
+        for (int i = 0; i < node.keys.size(); i++) {
+            byte[] kb = node.keys.get(i);
             if (kb.length > 0xFFFF) throw new IllegalStateException("key too large");
-            writeUShort(buf, off, kb.length);
-            off += Short.BYTES;
-            System.arraycopy(kb, 0, buf, off, kb.length);
-            off += kb.length;
+            off -= entrySize(node, i, prefixLen);
+            if (off < slotsEnd) {
+                throw new IllegalStateException("node serialization exceeded page capacity");
+            }
+            writeUShort(buf, slotPos(i), off);
+
+            int p = off;
+            writeUShort(buf, p, kb.length - prefixLen);
+            p += Short.BYTES;
+            System.arraycopy(kb, prefixLen, buf, p, kb.length - prefixLen);
+            p += kb.length - prefixLen;
+            if (node.isLeaf) {
+                writePosting(buf, p, node.postings.get(i));
+            } else {
+                writeInt(buf, p, node.children.get(i + 1));
+            }
         }
+        writeInt(buf, NODE_FREE_END_OFF, off);
 
+        bufferPool.updatePage(k, page);
+    }
+
+    private int estimateSize(Node node) {
+        int prefixLen = prefixLength(node);
+        int size = NODE_HDR_SIZE + prefixLen;
+        for (int i = 0; i < node.keys.size(); i++) {
+            size += SLOT_SIZE + entrySize(node, i, prefixLen);
+        }
+        return size;
+    }
+
+    private static int entrySize(Node node, int i, int prefixLen) {
+        int size = Short.BYTES + node.keys.get(i).length - prefixLen;
         if (node.isLeaf) {
-            if (node.values.size() != node.keys.size()) {
-                throw new IllegalStateException("leaf values/keys mismatch");
-            }
-            for (List<TID> tids : node.values) {
-                writeInt(buf, off, tids.size());
-                off += Integer.BYTES;
-                for (TID tid : tids) {
-                    ByteBuffer.wrap(buf, off, TID.BYTES).order(ORDER);
-                    ByteBuffer b = ByteBuffer.wrap(buf, off, TID.BYTES).order(ORDER);
-                    tid.writeTo(b);
-                    off += TID.BYTES;
+            return size + POSTING_HDR_SIZE + node.postings.get(i).inline().length;
+        }
+        return size + Integer.BYTES;
+    }
+
+
+    private static int slotPos(int i) {
+        return NODE_SLOTS_OFF + i * SLOT_SIZE;
+    }
+
+    private static int slotOffset(byte[] buf, int i) {
+        return readUShort(buf, slotPos(i));
+    }
+
+    private static int valueOffset(byte[] buf, int i) {
+        int off = slotOffset(buf, i);
+        return off + Short.BYTES + readUShort(buf, off);
+    }
+
+    private static byte[] keyAt(byte[] buf, int i) {
+        int off = slotOffset(buf, i);
+        int len = readUShort(buf, off);
+        int prefixLen = readInt(buf, NODE_PREFIX_LEN_OFF);
+        byte[] out = new byte[prefixLen + len];
+        System.arraycopy(buf, HeapPage.PAGE_SIZE - prefixLen, out, 0, prefixLen);
+        System.arraycopy(buf, off + Short.BYTES, out, prefixLen, len);
+        return out;
+    }
+
+    private int prefixLength(Node node) {
+        int n = node.keys.size();
+        if (!node.isLeaf || n < 2) {
+            return 0;
+        }
+        return commonPrefix(node.keys.get(0), node.keys.get(n - 1));
+    }
+
+    private int commonPrefix(byte[] first, byte[] last) {
+        if (int64Keys) {
+            return 0;
+        }
+        int mismatch = Arrays.mismatch(first, last);
+        return mismatch < 0 ? first.length : mismatch;
+    }
+
+    private static boolean hasPrefix(byte[] buf, int prefixLen, byte[] key) {
+        int start = HeapPage.PAGE_SIZE - prefixLen;
+        return key.length >= prefixLen && Arrays.equals(buf, start, HeapPage.PAGE_SIZE, key, 0, prefixLen);
+    }
+
+    private byte[] separator(byte[] leftLast, byte[] rightFirst) {
+        if (int64Keys) {
+            return rightFirst;
+        }
+        int mismatch = Arrays.mismatch(leftLast, rightFirst);
+        return Arrays.copyOf(rightFirst, Math.min(mismatch + 1, rightFirst.length));
+    }
+
+    private static int childAt(byte[] buf, int i) {
+        return i == 0 ? readInt(buf, NODE_FIRST_CHILD_OFF) : readInt(buf, valueOffset(buf, i - 1));
+    }
+
+    private static Posting postingAt(byte[] buf, int i) {
+        int off = valueOffset(buf, i);
+        int len = readUShort(buf, off + POSTING_LEN_OFF);
+        byte[] inline = len == 0 ? NO_POSTINGS : Arrays.copyOfRange(buf, off + POSTING_HDR_SIZE, off + POSTING_HDR_SIZE + len);
+        return new Posting(readInt(buf, off + POSTING_COUNT_OFF), readInt(buf, off + POSTING_OVERFLOW_OFF), inline);
+    }
+
+    private static void writePosting(byte[] buf, int off, Posting posting) {
+        writePostingHeader(buf, off, posting);
+        System.arraycopy(posting.inline(), 0, buf, off + POSTING_HDR_SIZE, posting.inline().length);
+    }
+
+    private static void writePostingHeader(byte[] buf, int off, Posting posting) {
+        writeInt(buf, off + POSTING_COUNT_OFF, posting.count());
+        writeInt(buf, off + POSTING_OVERFLOW_OFF, posting.overflowPageId());
+        writeUShort(buf, off + POSTING_LEN_OFF, posting.inline().length);
+    }
+
+    private Posting newPosting(long[] values, int count) {
+        Arrays.sort(values, 0, count);
+        byte[] inline = encodePostings(values, 0, count);
+        if (inline.length <= MAX_INLINE_POSTING_BYTES) {
+            return new Posting(count, -1, inline);
+        }
+        return new Posting(count, writeOverflowChain(values, count), NO_POSTINGS);
+    }
+
+    private Posting addToPosting(Posting posting, TID tid) {
+        long v = tidValue(tid);
+        if (posting.overflowPageId() != -1) {
+            insertIntoOverflow(posting.overflowPageId(), v);
+            return new Posting(posting.count() + 1, posting.overflowPageId(), NO_POSTINGS);
+        }
+        long[] values = Arrays.copyOf(decodePostings(posting.inline(), 0, posting.count()), posting.count() + 1);
+        values[posting.count()] = v;
+        return newPosting(values, values.length);
+    }
+
+    private Posting removeFromPosting(Posting posting, long v) {
+        if (posting.overflowPageId() == -1) {
+            long[] values = decodePostings(posting.inline(), 0, posting.count());
+            int pos = Arrays.binarySearch(values, v);
+            if (pos < 0) {
+                return null;
+            }
+            System.arraycopy(values, pos + 1, values, pos, values.length - pos - 1);
+            return new Posting(posting.count() - 1, -1, encodePostings(values, 0, posting.count() - 1));
+        }
+        int head = removeFromOverflow(posting.overflowPageId(), v);
+        if (head == MOVED) {
+            return null;
+        }
+        return new Posting(posting.count() - 1, head, NO_POSTINGS);
+    }
+
+    private int removeFromOverflow(int headPageId, long v) {
+        int prev = -1;
+        for (int pageId = headPageId; pageId != -1; ) {
+            byte[] page = overflowBytes(pageId);
+            int next = readInt(page, OVERFLOW_NEXT_OFF);
+            int count = readInt(page, OVERFLOW_COUNT_OFF);
+            if (firstPostingValue(page) > v) {
+                return MOVED;
+            }
+            long[] values = decodePostings(page, OVERFLOW_DATA_OFF, count);
+            int pos = Arrays.binarySearch(values, v);
+            if (pos < 0) {
+                prev = pageId;
+                pageId = next;
+                continue;
+            }
+
+            System.arraycopy(values, pos + 1, values, pos, count - pos - 1);
+            count--;
+            if (count == 0) {
+                if (prev == -1) {
+                    return next;
                 }
+                updateNodeField(prev, OVERFLOW_NEXT_OFF, next);
+                return headPageId;
             }
-        } else {
-            if (node.children.size() != node.keys.size() + 1) {
-                throw new IllegalStateException("internal children/keys mismatch");
+            if (next != -1 && encodedSize(values, 0, count) <= OVERFLOW_CAPACITY / 2) {
+                byte[] nextPage = overflowBytes(next);
+                int nextCount = readInt(nextPage, OVERFLOW_COUNT_OFF);
+                long[] merged = Arrays.copyOf(values, count + nextCount);
+                System.arraycopy(decodePostings(nextPage, OVERFLOW_DATA_OFF, nextCount), 0, merged, count, nextCount);
+                if (encodedSize(merged, 0, merged.length) <= OVERFLOW_CAPACITY) {
+                    writeOverflowPage(pageId, merged, 0, merged.length, readInt(nextPage, OVERFLOW_NEXT_OFF));
+                    return headPageId;
+                }
             }
-            writeInt(buf, off, node.children.size());
-            off += Integer.BYTES;
-            for (Integer child : node.children) {
-                writeInt(buf, off, child);
-                off += Integer.BYTES;
+            writeOverflowPage(pageId, values, 0, count, next);
+            return headPageId;
+        }
+        return MOVED;
+    }
+
+    private long[] postingValues(Posting posting) {
+        if (posting.overflowPageId() == -1) {
+            return decodePostings(posting.inline(), 0, posting.count());
+        }
+        long[] out = new long[posting.count()];
+        int n = 0;
+        for (int pageId = posting.overflowPageId(); pageId != -1; ) {
+            byte[] page = overflowBytes(pageId);
+            long[] values = decodePostings(page, OVERFLOW_DATA_OFF, readInt(page, OVERFLOW_COUNT_OFF));
+            System.arraycopy(values, 0, out, n, values.length);
+            n += values.length;
+            pageId = readInt(page, OVERFLOW_NEXT_OFF);
+        }
+        return out;
+    }
+
+    private int writeOverflowChain(long[] values, int count) {
+        List<Integer> bounds = new ArrayList<>();
+        int size = 0;
+        long prev = 0;
+        for (int i = 0; i < count; i++) {
+            int bytes = size == 0 ? varLongSize(zigzag(values[i])) : varLongSize(values[i] - prev);
+            if (size > 0 && size + bytes > OVERFLOW_CAPACITY) {
+                bounds.add(i);
+                bytes = varLongSize(zigzag(values[i]));
+                size = 0;
             }
+            size += bytes;
+            prev = values[i];
+        }
+        bounds.add(count);
+
+        int[] ids = new int[bounds.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = allocatePageId();
         }
+        int start = 0;
+        for (int i = 0; i < ids.length; i++) {
+            writeOverflowPage(ids[i], values, start, bounds.get(i), i + 1 < ids.length ? ids[i + 1] : -1);
+            start = bounds.get(i);
+        }
+        return ids[0];
+    }
 
-        if ((off - HEAP_HEADER_SIZE) > PAGE_CAPACITY) {
-            throw new IllegalStateException("node serialization exceeded page capacity");
+    private void insertIntoOverflow(int headPageId, long v) {
+        int pageId = headPageId;
+        byte[] page = overflowBytes(pageId);
+        while (true) {
+            int next = readInt(page, OVERFLOW_NEXT_OFF);
+            if (next == -1) break;
+            byte[] nextPage = overflowBytes(next);
+            if (readInt(nextPage, OVERFLOW_COUNT_OFF) > 0 && firstPostingValue(nextPage) > v) break;
+            pageId = next;
+            page = nextPage;
         }
 
+        int next = readInt(page, OVERFLOW_NEXT_OFF);
+        int count = readInt(page, OVERFLOW_COUNT_OFF);
+        long[] values = decodePostings(page, OVERFLOW_DATA_OFF, count);
+        int pos = upperBound(values, count, v);
+        long[] merged = new long[count + 1];
+        System.arraycopy(values, 0, merged, 0, pos);
+        merged[pos] = v;
+        System.arraycopy(values, pos, merged, pos + 1, count - pos);
+
+        if (encodedSize(merged, 0, merged.length) <= OVERFLOW_CAPACITY) {
+            writeOverflowPage(pageId, merged, 0, merged.length, next);
+            return;
+        }
+        int split = pos == count && next == -1 ? count : merged.length / 2;
+        int newPageId = allocatePageId();
+        writeOverflowPage(newPageId, merged, split, merged.length, next);
+        writeOverflowPage(pageId, merged, 0, split, newPageId);
+    }
+
+    private void writeOverflowPage(int pageId, long[] values, int from, int to, int next) {
+        PageKey k = key(pageId);
+        Page page = bufferPool.getPage(k).getPage();
+        byte[] buf = page.bytes();
+        byte[] encoded = encodePostings(values, from, to);
+        Arrays.fill(buf, HEAP_HEADER_SIZE, HeapPage.PAGE_SIZE, (byte) 0);
+        writeInt(buf, OVERFLOW_MAGIC_OFF, POSTING_MAGIC);
+        writeInt(buf, OVERFLOW_NEXT_OFF, next);
+        writeInt(buf, OVERFLOW_COUNT_OFF, to - from);
+        writeInt(buf, OVERFLOW_USED_OFF, encoded.length);
+        System.arraycopy(encoded, 0, buf, OVERFLOW_DATA_OFF, encoded.length);
         bufferPool.updatePage(k, page);
     }
 
-    private int estimateSize(Node node) {
-        int size = NODE_HDR_SIZE; 
-        for (Comparable<?> k : node.keys) {
-            size += Short.BYTES + encodeKey(k).length;
+    private byte[] overflowBytes(int pageId) {
+        byte[] buf = bufferPool.getPage(key(pageId)).getPage().bytes();
+        int magic = readInt(buf, OVERFLOW_MAGIC_OFF);
+        if (magic != POSTING_MAGIC) {
+            throw new IllegalStateException("Bad posting page magic at pageId=" + pageId + ": " + Integer.toHexString(magic));
         }
+        return buf;
+    }
 
-        if (node.isLeaf) {
-            for (List<TID> tids : node.values) {
-                size += Integer.BYTES + tids.size() * TID.BYTES;
+    private static long firstPostingValue(byte[] page) {
+        long v = 0;
+        int shift = 0;
+        for (int p = OVERFLOW_DATA_OFF; ; p++) {
+            v |= (long) (page[p] & 0x7F) << shift;
+            if (page[p] >= 0) return unzigzag(v);
+            shift += 7;
+        }
+    }
+
+    private static int upperBound(long[] values, int count, long v) {
+        int lo = 0;
+        int hi = count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (values[mid] <= v) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
             }
-        } else {
-            size += Integer.BYTES + node.children.size() * Integer.BYTES;
+        }
+        return lo;
+    }
+
+
+    private static long tidValue(TID tid) {
+        return (long) tid.pageId() << 16 | (tid.slotId() & 0xFFFF);
+    }
+
+    private static TID tidOf(long v) {
+        return new TID((int) (v >> 16), (short) v);
+    }
+
+    private static int encodedSize(long[] values, int from, int to) {
+        if (from == to) return 0;
+        int size = varLongSize(zigzag(values[from]));
+        for (int i = from + 1; i < to; i++) {
+            size += varLongSize(values[i] - values[i - 1]);
         }
         return size;
     }
 
-    
+    private static byte[] encodePostings(long[] values, int from, int to) {
+        byte[] out = new byte[encodedSize(values, from, to)];
+        int p = 0;
+        for (int i = from; i < to; i++) {
+            p = writeVarLong(out, p, i == from ? zigzag(values[i]) : values[i] - values[i - 1]);
+        }
+        return out;
+    }
+
+    private static long[] decodePostings(byte[] buf, int off, int count) {
+        long[] out = new long[count];
+        int p = off;
+        long value = 0;
+        for (int i = 0; i < count; i++) {
+            long v = 0;
+            int shift = 0;
+            while (true) {
+                byte b = buf[p++];
+                v |= (long) (b & 0x7F) << shift;
+                if (b >= 0) break;
+                shift += 7;
+            }
+            value = i == 0 ? unzigzag(v) : value + v;
+            out[i] = value;
+        }
+        return out;
+    }
+
+    private static long zigzag(long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+
+    private static long unzigzag(long v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    private static int varLongSize(long v) {
+        int size = 1;
+        while ((v & ~0x7FL) != 0) {
+            v >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    private static int writeVarLong(byte[] buf, int off, long v) {
+        while ((v & ~0x7FL) != 0) {
+            buf[off++] = (byte) ((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        buf[off++] = (byte) v;
+        return off;
+    }
+
+    private int compareAt(byte[] buf, int i, byte[] key) {
+        int prefixLen = readInt(buf, NODE_PREFIX_LEN_OFF);
+        int c = comparePrefix(buf, prefixLen, key);
+        return c != 0 ? c : compareSuffixAt(buf, i, key, prefixLen);
+    }
+
+    private static int comparePrefix(byte[] buf, int prefixLen, byte[] key) {
+        if (prefixLen == 0) {
+            return 0;
+        }
+        int start = HeapPage.PAGE_SIZE - prefixLen;
+        int n = Math.min(prefixLen, key.length);
+        int c = Arrays.compareUnsigned(buf, start, start + n, key, 0, n);
+        return c != 0 ? c : prefixLen - n;
+    }
+
+    private int compareSuffixAt(byte[] buf, int i, byte[] key, int prefixLen) {
+        int off = slotOffset(buf, i);
+        int len = readUShort(buf, off);
+        off += Short.BYTES;
+        if (int64Keys) {
+            return Long.compare(readLong(buf, off), readLong(key, 0));
+        }
+        return Arrays.compareUnsigned(buf, off, off + len, key, prefixLen, key.length);
+    }
+
+    private int compareKeys(byte[] a, byte[] b) {
+        if (int64Keys) {
+            return Long.compare(readLong(a, 0), readLong(b, 0));
+        }
+        return Arrays.compareUnsigned(a, b);
+    }
+
+    private int lowerBound(byte[] buf, int count, byte[] key) {
+        int prefixLen = readInt(buf, NODE_PREFIX_LEN_OFF);
+        int c = comparePrefix(buf, prefixLen, key);
+        if (c != 0) {
+            return c > 0 ? 0 : count;
+        }
+        int lo = 0;
+        int hi = count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compareSuffixAt(buf, mid, key, prefixLen) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private int upperBound(byte[] buf, int count, byte[] key) {
+        int prefixLen = readInt(buf, NODE_PREFIX_LEN_OFF);
+        int c = comparePrefix(buf, prefixLen, key);
+        if (c != 0) {
+            return c > 0 ? 0 : count;
+        }
+        int lo = 0;
+        int hi = count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compareSuffixAt(buf, mid, key, prefixLen) <= 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+
+    private byte[] encodeEntryKey(Comparable<?> key) {
+        if (composite && !(key instanceof CompositeKey ck && ck.values().size() == int64Columns.length)) {
+            throw new IllegalArgumentException("Index " + def.getName() + " expects " + int64Columns.length + " key values");
+        }
+        return encodeKey(key);
+    }
+
     private byte[] encodeKey(Comparable<?> key) {
-        if (keyType.getName().equals("INT64")) {
+        if (composite) {
+            List<Object> values = key instanceof CompositeKey ck ? ck.values() : List.of(key);
+            if (values.size() > int64Columns.length) {
+                throw new IllegalArgumentException("Too many key values for index " + def.getName() + ": " + values.size());
+            }
+            return encodeComposite(values);
+        }
+        if (int64Keys) {
             if (!(key instanceof Number n)) {
                 throw new IllegalArgumentException("INT64 key expects Number");
             }
             byte[] out = new byte[Long.BYTES];
-            ByteBuffer.wrap(out).order(ORDER).putLong(n.longValue());
+            writeLong(out, 0, n.longValue());
             return out;
         }
-        if (keyType.getName().equals("VARCHAR")) {
-            if (!(key instanceof String s)) {
+        if (!(key instanceof String s)) {
+            throw new IllegalArgumentException("VARCHAR key expects String");
+        }
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+
+    private byte[] encodeComposite(List<Object> values) {
+        byte[] out = new byte[Long.BYTES * values.size() + 16];
+        int len = 0;
+        for (int i = 0; i < values.size(); i++) {
+            Object v = values.get(i);
+            if (int64Columns[i]) {
+                if (!(v instanceof Number n)) {
+                    throw new IllegalArgumentException("INT64 key expects Number");
+                }
+                out = ensureCapacity(out, len + Long.BYTES);
+                writeLong(out, len, n.longValue() ^ Long.MIN_VALUE);
+                len += Long.BYTES;
+                continue;
+            }
+            if (!(v instanceof String s)) {
                 throw new IllegalArgumentException("VARCHAR key expects String");
             }
-            return s.getBytes(StandardCharsets.UTF_8);
+            byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+            out = ensureCapacity(out, len + utf8.length * 2 + 2);
+            for (byte b : utf8) {
+                out[len++] = b;
+                if (b == 0) {
+                    out[len++] = (byte) 0xFF;
+                }
+            }
+            out[len++] = 0;
+            out[len++] = 0;
         }
-        throw new IllegalStateException("Unsupported key type: " + keyType.getName());
+        return Arrays.copyOf(out, len);
     }
 
-    private Comparable<?> decodeKey(byte[] buf, int offset, int len) {
-        if (keyType.getName().equals("INT64")) {
-            if (len != Long.BYTES) {
-                throw new IllegalStateException("INT64 key must be 8 bytes, got " + len);
+    private List<Object> decodeKey(byte[] k) {
+        if (!composite) {
+            return List.of(int64Keys ? (Object) readLong(k, 0) : new String(k, StandardCharsets.UTF_8));
+        }
+        List<Object> out = new ArrayList<>(int64Columns.length);
+        int pos = 0;
+        for (boolean int64 : int64Columns) {
+            if (int64) {
+                out.add(readLong(k, pos) ^ Long.MIN_VALUE);
+                pos += Long.BYTES;
+                continue;
+            }
+            byte[] utf8 = new byte[k.length - pos];
+            int len = 0;
+            while (true) {
+                byte b = k[pos++];
+                if (b == 0 && k[pos++] == 0) {
+                    break;
+                }
+                utf8[len++] = b;
             }
-            return readLong(buf, offset);
+            out.add(new String(utf8, 0, len, StandardCharsets.UTF_8));
         }
-        if (keyType.getName().equals("VARCHAR")) {
-            return new String(buf, offset, len, StandardCharsets.UTF_8);
+        return out;
+    }
+
+    private static byte[] ensureCapacity(byte[] buf, int required) {
+        return required <= buf.length ? buf : Arrays.copyOf(buf, Math.max(required, buf.length * 2));
+    }
+
+    private static byte[] prefixSuccessor(byte[] prefix) {
+        for (int i = prefix.length - 1; i >= 0; i--) {
+            if (prefix[i] != (byte) 0xFF) {
+                byte[] out = Arrays.copyOf(prefix, i + 1);
+                out[i]++;
+                return out;
+            }
         }
-        throw new IllegalStateException("Unsupported key type: " + keyType.getName());
+        return null;
     }
 
-    
+    private static List<Integer> columnTypeOids(CatalogManager catalog, IndexDefinition def, List<Integer> columnOids) {
+        if (columnOids.isEmpty()) {
+            return List.of();
+        }
+        TableDefinition table = null;
+        for (TableDefinition t : catalog.listTables()) {
+            if (t.getOid() == def.getTableOid()) {
+                table = t;
+                break;
+            }
+        }
+        if (table == null) {
+            throw new IllegalStateException("Unknown table oid for index " + def.getName() + ": " + def.getTableOid());
+        }
+        List<Integer> out = new ArrayList<>();
+        for (int columnOid : columnOids) {
+            ColumnDefinition column = catalog.getColumns(table).stream()
+                    .filter(c -> c.getOid() == columnOid)
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalStateException("Unknown index column oid: " + columnOid));
+            out.add(column.getTypeOid());
+        }
+        return out;
+    }
+
+
     private PageKey key(int pageId) {
         return new PageKey(fileId, pageId);
     }
 
-    private static int childIndex(List<Comparable<?>> keys, Comparable<?> key) {
+    private int childIndex(List<byte[]> keys, byte[] key) {
         int i = 0;
-        while (i < keys.size() && cmp(key, keys.get(i)) >= 0) {
+        while (i < keys.size() && compareKeys(key, keys.get(i)) >= 0) {
             i++;
         }
         return i;
     }
 
-    private static int lowerBound(List<Comparable<?>> keys, Comparable<?> key) {
+    private int lowerBound(List<byte[]> keys, byte[] key) {
         int lo = 0;
         int hi = keys.size();
         while (lo < hi) {
             int mid = (lo + hi) >>> 1;
-            if (cmp(keys.get(mid), key) < 0) {
+            if (compareKeys(keys.get(mid), key) < 0) {
                 lo = mid + 1;
             } else {
                 hi = mid;
@@ -646,29 +2039,34 @@ public final class DiskBTreeIndex implements Index {
     }
 
     private static int readInt(byte[] buf, int offset) {
-        return ByteBuffer.wrap(buf, offset, Integer.BYTES).order(ORDER).getInt();
+        return (buf[offset] & 0xFF) << 24
+                | (buf[offset + 1] & 0xFF) << 16
+                | (buf[offset + 2] & 0xFF) << 8
+                | (buf[offset + 3] & 0xFF);
     }
 
     private static long readLong(byte[] buf, int offset) {
-        return ByteBuffer.wrap(buf, offset, Long.BYTES).order(ORDER).getLong();
+        return (long) readInt(buf, offset) << 32 | (readInt(buf, offset + 4) & 0xFFFFFFFFL);
     }
 
     private static int readUShort(byte[] buf, int offset) {
-        return Short.toUnsignedInt(ByteBuffer.wrap(buf, offset, Short.BYTES).order(ORDER).getShort());
+        return (buf[offset] & 0xFF) << 8 | (buf[offset + 1] & 0xFF);
     }
 
     private static void writeInt(byte[] buf, int offset, int v) {
-        ByteBuffer.wrap(buf, offset, Integer.BYTES).order(ORDER).putInt(v);
+        buf[offset] = (byte) (v >>> 24);
+        buf[offset + 1] = (byte) (v >>> 16);
+        buf[offset + 2] = (byte) (v >>> 8);
+        buf[offset + 3] = (byte) v;
     }
 
-    private static void writeUShort(byte[] buf, int offset, int v) {
-        ByteBuffer.wrap(buf, offset, Short.BYTES).order(ORDER).putShort((short) v);
+    private static void writeLong(byte[] buf, int offset, long v) {
+        writeInt(buf, offset, (int) (v >>> 32));
+        writeInt(buf, offset + 4, (int) v);
     }
 
-    @SuppressWarnings({"rawtypes", "unchecked"})
-    private static int cmp(Comparable a, Comparable b) {
-        return a.compareTo(b);
+    private static void writeUShort(byte[] buf, int offset, int v) {
+        buf[offset] = (byte) (v >>> 8);
+        buf[offset + 1] = (byte) v;
     }
 }
-
-
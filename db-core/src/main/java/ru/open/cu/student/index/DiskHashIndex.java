@@ -15,6 +15,7 @@ import java.nio.ByteOrder;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 
@@ -48,6 +49,7 @@ public final class DiskHashIndex implements Index {
     private static final int META_MAXBUCKET_OFF = HEAP_HEADER_SIZE + 24;
     private static final int META_RECORDCOUNT_OFF = HEAP_HEADER_SIZE + 28; 
     private static final int META_NEXT_PAGE_ID_OFF = HEAP_HEADER_SIZE + 36;
+    private static final int META_FREE_HEAD_OFF = HEAP_HEADER_SIZE + 40;
 
     private static final double MAX_LOAD_FACTOR = 0.75;
     private static final int TARGET_BUCKET_ENTRIES = 64;
@@ -61,6 +63,8 @@ public final class DiskHashIndex implements Index {
     private final TypeDefinition keyType;
 
     private Meta meta;
+    private int freeHeadPageId;
+    private BloomFilter bloom;
 
     private record Meta(int bucketCount, int lowmask, int highmask, int splitPointer, int maxBucket, long recordCount, int nextPageId) {
     }
@@ -85,6 +89,9 @@ public final class DiskHashIndex implements Index {
         this.keyType = t;
 
         initOrLoad();
+        if (def.isUnique()) {
+            rebuildBloom();
+        }
     }
 
     @Override
@@ -99,7 +106,14 @@ public final class DiskHashIndex implements Index {
 
         int hash = hashFunction(key);
         int bucketId = computeBucket(hash);
-        insertIntoBucketChain(bucketId, new Entry(hash, key, tid));
+        boolean probe = bloom != null && bloom.mightContain(hash);
+        insertIntoBucketChain(bucketId, new Entry(hash, key, tid), probe);
+        if (bloom != null) {
+            bloom.add(hash);
+            if (bloom.isSaturated()) {
+                rebuildBloom();
+            }
+        }
 
         meta = new Meta(meta.bucketCount, meta.lowmask, meta.highmask, meta.splitPointer, meta.maxBucket, meta.recordCount + 1, meta.nextPageId);
         writeMeta();
@@ -109,6 +123,45 @@ public final class DiskHashIndex implements Index {
         }
     }
 
+    @Override
+    public synchronized boolean delete(Comparable<?> key, TID tid) {
+        Objects.requireNonNull(key, "key");
+        Objects.requireNonNull(tid, "tid");
+
+        int hash = hashFunction(key);
+        int prev = -1;
+        int current = getBucketHeadPageId(computeBucket(hash));
+        while (current != -1 && current != 0) {
+            PageKey k = key(current);
+            Page page = bufferPool.getPage(k).getPage();
+            byte[] buf = page.bytes();
+            int cnt = readInt(buf, BUCKET_HDR_ENTRY_COUNT_OFF);
+            int off = BUCKET_DATA_START_OFF;
+            for (int i = 0; i < cnt; i++) {
+                Decoded decoded = decodeEntry(buf, off);
+                Entry e = decoded.entry;
+                if (e.hash == hash && e.tid.equals(tid) && cmp(key, e.key) == 0) {
+                    int free = readInt(buf, BUCKET_HDR_FREE_OFF);
+                    int len = decoded.nextOffset - off;
+                    System.arraycopy(buf, decoded.nextOffset, buf, off, free - decoded.nextOffset);
+                    Arrays.fill(buf, free - len, free, (byte) 0);
+                    writeInt(buf, BUCKET_HDR_FREE_OFF, free - len);
+                    writeInt(buf, BUCKET_HDR_ENTRY_COUNT_OFF, cnt - 1);
+                    bufferPool.updatePage(k, page);
+
+                    meta = new Meta(meta.bucketCount, meta.lowmask, meta.highmask, meta.splitPointer, meta.maxBucket, meta.recordCount - 1, meta.nextPageId);
+                    writeMeta();
+                    compactChain(prev, current);
+                    return true;
+                }
+                off = decoded.nextOffset;
+            }
+            prev = current;
+            current = readInt(buf, BUCKET_HDR_NEXT_OVERFLOW_OFF);
+        }
+        return false;
+    }
+
     @Override
     public synchronized List<TID> search(Comparable<?> key) {
         Objects.requireNonNull(key, "key");
@@ -125,11 +178,49 @@ public final class DiskHashIndex implements Index {
         return out;
     }
 
+    @Override
+    public synchronized long count(Comparable<?> key) {
+        Objects.requireNonNull(key, "key");
+
+        int hash = hashFunction(key);
+        long[] n = new long[1];
+        forEachEntry(computeBucket(hash), e -> {
+            if (e.hash == hash && cmp(key, e.key) == 0) {
+                n[0]++;
+            }
+        });
+        return n[0];
+    }
+
     @Override
     public List<TID> rangeSearch(Comparable<?> from, boolean fromInclusive, Comparable<?> to, boolean toInclusive) {
         throw new UnsupportedOperationException("HASH index does not support rangeSearch");
     }
 
+    synchronized void presize(long expectedRecords) {
+        if (meta.recordCount != 0) {
+            throw new IllegalStateException("Presize requires an empty index: " + def.getName());
+        }
+        long wanted = (long) Math.ceil(expectedRecords / (TARGET_BUCKET_ENTRIES * MAX_LOAD_FACTOR));
+        int maxBuckets = DIR_PAGES * DIR_ENTRIES_PER_PAGE;
+        int bucketCount = meta.bucketCount;
+        while (bucketCount < wanted && bucketCount * 2 <= maxBuckets) {
+            bucketCount *= 2;
+        }
+        if (bucketCount == meta.bucketCount || meta.splitPointer != 0 || meta.lowmask != meta.highmask) {
+            return;
+        }
+
+        for (int bucketId = meta.bucketCount; bucketId < bucketCount; bucketId++) {
+            int headPageId = allocateDataPage();
+            initBucketPage(headPageId);
+            setBucketHeadPageId(bucketId, headPageId);
+        }
+        int mask = bucketCount - 1;
+        meta = new Meta(bucketCount, mask, mask, 0, mask, 0L, meta.nextPageId);
+        writeMeta();
+    }
+
     
     int debugBucketCount() {
         return meta.bucketCount;
@@ -139,6 +230,18 @@ public final class DiskHashIndex implements Index {
         return meta.recordCount;
     }
 
+    int debugPageCount() {
+        return meta.nextPageId;
+    }
+
+    int debugChainLength(Comparable<?> key) {
+        int length = 0;
+        for (int pageId = getBucketHeadPageId(computeBucket(hashFunction(key))); pageId != -1 && pageId != 0; length++) {
+            pageId = readInt(bufferPool.getPage(key(pageId)).getPage().bytes(), BUCKET_HDR_NEXT_OVERFLOW_OFF);
+        }
+        return length;
+    }
+
     
     private void initOrLoad() {
         Path file = root.resolve(fileId);
@@ -220,6 +323,7 @@ public final class DiskHashIndex implements Index {
         int nextPageId = readInt(buf, META_NEXT_PAGE_ID_OFF);
 
         meta = new Meta(bucketCount, lowmask, highmask, splitPointer, maxBucket, recordCount, nextPageId);
+        freeHeadPageId = readInt(buf, META_FREE_HEAD_OFF);
     }
 
     private void writeMeta() {
@@ -235,6 +339,7 @@ public final class DiskHashIndex implements Index {
         writeInt(buf, META_MAXBUCKET_OFF, meta.maxBucket);
         writeLong(buf, META_RECORDCOUNT_OFF, meta.recordCount);
         writeInt(buf, META_NEXT_PAGE_ID_OFF, meta.nextPageId);
+        writeInt(buf, META_FREE_HEAD_OFF, freeHeadPageId);
 
         bufferPool.updatePage(key(0), page);
     }
@@ -307,6 +412,9 @@ public final class DiskHashIndex implements Index {
             Page page = bufferPool.getPage(key(current)).getPage();
             readAllEntriesFromPage(page, out);
             int next = readInt(page.bytes(), BUCKET_HDR_NEXT_OVERFLOW_OFF);
+            if (current != head) {
+                releasePage(current);
+            }
             current = next;
         }
 
@@ -315,17 +423,14 @@ public final class DiskHashIndex implements Index {
         return out;
     }
 
-    private void insertIntoBucketChain(int bucketId, Entry entry) {
-        insertIntoBucketChain(bucketId, entry, true);
-    }
-
-    private void insertIntoBucketChain(int bucketId, Entry entry, boolean updateRecordCount) {
+    private void insertIntoBucketChain(int bucketId, Entry entry, boolean probeDuplicates) {
         int current = getBucketHeadPageId(bucketId);
         if (current == 0) {
             throw new IllegalStateException("Bucket head is not initialized: bucketId=" + bucketId);
         }
 
         byte[] entryBytes = encodeEntry(entry);
+        int target = -1;
 
         while (true) {
             PageKey k = key(current);
@@ -338,27 +443,48 @@ public final class DiskHashIndex implements Index {
                 free = readInt(page.bytes(), BUCKET_HDR_FREE_OFF);
             }
 
-            if (free + entryBytes.length <= HeapPage.PAGE_SIZE) {
-                System.arraycopy(entryBytes, 0, page.bytes(), free, entryBytes.length);
-                writeInt(page.bytes(), BUCKET_HDR_FREE_OFF, free + entryBytes.length);
-                int cnt = readInt(page.bytes(), BUCKET_HDR_ENTRY_COUNT_OFF);
-                writeInt(page.bytes(), BUCKET_HDR_ENTRY_COUNT_OFF, cnt + 1);
-
-                bufferPool.updatePage(k, page);
-                return;
+            if (probeDuplicates) {
+                forEachEntryInPage(page, e -> {
+                    if (e.hash == entry.hash && cmp(entry.key, e.key) == 0) {
+                        throw new UniqueViolationException(def.getName(), entry.key);
+                    }
+                });
+            }
+            if (target == -1 && free + entryBytes.length <= HeapPage.PAGE_SIZE) {
+                target = current;
+                if (!probeDuplicates) break;
             }
 
             int next = readInt(page.bytes(), BUCKET_HDR_NEXT_OVERFLOW_OFF);
             if (next == -1) {
-                int overflowPageId = allocateDataPage();
-                initBucketPage(overflowPageId);
-                writeInt(page.bytes(), BUCKET_HDR_NEXT_OVERFLOW_OFF, overflowPageId);
-                bufferPool.updatePage(k, page);
-                current = overflowPageId;
-            } else {
-                current = next;
+                if (target == -1) {
+                    int overflowPageId = allocateDataPage();
+                    initBucketPage(overflowPageId);
+                    writeInt(page.bytes(), BUCKET_HDR_NEXT_OVERFLOW_OFF, overflowPageId);
+                    bufferPool.updatePage(k, page);
+                    target = overflowPageId;
+                }
+                break;
             }
+            current = next;
         }
+
+        PageKey k = key(target);
+        Page page = bufferPool.getPage(k).getPage();
+        int free = readInt(page.bytes(), BUCKET_HDR_FREE_OFF);
+        System.arraycopy(entryBytes, 0, page.bytes(), free, entryBytes.length);
+        writeInt(page.bytes(), BUCKET_HDR_FREE_OFF, free + entryBytes.length);
+        int cnt = readInt(page.bytes(), BUCKET_HDR_ENTRY_COUNT_OFF);
+        writeInt(page.bytes(), BUCKET_HDR_ENTRY_COUNT_OFF, cnt + 1);
+        bufferPool.updatePage(k, page);
+    }
+
+    private void rebuildBloom() {
+        BloomFilter rebuilt = new BloomFilter(meta.recordCount * 2);
+        for (int bucketId = 0; bucketId <= meta.maxBucket; bucketId++) {
+            forEachEntry(bucketId, e -> rebuilt.add(e.hash));
+        }
+        bloom = rebuilt;
     }
 
     private void forEachEntry(int bucketId, java.util.function.Consumer<Entry> consumer) {
@@ -472,15 +598,59 @@ public final class DiskHashIndex implements Index {
         bufferPool.updatePage(k, page);
     }
 
+    private void compactChain(int prevPageId, int pageId) {
+        int next = readInt(bufferPool.getPage(key(pageId)).getPage().bytes(), BUCKET_HDR_NEXT_OVERFLOW_OFF);
+        if (prevPageId != -1 && absorb(prevPageId, pageId)) {
+            return;
+        }
+        if (next != -1) {
+            absorb(pageId, next);
+        }
+    }
+
+    private boolean absorb(int targetPageId, int sourcePageId) {
+        PageKey targetKey = key(targetPageId);
+        Page target = bufferPool.getPage(targetKey).getPage();
+        byte[] src = bufferPool.getPage(key(sourcePageId)).getPage().bytes();
+        byte[] dst = target.bytes();
+
+        int used = readInt(src, BUCKET_HDR_FREE_OFF) - BUCKET_DATA_START_OFF;
+        int free = readInt(dst, BUCKET_HDR_FREE_OFF);
+        if (free + used > HeapPage.PAGE_SIZE) {
+            return false;
+        }
+        System.arraycopy(src, BUCKET_DATA_START_OFF, dst, free, used);
+        writeInt(dst, BUCKET_HDR_FREE_OFF, free + used);
+        writeInt(dst, BUCKET_HDR_ENTRY_COUNT_OFF, readInt(dst, BUCKET_HDR_ENTRY_COUNT_OFF) + readInt(src, BUCKET_HDR_ENTRY_COUNT_OFF));
+        writeInt(dst, BUCKET_HDR_NEXT_OVERFLOW_OFF, readInt(src, BUCKET_HDR_NEXT_OVERFLOW_OFF));
+        bufferPool.updatePage(targetKey, target);
+        releasePage(sourcePageId);
+        return true;
+    }
+
+    private void releasePage(int pageId) {
+        PageKey k = key(pageId);
+        Page page = bufferPool.getPage(k).getPage();
+        writeInt(page.bytes(), BUCKET_HDR_NEXT_OVERFLOW_OFF, freeHeadPageId);
+        writeInt(page.bytes(), BUCKET_HDR_ENTRY_COUNT_OFF, 0);
+        writeInt(page.bytes(), BUCKET_HDR_FREE_OFF, BUCKET_DATA_START_OFF);
+        bufferPool.updatePage(k, page);
+        freeHeadPageId = pageId;
+        writeMeta();
+    }
+
     private int allocateDataPage() {
+        if (freeHeadPageId != 0) {
+            int id = freeHeadPageId;
+            freeHeadPageId = readInt(bufferPool.getPage(key(id)).getPage().bytes(), BUCKET_HDR_NEXT_OVERFLOW_OFF);
+            writeMeta();
+            return id;
+        }
         int id = meta.nextPageId;
         meta = new Meta(meta.bucketCount, meta.lowmask, meta.highmask, meta.splitPointer, meta.maxBucket, meta.recordCount, id + 1);
         writeMeta();
 
-        PageKey k = key(id);
-        Page page = new HeapPage(id);
-        bufferPool.newPage(k, page);
-        bufferPool.updatePage(k, page);
+        bufferPool.newDirtyPage(key(id), new HeapPage(id));
         return id;
     }
 
@@ -11,7 +11,7 @@ import java.util.TreeMap;
 
 public final class InMemoryBTreeIndex implements Index {
     private final IndexDefinition def;
-    private final NavigableMap<Comparable<?>, List<TID>> map = new TreeMap<>();
+    private final NavigableMap<Comparable<?>, List<TID>> map = new TreeMap<>(KeyOrder::compare);
 
     public InMemoryBTreeIndex(IndexDefinition def) {
         this.def = Objects.requireNonNull(def, "def");
@@ -32,6 +32,18 @@ public final class InMemoryBTreeIndex implements Index {
         map.computeIfAbsent(key, ignored -> new ArrayList<>()).add(tid);
     }
 
+    @Override
+    public synchronized boolean delete(Comparable<?> key, TID tid) {
+        Objects.requireNonNull(key, "key");
+        Objects.requireNonNull(tid, "tid");
+        List<TID> list = map.get(key);
+        if (list == null || !list.remove(tid)) return false;
+        if (list.isEmpty()) {
+            map.remove(key);
+        }
+        return true;
+    }
+
     @Override
     public synchronized List<TID> search(Comparable<?> key) {
         Objects.requireNonNull(key, "key");
@@ -40,6 +52,13 @@ public final class InMemoryBTreeIndex implements Index {
         return List.copyOf(list);
     }
 
+    @Override
+    public synchronized long count(Comparable<?> key) {
+        Objects.requireNonNull(key, "key");
+        List<TID> list = map.get(key);
+        return list == null ? 0 : list.size();
+    }
+
     @Override
     public synchronized List<TID> rangeSearch(Comparable<?> from, boolean fromInclusive, Comparable<?> to, boolean toInclusive) {
         NavigableMap<Comparable<?>, List<TID>> sub;
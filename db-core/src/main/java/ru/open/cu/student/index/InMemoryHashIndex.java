@@ -32,6 +32,18 @@ public final class InMemoryHashIndex implements Index {
         map.computeIfAbsent(key, ignored -> new ArrayList<>()).add(tid);
     }
 
+    @Override
+    public synchronized boolean delete(Comparable<?> key, TID tid) {
+        Objects.requireNonNull(key, "key");
+        Objects.requireNonNull(tid, "tid");
+        List<TID> list = map.get(key);
+        if (list == null || !list.remove(tid)) return false;
+        if (list.isEmpty()) {
+            map.remove(key);
+        }
+        return true;
+    }
+
     @Override
     public synchronized List<TID> search(Comparable<?> key) {
         Objects.requireNonNull(key, "key");
@@ -40,6 +52,13 @@ public final class InMemoryHashIndex implements Index {
         return List.copyOf(list);
     }
 
+    @Override
+    public synchronized long count(Comparable<?> key) {
+        Objects.requireNonNull(key, "key");
+        List<TID> list = map.get(key);
+        return list == null ? 0 : list.size();
+    }
+
     @Override
     public List<TID> rangeSearch(Comparable<?> from, boolean fromInclusive, Comparable<?> to, boolean toInclusive) {
         throw new UnsupportedOperationException("HASH index does not support rangeSearch");
@@ -3,6 +3,9 @@ package ru.open.cu.student.index;
 import ru.open.cu.student.catalog.model.IndexDefinition;
 import ru.open.cu.student.storage.TID;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 
 public interface Index {
@@ -10,10 +13,22 @@ public interface Index {
 
     void insert(Comparable<?> key, TID tid);
 
+    boolean delete(Comparable<?> key, TID tid);
+
     List<TID> search(Comparable<?> key);
 
+    default long count(Comparable<?> key) {
+        return search(key).size();
+    }
+
     
     List<TID> rangeSearch(Comparable<?> from, boolean fromInclusive, Comparable<?> to, boolean toInclusive);
-}
-
 
+    default Iterator<TID> scan(Comparable<?> from, boolean fromInclusive, Comparable<?> to, boolean toInclusive, boolean descending) {
+        List<TID> tids = new ArrayList<>(rangeSearch(from, fromInclusive, to, toInclusive));
+        if (descending) {
+            Collections.reverse(tids);
+        }
+        return tids.iterator();
+    }
+}
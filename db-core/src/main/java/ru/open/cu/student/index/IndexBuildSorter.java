@@ -0,0 +1,115 @@
+package ru.open.cu.student.index;
+
+import ru.open.cu.student.execution.spill.SpillFile;
+import ru.open.cu.student.storage.TID;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.PriorityQueue;
+
+final class IndexBuildSorter implements AutoCloseable {
+    record Entry(Comparable<?> key, TID tid) {
+    }
+
+    private record RunHead(Entry entry, SpillFile run) {
+    }
+
+    private final Path spillDir;
+    private final Comparator<Entry> order;
+    private final int runEntries;
+    private final List<Entry> buffer = new ArrayList<>();
+    private final List<SpillFile> runs = new ArrayList<>();
+
+    IndexBuildSorter(Path spillDir, Comparator<Comparable<?>> keyOrder, int runEntries) {
+        this.spillDir = Objects.requireNonNull(spillDir, "spillDir");
+        Objects.requireNonNull(keyOrder, "keyOrder");
+        if (runEntries <= 0) {
+            throw new IllegalArgumentException("runEntries must be > 0");
+        }
+        this.order = Comparator.comparing(Entry::key, keyOrder)
+                .thenComparingInt(e -> e.tid().pageId())
+                .thenComparingInt(e -> e.tid().slotId());
+        this.runEntries = runEntries;
+    }
+
+    void add(Comparable<?> key, TID tid) {
+        buffer.add(new Entry(Objects.requireNonNull(key, "key"), Objects.requireNonNull(tid, "tid")));
+        if (buffer.size() >= runEntries) {
+            spillRun();
+        }
+    }
+
+    int runCount() {
+        return runs.size();
+    }
+
+    Iterator<Entry> sorted() {
+        if (runs.isEmpty()) {
+            buffer.sort(order);
+            return buffer.iterator();
+        }
+        if (!buffer.isEmpty()) {
+            spillRun();
+        }
+
+        PriorityQueue<RunHead> heads = new PriorityQueue<>(Comparator.comparing(RunHead::entry, order));
+        for (SpillFile run : runs) {
+            run.rewind();
+            Entry first = readEntry(run);
+            if (first != null) heads.add(new RunHead(first, run));
+        }
+
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return !heads.isEmpty();
+            }
+
+            @Override
+            public Entry next() {
+                RunHead head = heads.poll();
+                if (head == null) throw new NoSuchElementException();
+                Entry following = readEntry(head.run());
+                if (following != null) heads.add(new RunHead(following, head.run()));
+                return head.entry();
+            }
+        };
+    }
+
+    @Override
+    public void close() {
+        for (SpillFile run : runs) {
+            run.close();
+        }
+        runs.clear();
+        buffer.clear();
+    }
+
+    private void spillRun() {
+        buffer.sort(order);
+        SpillFile run = SpillFile.create(spillDir, "index-build-");
+        runs.add(run);
+        for (Entry e : buffer) {
+            List<Object> row = new ArrayList<>(e.key() instanceof CompositeKey ck ? ck.values() : List.of(e.key()));
+            row.add((long) e.tid().pageId());
+            row.add((long) e.tid().slotId());
+            run.write(row);
+        }
+        buffer.clear();
+    }
+
+    private static Entry readEntry(SpillFile run) {
+        List<Object> row = run.read();
+        if (row == null) return null;
+        int n = row.size() - 2;
+        long pageId = (Long) row.get(n);
+        long slotId = (Long) row.get(n + 1);
+        Comparable<?> key = n == 1 ? (Comparable<?>) row.get(0) : new CompositeKey(row.subList(0, n));
+        return new Entry(key, new TID((int) pageId, (short) slotId));
+    }
+}
@@ -0,0 +1,13 @@
+package ru.open.cu.student.index;
+
+import ru.open.cu.student.storage.TID;
+
+import java.util.List;
+import java.util.Objects;
+
+public record IndexEntry(List<Object> values, TID tid) {
+    public IndexEntry {
+        Objects.requireNonNull(values, "values");
+        Objects.requireNonNull(tid, "tid");
+    }
+}
@@ -11,12 +11,16 @@ import ru.open.cu.student.storage.TID;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 
 
 public final class IndexManager {
+    private static final int BUILD_FILL_FACTOR = Integer.getInteger("db.index.fillFactor", 90);
+    private static final int BUILD_RUN_ENTRIES = Integer.getInteger("db.index.buildRunEntries", 200_000);
+
     private final Path root;
     private final BufferPoolManager bufferPool;
     private final CatalogManager catalog;
@@ -58,17 +62,79 @@ public final class IndexManager {
     }
 
     public synchronized Index createAndBuild(IndexDefinition def, TableHeap tableHeap, ColumnDefinition indexedColumn) {
+        return createAndBuild(def, tableHeap, List.of(indexedColumn), List.of());
+    }
+
+    public synchronized Index createAndBuild(
+            IndexDefinition def,
+            TableHeap tableHeap,
+            List<ColumnDefinition> keyColumns,
+            List<ColumnDefinition> includeColumns
+    ) {
         Index idx = getOrCreate(def);
 
-        int pos = indexedColumn.getPosition();
+        List<ColumnDefinition> columns = new ArrayList<>(keyColumns);
+        columns.addAll(includeColumns);
+        int pos = columns.get(0).getPosition();
+        if (idx instanceof DiskBTreeIndex btree) {
+            try (IndexBuildSorter sorter = new IndexBuildSorter(root.resolve("tmp"), btree.keyOrder(), BUILD_RUN_ENTRIES)) {
+                for (TID tid : tableHeap.scanTids()) {
+                    List<Object> row = tableHeap.readRow(tid);
+                    if (row != null) {
+                        sorter.add(entryKey(row, columns), tid);
+                    }
+                }
+                btree.bulkLoad(sorter.sorted(), BUILD_FILL_FACTOR);
+            }
+            return idx;
+        }
+
+        if (idx instanceof DiskHashIndex hash) {
+            hash.presize(tableHeap.countRows());
+        }
         for (TID tid : tableHeap.scanTids()) {
             List<Object> row = tableHeap.readRow(tid);
+            if (row == null) continue;
             Object key = row.get(pos);
             idx.insert((Comparable<?>) key, tid);
         }
 
         return idx;
     }
+
+    public void checkUnique(String indexName, TableHeap tableHeap, List<ColumnDefinition> keyColumns) {
+        try (IndexBuildSorter sorter = new IndexBuildSorter(root.resolve("tmp"), IndexManager::compareKeys, BUILD_RUN_ENTRIES)) {
+            for (TID tid : tableHeap.scanTids()) {
+                List<Object> row = tableHeap.readRow(tid);
+                if (row != null && keyColumns.stream().noneMatch(c -> row.get(c.getPosition()) == null)) {
+                    sorter.add(entryKey(row, keyColumns), tid);
+                }
+            }
+            Comparable<?> prev = null;
+            for (Iterator<IndexBuildSorter.Entry> it = sorter.sorted(); it.hasNext(); ) {
+                Comparable<?> key = it.next().key();
+                if (prev != null && compareKeys(prev, key) == 0) {
+                    throw new UniqueViolationException(indexName, key);
+                }
+                prev = key;
+            }
+        }
+    }
+
+    private static int compareKeys(Comparable<?> a, Comparable<?> b) {
+        return KeyOrder.compare(a, b);
+    }
+
+    private static Comparable<?> entryKey(List<Object> row, List<ColumnDefinition> columns) {
+        if (columns.size() == 1) {
+            return (Comparable<?>) row.get(columns.get(0).getPosition());
+        }
+        List<Object> values = new ArrayList<>(columns.size());
+        for (ColumnDefinition c : columns) {
+            values.add(row.get(c.getPosition()));
+        }
+        return new CompositeKey(values);
+    }
 }
 
 
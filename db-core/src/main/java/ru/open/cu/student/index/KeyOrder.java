@@ -0,0 +1,33 @@
+package ru.open.cu.student.index;
+
+public final class KeyOrder {
+    private KeyOrder() {
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    public static int compare(Object a, Object b) {
+        if (a instanceof String sa && b instanceof String sb) {
+            return compareUtf8(sa, sb);
+        }
+        if (a instanceof Number na && b instanceof Number nb) {
+            return Long.compare(na.longValue(), nb.longValue());
+        }
+        return ((Comparable) a).compareTo(b);
+    }
+
+    public static int compareUtf8(String a, String b) {
+        int n = Math.min(a.length(), b.length());
+        for (int i = 0; i < n; i++) {
+            char ca = a.charAt(i);
+            char cb = b.charAt(i);
+            if (ca != cb) {
+                boolean sa = Character.isSurrogate(ca);
+                if (sa != Character.isSurrogate(cb)) {
+                    return sa ? 1 : -1;
+                }
+                return ca - cb;
+            }
+        }
+        return a.length() - b.length();
+    }
+}
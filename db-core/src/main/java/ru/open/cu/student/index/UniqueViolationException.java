@@ -0,0 +1,7 @@
+package ru.open.cu.student.index;
+
+public final class UniqueViolationException extends RuntimeException {
+    public UniqueViolationException(String indexName, Object key) {
+        super("Duplicate key " + key + " violates unique index " + indexName);
+    }
+}
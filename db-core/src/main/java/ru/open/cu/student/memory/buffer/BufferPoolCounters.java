@@ -0,0 +1,35 @@
+package ru.open.cu.student.memory.buffer;
+
+public final class BufferPoolCounters {
+    private static final ThreadLocal<long[]> COUNTERS = ThreadLocal.withInitial(() -> new long[3]);
+
+    private static final int HITS = 0;
+    private static final int MISSES = 1;
+    private static final int PAGES_READ = 2;
+
+    public record Snapshot(long hits, long misses, long pagesRead) {
+        public Snapshot minus(Snapshot other) {
+            return new Snapshot(hits - other.hits, misses - other.misses, pagesRead - other.pagesRead);
+        }
+    }
+
+    private BufferPoolCounters() {
+    }
+
+    public static Snapshot current() {
+        long[] c = COUNTERS.get();
+        return new Snapshot(c[HITS], c[MISSES], c[PAGES_READ]);
+    }
+
+    static void recordHit() {
+        COUNTERS.get()[HITS]++;
+    }
+
+    static void recordMiss() {
+        COUNTERS.get()[MISSES]++;
+    }
+
+    static void recordPageRead() {
+        COUNTERS.get()[PAGES_READ]++;
+    }
+}
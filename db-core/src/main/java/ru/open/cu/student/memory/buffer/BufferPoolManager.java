@@ -11,6 +11,8 @@ public interface BufferPoolManager {
     
     BufferSlot newPage(PageKey key, Page page);
 
+    BufferSlot newDirtyPage(PageKey key, Page page);
+
     void updatePage(PageKey key, Page page);
 
     void pinPage(PageKey key);
@@ -21,7 +23,11 @@ public interface BufferPoolManager {
 
     void flushAllPages();
 
+    void truncate(String fileId, int pageCount);
+
     List<BufferSlot> getDirtyPages();
+
+    int getPoolSize();
 }
 
 
@@ -8,6 +8,7 @@ import ru.open.cu.student.memory.replacer.Replacer;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -35,13 +36,16 @@ public final class DefaultBufferPoolManager implements BufferPoolManager {
 
         BufferSlot slot = pageTable.get(key);
         if (slot != null) {
+            BufferPoolCounters.recordHit();
             slot.incrementUsage();
             touch(slot);
             return slot;
         }
 
+        BufferPoolCounters.recordMiss();
         ensureSpace();
         Page page = pageFileManager.read(key.pageId(), storageRoot.resolve(key.fileId()));
+        BufferPoolCounters.recordPageRead();
         BufferSlot newSlot = new BufferSlot(key, page);
         pageTable.put(key, newSlot);
         touch(newSlot);
@@ -63,6 +67,13 @@ public final class DefaultBufferPoolManager implements BufferPoolManager {
         return slot;
     }
 
+    @Override
+    public synchronized BufferSlot newDirtyPage(PageKey key, Page page) {
+        BufferSlot slot = newPage(key, page);
+        slot.setDirty(true);
+        return slot;
+    }
+
     @Override
     public synchronized void updatePage(PageKey key, Page page) {
         Objects.requireNonNull(key, "key");
@@ -85,7 +96,7 @@ public final class DefaultBufferPoolManager implements BufferPoolManager {
         if (slot == null) {
             slot = getPage(key);
         }
-        slot.setPinned(true);
+        slot.pin();
         replacer.delete(key);
     }
 
@@ -95,8 +106,9 @@ public final class DefaultBufferPoolManager implements BufferPoolManager {
 
         BufferSlot slot = pageTable.get(key);
         if (slot == null || !slot.isPinned()) return;
-        slot.setPinned(false);
-        replacer.push(slot);
+        if (slot.unpin()) {
+            replacer.push(slot);
+        }
     }
 
     @Override
@@ -122,6 +134,22 @@ public final class DefaultBufferPoolManager implements BufferPoolManager {
         }
     }
 
+    @Override
+    public synchronized void truncate(String fileId, int pageCount) {
+        Objects.requireNonNull(fileId, "fileId");
+        if (pageCount < 0) throw new IllegalArgumentException("pageCount must be >= 0");
+
+        Iterator<Map.Entry<PageKey, BufferSlot>> it = pageTable.entrySet().iterator();
+        while (it.hasNext()) {
+            PageKey key = it.next().getKey();
+            if (key.fileId().equals(fileId) && key.pageId() >= pageCount) {
+                replacer.delete(key);
+                it.remove();
+            }
+        }
+        pageFileManager.truncate(storageRoot.resolve(fileId), pageCount);
+    }
+
     @Override
     public synchronized List<BufferSlot> getDirtyPages() {
         List<BufferSlot> res = new ArrayList<>();
@@ -153,6 +181,9 @@ public final class DefaultBufferPoolManager implements BufferPoolManager {
 
         pageTable.remove(victim.getKey());
     }
-}
-
 
+    @Override
+    public int getPoolSize() {
+        return poolSize;
+    }
+}
@@ -83,6 +83,19 @@ public final class HeapPageFileManager implements PageFileManager {
         }
     }
 
+    @Override
+    public void truncate(Path path, int pageCount) {
+        if (path == null) throw new IllegalArgumentException("path is null");
+        if (pageCount < 0) throw new IllegalArgumentException("pageCount must be >= 0");
+        if (!Files.exists(path)) return;
+
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            ch.truncate((long) pageCount * HeapPage.PAGE_SIZE);
+        } catch (IOException e) {
+            throw new RuntimeException("I/O error while truncating file: " + e.getMessage(), e);
+        }
+    }
+
     private static void writeFully(FileChannel channel, ByteBuffer src, long position) throws IOException {
         long pos = position;
         while (src.hasRemaining()) {
@@ -8,6 +8,8 @@ public interface PageFileManager {
     void write(Page page, Path path);
 
     Page read(int pageId, Path path);
+
+    void truncate(Path path, int pageCount);
 }
 
 
@@ -9,14 +9,14 @@ public final class BufferSlot {
     private final PageKey key;
     private Page page;
     private boolean dirty;
-    private boolean pinned;
+    private int pinCount;
     private int usageCount;
 
     public BufferSlot(PageKey key, Page page) {
         this.key = Objects.requireNonNull(key, "key");
         this.page = page;
         this.dirty = false;
-        this.pinned = false;
+        this.pinCount = 0;
         this.usageCount = 0;
     }
 
@@ -41,11 +41,24 @@ public final class BufferSlot {
     }
 
     public boolean isPinned() {
-        return pinned;
+        return pinCount > 0;
     }
 
     public void setPinned(boolean pinned) {
-        this.pinned = pinned;
+        this.pinCount = pinned ? Math.max(pinCount, 1) : 0;
+    }
+
+    public int getPinCount() {
+        return pinCount;
+    }
+
+    public void pin() {
+        pinCount++;
+    }
+
+    public boolean unpin() {
+        if (pinCount > 0) pinCount--;
+        return pinCount == 0;
     }
 
     public int getUsageCount() {
@@ -61,7 +74,7 @@ public final class BufferSlot {
         return "BufferSlot{" +
                 "key=" + key +
                 ", dirty=" + dirty +
-                ", pinned=" + pinned +
+                ", pinCount=" + pinCount +
                 ", usageCount=" + usageCount +
                 '}';
     }
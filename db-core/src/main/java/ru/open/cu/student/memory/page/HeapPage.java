@@ -2,6 +2,7 @@ package ru.open.cu.student.memory.page;
 
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.util.Arrays;
 
 
 public final class HeapPage implements Page {
@@ -9,13 +10,16 @@ public final class HeapPage implements Page {
     private static final int SIGNATURE = 0x00DBDB01;
 
     private static final int HEADER_SIZE = 10;
-    private static final int SLOT_SIZE = 4;
+    public static final int SLOT_SIZE = 4;
 
     private static final int SIGNATURE_OFF = 0;
     private static final int SLOT_COUNT_OFF = 4;
     private static final int LOWER_BOUND_OFF = 6;
     private static final int UPPER_BOUND_OFF = 8;
 
+    private static final int LP_DEAD = 0x8000;
+    private static final int LP_LENGTH_MASK = 0x7FFF;
+
     private static final int INT_SIZE = 4;
     private static final int SHORT_SIZE = 2;
 
@@ -65,17 +69,13 @@ public final class HeapPage implements Page {
     @Override
     public byte[] read(int index) {
         verifySignature();
-        int slotCount = readUShort(SLOT_COUNT_OFF);
-
-        if (index < 0 || index >= slotCount) {
-            throw new IndexOutOfBoundsException(
-                    "slot index out of range: " + index + " (slotCount=" + slotCount + ")"
-            );
+        int slotPosition = slotPosition(index);
+        int flags = readUShort(slotPosition + SHORT_SIZE);
+        if ((flags & LP_DEAD) != 0) {
+            throw new IllegalStateException("slot " + index + " is deleted");
         }
-
-        int slotPosition = HEADER_SIZE + index * SLOT_SIZE;
         int offset = readUShort(slotPosition);
-        int length = readUShort(slotPosition + SHORT_SIZE);
+        int length = flags & LP_LENGTH_MASK;
 
         int upper = readUShort(UPPER_BOUND_OFF);
         if (offset < 0 || offset + length > PAGE_SIZE || offset < upper) {
@@ -90,6 +90,100 @@ public final class HeapPage implements Page {
         return result;
     }
 
+    @Override
+    public boolean isDeleted(int index) {
+        if (index >= size()) return true;
+        return (readUShort(slotPosition(index) + SHORT_SIZE) & LP_DEAD) != 0;
+    }
+
+    @Override
+    public void delete(int index) {
+        verifySignature();
+        int slotPosition = slotPosition(index);
+        int flags = readUShort(slotPosition + SHORT_SIZE);
+        if ((flags & LP_DEAD) != 0) {
+            throw new IllegalStateException("slot " + index + " is already deleted");
+        }
+        writeShort(slotPosition + SHORT_SIZE, (short) (flags | LP_DEAD));
+    }
+
+    @Override
+    public boolean update(int index, byte[] data) {
+        verifySignature();
+        if (data == null) {
+            throw new IllegalArgumentException("data is null");
+        }
+        int slotPosition = slotPosition(index);
+        int flags = readUShort(slotPosition + SHORT_SIZE);
+        if ((flags & LP_DEAD) != 0) {
+            throw new IllegalStateException("slot " + index + " is deleted");
+        }
+
+        int length = data.length;
+        int offset = readUShort(slotPosition);
+        if (length > (flags & LP_LENGTH_MASK)) {
+            int lower = readUShort(LOWER_BOUND_OFF);
+            int upper = readUShort(UPPER_BOUND_OFF);
+            if (length > upper - lower) {
+                return false;
+            }
+            offset = upper - length;
+            writeShort(UPPER_BOUND_OFF, (short) offset);
+        }
+        System.arraycopy(data, 0, buffer, offset, length);
+        writeShort(slotPosition, (short) offset);
+        writeShort(slotPosition + SHORT_SIZE, (short) length);
+        return true;
+    }
+
+    @Override
+    public int freeSpace() {
+        return readUShort(UPPER_BOUND_OFF) - readUShort(LOWER_BOUND_OFF);
+    }
+
+    @Override
+    public int deadCount() {
+        int slotCount = readUShort(SLOT_COUNT_OFF);
+        int dead = 0;
+        for (int i = 0; i < slotCount; i++) {
+            int flags = readUShort(HEADER_SIZE + i * SLOT_SIZE + SHORT_SIZE);
+            if ((flags & LP_DEAD) != 0 && (flags & LP_LENGTH_MASK) != 0) {
+                dead++;
+            }
+        }
+        return dead;
+    }
+
+    @Override
+    public int compact() {
+        verifySignature();
+        int before = freeSpace();
+        int slotCount = readUShort(SLOT_COUNT_OFF);
+
+        byte[] packed = new byte[PAGE_SIZE];
+        int upper = PAGE_SIZE;
+        for (int i = 0; i < slotCount; i++) {
+            int slotPosition = HEADER_SIZE + i * SLOT_SIZE;
+            int flags = readUShort(slotPosition + SHORT_SIZE);
+            if ((flags & LP_DEAD) != 0) {
+                writeShort(slotPosition, (short) 0);
+                writeShort(slotPosition + SHORT_SIZE, (short) LP_DEAD);
+                continue;
+            }
+            int length = flags & LP_LENGTH_MASK;
+            upper -= length;
+            System.arraycopy(buffer, readUShort(slotPosition), packed, upper, length);
+            writeShort(slotPosition, (short) upper);
+        }
+
+        int lower = HEADER_SIZE + slotCount * SLOT_SIZE;
+        System.arraycopy(packed, upper, buffer, upper, PAGE_SIZE - upper);
+        Arrays.fill(buffer, lower, upper, (byte) 0);
+        writeShort(LOWER_BOUND_OFF, (short) lower);
+        writeShort(UPPER_BOUND_OFF, (short) upper);
+        return freeSpace() - before;
+    }
+
     @Override
     public void write(byte[] data) {
         verifySignature();
@@ -126,6 +220,35 @@ public final class HeapPage implements Page {
         writeShort(UPPER_BOUND_OFF, (short) newUpper);
     }
 
+    public void reserveSlots(int count) {
+        verifySignature();
+        if (count < 0) {
+            throw new IllegalArgumentException("count must be >= 0");
+        }
+        int slotCount = readUShort(SLOT_COUNT_OFF);
+        int lower = readUShort(LOWER_BOUND_OFF);
+        if (count * SLOT_SIZE > readUShort(UPPER_BOUND_OFF) - lower) {
+            throw new IllegalArgumentException("not enough space to reserve " + count + " slots");
+        }
+        for (int i = 0; i < count; i++) {
+            int slotPosition = HEADER_SIZE + (slotCount + i) * SLOT_SIZE;
+            writeShort(slotPosition, (short) 0);
+            writeShort(slotPosition + SHORT_SIZE, (short) LP_DEAD);
+        }
+        writeShort(SLOT_COUNT_OFF, (short) (slotCount + count));
+        writeShort(LOWER_BOUND_OFF, (short) (lower + count * SLOT_SIZE));
+    }
+
+    private int slotPosition(int index) {
+        int slotCount = readUShort(SLOT_COUNT_OFF);
+        if (index < 0 || index >= slotCount) {
+            throw new IndexOutOfBoundsException(
+                    "slot index out of range: " + index + " (slotCount=" + slotCount + ")"
+            );
+        }
+        return HEADER_SIZE + index * SLOT_SIZE;
+    }
+
     private void verifySignature() {
         if (!isValid()) {
             throw new IllegalArgumentException("invalid page signature");
@@ -12,6 +12,18 @@ public interface Page {
     byte[] read(int index);
 
     void write(byte[] data);
+
+    boolean isDeleted(int index);
+
+    void delete(int index);
+
+    boolean update(int index, byte[] data);
+
+    int freeSpace();
+
+    int deadCount();
+
+    int compact();
 }
 
 
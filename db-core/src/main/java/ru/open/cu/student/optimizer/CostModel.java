@@ -0,0 +1,77 @@
+package ru.open.cu.student.optimizer;
+
+import ru.open.cu.student.index.IndexType;
+
+public final class CostModel {
+    public static final double SEQ_PAGE_COST = 1.0;
+    public static final double RANDOM_PAGE_COST = 4.0;
+    public static final double CACHED_PAGE_COST = 0.1;
+    public static final double CPU_TUPLE_COST = 0.01;
+    public static final double CPU_INDEX_TUPLE_COST = 0.005;
+
+    private static final int BTREE_DESCENT_PAGES = 3;
+    private static final int BTREE_LEAF_ENTRIES_PER_PAGE = 100;
+
+    private final int bufferPoolPages;
+
+    public CostModel(int bufferPoolPages) {
+        if (bufferPoolPages <= 0) {
+            throw new IllegalArgumentException("bufferPoolPages must be > 0");
+        }
+        this.bufferPoolPages = bufferPoolPages;
+    }
+
+    public int getBufferPoolPages() {
+        return bufferPoolPages;
+    }
+
+    public double hitRatio(long tablePages) {
+        if (tablePages <= 0) return 1.0;
+        return Math.min(1.0, (double) bufferPoolPages / tablePages);
+    }
+
+    public double seqScanCost(long pages, double rows) {
+        double hit = hitRatio(pages);
+        double pageCost = hit * CACHED_PAGE_COST + (1.0 - hit) * SEQ_PAGE_COST;
+        return Math.max(1, pages) * pageCost + rows * CPU_TUPLE_COST;
+    }
+
+    public double indexScanCost(IndexType type, long tablePages, double matchingRows) {
+        double hit = hitRatio(tablePages);
+        double randomCost = hit * CACHED_PAGE_COST + (1.0 - hit) * RANDOM_PAGE_COST;
+        int descent = type == IndexType.BTREE ? BTREE_DESCENT_PAGES : 1;
+        return descent * randomCost
+                + matchingRows * (randomCost + CPU_INDEX_TUPLE_COST + CPU_TUPLE_COST);
+    }
+
+    public double indexOnlyScanCost(long tablePages, double matchingRows) {
+        double hit = hitRatio(tablePages);
+        double randomCost = hit * CACHED_PAGE_COST + (1.0 - hit) * RANDOM_PAGE_COST;
+        double leafCost = hit * CACHED_PAGE_COST + (1.0 - hit) * SEQ_PAGE_COST;
+        return BTREE_DESCENT_PAGES * randomCost
+                + Math.ceil(matchingRows / BTREE_LEAF_ENTRIES_PER_PAGE) * leafCost
+                + matchingRows * (CPU_INDEX_TUPLE_COST + CPU_TUPLE_COST);
+    }
+
+    public double bitmapIndexScanCost(IndexType type, long tablePages, double matchingRows) {
+        double hit = hitRatio(tablePages);
+        double randomCost = hit * CACHED_PAGE_COST + (1.0 - hit) * RANDOM_PAGE_COST;
+        if (type != IndexType.BTREE) {
+            return randomCost + matchingRows * CPU_INDEX_TUPLE_COST;
+        }
+        double leafCost = hit * CACHED_PAGE_COST + (1.0 - hit) * SEQ_PAGE_COST;
+        return BTREE_DESCENT_PAGES * randomCost
+                + Math.ceil(matchingRows / BTREE_LEAF_ENTRIES_PER_PAGE) * leafCost
+                + matchingRows * CPU_INDEX_TUPLE_COST;
+    }
+
+    public double bitmapHeapScanCost(long tablePages, double matchingRows) {
+        long pages = Math.max(1, tablePages);
+        double fetched = Math.min(pages, pages * (1.0 - Math.exp(-matchingRows / pages)));
+        double hit = hitRatio(pages);
+        double randomCost = hit * CACHED_PAGE_COST + (1.0 - hit) * RANDOM_PAGE_COST;
+        double seqCost = hit * CACHED_PAGE_COST + (1.0 - hit) * SEQ_PAGE_COST;
+        double pageCost = randomCost - (randomCost - seqCost) * Math.sqrt(fetched / pages);
+        return fetched * pageCost + matchingRows * CPU_TUPLE_COST;
+    }
+}
@@ -2,24 +2,45 @@ package ru.open.cu.student.optimizer;
 
 import ru.open.cu.student.catalog.manager.CatalogManager;
 import ru.open.cu.student.catalog.model.ColumnDefinition;
+import ru.open.cu.student.catalog.model.ColumnStatistics;
 import ru.open.cu.student.catalog.model.IndexDefinition;
 import ru.open.cu.student.catalog.model.TableDefinition;
+import ru.open.cu.student.catalog.model.TableStatistics;
+import ru.open.cu.student.index.CompositeKey;
 import ru.open.cu.student.index.IndexType;
+import ru.open.cu.student.index.KeyOrder;
 import ru.open.cu.student.optimizer.node.*;
+import ru.open.cu.student.optimizer.stats.SelectivityEstimator;
 import ru.open.cu.student.planner.node.*;
+import ru.open.cu.student.sql.semantic.ResolvedAggregate;
 import ru.open.cu.student.sql.semantic.ResolvedBinaryExpr;
 import ru.open.cu.student.sql.semantic.ResolvedColumnRef;
 import ru.open.cu.student.sql.semantic.ResolvedConst;
 import ru.open.cu.student.sql.semantic.ResolvedExpr;
+import ru.open.cu.student.sql.semantic.ResolvedInList;
+import ru.open.cu.student.sql.semantic.ResolvedJoin;
+import ru.open.cu.student.sql.semantic.ResolvedParam;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 
 public final class OptimizerImpl implements Optimizer {
+    private static final int INDEX_NL_OUTER_FACTOR = 4;
+    private static final int FILTER_SELECTIVITY_DIVISOR = 4;
+
+    private static final int DEFAULT_BUFFER_POOL_PAGES = 1024;
+
     private final CatalogManager catalog;
+    private final CostModel costModel;
 
     public OptimizerImpl(CatalogManager catalog) {
+        this(catalog, new CostModel(DEFAULT_BUFFER_POOL_PAGES));
+    }
+
+    public OptimizerImpl(CatalogManager catalog, CostModel costModel) {
         this.catalog = Objects.requireNonNull(catalog, "catalog");
+        this.costModel = Objects.requireNonNull(costModel, "costModel");
     }
 
     @Override
@@ -27,7 +48,7 @@ public final class OptimizerImpl implements Optimizer {
         Objects.requireNonNull(logicalPlan, "logicalPlan");
 
         if (logicalPlan instanceof ExplainNode ex) {
-            return new PhysicalExplainNode(optimize(ex.inner()));
+            return new PhysicalExplainNode(optimize(ex.inner()), ex.analyze());
         }
 
         if (logicalPlan instanceof CreateTableNode ct) {
@@ -38,12 +59,45 @@ public final class OptimizerImpl implements Optimizer {
             return new PhysicalCreateIndexNode(ci.query());
         }
 
+        if (logicalPlan instanceof AnalyzeNode an) {
+            return new PhysicalAnalyzeNode(an.query());
+        }
+
+        if (logicalPlan instanceof VacuumNode vac) {
+            return new PhysicalVacuumNode(vac.query());
+        }
+
         if (logicalPlan instanceof InsertNode ins) {
             return new PhysicalInsertNode(ins.query());
         }
 
+        if (logicalPlan instanceof DeleteNode del) {
+            return new PhysicalDeleteNode(optimize(del.child()), del.query());
+        }
+
+        if (logicalPlan instanceof UpdateNode upd) {
+            return new PhysicalUpdateNode(optimize(upd.child()), upd.query());
+        }
+
         if (logicalPlan instanceof ProjectNode p) {
-            return new PhysicalProjectNode(optimize(p.child()), p.columns());
+            PhysicalPlanNode indexOnly = chooseIndexOnlyScan(p);
+            return new PhysicalProjectNode(indexOnly != null ? indexOnly : optimize(p.child()), p.columns());
+        }
+
+        if (logicalPlan instanceof AggregateNode agg) {
+            PhysicalPlanNode count = chooseMetadataCount(agg);
+            if (count != null) {
+                return count;
+            }
+            PhysicalPlanNode child = optimize(agg.child());
+            if (agg.groupBy().isEmpty() || isOrderedBy(child, agg.groupBy())) {
+                return new PhysicalStreamAggregateNode(child, agg.groupBy(), agg.aggregates());
+            }
+            return new PhysicalHashAggregateNode(child, agg.groupBy(), agg.aggregates());
+        }
+
+        if (logicalPlan instanceof JoinNode j) {
+            return chooseJoin(optimize(j.left()), j.join());
         }
 
         if (logicalPlan instanceof FilterNode f) {
@@ -66,7 +120,383 @@ public final class OptimizerImpl implements Optimizer {
     }
 
     private PhysicalPlanNode chooseBestScan(TableDefinition table, ResolvedExpr predicate) {
-        
+        TableStatistics stats = catalog.getTableStatistics(table);
+        if (stats == null) {
+            return chooseBestScanByRule(table, predicate);
+        }
+
+        long pages = Math.max(1, table.getPagesCount());
+        double rows = estimateRowCount(table, stats);
+
+        PhysicalPlanNode best = new PhysicalSeqScanNode(table);
+        double bestCost = costModel.seqScanCost(pages, rows);
+
+        Equality eq = extractEquality(predicate);
+        if (eq != null) {
+            IndexDefinition idx = findIndex(table, eq.column, IndexType.HASH);
+            if (idx != null) {
+                double sel = SelectivityEstimator.equality(catalog.getColumnStatistics(eq.column), eq.value);
+                double cost = costModel.indexScanCost(IndexType.HASH, pages, rows * sel);
+                if (cost < bestCost) {
+                    best = new PhysicalHashIndexScanNode(table, idx, eq.value);
+                    bestCost = cost;
+                }
+            }
+        }
+
+        IndexRange range = bestBTreeRange(table, predicate, null);
+        if (range != null) {
+            double cost = costModel.indexScanCost(IndexType.BTREE, pages, rows * range.selectivity);
+            if (cost < bestCost) {
+                best = range.scan(table, false);
+                bestCost = cost;
+            }
+        }
+
+        MultiRange multi = bestMultiRange(table, predicate);
+        if (multi != null) {
+            double cost = 0;
+            for (double sel : multi.selectivities) {
+                cost += costModel.indexScanCost(multi.index.getIndexType(), pages, rows * sel);
+            }
+            if (cost < bestCost) {
+                best = multi.scan(table);
+                bestCost = cost;
+            }
+        }
+
+        BitmapPath bitmap = chooseBitmapPath(table, predicate, pages, rows);
+        if (bitmap != null) {
+            double cost = bitmap.indexCost + costModel.bitmapHeapScanCost(pages, rows * bitmap.selectivity);
+            if (cost < bestCost) {
+                best = new PhysicalBitmapHeapScanNode(table, bitmap.node);
+            }
+        }
+
+        return best;
+    }
+
+    private BitmapPath chooseBitmapPath(TableDefinition table, ResolvedExpr predicate, long pages, double rows) {
+        List<ResolvedExpr> conjuncts = new ArrayList<>();
+        collectConjuncts(predicate, conjuncts);
+
+        List<BitmapPath> candidates = new ArrayList<>();
+        for (IndexDefinition idx : catalog.listIndexes(table)) {
+            BitmapPath path = indexPath(table, idx, conjuncts, pages, rows);
+            if (path != null) {
+                candidates.add(path);
+            }
+        }
+        for (ResolvedExpr conjunct : conjuncts) {
+            BitmapPath path = orPath(table, conjunct, pages, rows);
+            if (path != null) {
+                candidates.add(path);
+            }
+        }
+        if (candidates.isEmpty()) {
+            return null;
+        }
+        candidates.sort((a, b) -> Double.compare(a.selectivity, b.selectivity));
+
+        List<PhysicalPlanNode> inputs = new ArrayList<>();
+        double selectivity = 1.0;
+        double indexCost = 0;
+        double bestCost = Double.MAX_VALUE;
+        for (BitmapPath path : candidates) {
+            double cost = indexCost + path.indexCost + costModel.bitmapHeapScanCost(pages, rows * selectivity * path.selectivity);
+            if (cost >= bestCost) break;
+            inputs.add(path.node);
+            selectivity *= path.selectivity;
+            indexCost += path.indexCost;
+            bestCost = cost;
+        }
+        if (inputs.size() == 1 && inputs.get(0) instanceof PhysicalBitmapIndexScanNode && costModel.hitRatio(pages) >= 1.0) {
+            return null;
+        }
+        PhysicalPlanNode node = inputs.size() == 1 ? inputs.get(0) : new PhysicalBitmapAndNode(inputs);
+        return new BitmapPath(node, selectivity, indexCost);
+    }
+
+    private BitmapPath indexPath(TableDefinition table, IndexDefinition idx, List<ResolvedExpr> conjuncts, long pages, double rows) {
+        if (idx.getIndexType() == IndexType.HASH) {
+            for (ResolvedExpr conjunct : conjuncts) {
+                Equality eq = extractEquality(conjunct);
+                if (eq != null && eq.column.getOid() == idx.getColumnOid()) {
+                    double sel = SelectivityEstimator.equality(catalog.getColumnStatistics(eq.column), eq.value);
+                    return new BitmapPath(
+                            new PhysicalBitmapIndexScanNode(table, idx, eq.value),
+                            sel,
+                            costModel.bitmapIndexScanCost(IndexType.HASH, pages, rows * sel)
+                    );
+                }
+            }
+            return null;
+        }
+        IndexRange range = prefixRange(idx, conjuncts);
+        if (range == null) {
+            return null;
+        }
+        return new BitmapPath(
+                range.bitmapScan(table),
+                range.selectivity,
+                costModel.bitmapIndexScanCost(IndexType.BTREE, pages, rows * range.selectivity)
+        );
+    }
+
+    private BitmapPath orPath(TableDefinition table, ResolvedExpr predicate, long pages, double rows) {
+        List<ResolvedExpr> disjuncts = new ArrayList<>();
+        collectDisjuncts(predicate, disjuncts);
+        if (disjuncts.size() < 2) {
+            return null;
+        }
+
+        List<PhysicalPlanNode> inputs = new ArrayList<>();
+        double miss = 1.0;
+        double indexCost = 0;
+        for (ResolvedExpr disjunct : disjuncts) {
+            List<ResolvedExpr> conjuncts = new ArrayList<>();
+            collectConjuncts(disjunct, conjuncts);
+            BitmapPath best = null;
+            for (IndexDefinition idx : catalog.listIndexes(table)) {
+                BitmapPath path = indexPath(table, idx, conjuncts, pages, rows);
+                if (path != null && (best == null || path.selectivity < best.selectivity)) {
+                    best = path;
+                }
+            }
+            if (best == null) {
+                return null;
+            }
+            inputs.add(best.node);
+            miss *= 1.0 - best.selectivity;
+            indexCost += best.indexCost;
+        }
+        return new BitmapPath(new PhysicalBitmapOrNode(inputs), 1.0 - miss, indexCost);
+    }
+
+    private PhysicalPlanNode chooseIndexOnlyScan(ProjectNode p) {
+        if (!(p.child() instanceof FilterNode f) || !(f.child() instanceof ScanNode scan)) {
+            return null;
+        }
+        List<ColumnDefinition> needed = new ArrayList<>(p.columns());
+        if (!collectColumns(f.predicate(), needed)) {
+            return null;
+        }
+        IndexRange range = bestBTreeRange(scan.table(), f.predicate(), needed);
+        if (range == null) {
+            return null;
+        }
+
+        TableDefinition table = scan.table();
+        TableStatistics stats = catalog.getTableStatistics(table);
+        if (stats != null) {
+            long pages = Math.max(1, table.getPagesCount());
+            double rows = estimateRowCount(table, stats);
+            double cost = costModel.indexOnlyScanCost(pages, rows * range.selectivity);
+            if (cost >= costModel.seqScanCost(pages, rows)) {
+                return null;
+            }
+        }
+
+        return new PhysicalFilterNode(range.scan(table, true), f.predicate());
+    }
+
+    private double rangeSelectivity(Range range) {
+        if (range.from instanceof ResolvedParam || range.to instanceof ResolvedParam) {
+            return SelectivityEstimator.DEFAULT_RANGE_SELECTIVITY;
+        }
+        return SelectivityEstimator.range(
+                catalog.getColumnStatistics(range.column),
+                range.from, range.fromInclusive, range.to, range.toInclusive
+        );
+    }
+
+    private IndexRange bestBTreeRange(TableDefinition table, ResolvedExpr predicate, List<ColumnDefinition> needed) {
+        List<ResolvedExpr> conjuncts = new ArrayList<>();
+        collectConjuncts(predicate, conjuncts);
+
+        IndexRange best = null;
+        for (IndexDefinition idx : catalog.listIndexes(table)) {
+            if (idx.getIndexType() != IndexType.BTREE) continue;
+            if (needed != null && !needed.stream().allMatch(c -> idx.covers(c.getOid()))) continue;
+            IndexRange range = prefixRange(idx, conjuncts);
+            if (range != null && (best == null || range.columns > best.columns)) {
+                best = range;
+            }
+        }
+        return best;
+    }
+
+    private IndexRange prefixRange(IndexDefinition idx, List<ResolvedExpr> conjuncts) {
+        List<Object> prefix = new ArrayList<>();
+        Range tail = null;
+        double selectivity = 1.0;
+        for (int columnOid : idx.getColumnOids()) {
+            Range r = columnRange(conjuncts, columnOid);
+            if (r == null) break;
+            selectivity *= rangeSelectivity(r);
+            if (r.from != null && r.fromInclusive && r.toInclusive && r.from.equals(r.to)) {
+                prefix.add(r.from);
+                continue;
+            }
+            tail = r;
+            break;
+        }
+        if (prefix.isEmpty() && tail == null) {
+            return null;
+        }
+
+        IndexRange out = new IndexRange(idx, prefix.size() + (tail == null ? 0 : 1), selectivity);
+        if (tail == null) {
+            out.from = out.to = boundKey(prefix, null);
+            out.fromInclusive = out.toInclusive = true;
+            return out;
+        }
+        out.from = boundKey(prefix, tail.from);
+        out.fromInclusive = tail.from == null || tail.fromInclusive;
+        out.to = boundKey(prefix, tail.to);
+        out.toInclusive = tail.to == null || tail.toInclusive;
+        return out;
+    }
+
+    private static Object boundKey(List<Object> prefix, Object last) {
+        List<Object> values = new ArrayList<>(prefix);
+        if (last != null) values.add(last);
+        if (values.isEmpty()) return null;
+        return values.size() == 1 ? values.get(0) : new CompositeKey(values);
+    }
+
+    private static Range columnRange(List<ResolvedExpr> conjuncts, int columnOid) {
+        Range out = null;
+        for (ResolvedExpr conjunct : conjuncts) {
+            Range r = extractRange(conjunct);
+            if (r == null || r.column.getOid() != columnOid) continue;
+            out = out == null ? r : mergeRanges(out, r);
+            if (out == null) return null;
+        }
+        return out;
+    }
+
+    private static void collectConjuncts(ResolvedExpr predicate, List<ResolvedExpr> out) {
+        if (predicate instanceof ResolvedBinaryExpr b && b.op().equals("AND")) {
+            collectConjuncts(b.left(), out);
+            collectConjuncts(b.right(), out);
+        } else {
+            out.add(predicate);
+        }
+    }
+
+    private MultiRange bestMultiRange(TableDefinition table, ResolvedExpr predicate) {
+        List<ResolvedExpr> conjuncts = new ArrayList<>();
+        collectConjuncts(predicate, conjuncts);
+
+        MultiRange best = null;
+        for (ResolvedExpr conjunct : conjuncts) {
+            List<Range> ranges = disjunctRanges(conjunct);
+            if (ranges == null) continue;
+            ColumnDefinition column = ranges.get(0).column;
+            boolean points = ranges.stream().allMatch(r -> r.from != null && r.fromInclusive && r.toInclusive && r.from.equals(r.to));
+            IndexDefinition idx = findIndex(table, column, IndexType.BTREE);
+            if (idx == null && points) {
+                idx = findIndex(table, column, IndexType.HASH);
+            }
+            if (idx == null) continue;
+
+            List<KeyRange> keyRanges = new ArrayList<>(ranges.size());
+            boolean constant = true;
+            for (Range r : ranges) {
+                keyRanges.add(new KeyRange(r.from, r.fromInclusive, r.to, r.toInclusive));
+                constant &= !(r.from instanceof ResolvedParam) && !(r.to instanceof ResolvedParam);
+            }
+            if (constant && idx.getIndexType() == IndexType.BTREE) {
+                keyRanges = KeyRange.normalize(keyRanges);
+            }
+            MultiRange candidate = new MultiRange(idx, keyRanges);
+            ColumnStatistics stats = catalog.getColumnStatistics(column);
+            for (KeyRange r : keyRanges) {
+                double sel;
+                if (r.isPoint()) {
+                    sel = SelectivityEstimator.equality(stats, r.from());
+                } else if (r.from() instanceof ResolvedParam || r.to() instanceof ResolvedParam) {
+                    sel = SelectivityEstimator.DEFAULT_RANGE_SELECTIVITY;
+                } else {
+                    sel = SelectivityEstimator.range(stats, r.from(), r.fromInclusive(), r.to(), r.toInclusive());
+                }
+                candidate.selectivities.add(sel);
+                candidate.selectivity += sel;
+            }
+            if (best == null || candidate.selectivity < best.selectivity) {
+                best = candidate;
+            }
+        }
+        return best;
+    }
+
+    private static List<Range> disjunctRanges(ResolvedExpr predicate) {
+        List<ResolvedExpr> disjuncts = new ArrayList<>();
+        collectDisjuncts(predicate, disjuncts);
+        if (disjuncts.size() < 2 && !(predicate instanceof ResolvedInList)) {
+            return null;
+        }
+
+        List<Range> out = new ArrayList<>();
+        for (ResolvedExpr disjunct : disjuncts) {
+            if (disjunct instanceof ResolvedInList in) {
+                if (!(in.operand() instanceof ResolvedColumnRef c)) return null;
+                for (ResolvedExpr v : in.values()) {
+                    if (!isValue(v)) return null;
+                    Range r = new Range(c.column());
+                    r.from = r.to = valueOf(v);
+                    r.fromInclusive = r.toInclusive = true;
+                    out.add(r);
+                }
+                continue;
+            }
+            Range r = extractRange(disjunct);
+            if (r == null) return null;
+            out.add(r);
+        }
+        int columnOid = out.get(0).column.getOid();
+        for (Range r : out) {
+            if (r.column.getOid() != columnOid) return null;
+        }
+        return out;
+    }
+
+    private static void collectDisjuncts(ResolvedExpr predicate, List<ResolvedExpr> out) {
+        if (predicate instanceof ResolvedBinaryExpr b && b.op().equals("OR")) {
+            collectDisjuncts(b.left(), out);
+            collectDisjuncts(b.right(), out);
+        } else {
+            out.add(predicate);
+        }
+    }
+
+    private static boolean collectColumns(ResolvedExpr expr, List<ColumnDefinition> out) {
+        if (expr instanceof ResolvedColumnRef c) {
+            out.add(c.column());
+            return true;
+        }
+        if (expr instanceof ResolvedBinaryExpr b) {
+            return collectColumns(b.left(), out) && collectColumns(b.right(), out);
+        }
+        if (expr instanceof ResolvedInList in) {
+            boolean ok = collectColumns(in.operand(), out);
+            for (ResolvedExpr v : in.values()) {
+                ok &= collectColumns(v, out);
+            }
+            return ok;
+        }
+        return expr instanceof ResolvedConst || expr instanceof ResolvedParam;
+    }
+
+    private static double estimateRowCount(TableDefinition table, TableStatistics stats) {
+        if (stats.getPagesCount() == 0) {
+            return table.getPagesCount() == 0 ? 0 : stats.getRowCount();
+        }
+        return (double) stats.getRowCount() * table.getPagesCount() / stats.getPagesCount();
+    }
+
+    private PhysicalPlanNode chooseBestScanByRule(TableDefinition table, ResolvedExpr predicate) {
         Equality eq = extractEquality(predicate);
         if (eq != null) {
             IndexDefinition idx = findIndex(table, eq.column, IndexType.HASH);
@@ -76,24 +506,120 @@ public final class OptimizerImpl implements Optimizer {
         }
 
         
-        Range range = extractRange(predicate);
+        IndexRange range = bestBTreeRange(table, predicate, null);
         if (range != null) {
-            IndexDefinition idx = findIndex(table, range.column, IndexType.BTREE);
-            if (idx != null) {
-                return new PhysicalBTreeIndexScanNode(
-                        table,
-                        idx,
-                        range.from,
-                        range.fromInclusive,
-                        range.to,
-                        range.toInclusive
-                );
+            return range.scan(table, false);
+        }
+
+        MultiRange multi = bestMultiRange(table, predicate);
+        if (multi != null) {
+            return multi.scan(table);
+        }
+
+        List<ResolvedExpr> conjuncts = new ArrayList<>();
+        collectConjuncts(predicate, conjuncts);
+        for (ResolvedExpr conjunct : conjuncts) {
+            BitmapPath path = orPath(table, conjunct, 1, 0);
+            if (path != null) {
+                return new PhysicalBitmapHeapScanNode(table, path.node);
             }
         }
 
         return new PhysicalSeqScanNode(table);
     }
 
+    private PhysicalPlanNode chooseJoin(PhysicalPlanNode left, ResolvedJoin join) {
+        TableDefinition table = join.table();
+        long leftPages = estimatePages(left);
+        long rightPages = Math.max(1, table.getPagesCount());
+
+        IndexDefinition probeIdx = findIndex(table, join.rightKey(), IndexType.HASH);
+        if (probeIdx == null) {
+            probeIdx = findIndex(table, join.rightKey(), IndexType.BTREE);
+        }
+        if (probeIdx != null && leftPages * INDEX_NL_OUTER_FACTOR <= rightPages) {
+            return new PhysicalIndexNestedLoopJoinNode(left, join, probeIdx);
+        }
+
+        IndexDefinition rightBTree = findIndex(table, join.rightKey(), IndexType.BTREE);
+        if (rightBTree != null && isOrderedBy(left, List.of(join.leftKey()))) {
+            PhysicalPlanNode right = new PhysicalBTreeIndexScanNode(table, rightBTree, null, false, null, false);
+            return new PhysicalMergeJoinNode(left, right, join);
+        }
+
+        return new PhysicalHashJoinNode(left, new PhysicalSeqScanNode(table), join, leftPages < rightPages);
+    }
+
+    private static long estimatePages(PhysicalPlanNode node) {
+        if (node instanceof PhysicalSeqScanNode scan) {
+            return Math.max(1, scan.table().getPagesCount());
+        }
+        if (node instanceof PhysicalHashIndexScanNode) {
+            return 1;
+        }
+        if (node instanceof PhysicalBTreeIndexScanNode scan) {
+            long pages = Math.max(1, scan.table().getPagesCount());
+            boolean bounded = scan.from() != null || scan.to() != null;
+            return bounded ? Math.max(1, pages / FILTER_SELECTIVITY_DIVISOR) : pages;
+        }
+        if (node instanceof PhysicalBitmapHeapScanNode scan) {
+            return Math.max(1, scan.table().getPagesCount() / FILTER_SELECTIVITY_DIVISOR);
+        }
+        if (node instanceof PhysicalMultiRangeIndexScanNode scan) {
+            return Math.max(1, scan.table().getPagesCount() / FILTER_SELECTIVITY_DIVISOR);
+        }
+        if (node instanceof PhysicalFilterNode f) {
+            long child = estimatePages(f.child());
+            boolean indexed = f.child() instanceof PhysicalHashIndexScanNode || f.child() instanceof PhysicalBTreeIndexScanNode
+                    || f.child() instanceof PhysicalBitmapHeapScanNode || f.child() instanceof PhysicalMultiRangeIndexScanNode;
+            return indexed ? child : Math.max(1, child / FILTER_SELECTIVITY_DIVISOR);
+        }
+        if (node instanceof PhysicalIndexNestedLoopJoinNode j) {
+            return Math.max(estimatePages(j.left()), Math.max(1, j.join().table().getPagesCount()));
+        }
+        long max = 1;
+        for (PhysicalPlanNode child : node.children()) {
+            max = Math.max(max, estimatePages(child));
+        }
+        return max;
+    }
+
+    private PhysicalPlanNode chooseMetadataCount(AggregateNode agg) {
+        if (!agg.groupBy().isEmpty() || agg.aggregates().isEmpty() || !agg.aggregates().stream().allMatch(ResolvedAggregate::isCountStar)) {
+            return null;
+        }
+        if (agg.child() instanceof ScanNode scan) {
+            return new PhysicalMetadataCountNode(scan.table(), agg.aggregates());
+        }
+        if (agg.child() instanceof FilterNode f && f.child() instanceof ScanNode scan) {
+            Equality eq = extractEquality(f.predicate());
+            if (eq == null) return null;
+            IndexDefinition idx = findIndex(scan.table(), eq.column, IndexType.HASH);
+            if (idx == null) {
+                idx = findIndex(scan.table(), eq.column, IndexType.BTREE);
+            }
+            if (idx != null) {
+                return new PhysicalIndexCountNode(scan.table(), idx, eq.value, agg.aggregates());
+            }
+        }
+        return null;
+    }
+
+    private static boolean isOrderedBy(PhysicalPlanNode node, List<ColumnDefinition> keys) {
+        if (keys.size() != 1) return false;
+        int keyOid = keys.get(0).getOid();
+        if (node instanceof PhysicalBTreeIndexScanNode scan) {
+            return scan.index().getColumnOid() == keyOid;
+        }
+        if (node instanceof PhysicalMultiRangeIndexScanNode scan) {
+            return scan.index().getIndexType() == IndexType.BTREE && scan.index().getColumnOid() == keyOid;
+        }
+        if (node instanceof PhysicalFilterNode f) {
+            return isOrderedBy(f.child(), keys);
+        }
+        return false;
+    }
+
     private IndexDefinition findIndex(TableDefinition table, ColumnDefinition column, IndexType type) {
         List<IndexDefinition> indexes = catalog.listIndexes(table);
         for (IndexDefinition idx : indexes) {
@@ -118,11 +644,11 @@ public final class OptimizerImpl implements Optimizer {
         if (!(predicate instanceof ResolvedBinaryExpr b)) return null;
         if (!b.op().equals("=")) return null;
 
-        if (b.left() instanceof ResolvedColumnRef c && b.right() instanceof ResolvedConst k) {
-            return new Equality(c.column(), k.value());
+        if (b.left() instanceof ResolvedColumnRef c && isValue(b.right())) {
+            return new Equality(c.column(), valueOf(b.right()));
         }
-        if (b.right() instanceof ResolvedColumnRef c && b.left() instanceof ResolvedConst k) {
-            return new Equality(c.column(), k.value());
+        if (b.right() instanceof ResolvedColumnRef c && isValue(b.left())) {
+            return new Equality(c.column(), valueOf(b.left()));
         }
         return null;
     }
@@ -139,6 +665,58 @@ public final class OptimizerImpl implements Optimizer {
         }
     }
 
+    private static final class IndexRange {
+        final IndexDefinition index;
+        final int columns;
+        final double selectivity;
+        Object from;
+        boolean fromInclusive;
+        Object to;
+        boolean toInclusive;
+
+        IndexRange(IndexDefinition index, int columns, double selectivity) {
+            this.index = index;
+            this.columns = columns;
+            this.selectivity = selectivity;
+        }
+
+        PhysicalBTreeIndexScanNode scan(TableDefinition table, boolean indexOnly) {
+            return new PhysicalBTreeIndexScanNode(table, index, from, fromInclusive, to, toInclusive, indexOnly);
+        }
+
+        PhysicalBitmapIndexScanNode bitmapScan(TableDefinition table) {
+            return new PhysicalBitmapIndexScanNode(table, index, from, fromInclusive, to, toInclusive);
+        }
+    }
+
+    private static final class MultiRange {
+        final IndexDefinition index;
+        final List<KeyRange> ranges;
+        final List<Double> selectivities = new ArrayList<>();
+        double selectivity;
+
+        MultiRange(IndexDefinition index, List<KeyRange> ranges) {
+            this.index = index;
+            this.ranges = ranges;
+        }
+
+        PhysicalMultiRangeIndexScanNode scan(TableDefinition table) {
+            return new PhysicalMultiRangeIndexScanNode(table, index, ranges);
+        }
+    }
+
+    private static final class BitmapPath {
+        final PhysicalPlanNode node;
+        final double selectivity;
+        final double indexCost;
+
+        BitmapPath(PhysicalPlanNode node, double selectivity, double indexCost) {
+            this.node = node;
+            this.selectivity = selectivity;
+            this.indexCost = indexCost;
+        }
+    }
+
     private static Range extractRange(ResolvedExpr predicate) {
         
         if (predicate instanceof ResolvedBinaryExpr b && b.op().equals("AND")) {
@@ -147,54 +725,7 @@ public final class OptimizerImpl implements Optimizer {
             if (left == null) return right;
             if (right == null) return left;
             if (left.column.getOid() != right.column.getOid()) return null;
-
-            Range merged = new Range(left.column);
-            
-            if (left.from == null) {
-                merged.from = right.from;
-                merged.fromInclusive = right.fromInclusive;
-            } else if (right.from == null) {
-                merged.from = left.from;
-                merged.fromInclusive = left.fromInclusive;
-            } else {
-                int c = cmp(left.from, right.from);
-                if (c > 0) {
-                    merged.from = left.from;
-                    merged.fromInclusive = left.fromInclusive;
-                } else if (c < 0) {
-                    merged.from = right.from;
-                    merged.fromInclusive = right.fromInclusive;
-                } else {
-                    merged.from = left.from;
-                    merged.fromInclusive = left.fromInclusive && right.fromInclusive;
-                }
-            }
-
-            
-            if (left.to == null) {
-                merged.to = right.to;
-                merged.toInclusive = right.toInclusive;
-            } else if (right.to == null) {
-                merged.to = left.to;
-                merged.toInclusive = left.toInclusive;
-            } else {
-                int c = cmp(left.to, right.to);
-                if (c < 0) {
-                    merged.to = left.to;
-                    merged.toInclusive = left.toInclusive;
-                } else if (c > 0) {
-                    merged.to = right.to;
-                    merged.toInclusive = right.toInclusive;
-                } else {
-                    merged.to = left.to;
-                    merged.toInclusive = left.toInclusive && right.toInclusive;
-                }
-            }
-
-            if (merged.from != null && merged.to != null && cmp(merged.from, merged.to) > 0) {
-                return null;
-            }
-            return merged;
+            return mergeRanges(left, right);
         }
 
         if (!(predicate instanceof ResolvedBinaryExpr b)) return null;
@@ -205,12 +736,12 @@ public final class OptimizerImpl implements Optimizer {
         Object constant;
         String normOp = op;
 
-        if (b.left() instanceof ResolvedColumnRef c && b.right() instanceof ResolvedConst k) {
+        if (b.left() instanceof ResolvedColumnRef c && isValue(b.right())) {
             col = c.column();
-            constant = k.value();
-        } else if (b.right() instanceof ResolvedColumnRef c && b.left() instanceof ResolvedConst k) {
+            constant = valueOf(b.right());
+        } else if (b.right() instanceof ResolvedColumnRef c && isValue(b.left())) {
             col = c.column();
-            constant = k.value();
+            constant = valueOf(b.left());
             normOp = invert(op);
         } else {
             return null;
@@ -247,9 +778,72 @@ public final class OptimizerImpl implements Optimizer {
         return r;
     }
 
-    @SuppressWarnings("unchecked")
+    private static Range mergeRanges(Range left, Range right) {
+        Range merged = new Range(left.column);
+
+        if (left.from == null) {
+            merged.from = right.from;
+            merged.fromInclusive = right.fromInclusive;
+        } else if (right.from == null) {
+            merged.from = left.from;
+            merged.fromInclusive = left.fromInclusive;
+        } else if (left.from instanceof ResolvedParam || right.from instanceof ResolvedParam) {
+            return null;
+        } else {
+            int c = cmp(left.from, right.from);
+            if (c > 0) {
+                merged.from = left.from;
+                merged.fromInclusive = left.fromInclusive;
+            } else if (c < 0) {
+                merged.from = right.from;
+                merged.fromInclusive = right.fromInclusive;
+            } else {
+                merged.from = left.from;
+                merged.fromInclusive = left.fromInclusive && right.fromInclusive;
+            }
+        }
+
+
+        if (left.to == null) {
+            merged.to = right.to;
+            merged.toInclusive = right.toInclusive;
+        } else if (right.to == null) {
+            merged.to = left.to;
+            merged.toInclusive = left.toInclusive;
+        } else if (left.to instanceof ResolvedParam || right.to instanceof ResolvedParam) {
+            return null;
+        } else {
+            int c = cmp(left.to, right.to);
+            if (c < 0) {
+                merged.to = left.to;
+                merged.toInclusive = left.toInclusive;
+            } else if (c > 0) {
+                merged.to = right.to;
+                merged.toInclusive = right.toInclusive;
+            } else {
+                merged.to = left.to;
+                merged.toInclusive = left.toInclusive && right.toInclusive;
+            }
+        }
+
+        if (merged.from != null && merged.to != null
+                && !(merged.from instanceof ResolvedParam) && !(merged.to instanceof ResolvedParam)
+                && cmp(merged.from, merged.to) > 0) {
+            return null;
+        }
+        return merged;
+    }
+
+    private static boolean isValue(ResolvedExpr expr) {
+        return expr instanceof ResolvedConst || expr instanceof ResolvedParam;
+    }
+
+    private static Object valueOf(ResolvedExpr expr) {
+        return expr instanceof ResolvedConst k ? k.value() : expr;
+    }
+
     private static int cmp(Object a, Object b) {
-        return ((Comparable<Object>) a).compareTo(b);
+        return KeyOrder.compare(a, b);
     }
 
     private static boolean isComparison(String op) {
@@ -0,0 +1,272 @@
+package ru.open.cu.student.optimizer;
+
+import ru.open.cu.student.index.CompositeKey;
+import ru.open.cu.student.optimizer.node.*;
+import ru.open.cu.student.sql.semantic.DeleteQueryTree;
+import ru.open.cu.student.sql.semantic.ExprType;
+import ru.open.cu.student.sql.semantic.InsertQueryTree;
+import ru.open.cu.student.sql.semantic.ResolvedBinaryExpr;
+import ru.open.cu.student.sql.semantic.ResolvedConst;
+import ru.open.cu.student.sql.semantic.ResolvedExpr;
+import ru.open.cu.student.sql.semantic.ResolvedInList;
+import ru.open.cu.student.sql.semantic.ResolvedParam;
+import ru.open.cu.student.sql.semantic.SqlSemanticException;
+import ru.open.cu.student.sql.semantic.UpdateQueryTree;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+public final class ParameterBinder {
+    private ParameterBinder() {
+    }
+
+    public static List<ExprType> parameterTypes(PhysicalPlanNode plan) {
+        Objects.requireNonNull(plan, "plan");
+        Map<Integer, ExprType> types = new TreeMap<>();
+        collect(plan, types);
+
+        List<ExprType> out = new ArrayList<>(types.size());
+        for (Map.Entry<Integer, ExprType> e : types.entrySet()) {
+            if (e.getKey() != out.size() + 1) {
+                throw new SqlSemanticException("Missing parameter $" + (out.size() + 1), null, null, null);
+            }
+            out.add(e.getValue());
+        }
+        return Collections.unmodifiableList(out);
+    }
+
+    public static PhysicalPlanNode bind(PhysicalPlanNode plan, List<ExprType> types, List<Object> params) {
+        Objects.requireNonNull(plan, "plan");
+        Objects.requireNonNull(types, "types");
+        Objects.requireNonNull(params, "params");
+        if (params.size() != types.size()) {
+            throw new IllegalArgumentException("Expected " + types.size() + " parameters, got " + params.size());
+        }
+        if (types.isEmpty()) {
+            return plan;
+        }
+
+        List<Object> values = new ArrayList<>(params.size());
+        for (int i = 0; i < params.size(); i++) {
+            values.add(convert(i + 1, types.get(i), params.get(i)));
+        }
+        return bindNode(plan, values);
+    }
+
+    private static Object convert(int index, ExprType type, Object value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Parameter $" + index + " is null");
+        }
+        return switch (type) {
+            case INT64 -> {
+                if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+                    yield ((Number) value).longValue();
+                }
+                throw new IllegalArgumentException("Parameter $" + index + " must be INT64, got " + value.getClass().getSimpleName());
+            }
+            case VARCHAR -> {
+                if (value instanceof String) {
+                    yield value;
+                }
+                throw new IllegalArgumentException("Parameter $" + index + " must be VARCHAR, got " + value.getClass().getSimpleName());
+            }
+            default -> throw new IllegalArgumentException("Unsupported parameter type: " + type);
+        };
+    }
+
+    private static void collect(PhysicalPlanNode node, Map<Integer, ExprType> types) {
+        if (node instanceof PhysicalFilterNode f) {
+            collect(f.predicate(), types);
+        } else if (node instanceof PhysicalHashIndexScanNode scan) {
+            collect(scan.value(), types);
+        } else if (node instanceof PhysicalBTreeIndexScanNode scan) {
+            collect(scan.from(), types);
+            collect(scan.to(), types);
+        } else if (node instanceof PhysicalMultiRangeIndexScanNode scan) {
+            for (KeyRange r : scan.ranges()) {
+                collect(r.from(), types);
+                collect(r.to(), types);
+            }
+        } else if (node instanceof PhysicalBitmapIndexScanNode scan) {
+            collect(scan.from(), types);
+            collect(scan.to(), types);
+        } else if (node instanceof PhysicalIndexCountNode count) {
+            collect(count.value(), types);
+        } else if (node instanceof PhysicalInsertNode ins) {
+            for (Object v : ins.query().values()) {
+                collect(v, types);
+            }
+        } else if (node instanceof PhysicalDeleteNode del) {
+            collect(del.query().filter(), types);
+        } else if (node instanceof PhysicalUpdateNode upd) {
+            for (Object v : upd.query().setValues()) {
+                collect(v, types);
+            }
+            collect(upd.query().filter(), types);
+        }
+        for (PhysicalPlanNode child : node.children()) {
+            collect(child, types);
+        }
+    }
+
+    private static void collect(Object value, Map<Integer, ExprType> types) {
+        if (value instanceof ResolvedParam p) {
+            ExprType prev = types.putIfAbsent(p.index(), p.exprType());
+            if (prev != null && prev != p.exprType()) {
+                throw new SqlSemanticException(
+                        "Conflicting types for parameter $" + p.index() + ": " + prev + " vs " + p.exprType(),
+                        null, null, null
+                );
+            }
+        } else if (value instanceof ResolvedBinaryExpr b) {
+            collect(b.left(), types);
+            collect(b.right(), types);
+        } else if (value instanceof ResolvedInList in) {
+            collect(in.operand(), types);
+            for (ResolvedExpr v : in.values()) {
+                collect(v, types);
+            }
+        } else if (value instanceof CompositeKey key) {
+            for (Object v : key.values()) {
+                collect(v, types);
+            }
+        }
+    }
+
+    private static PhysicalPlanNode bindNode(PhysicalPlanNode node, List<Object> values) {
+        if (node instanceof PhysicalExplainNode ex) {
+            return new PhysicalExplainNode(bindNode(ex.inner(), values), ex.analyze());
+        }
+        if (node instanceof PhysicalInsertNode ins) {
+            InsertQueryTree q = ins.query();
+            List<Object> bound = new ArrayList<>(q.values().size());
+            for (Object v : q.values()) {
+                bound.add(bindValue(v, values));
+            }
+            return new PhysicalInsertNode(new InsertQueryTree(q.table(), q.columns(), bound));
+        }
+        if (node instanceof PhysicalDeleteNode del) {
+            DeleteQueryTree q = del.query();
+            return new PhysicalDeleteNode(
+                    bindNode(del.child(), values),
+                    new DeleteQueryTree(q.table(), q.columns(), bindExpr(q.filter(), values))
+            );
+        }
+        if (node instanceof PhysicalUpdateNode upd) {
+            UpdateQueryTree q = upd.query();
+            List<Object> bound = new ArrayList<>(q.setValues().size());
+            for (Object v : q.setValues()) {
+                bound.add(bindValue(v, values));
+            }
+            return new PhysicalUpdateNode(
+                    bindNode(upd.child(), values),
+                    new UpdateQueryTree(q.table(), q.columns(), q.setColumns(), bound, bindExpr(q.filter(), values))
+            );
+        }
+        if (node instanceof PhysicalProjectNode p) {
+            return new PhysicalProjectNode(bindNode(p.child(), values), p.columns());
+        }
+        if (node instanceof PhysicalFilterNode f) {
+            return new PhysicalFilterNode(bindNode(f.child(), values), bindExpr(f.predicate(), values));
+        }
+        if (node instanceof PhysicalHashAggregateNode agg) {
+            return new PhysicalHashAggregateNode(bindNode(agg.child(), values), agg.groupBy(), agg.aggregates());
+        }
+        if (node instanceof PhysicalStreamAggregateNode agg) {
+            return new PhysicalStreamAggregateNode(bindNode(agg.child(), values), agg.groupBy(), agg.aggregates());
+        }
+        if (node instanceof PhysicalHashJoinNode j) {
+            return new PhysicalHashJoinNode(bindNode(j.left(), values), bindNode(j.right(), values), j.join(), j.buildLeft());
+        }
+        if (node instanceof PhysicalMergeJoinNode j) {
+            return new PhysicalMergeJoinNode(bindNode(j.left(), values), bindNode(j.right(), values), j.join());
+        }
+        if (node instanceof PhysicalIndexNestedLoopJoinNode j) {
+            return new PhysicalIndexNestedLoopJoinNode(bindNode(j.left(), values), j.join(), j.index());
+        }
+        if (node instanceof PhysicalIndexCountNode count) {
+            return new PhysicalIndexCountNode(count.table(), count.index(), bindValue(count.value(), values), count.aggregates());
+        }
+        if (node instanceof PhysicalHashIndexScanNode scan) {
+            return new PhysicalHashIndexScanNode(scan.table(), scan.index(), bindValue(scan.value(), values));
+        }
+        if (node instanceof PhysicalBTreeIndexScanNode scan) {
+            return new PhysicalBTreeIndexScanNode(
+                    scan.table(),
+                    scan.index(),
+                    bindValue(scan.from(), values),
+                    scan.fromInclusive(),
+                    bindValue(scan.to(), values),
+                    scan.toInclusive(),
+                    scan.indexOnly()
+            );
+        }
+        if (node instanceof PhysicalMultiRangeIndexScanNode scan) {
+            List<KeyRange> ranges = new ArrayList<>(scan.ranges().size());
+            for (KeyRange r : scan.ranges()) {
+                ranges.add(new KeyRange(bindValue(r.from(), values), r.fromInclusive(), bindValue(r.to(), values), r.toInclusive()));
+            }
+            return new PhysicalMultiRangeIndexScanNode(scan.table(), scan.index(), ranges);
+        }
+        if (node instanceof PhysicalBitmapHeapScanNode scan) {
+            return new PhysicalBitmapHeapScanNode(scan.table(), bindNode(scan.bitmap(), values));
+        }
+        if (node instanceof PhysicalBitmapAndNode and) {
+            return new PhysicalBitmapAndNode(bindNodes(and.inputs(), values));
+        }
+        if (node instanceof PhysicalBitmapOrNode or) {
+            return new PhysicalBitmapOrNode(bindNodes(or.inputs(), values));
+        }
+        if (node instanceof PhysicalBitmapIndexScanNode scan) {
+            return new PhysicalBitmapIndexScanNode(
+                    scan.table(),
+                    scan.index(),
+                    bindValue(scan.from(), values),
+                    scan.fromInclusive(),
+                    bindValue(scan.to(), values),
+                    scan.toInclusive()
+            );
+        }
+        return node;
+    }
+
+    private static List<PhysicalPlanNode> bindNodes(List<PhysicalPlanNode> nodes, List<Object> values) {
+        List<PhysicalPlanNode> out = new ArrayList<>(nodes.size());
+        for (PhysicalPlanNode n : nodes) {
+            out.add(bindNode(n, values));
+        }
+        return out;
+    }
+
+    private static ResolvedExpr bindExpr(ResolvedExpr expr, List<Object> values) {
+        if (expr instanceof ResolvedParam p) {
+            return new ResolvedConst(values.get(p.index() - 1), p.exprType());
+        }
+        if (expr instanceof ResolvedBinaryExpr b) {
+            return new ResolvedBinaryExpr(b.op(), bindExpr(b.left(), values), bindExpr(b.right(), values), b.exprType());
+        }
+        if (expr instanceof ResolvedInList in) {
+            List<ResolvedExpr> bound = new ArrayList<>(in.values().size());
+            for (ResolvedExpr v : in.values()) {
+                bound.add(bindExpr(v, values));
+            }
+            return new ResolvedInList(bindExpr(in.operand(), values), bound, in.exprType());
+        }
+        return expr;
+    }
+
+    private static Object bindValue(Object value, List<Object> values) {
+        if (value instanceof CompositeKey key) {
+            List<Object> bound = new ArrayList<>(key.values().size());
+            for (Object v : key.values()) {
+                bound.add(bindValue(v, values));
+            }
+            return new CompositeKey(bound);
+        }
+        return value instanceof ResolvedParam p ? values.get(p.index() - 1) : value;
+    }
+}
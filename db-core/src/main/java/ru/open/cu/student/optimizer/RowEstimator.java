@@ -0,0 +1,274 @@
+package ru.open.cu.student.optimizer;
+
+import ru.open.cu.student.catalog.manager.CatalogManager;
+import ru.open.cu.student.catalog.model.ColumnDefinition;
+import ru.open.cu.student.catalog.model.ColumnStatistics;
+import ru.open.cu.student.catalog.model.IndexDefinition;
+import ru.open.cu.student.catalog.model.TableDefinition;
+import ru.open.cu.student.catalog.model.TableStatistics;
+import ru.open.cu.student.index.CompositeKey;
+import ru.open.cu.student.index.IndexType;
+import ru.open.cu.student.optimizer.node.*;
+import ru.open.cu.student.optimizer.stats.SelectivityEstimator;
+import ru.open.cu.student.sql.ast.JoinType;
+import ru.open.cu.student.sql.semantic.ResolvedBinaryExpr;
+import ru.open.cu.student.sql.semantic.ResolvedColumnRef;
+import ru.open.cu.student.sql.semantic.ResolvedConst;
+import ru.open.cu.student.sql.semantic.ResolvedExpr;
+import ru.open.cu.student.sql.semantic.ResolvedInList;
+import ru.open.cu.student.sql.semantic.ResolvedJoin;
+
+import java.util.List;
+import java.util.Objects;
+
+public final class RowEstimator {
+    private static final int DEFAULT_ROWS_PER_PAGE = 100;
+    private static final double DEFAULT_GROUP_FRACTION = 0.1;
+
+    private final CatalogManager catalog;
+
+    public RowEstimator(CatalogManager catalog) {
+        this.catalog = Objects.requireNonNull(catalog, "catalog");
+    }
+
+    public double estimate(PhysicalPlanNode node) {
+        Objects.requireNonNull(node, "node");
+
+        if (node instanceof PhysicalExplainNode ex) {
+            return estimate(ex.inner());
+        }
+        if (node instanceof PhysicalSeqScanNode scan) {
+            return tableRows(scan.table());
+        }
+        if (node instanceof PhysicalHashIndexScanNode scan) {
+            ColumnStatistics stats = columnStats(scan.table(), scan.index().getColumnOid());
+            return tableRows(scan.table()) * SelectivityEstimator.equality(stats, scan.value());
+        }
+        if (node instanceof PhysicalBTreeIndexScanNode scan) {
+            return tableRows(scan.table())
+                    * rangeSelectivity(scan.table(), scan.index(), scan.from(), scan.fromInclusive(), scan.to(), scan.toInclusive());
+        }
+        if (node instanceof PhysicalMultiRangeIndexScanNode scan) {
+            double selectivity = 0;
+            for (KeyRange r : scan.ranges()) {
+                selectivity += keyRangeSelectivity(scan.table(), scan.index(), r);
+            }
+            return tableRows(scan.table()) * Math.min(1.0, selectivity);
+        }
+        if (node instanceof PhysicalBitmapHeapScanNode scan) {
+            return tableRows(scan.table()) * bitmapSelectivity(scan.bitmap());
+        }
+        if (node instanceof PhysicalBitmapIndexScanNode || node instanceof PhysicalBitmapAndNode || node instanceof PhysicalBitmapOrNode) {
+            return bitmapTable(node) == null ? 0 : tableRows(bitmapTable(node)) * bitmapSelectivity(node);
+        }
+        if (node instanceof PhysicalFilterNode f) {
+            double child = estimate(f.child());
+            boolean indexed = f.child() instanceof PhysicalHashIndexScanNode || f.child() instanceof PhysicalBTreeIndexScanNode
+                    || f.child() instanceof PhysicalBitmapHeapScanNode || f.child() instanceof PhysicalMultiRangeIndexScanNode;
+            return indexed ? child : child * selectivity(f.predicate());
+        }
+        if (node instanceof PhysicalProjectNode p) {
+            return estimate(p.child());
+        }
+        if (node instanceof PhysicalDeleteNode d) {
+            return estimate(d.child());
+        }
+        if (node instanceof PhysicalUpdateNode u) {
+            return estimate(u.child());
+        }
+        if (node instanceof PhysicalHashAggregateNode agg) {
+            return groups(estimate(agg.child()), agg.groupBy());
+        }
+        if (node instanceof PhysicalStreamAggregateNode agg) {
+            return groups(estimate(agg.child()), agg.groupBy());
+        }
+        if (node instanceof PhysicalMetadataCountNode || node instanceof PhysicalIndexCountNode) {
+            return 1;
+        }
+        if (node instanceof PhysicalHashJoinNode j) {
+            return join(estimate(j.left()), estimate(j.right()), j.join());
+        }
+        if (node instanceof PhysicalMergeJoinNode j) {
+            return join(estimate(j.left()), estimate(j.right()), j.join());
+        }
+        if (node instanceof PhysicalIndexNestedLoopJoinNode j) {
+            return join(estimate(j.left()), tableRows(j.join().table()), j.join());
+        }
+        return 0;
+    }
+
+    private double tableRows(TableDefinition table) {
+        TableStatistics stats = catalog.getTableStatistics(table);
+        if (stats == null) {
+            return (double) table.getPagesCount() * DEFAULT_ROWS_PER_PAGE;
+        }
+        if (stats.getPagesCount() == 0) {
+            return table.getPagesCount() == 0 ? 0 : stats.getRowCount();
+        }
+        return (double) stats.getRowCount() * table.getPagesCount() / stats.getPagesCount();
+    }
+
+    private double selectivity(ResolvedExpr predicate) {
+        if (predicate instanceof ResolvedInList in) {
+            if (!(in.operand() instanceof ResolvedColumnRef c)) {
+                return SelectivityEstimator.DEFAULT_RANGE_SELECTIVITY;
+            }
+            ColumnStatistics stats = catalog.getColumnStatistics(c.column());
+            double selectivity = 0;
+            for (ResolvedExpr v : in.values()) {
+                selectivity += SelectivityEstimator.equality(stats, v instanceof ResolvedConst k ? k.value() : v);
+            }
+            return Math.min(1.0, selectivity);
+        }
+        if (!(predicate instanceof ResolvedBinaryExpr b)) {
+            return SelectivityEstimator.DEFAULT_RANGE_SELECTIVITY;
+        }
+        switch (b.op()) {
+            case "AND" -> {
+                return selectivity(b.left()) * selectivity(b.right());
+            }
+            case "OR" -> {
+                double l = selectivity(b.left());
+                double r = selectivity(b.right());
+                return l + r - l * r;
+            }
+            default -> {
+            }
+        }
+
+        ColumnDefinition column;
+        Object value;
+        String op = b.op();
+        if (b.left() instanceof ResolvedColumnRef c && b.right() instanceof ResolvedConst k) {
+            column = c.column();
+            value = k.value();
+        } else if (b.right() instanceof ResolvedColumnRef c && b.left() instanceof ResolvedConst k) {
+            column = c.column();
+            value = k.value();
+            op = switch (op) {
+                case "<" -> ">";
+                case "<=" -> ">=";
+                case ">" -> "<";
+                case ">=" -> "<=";
+                default -> op;
+            };
+        } else {
+            return SelectivityEstimator.DEFAULT_RANGE_SELECTIVITY;
+        }
+
+        ColumnStatistics stats = catalog.getColumnStatistics(column);
+        return switch (op) {
+            case "=" -> SelectivityEstimator.equality(stats, value);
+            case "<>" -> 1.0 - SelectivityEstimator.equality(stats, value);
+            case ">" -> SelectivityEstimator.range(stats, value, false, null, false);
+            case ">=" -> SelectivityEstimator.range(stats, value, true, null, false);
+            case "<" -> SelectivityEstimator.range(stats, null, false, value, false);
+            case "<=" -> SelectivityEstimator.range(stats, null, false, value, true);
+            default -> SelectivityEstimator.DEFAULT_RANGE_SELECTIVITY;
+        };
+    }
+
+    private double groups(double input, List<ColumnDefinition> groupBy) {
+        if (groupBy.isEmpty()) return 1;
+        double groups = 1;
+        for (ColumnDefinition column : groupBy) {
+            ColumnStatistics stats = catalog.getColumnStatistics(column);
+            groups *= stats == null ? Math.max(1, input * DEFAULT_GROUP_FRACTION) : Math.max(1, stats.getDistinctCount());
+        }
+        return Math.min(input, groups);
+    }
+
+    private double join(double left, double right, ResolvedJoin join) {
+        long distinct = Math.max(distinct(join.leftKey()), distinct(join.rightKey()));
+        double inner = distinct <= 0 ? Math.min(left, right) : left * right / distinct;
+        return join.type() == JoinType.LEFT ? Math.max(left, inner) : inner;
+    }
+
+    private long distinct(ColumnDefinition column) {
+        ColumnStatistics stats = catalog.getColumnStatistics(column);
+        return stats == null ? 0 : stats.getDistinctCount();
+    }
+
+    private double bitmapSelectivity(PhysicalPlanNode node) {
+        if (node instanceof PhysicalBitmapIndexScanNode scan) {
+            return rangeSelectivity(scan.table(), scan.index(), scan.from(), scan.fromInclusive(), scan.to(), scan.toInclusive());
+        }
+        if (node instanceof PhysicalBitmapAndNode and) {
+            double selectivity = 1.0;
+            for (PhysicalPlanNode input : and.inputs()) {
+                selectivity *= bitmapSelectivity(input);
+            }
+            return selectivity;
+        }
+        if (node instanceof PhysicalBitmapOrNode or) {
+            double miss = 1.0;
+            for (PhysicalPlanNode input : or.inputs()) {
+                miss *= 1.0 - bitmapSelectivity(input);
+            }
+            return 1.0 - miss;
+        }
+        return 1.0;
+    }
+
+    private static TableDefinition bitmapTable(PhysicalPlanNode node) {
+        if (node instanceof PhysicalBitmapIndexScanNode scan) {
+            return scan.table();
+        }
+        return node.children().isEmpty() ? null : bitmapTable(node.children().get(0));
+    }
+
+    private double keyRangeSelectivity(TableDefinition table, IndexDefinition index, KeyRange r) {
+        if (r.isPoint() && !(r.from() instanceof CompositeKey)) {
+            return SelectivityEstimator.equality(columnStats(table, index.getColumnOid()), r.from());
+        }
+        return rangeSelectivity(table, index, r.from(), r.fromInclusive(), r.to(), r.toInclusive());
+    }
+
+    private double rangeSelectivity(TableDefinition table, IndexDefinition index, Object from, boolean fromInclusive, Object to, boolean toInclusive) {
+        if (from == null && to == null) {
+            return 1.0;
+        }
+        if (from instanceof CompositeKey || to instanceof CompositeKey) {
+            return prefixSelectivity(table, index, from, fromInclusive, to, toInclusive);
+        }
+        ColumnStatistics stats = columnStats(table, index.getColumnOid());
+        if (index.getIndexType() == IndexType.HASH) {
+            return SelectivityEstimator.equality(stats, from);
+        }
+        return SelectivityEstimator.range(stats, from, fromInclusive, to, toInclusive);
+    }
+
+    private double prefixSelectivity(TableDefinition table, IndexDefinition index, Object fromKey, boolean fromInclusive, Object toKey, boolean toInclusive) {
+        List<Object> from = components(fromKey);
+        List<Object> to = components(toKey);
+        List<Integer> columnOids = index.getColumnOids();
+        double selectivity = 1.0;
+        for (int i = 0; i < columnOids.size(); i++) {
+            Object lo = i < from.size() ? from.get(i) : null;
+            Object hi = i < to.size() ? to.get(i) : null;
+            if (lo == null && hi == null) break;
+            ColumnStatistics stats = columnStats(table, columnOids.get(i));
+            if (lo != null && lo.equals(hi)) {
+                selectivity *= SelectivityEstimator.equality(stats, lo);
+                continue;
+            }
+            selectivity *= SelectivityEstimator.range(stats, lo, fromInclusive, hi, toInclusive);
+            break;
+        }
+        return selectivity;
+    }
+
+    private static List<Object> components(Object bound) {
+        if (bound == null) return List.of();
+        return bound instanceof CompositeKey key ? key.values() : List.of(bound);
+    }
+
+    private ColumnStatistics columnStats(TableDefinition table, int columnOid) {
+        for (ColumnDefinition column : catalog.getColumns(table)) {
+            if (column.getOid() == columnOid) {
+                return catalog.getColumnStatistics(column);
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,73 @@
+package ru.open.cu.student.optimizer.node;
+
+import ru.open.cu.student.index.KeyOrder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+public record KeyRange(Object from, boolean fromInclusive, Object to, boolean toInclusive) {
+    private static final Comparator<KeyRange> BY_LOWER_BOUND = (a, b) -> {
+        if (a.from() == null || b.from() == null) {
+            return a.from() == null ? (b.from() == null ? 0 : -1) : 1;
+        }
+        int c = KeyOrder.compare(a.from(), b.from());
+        if (c != 0) return c;
+        return Boolean.compare(b.fromInclusive(), a.fromInclusive());
+    };
+
+    public static KeyRange point(Object value) {
+        return new KeyRange(value, true, value, true);
+    }
+
+    public boolean isPoint() {
+        return from != null && fromInclusive && toInclusive && from.equals(to);
+    }
+
+    public static List<KeyRange> normalize(List<KeyRange> ranges) {
+        List<KeyRange> sorted = new ArrayList<>(ranges);
+        sorted.sort(BY_LOWER_BOUND);
+        List<KeyRange> out = new ArrayList<>();
+        KeyRange cur = null;
+        for (KeyRange next : sorted) {
+            if (cur == null) {
+                cur = next;
+            } else if (overlaps(cur, next)) {
+                cur = union(cur, next);
+            } else {
+                out.add(cur);
+                cur = next;
+            }
+        }
+        if (cur != null) {
+            out.add(cur);
+        }
+        return Collections.unmodifiableList(out);
+    }
+
+    private static boolean overlaps(KeyRange cur, KeyRange next) {
+        if (cur.to() == null || next.from() == null) return true;
+        int c = KeyOrder.compare(next.from(), cur.to());
+        return c < 0 || (c == 0 && (cur.toInclusive() || next.fromInclusive()));
+    }
+
+    private static KeyRange union(KeyRange cur, KeyRange next) {
+        if (cur.to() == null || next.to() == null) {
+            return new KeyRange(cur.from(), cur.fromInclusive(), null, false);
+        }
+        int c = KeyOrder.compare(cur.to(), next.to());
+        if (c > 0) return cur;
+        if (c < 0) return new KeyRange(cur.from(), cur.fromInclusive(), next.to(), next.toInclusive());
+        return new KeyRange(cur.from(), cur.fromInclusive(), cur.to(), cur.toInclusive() || next.toInclusive());
+    }
+
+    @Override
+    public String toString() {
+        if (isPoint()) {
+            return String.valueOf(from);
+        }
+        return (from == null ? "(-inf" : (fromInclusive ? "[" : "(") + from) + ", "
+                + (to == null ? "+inf)" : to + (toInclusive ? "]" : ")"));
+    }
+}
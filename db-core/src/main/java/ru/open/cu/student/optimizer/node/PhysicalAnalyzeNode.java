@@ -0,0 +1,24 @@
+package ru.open.cu.student.optimizer.node;
+
+import ru.open.cu.student.catalog.model.TableDefinition;
+import ru.open.cu.student.sql.semantic.AnalyzeQueryTree;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+public record PhysicalAnalyzeNode(AnalyzeQueryTree query) implements PhysicalPlanNode {
+    public PhysicalAnalyzeNode {
+        Objects.requireNonNull(query, "query");
+    }
+
+    @Override
+    public String displayName() {
+        return "Analyze(" + query.tables().stream().map(TableDefinition::getName).collect(Collectors.joining(",")) + ")";
+    }
+
+    @Override
+    public List<PhysicalPlanNode> children() {
+        return List.of();
+    }
+}
@@ -12,7 +12,8 @@ public record PhysicalBTreeIndexScanNode(
         Object from,
         boolean fromInclusive,
         Object to,
-        boolean toInclusive
+        boolean toInclusive,
+        boolean indexOnly
 ) implements PhysicalPlanNode {
     public PhysicalBTreeIndexScanNode {
         Objects.requireNonNull(table, "table");
@@ -20,9 +21,20 @@ public record PhysicalBTreeIndexScanNode(
         
     }
 
+    public PhysicalBTreeIndexScanNode(
+            TableDefinition table,
+            IndexDefinition index,
+            Object from,
+            boolean fromInclusive,
+            Object to,
+            boolean toInclusive
+    ) {
+        this(table, index, from, fromInclusive, to, toInclusive, false);
+    }
+
     @Override
     public String displayName() {
-        return "BTreeIndexScan(" + table.getName() + ", idx=" + index.getName() +
+        return (indexOnly ? "IndexOnlyScan(" : "BTreeIndexScan(") + table.getName() + ", idx=" + index.getName() +
                 ", from=" + from + (fromInclusive ? " (inc)" : " (exc)") +
                 ", to=" + to + (toInclusive ? " (inc)" : " (exc)") +
                 ")";
@@ -33,5 +45,3 @@ public record PhysicalBTreeIndexScanNode(
         return List.of();
     }
 }
-
-
@@ -0,0 +1,24 @@
+package ru.open.cu.student.optimizer.node;
+
+import java.util.List;
+import java.util.Objects;
+
+public record PhysicalBitmapAndNode(List<PhysicalPlanNode> inputs) implements PhysicalPlanNode {
+    public PhysicalBitmapAndNode {
+        Objects.requireNonNull(inputs, "inputs");
+        if (inputs.size() < 2) {
+            throw new IllegalArgumentException("BitmapAnd requires at least two inputs");
+        }
+        inputs = List.copyOf(inputs);
+    }
+
+    @Override
+    public String displayName() {
+        return "BitmapAnd";
+    }
+
+    @Override
+    public List<PhysicalPlanNode> children() {
+        return inputs;
+    }
+}
@@ -0,0 +1,23 @@
+package ru.open.cu.student.optimizer.node;
+
+import ru.open.cu.student.catalog.model.TableDefinition;
+
+import java.util.List;
+import java.util.Objects;
+
+public record PhysicalBitmapHeapScanNode(TableDefinition table, PhysicalPlanNode bitmap) implements PhysicalPlanNode {
+    public PhysicalBitmapHeapScanNode {
+        Objects.requireNonNull(table, "table");
+        Objects.requireNonNull(bitmap, "bitmap");
+    }
+
+    @Override
+    public String displayName() {
+        return "BitmapHeapScan(" + table.getName() + ")";
+    }
+
+    @Override
+    public List<PhysicalPlanNode> children() {
+        return List.of(bitmap);
+    }
+}
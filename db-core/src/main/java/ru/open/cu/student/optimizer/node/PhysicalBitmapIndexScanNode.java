@@ -0,0 +1,45 @@
+package ru.open.cu.student.optimizer.node;
+
+import ru.open.cu.student.catalog.model.IndexDefinition;
+import ru.open.cu.student.catalog.model.TableDefinition;
+import ru.open.cu.student.index.IndexType;
+
+import java.util.List;
+import java.util.Objects;
+
+public record PhysicalBitmapIndexScanNode(
+        TableDefinition table,
+        IndexDefinition index,
+        Object from,
+        boolean fromInclusive,
+        Object to,
+        boolean toInclusive
+) implements PhysicalPlanNode {
+    public PhysicalBitmapIndexScanNode {
+        Objects.requireNonNull(table, "table");
+        Objects.requireNonNull(index, "index");
+        if (index.getIndexType() == IndexType.HASH && (from == null || !from.equals(to))) {
+            throw new IllegalArgumentException("Hash bitmap index scan requires a single value");
+        }
+    }
+
+    public PhysicalBitmapIndexScanNode(TableDefinition table, IndexDefinition index, Object value) {
+        this(table, index, value, true, value, true);
+    }
+
+    @Override
+    public String displayName() {
+        if (index.getIndexType() == IndexType.HASH) {
+            return "BitmapIndexScan(" + table.getName() + ", idx=" + index.getName() + ", value=" + from + ")";
+        }
+        return "BitmapIndexScan(" + table.getName() + ", idx=" + index.getName() +
+                ", from=" + from + (fromInclusive ? " (inc)" : " (exc)") +
+                ", to=" + to + (toInclusive ? " (inc)" : " (exc)") +
+                ")";
+    }
+
+    @Override
+    public List<PhysicalPlanNode> children() {
+        return List.of();
+    }
+}
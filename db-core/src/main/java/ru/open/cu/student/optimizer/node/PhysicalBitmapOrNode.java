@@ -0,0 +1,24 @@
+package ru.open.cu.student.optimizer.node;
+
+import java.util.List;
+import java.util.Objects;
+
+public record PhysicalBitmapOrNode(List<PhysicalPlanNode> inputs) implements PhysicalPlanNode {
+    public PhysicalBitmapOrNode {
+        Objects.requireNonNull(inputs, "inputs");
+        if (inputs.size() < 2) {
+            throw new IllegalArgumentException("BitmapOr requires at least two inputs");
+        }
+        inputs = List.copyOf(inputs);
+    }
+
+    @Override
+    public String displayName() {
+        return "BitmapOr";
+    }
+
+    @Override
+    public List<PhysicalPlanNode> children() {
+        return inputs;
+    }
+}
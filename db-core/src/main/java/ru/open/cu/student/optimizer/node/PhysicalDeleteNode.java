@@ -0,0 +1,23 @@
+package ru.open.cu.student.optimizer.node;
+
+import ru.open.cu.student.sql.semantic.DeleteQueryTree;
+
+import java.util.List;
+import java.util.Objects;
+
+public record PhysicalDeleteNode(PhysicalPlanNode child, DeleteQueryTree query) implements PhysicalPlanNode {
+    public PhysicalDeleteNode {
+        Objects.requireNonNull(child, "child");
+        Objects.requireNonNull(query, "query");
+    }
+
+    @Override
+    public String displayName() {
+        return "Delete(" + query.table().getName() + ")";
+    }
+
+    @Override
+    public List<PhysicalPlanNode> children() {
+        return List.of(child);
+    }
+}
@@ -3,14 +3,18 @@ package ru.open.cu.student.optimizer.node;
 import java.util.List;
 import java.util.Objects;
 
-public record PhysicalExplainNode(PhysicalPlanNode inner) implements PhysicalPlanNode {
+public record PhysicalExplainNode(PhysicalPlanNode inner, boolean analyze) implements PhysicalPlanNode {
     public PhysicalExplainNode {
         Objects.requireNonNull(inner, "inner");
     }
 
+    public PhysicalExplainNode(PhysicalPlanNode inner) {
+        this(inner, false);
+    }
+
     @Override
     public String displayName() {
-        return "Explain";
+        return analyze ? "ExplainAnalyze" : "Explain";
     }
 
     @Override
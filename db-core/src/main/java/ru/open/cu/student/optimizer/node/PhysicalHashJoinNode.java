@@ -0,0 +1,29 @@
+package ru.open.cu.student.optimizer.node;
+
+import ru.open.cu.student.sql.semantic.ResolvedJoin;
+
+import java.util.List;
+import java.util.Objects;
+
+public record PhysicalHashJoinNode(
+        PhysicalPlanNode left,
+        PhysicalPlanNode right,
+        ResolvedJoin join,
+        boolean buildLeft
+) implements PhysicalPlanNode {
+    public PhysicalHashJoinNode {
+        Objects.requireNonNull(left, "left");
+        Objects.requireNonNull(right, "right");
+        Objects.requireNonNull(join, "join");
+    }
+
+    @Override
+    public String displayName() {
+        return "HashJoin(" + join + ", build=" + (buildLeft ? "left" : "right") + ")";
+    }
+
+    @Override
+    public List<PhysicalPlanNode> children() {
+        return List.of(left, right);
+    }
+}
@@ -0,0 +1,32 @@
+package ru.open.cu.student.optimizer.node;
+
+import ru.open.cu.student.catalog.model.IndexDefinition;
+import ru.open.cu.student.catalog.model.TableDefinition;
+import ru.open.cu.student.sql.semantic.ResolvedAggregate;
+
+import java.util.List;
+import java.util.Objects;
+
+public record PhysicalIndexCountNode(
+        TableDefinition table,
+        IndexDefinition index,
+        Object value,
+        List<ResolvedAggregate> aggregates
+) implements PhysicalPlanNode {
+    public PhysicalIndexCountNode {
+        Objects.requireNonNull(table, "table");
+        Objects.requireNonNull(index, "index");
+        Objects.requireNonNull(value, "value");
+        Objects.requireNonNull(aggregates, "aggregates");
+    }
+
+    @Override
+    public String displayName() {
+        return "IndexCount(" + table.getName() + ", idx=" + index.getName() + ", value=" + value + ")";
+    }
+
+    @Override
+    public List<PhysicalPlanNode> children() {
+        return List.of();
+    }
+}
@@ -0,0 +1,29 @@
+package ru.open.cu.student.optimizer.node;
+
+import ru.open.cu.student.catalog.model.IndexDefinition;
+import ru.open.cu.student.sql.semantic.ResolvedJoin;
+
+import java.util.List;
+import java.util.Objects;
+
+public record PhysicalIndexNestedLoopJoinNode(
+        PhysicalPlanNode left,
+        ResolvedJoin join,
+        IndexDefinition index
+) implements PhysicalPlanNode {
+    public PhysicalIndexNestedLoopJoinNode {
+        Objects.requireNonNull(left, "left");
+        Objects.requireNonNull(join, "join");
+        Objects.requireNonNull(index, "index");
+    }
+
+    @Override
+    public String displayName() {
+        return "IndexNestedLoopJoin(" + join + ", idx=" + index.getName() + ")";
+    }
+
+    @Override
+    public List<PhysicalPlanNode> children() {
+        return List.of(left);
+    }
+}
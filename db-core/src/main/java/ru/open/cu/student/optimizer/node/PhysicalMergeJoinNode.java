@@ -0,0 +1,24 @@
+package ru.open.cu.student.optimizer.node;
+
+import ru.open.cu.student.sql.semantic.ResolvedJoin;
+
+import java.util.List;
+import java.util.Objects;
+
+public record PhysicalMergeJoinNode(PhysicalPlanNode left, PhysicalPlanNode right, ResolvedJoin join) implements PhysicalPlanNode {
+    public PhysicalMergeJoinNode {
+        Objects.requireNonNull(left, "left");
+        Objects.requireNonNull(right, "right");
+        Objects.requireNonNull(join, "join");
+    }
+
+    @Override
+    public String displayName() {
+        return "MergeJoin(" + join + ")";
+    }
+
+    @Override
+    public List<PhysicalPlanNode> children() {
+        return List.of(left, right);
+    }
+}
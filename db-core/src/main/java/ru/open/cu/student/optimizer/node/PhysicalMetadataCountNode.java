@@ -0,0 +1,24 @@
+package ru.open.cu.student.optimizer.node;
+
+import ru.open.cu.student.catalog.model.TableDefinition;
+import ru.open.cu.student.sql.semantic.ResolvedAggregate;
+
+import java.util.List;
+import java.util.Objects;
+
+public record PhysicalMetadataCountNode(TableDefinition table, List<ResolvedAggregate> aggregates) implements PhysicalPlanNode {
+    public PhysicalMetadataCountNode {
+        Objects.requireNonNull(table, "table");
+        Objects.requireNonNull(aggregates, "aggregates");
+    }
+
+    @Override
+    public String displayName() {
+        return "MetadataCount(" + table.getName() + ")";
+    }
+
+    @Override
+    public List<PhysicalPlanNode> children() {
+        return List.of();
+    }
+}
@@ -0,0 +1,37 @@
+package ru.open.cu.student.optimizer.node;
+
+import ru.open.cu.student.catalog.model.IndexDefinition;
+import ru.open.cu.student.catalog.model.TableDefinition;
+import ru.open.cu.student.index.IndexType;
+
+import java.util.List;
+import java.util.Objects;
+
+public record PhysicalMultiRangeIndexScanNode(
+        TableDefinition table,
+        IndexDefinition index,
+        List<KeyRange> ranges
+) implements PhysicalPlanNode {
+    public PhysicalMultiRangeIndexScanNode {
+        Objects.requireNonNull(table, "table");
+        Objects.requireNonNull(index, "index");
+        Objects.requireNonNull(ranges, "ranges");
+        if (ranges.isEmpty()) {
+            throw new IllegalArgumentException("ranges must not be empty");
+        }
+        if (index.getIndexType() == IndexType.HASH && !ranges.stream().allMatch(KeyRange::isPoint)) {
+            throw new IllegalArgumentException("Hash multi-range scan requires point ranges");
+        }
+        ranges = List.copyOf(ranges);
+    }
+
+    @Override
+    public String displayName() {
+        return "MultiRangeIndexScan(" + table.getName() + ", idx=" + index.getName() + ", ranges=" + ranges + ")";
+    }
+
+    @Override
+    public List<PhysicalPlanNode> children() {
+        return List.of();
+    }
+}
@@ -0,0 +1,32 @@
+package ru.open.cu.student.optimizer.node;
+
+import ru.open.cu.student.catalog.model.ColumnDefinition;
+import ru.open.cu.student.sql.semantic.ResolvedAggregate;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+public record PhysicalStreamAggregateNode(
+        PhysicalPlanNode child,
+        List<ColumnDefinition> groupBy,
+        List<ResolvedAggregate> aggregates
+) implements PhysicalPlanNode {
+    public PhysicalStreamAggregateNode {
+        Objects.requireNonNull(child, "child");
+        Objects.requireNonNull(groupBy, "groupBy");
+        Objects.requireNonNull(aggregates, "aggregates");
+    }
+
+    @Override
+    public String displayName() {
+        String keys = groupBy.stream().map(ColumnDefinition::getName).collect(Collectors.joining(","));
+        String aggs = aggregates.stream().map(ResolvedAggregate::toString).collect(Collectors.joining(","));
+        return "StreamAggregate(group=[" + keys + "], aggs=[" + aggs + "])";
+    }
+
+    @Override
+    public List<PhysicalPlanNode> children() {
+        return List.of(child);
+    }
+}
@@ -0,0 +1,23 @@
+package ru.open.cu.student.optimizer.node;
+
+import ru.open.cu.student.sql.semantic.UpdateQueryTree;
+
+import java.util.List;
+import java.util.Objects;
+
+public record PhysicalUpdateNode(PhysicalPlanNode child, UpdateQueryTree query) implements PhysicalPlanNode {
+    public PhysicalUpdateNode {
+        Objects.requireNonNull(child, "child");
+        Objects.requireNonNull(query, "query");
+    }
+
+    @Override
+    public String displayName() {
+        return "Update(" + query.table().getName() + ")";
+    }
+
+    @Override
+    public List<PhysicalPlanNode> children() {
+        return List.of(child);
+    }
+}
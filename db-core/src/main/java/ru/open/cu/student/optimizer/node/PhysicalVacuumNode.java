@@ -0,0 +1,24 @@
+package ru.open.cu.student.optimizer.node;
+
+import ru.open.cu.student.catalog.model.TableDefinition;
+import ru.open.cu.student.sql.semantic.VacuumQueryTree;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+public record PhysicalVacuumNode(VacuumQueryTree query) implements PhysicalPlanNode {
+    public PhysicalVacuumNode {
+        Objects.requireNonNull(query, "query");
+    }
+
+    @Override
+    public String displayName() {
+        return "Vacuum(" + query.tables().stream().map(TableDefinition::getName).collect(Collectors.joining(",")) + ")";
+    }
+
+    @Override
+    public List<PhysicalPlanNode> children() {
+        return List.of();
+    }
+}
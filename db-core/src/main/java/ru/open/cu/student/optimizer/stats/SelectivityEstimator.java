@@ -0,0 +1,97 @@
+package ru.open.cu.student.optimizer.stats;
+
+import ru.open.cu.student.catalog.model.ColumnStatistics;
+import ru.open.cu.student.index.KeyOrder;
+
+import java.util.List;
+
+public final class SelectivityEstimator {
+    public static final double DEFAULT_EQ_SELECTIVITY = 0.005;
+    public static final double DEFAULT_RANGE_SELECTIVITY = 1.0 / 3.0;
+
+    private SelectivityEstimator() {
+    }
+
+    public static double equality(ColumnStatistics stats, Object value) {
+        if (stats == null) return DEFAULT_EQ_SELECTIVITY;
+        if (value == null) return 0.0;
+
+        List<Object> mcv = stats.getMostCommonValues();
+        for (int i = 0; i < mcv.size(); i++) {
+            if (mcv.get(i).equals(value)) {
+                return stats.getMostCommonFrequency(i);
+            }
+        }
+
+        double rest = remainingFraction(stats);
+        long otherDistinct = Math.max(1, stats.getDistinctCount() - mcv.size());
+        return clamp(rest / otherDistinct);
+    }
+
+    public static double range(ColumnStatistics stats, Object from, boolean fromInclusive, Object to, boolean toInclusive) {
+        if (stats == null) return DEFAULT_RANGE_SELECTIVITY;
+
+        double mcvPart = 0.0;
+        List<Object> mcv = stats.getMostCommonValues();
+        for (int i = 0; i < mcv.size(); i++) {
+            if (inRange(mcv.get(i), from, fromInclusive, to, toInclusive)) {
+                mcvPart += stats.getMostCommonFrequency(i);
+            }
+        }
+
+        List<Object> bounds = stats.getHistogramBounds();
+        double histPart;
+        if (bounds.size() < 2) {
+            histPart = mcv.isEmpty() ? DEFAULT_RANGE_SELECTIVITY : 0.0;
+        } else {
+            double lo = from == null ? 0.0 : fractionBelow(bounds, from);
+            double hi = to == null ? 1.0 : fractionBelow(bounds, to);
+            histPart = Math.max(0.0, hi - lo);
+        }
+
+        return clamp(mcvPart + histPart * remainingFraction(stats));
+    }
+
+    private static double remainingFraction(ColumnStatistics stats) {
+        return Math.max(0.0, 1.0 - stats.getNullFraction() - stats.getMostCommonTotalFrequency());
+    }
+
+    private static double fractionBelow(List<Object> bounds, Object value) {
+        int buckets = bounds.size() - 1;
+        if (compare(value, bounds.get(0)) <= 0) return 0.0;
+        if (compare(value, bounds.get(buckets)) >= 0) return 1.0;
+
+        for (int i = 0; i < buckets; i++) {
+            Object lo = bounds.get(i);
+            Object hi = bounds.get(i + 1);
+            if (compare(value, hi) < 0) {
+                double within = 0.5;
+                if (value instanceof Long v && lo instanceof Long l && hi instanceof Long h && h > l) {
+                    within = (double) (v - l) / (double) (h - l);
+                }
+                return (i + within) / buckets;
+            }
+        }
+        return 1.0;
+    }
+
+    private static boolean inRange(Object v, Object from, boolean fromInclusive, Object to, boolean toInclusive) {
+        if (from != null) {
+            int c = compare(v, from);
+            if (c < 0 || (c == 0 && !fromInclusive)) return false;
+        }
+        if (to != null) {
+            int c = compare(v, to);
+            if (c > 0 || (c == 0 && !toInclusive)) return false;
+        }
+        return true;
+    }
+
+    private static int compare(Object a, Object b) {
+        return KeyOrder.compare(a, b);
+    }
+
+    private static double clamp(double v) {
+        return Math.max(0.0, Math.min(1.0, v));
+    }
+}
@@ -0,0 +1,141 @@
+package ru.open.cu.student.optimizer.stats;
+
+import ru.open.cu.student.catalog.model.ColumnDefinition;
+import ru.open.cu.student.catalog.model.ColumnStatistics;
+import ru.open.cu.student.catalog.model.TableStatistics;
+import ru.open.cu.student.index.KeyOrder;
+import ru.open.cu.student.storage.TableHeap;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.TreeSet;
+
+public final class StatisticsCollector {
+    public static final int DEFAULT_SAMPLE_PAGES = Integer.getInteger("db.analyze.samplePages", 300);
+    public static final int MAX_MCV = 10;
+    public static final int HISTOGRAM_BUCKETS = 10;
+
+    private static final Comparator<Object> VALUE_ORDER = KeyOrder::compare;
+
+    private final int samplePages;
+    private final Random random;
+
+    public record Result(TableStatistics table, List<ColumnStatistics> columns) {
+    }
+
+    public StatisticsCollector() {
+        this(DEFAULT_SAMPLE_PAGES, new Random());
+    }
+
+    public StatisticsCollector(int samplePages, Random random) {
+        if (samplePages <= 0) {
+            throw new IllegalArgumentException("samplePages must be > 0");
+        }
+        this.samplePages = samplePages;
+        this.random = Objects.requireNonNull(random, "random");
+    }
+
+    public Result collect(TableHeap heap) {
+        Objects.requireNonNull(heap, "heap");
+
+        int pages = heap.pagesCount();
+        long rowCount = heap.countRows();
+
+        List<List<Object>> sample = new ArrayList<>();
+        for (int pageId : choosePages(pages)) {
+            sample.addAll(heap.readPageRows(pageId));
+        }
+
+        List<ColumnDefinition> columns = heap.getColumns();
+        List<ColumnStatistics> columnStats = new ArrayList<>(columns.size());
+        for (ColumnDefinition column : columns) {
+            columnStats.add(collectColumn(heap.getTable().getOid(), column, sample, rowCount));
+        }
+
+        TableStatistics tableStats = new TableStatistics(heap.getTable().getOid(), rowCount, pages, sample.size());
+        return new Result(tableStats, columnStats);
+    }
+
+    private List<Integer> choosePages(int pages) {
+        if (pages <= samplePages) {
+            List<Integer> all = new ArrayList<>(pages);
+            for (int i = 0; i < pages; i++) all.add(i);
+            return all;
+        }
+        TreeSet<Integer> chosen = new TreeSet<>();
+        while (chosen.size() < samplePages) {
+            chosen.add(random.nextInt(pages));
+        }
+        return new ArrayList<>(chosen);
+    }
+
+    private static ColumnStatistics collectColumn(int tableOid, ColumnDefinition column, List<List<Object>> sample, long rowCount) {
+        int pos = column.getPosition();
+        long nulls = 0;
+        Map<Object, Integer> counts = new HashMap<>();
+        for (List<Object> row : sample) {
+            Object v = row.get(pos);
+            if (v == null) {
+                nulls++;
+            } else {
+                counts.merge(v, 1, Integer::sum);
+            }
+        }
+
+        int sampled = sample.size();
+        long nonNull = sampled - nulls;
+        double nullFraction = sampled == 0 ? 0.0 : (double) nulls / sampled;
+        long distinct = estimateDistinct(counts, nonNull, Math.round(rowCount * (1.0 - nullFraction)));
+
+        List<Map.Entry<Object, Integer>> byFrequency = new ArrayList<>(counts.entrySet());
+        byFrequency.sort(Map.Entry.<Object, Integer>comparingByValue().reversed());
+
+        double avgCount = counts.isEmpty() ? 0 : (double) nonNull / counts.size();
+        List<Object> mcv = new ArrayList<>();
+        List<Double> mcvFreq = new ArrayList<>();
+        for (Map.Entry<Object, Integer> e : byFrequency) {
+            if (mcv.size() >= MAX_MCV) break;
+            if (e.getValue() < 2 || e.getValue() <= avgCount) break;
+            mcv.add(e.getKey());
+            mcvFreq.add((double) e.getValue() / sampled);
+        }
+
+        List<Object> rest = new ArrayList<>();
+        for (Map.Entry<Object, Integer> e : counts.entrySet()) {
+            if (mcv.contains(e.getKey())) continue;
+            for (int i = 0; i < e.getValue(); i++) {
+                rest.add(e.getKey());
+            }
+        }
+        rest.sort(VALUE_ORDER);
+
+        List<Object> bounds = new ArrayList<>();
+        if (rest.size() >= 2) {
+            int buckets = Math.min(HISTOGRAM_BUCKETS, rest.size() - 1);
+            for (int i = 0; i <= buckets; i++) {
+                int idx = (int) Math.round((double) i * (rest.size() - 1) / buckets);
+                bounds.add(rest.get(idx));
+            }
+        }
+
+        double[] freqs = new double[mcvFreq.size()];
+        for (int i = 0; i < freqs.length; i++) freqs[i] = mcvFreq.get(i);
+        return new ColumnStatistics(tableOid, column.getOid(), distinct, nullFraction, mcv, freqs, bounds);
+    }
+
+    private static long estimateDistinct(Map<Object, Integer> counts, long sampled, long total) {
+        long d = counts.size();
+        if (sampled == 0 || sampled >= total) return d;
+
+        long f1 = counts.values().stream().filter(c -> c == 1).count();
+        double n = sampled;
+        double denominator = (n - f1) + f1 * n / total;
+        long estimate = Math.round(n * d / Math.max(1.0, denominator));
+        return Math.max(d, Math.min(total, estimate));
+    }
+}
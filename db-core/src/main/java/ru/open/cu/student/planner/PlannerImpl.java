@@ -1,8 +1,11 @@
 package ru.open.cu.student.planner;
 
+import ru.open.cu.student.catalog.model.TableDefinition;
 import ru.open.cu.student.planner.node.*;
 import ru.open.cu.student.sql.semantic.*;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 
 public final class PlannerImpl implements Planner {
@@ -13,20 +16,97 @@ public final class PlannerImpl implements Planner {
         return switch (queryTree.getType()) {
             case CREATE_TABLE -> new CreateTableNode((CreateTableQueryTree) queryTree);
             case INSERT -> new InsertNode((InsertQueryTree) queryTree);
+            case DELETE -> {
+                DeleteQueryTree del = (DeleteQueryTree) queryTree;
+                yield new DeleteNode(planModifyScan(del.table(), del.filter()), del);
+            }
+            case UPDATE -> {
+                UpdateQueryTree upd = (UpdateQueryTree) queryTree;
+                yield new UpdateNode(planModifyScan(upd.table(), upd.filter()), upd);
+            }
             case CREATE_INDEX -> new CreateIndexNode((CreateIndexQueryTree) queryTree);
             case SELECT -> planSelect((SelectQueryTree) queryTree);
-            case EXPLAIN -> new ExplainNode(plan(((ExplainQueryTree) queryTree).inner()));
+            case EXPLAIN -> {
+                ExplainQueryTree ex = (ExplainQueryTree) queryTree;
+                yield new ExplainNode(plan(ex.inner()), ex.analyze());
+            }
+            case ANALYZE -> new AnalyzeNode((AnalyzeQueryTree) queryTree);
+            case VACUUM -> new VacuumNode((VacuumQueryTree) queryTree);
         };
     }
 
+    private static LogicalPlanNode planModifyScan(TableDefinition table, ResolvedExpr filter) {
+        LogicalPlanNode node = new ScanNode(table);
+        return filter == null ? node : new FilterNode(node, filter);
+    }
+
     private LogicalPlanNode planSelect(SelectQueryTree q) {
         LogicalPlanNode node = new ScanNode(q.table());
-        if (q.filter() != null) {
-            node = new FilterNode(node, q.filter());
+        if (q.joins().isEmpty()) {
+            if (q.filter() != null) {
+                node = new FilterNode(node, q.filter());
+            }
+        } else {
+            int baseWidth = q.joins().get(0).columnOffset();
+            List<ResolvedExpr> pushed = new ArrayList<>();
+            List<ResolvedExpr> remaining = new ArrayList<>();
+            if (q.filter() != null) {
+                for (ResolvedExpr conjunct : splitConjuncts(q.filter())) {
+                    (maxPosition(conjunct) < baseWidth ? pushed : remaining).add(conjunct);
+                }
+            }
+            if (!pushed.isEmpty()) {
+                node = new FilterNode(node, combineConjuncts(pushed));
+            }
+            for (ResolvedJoin join : q.joins()) {
+                node = new JoinNode(node, new ScanNode(join.table()), join);
+            }
+            if (!remaining.isEmpty()) {
+                node = new FilterNode(node, combineConjuncts(remaining));
+            }
+        }
+        if (q.isAggregate()) {
+            node = new AggregateNode(node, q.groupBy(), q.aggregates());
         }
         node = new ProjectNode(node, q.targetColumns());
         return node;
     }
+
+    private static List<ResolvedExpr> splitConjuncts(ResolvedExpr expr) {
+        List<ResolvedExpr> out = new ArrayList<>();
+        if (expr instanceof ResolvedBinaryExpr b && b.op().equals("AND")) {
+            out.addAll(splitConjuncts(b.left()));
+            out.addAll(splitConjuncts(b.right()));
+        } else {
+            out.add(expr);
+        }
+        return out;
+    }
+
+    private static ResolvedExpr combineConjuncts(List<ResolvedExpr> conjuncts) {
+        ResolvedExpr out = conjuncts.get(0);
+        for (int i = 1; i < conjuncts.size(); i++) {
+            out = new ResolvedBinaryExpr("AND", out, conjuncts.get(i), ExprType.BOOL);
+        }
+        return out;
+    }
+
+    private static int maxPosition(ResolvedExpr expr) {
+        if (expr instanceof ResolvedColumnRef c) {
+            return c.column().getPosition();
+        }
+        if (expr instanceof ResolvedBinaryExpr b) {
+            return Math.max(maxPosition(b.left()), maxPosition(b.right()));
+        }
+        if (expr instanceof ResolvedInList in) {
+            int max = maxPosition(in.operand());
+            for (ResolvedExpr v : in.values()) {
+                max = Math.max(max, maxPosition(v));
+            }
+            return max;
+        }
+        return -1;
+    }
 }
 
 
@@ -0,0 +1,28 @@
+package ru.open.cu.student.planner.node;
+
+import ru.open.cu.student.catalog.model.ColumnDefinition;
+import ru.open.cu.student.sql.semantic.ResolvedAggregate;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+public record AggregateNode(LogicalPlanNode child, List<ColumnDefinition> groupBy, List<ResolvedAggregate> aggregates) implements LogicalPlanNode {
+    public AggregateNode {
+        Objects.requireNonNull(child, "child");
+        Objects.requireNonNull(groupBy, "groupBy");
+        Objects.requireNonNull(aggregates, "aggregates");
+    }
+
+    @Override
+    public String displayName() {
+        String keys = groupBy.stream().map(ColumnDefinition::getName).collect(Collectors.joining(","));
+        String aggs = aggregates.stream().map(ResolvedAggregate::toString).collect(Collectors.joining(","));
+        return "Aggregate(group=[" + keys + "], aggs=[" + aggs + "])";
+    }
+
+    @Override
+    public List<LogicalPlanNode> children() {
+        return List.of(child);
+    }
+}
@@ -0,0 +1,23 @@
+package ru.open.cu.student.planner.node;
+
+import ru.open.cu.student.sql.semantic.DeleteQueryTree;
+
+import java.util.List;
+import java.util.Objects;
+
+public record DeleteNode(LogicalPlanNode child, DeleteQueryTree query) implements LogicalPlanNode {
+    public DeleteNode {
+        Objects.requireNonNull(child, "child");
+        Objects.requireNonNull(query, "query");
+    }
+
+    @Override
+    public String displayName() {
+        return "Delete(" + query.table().getName() + ")";
+    }
+
+    @Override
+    public List<LogicalPlanNode> children() {
+        return List.of(child);
+    }
+}
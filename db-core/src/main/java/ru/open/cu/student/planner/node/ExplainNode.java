@@ -3,14 +3,18 @@ package ru.open.cu.student.planner.node;
 import java.util.List;
 import java.util.Objects;
 
-public record ExplainNode(LogicalPlanNode inner) implements LogicalPlanNode {
+public record ExplainNode(LogicalPlanNode inner, boolean analyze) implements LogicalPlanNode {
     public ExplainNode {
         Objects.requireNonNull(inner, "inner");
     }
 
+    public ExplainNode(LogicalPlanNode inner) {
+        this(inner, false);
+    }
+
     @Override
     public String displayName() {
-        return "Explain";
+        return analyze ? "ExplainAnalyze" : "Explain";
     }
 
     @Override
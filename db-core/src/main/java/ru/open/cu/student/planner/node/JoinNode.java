@@ -0,0 +1,24 @@
+package ru.open.cu.student.planner.node;
+
+import ru.open.cu.student.sql.semantic.ResolvedJoin;
+
+import java.util.List;
+import java.util.Objects;
+
+public record JoinNode(LogicalPlanNode left, LogicalPlanNode right, ResolvedJoin join) implements LogicalPlanNode {
+    public JoinNode {
+        Objects.requireNonNull(left, "left");
+        Objects.requireNonNull(right, "right");
+        Objects.requireNonNull(join, "join");
+    }
+
+    @Override
+    public String displayName() {
+        return "Join(" + join + ")";
+    }
+
+    @Override
+    public List<LogicalPlanNode> children() {
+        return List.of(left, right);
+    }
+}
@@ -0,0 +1,23 @@
+package ru.open.cu.student.planner.node;
+
+import ru.open.cu.student.sql.semantic.UpdateQueryTree;
+
+import java.util.List;
+import java.util.Objects;
+
+public record UpdateNode(LogicalPlanNode child, UpdateQueryTree query) implements LogicalPlanNode {
+    public UpdateNode {
+        Objects.requireNonNull(child, "child");
+        Objects.requireNonNull(query, "query");
+    }
+
+    @Override
+    public String displayName() {
+        return "Update(" + query.table().getName() + ")";
+    }
+
+    @Override
+    public List<LogicalPlanNode> children() {
+        return List.of(child);
+    }
+}
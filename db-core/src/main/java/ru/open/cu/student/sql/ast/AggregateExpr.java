@@ -0,0 +1,13 @@
+package ru.open.cu.student.sql.ast;
+
+import java.util.Objects;
+
+public record AggregateExpr(SqlIdent function, Expr argument) implements Expr {
+    public AggregateExpr {
+        Objects.requireNonNull(function, "function");
+    }
+
+    public boolean isStar() {
+        return argument == null;
+    }
+}
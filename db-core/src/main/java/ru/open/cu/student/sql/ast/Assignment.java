@@ -0,0 +1,10 @@
+package ru.open.cu.student.sql.ast;
+
+import java.util.Objects;
+
+public record Assignment(SqlIdent column, Expr value) implements AstNode {
+    public Assignment {
+        Objects.requireNonNull(column, "column");
+        Objects.requireNonNull(value, "value");
+    }
+}
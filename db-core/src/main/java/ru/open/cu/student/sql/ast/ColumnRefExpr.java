@@ -2,10 +2,12 @@ package ru.open.cu.student.sql.ast;
 
 import java.util.Objects;
 
-public record ColumnRefExpr(SqlIdent name) implements Expr {
+public record ColumnRefExpr(SqlIdent qualifier, SqlIdent name) implements Expr {
     public ColumnRefExpr {
         Objects.requireNonNull(name, "name");
     }
-}
-
 
+    public ColumnRefExpr(SqlIdent name) {
+        this(null, name);
+    }
+}
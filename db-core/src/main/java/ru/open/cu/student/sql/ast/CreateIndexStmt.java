@@ -2,15 +2,27 @@ package ru.open.cu.student.sql.ast;
 
 import ru.open.cu.student.index.IndexType;
 
+import java.util.List;
 import java.util.Objects;
 
-public record CreateIndexStmt(SqlIdent indexName, SqlIdent tableName, SqlIdent columnName, IndexType indexType) implements Statement {
+public record CreateIndexStmt(
+        SqlIdent indexName,
+        SqlIdent tableName,
+        List<SqlIdent> columnNames,
+        List<SqlIdent> includeColumns,
+        IndexType indexType,
+        boolean unique
+) implements Statement {
     public CreateIndexStmt {
         Objects.requireNonNull(indexName, "indexName");
         Objects.requireNonNull(tableName, "tableName");
-        Objects.requireNonNull(columnName, "columnName");
+        Objects.requireNonNull(columnNames, "columnNames");
+        Objects.requireNonNull(includeColumns, "includeColumns");
         Objects.requireNonNull(indexType, "indexType");
+        if (columnNames.isEmpty()) {
+            throw new IllegalArgumentException("columnNames must not be empty");
+        }
+        columnNames = List.copyOf(columnNames);
+        includeColumns = List.copyOf(includeColumns);
     }
 }
-
-
@@ -0,0 +1,9 @@
+package ru.open.cu.student.sql.ast;
+
+import java.util.Objects;
+
+public record DeleteStmt(SqlIdent tableName, Expr where) implements Statement {
+    public DeleteStmt {
+        Objects.requireNonNull(tableName, "tableName");
+    }
+}
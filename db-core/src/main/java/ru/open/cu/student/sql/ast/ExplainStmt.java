@@ -2,10 +2,14 @@ package ru.open.cu.student.sql.ast;
 
 import java.util.Objects;
 
-public record ExplainStmt(Statement inner) implements Statement {
+public record ExplainStmt(Statement inner, boolean analyze) implements Statement {
     public ExplainStmt {
         Objects.requireNonNull(inner, "inner");
     }
+
+    public ExplainStmt(Statement inner) {
+        this(inner, false);
+    }
 }
 
 
@@ -0,0 +1,15 @@
+package ru.open.cu.student.sql.ast;
+
+import java.util.List;
+import java.util.Objects;
+
+public record InListExpr(Expr operand, List<Expr> values) implements Expr {
+    public InListExpr {
+        Objects.requireNonNull(operand, "operand");
+        Objects.requireNonNull(values, "values");
+        if (values.isEmpty()) {
+            throw new IllegalArgumentException("IN list must not be empty");
+        }
+        values = List.copyOf(values);
+    }
+}
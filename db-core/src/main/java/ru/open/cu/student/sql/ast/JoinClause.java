@@ -0,0 +1,11 @@
+package ru.open.cu.student.sql.ast;
+
+import java.util.Objects;
+
+public record JoinClause(JoinType type, TableRef table, Expr condition) implements AstNode {
+    public JoinClause {
+        Objects.requireNonNull(type, "type");
+        Objects.requireNonNull(table, "table");
+        Objects.requireNonNull(condition, "condition");
+    }
+}
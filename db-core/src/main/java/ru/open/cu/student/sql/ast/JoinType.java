@@ -0,0 +1,6 @@
+package ru.open.cu.student.sql.ast;
+
+public enum JoinType {
+    INNER,
+    LEFT
+}
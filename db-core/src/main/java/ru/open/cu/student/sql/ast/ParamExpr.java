@@ -0,0 +1,9 @@
+package ru.open.cu.student.sql.ast;
+
+public record ParamExpr(int index, int offset, int line, int column) implements Expr {
+    public ParamExpr {
+        if (index < 1) {
+            throw new IllegalArgumentException("index must be >= 1");
+        }
+    }
+}
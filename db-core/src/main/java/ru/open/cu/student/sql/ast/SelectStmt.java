@@ -3,12 +3,33 @@ package ru.open.cu.student.sql.ast;
 import java.util.List;
 import java.util.Objects;
 
-public record SelectStmt(boolean selectAll, List<SqlIdent> columns, SqlIdent tableName, Expr where) implements Statement {
+public record SelectStmt(
+        boolean selectAll,
+        List<Expr> targets,
+        TableRef from,
+        List<JoinClause> joins,
+        Expr where,
+        List<ColumnRefExpr> groupBy
+) implements Statement {
     public SelectStmt {
-        Objects.requireNonNull(columns, "columns");
-        Objects.requireNonNull(tableName, "tableName");
-        
+        Objects.requireNonNull(targets, "targets");
+        Objects.requireNonNull(from, "from");
+        Objects.requireNonNull(joins, "joins");
+        Objects.requireNonNull(groupBy, "groupBy");
+    }
+
+    public SelectStmt(boolean selectAll, List<Expr> targets, SqlIdent tableName, Expr where) {
+        this(selectAll, targets, new TableRef(tableName, null), List.of(), where, List.of());
     }
-}
 
+    public SqlIdent tableName() {
+        return from.name();
+    }
 
+    public List<SqlIdent> columns() {
+        return targets.stream()
+                .filter(t -> t instanceof ColumnRefExpr)
+                .map(t -> ((ColumnRefExpr) t).name())
+                .toList();
+    }
+}
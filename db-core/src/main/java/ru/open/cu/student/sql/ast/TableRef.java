@@ -0,0 +1,13 @@
+package ru.open.cu.student.sql.ast;
+
+import java.util.Objects;
+
+public record TableRef(SqlIdent name, SqlIdent alias) implements AstNode {
+    public TableRef {
+        Objects.requireNonNull(name, "name");
+    }
+
+    public String refName() {
+        return alias != null ? alias.text() : name.text();
+    }
+}
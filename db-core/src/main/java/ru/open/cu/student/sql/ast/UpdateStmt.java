@@ -0,0 +1,11 @@
+package ru.open.cu.student.sql.ast;
+
+import java.util.List;
+import java.util.Objects;
+
+public record UpdateStmt(SqlIdent tableName, List<Assignment> assignments, Expr where) implements Statement {
+    public UpdateStmt {
+        Objects.requireNonNull(tableName, "tableName");
+        Objects.requireNonNull(assignments, "assignments");
+    }
+}
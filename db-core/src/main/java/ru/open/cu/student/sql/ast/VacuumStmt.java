@@ -0,0 +1,7 @@
+package ru.open.cu.student.sql.ast;
+
+public record VacuumStmt(SqlIdent tableName) implements Statement {
+    public boolean allTables() {
+        return tableName == null;
+    }
+}
@@ -12,8 +12,10 @@ public final class SqlLexer {
         KEYWORDS.put("CREATE", TokenType.CREATE);
         KEYWORDS.put("TABLE", TokenType.TABLE);
         KEYWORDS.put("INDEX", TokenType.INDEX);
+        KEYWORDS.put("UNIQUE", TokenType.UNIQUE);
         KEYWORDS.put("ON", TokenType.ON);
         KEYWORDS.put("USING", TokenType.USING);
+        KEYWORDS.put("INCLUDE", TokenType.INCLUDE);
         KEYWORDS.put("HASH", TokenType.HASH);
         KEYWORDS.put("BTREE", TokenType.BTREE);
 
@@ -21,14 +23,27 @@ public final class SqlLexer {
         KEYWORDS.put("INTO", TokenType.INTO);
         KEYWORDS.put("VALUES", TokenType.VALUES);
 
+        KEYWORDS.put("DELETE", TokenType.DELETE);
+        KEYWORDS.put("UPDATE", TokenType.UPDATE);
+        KEYWORDS.put("SET", TokenType.SET);
+
         KEYWORDS.put("SELECT", TokenType.SELECT);
         KEYWORDS.put("FROM", TokenType.FROM);
         KEYWORDS.put("WHERE", TokenType.WHERE);
+        KEYWORDS.put("GROUP", TokenType.GROUP);
+        KEYWORDS.put("BY", TokenType.BY);
+        KEYWORDS.put("JOIN", TokenType.JOIN);
+        KEYWORDS.put("INNER", TokenType.INNER);
+        KEYWORDS.put("LEFT", TokenType.LEFT);
+        KEYWORDS.put("OUTER", TokenType.OUTER);
 
         KEYWORDS.put("AND", TokenType.AND);
         KEYWORDS.put("OR", TokenType.OR);
+        KEYWORDS.put("IN", TokenType.IN);
 
         KEYWORDS.put("EXPLAIN", TokenType.EXPLAIN);
+        KEYWORDS.put("ANALYZE", TokenType.ANALYZE);
+        KEYWORDS.put("VACUUM", TokenType.VACUUM);
 
         KEYWORDS.put("INT64", TokenType.INT64);
         KEYWORDS.put("VARCHAR", TokenType.VARCHAR);
@@ -70,6 +85,11 @@ public final class SqlLexer {
                 continue;
             }
 
+            if (c == '$' && isDigit(peekNext())) {
+                out.add(readParam());
+                continue;
+            }
+
             int startPos = pos;
             int startLine = line;
             int startCol = col;
@@ -95,6 +115,10 @@ public final class SqlLexer {
                     advance();
                     out.add(new Token(TokenType.ASTERISK, "*", startPos, pos, startLine, startCol));
                 }
+                case '.' -> {
+                    advance();
+                    out.add(new Token(TokenType.DOT, ".", startPos, pos, startLine, startCol));
+                }
                 case '=' -> {
                     advance();
                     out.add(new Token(TokenType.EQ, "=", startPos, pos, startLine, startCol));
@@ -171,6 +195,20 @@ public final class SqlLexer {
         return new Token(TokenType.NUMBER, sb.toString(), startPos, pos, startLine, startCol);
     }
 
+    private Token readParam() {
+        int startPos = pos;
+        int startLine = line;
+        int startCol = col;
+
+        advance();
+        StringBuilder sb = new StringBuilder();
+        while (!eof() && isDigit(peek())) {
+            sb.append(peek());
+            advance();
+        }
+        return new Token(TokenType.PARAM, sb.toString(), startPos, pos, startLine, startCol);
+    }
+
     private Token readString() {
         int startPos = pos;
         int startLine = line;
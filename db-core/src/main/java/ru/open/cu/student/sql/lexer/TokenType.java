@@ -8,13 +8,16 @@ public enum TokenType {
     IDENT,
     NUMBER,
     STRING,
+    PARAM,
 
     
     CREATE,
     TABLE,
     INDEX,
+    UNIQUE,
     ON,
     USING,
+    INCLUDE,
     HASH,
     BTREE,
 
@@ -22,14 +25,27 @@ public enum TokenType {
     INTO,
     VALUES,
 
+    DELETE,
+    UPDATE,
+    SET,
+
     SELECT,
     FROM,
     WHERE,
+    GROUP,
+    BY,
+    JOIN,
+    INNER,
+    LEFT,
+    OUTER,
 
     AND,
     OR,
+    IN,
 
     EXPLAIN,
+    ANALYZE,
+    VACUUM,
 
     INT64,
     VARCHAR,
@@ -40,6 +56,7 @@ public enum TokenType {
     COMMA,
     SEMICOLON,
     ASTERISK,
+    DOT,
 
     EQ,
     NE,
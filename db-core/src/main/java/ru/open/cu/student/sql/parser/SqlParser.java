@@ -9,8 +9,11 @@ import ru.open.cu.student.sql.lexer.TokenType;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 
 public final class SqlParser {
+    private static final Set<String> AGGREGATE_FUNCTIONS = Set.of("COUNT", "SUM", "MIN", "MAX", "AVG");
+
     private List<Token> tokens;
     private int pos;
 
@@ -30,16 +33,45 @@ public final class SqlParser {
             case EXPLAIN -> parseExplain();
             case CREATE -> parseCreate();
             case INSERT -> parseInsert();
+            case DELETE -> parseDelete();
+            case UPDATE -> parseUpdate();
             case SELECT -> parseSelect();
+            case ANALYZE -> parseAnalyze();
+            case VACUUM -> parseVacuum();
             default -> throw error("Unexpected start of statement: " + t.getType(), t);
         };
     }
 
     private Statement parseExplain() {
         expect(TokenType.EXPLAIN);
+        boolean analyze = false;
+        if (current().getType() == TokenType.ANALYZE && isStatementStart(peek(1).getType())) {
+            advance();
+            analyze = true;
+        }
         Statement inner = parseStatement();
         match(TokenType.SEMICOLON);
-        return new ExplainStmt(inner);
+        return new ExplainStmt(inner, analyze);
+    }
+
+    private Statement parseAnalyze() {
+        expect(TokenType.ANALYZE);
+        SqlIdent tableName = null;
+        if (current().getType() == TokenType.IDENT) {
+            tableName = expectIdent();
+        }
+        match(TokenType.SEMICOLON);
+        return new AnalyzeStmt(tableName);
+    }
+
+    private Statement parseVacuum() {
+        expect(TokenType.VACUUM);
+        SqlIdent tableName = null;
+        if (current().getType() == TokenType.IDENT) {
+            tableName = expectIdent();
+        }
+        match(TokenType.SEMICOLON);
+        return new VacuumStmt(tableName);
     }
 
     private Statement parseCreate() {
@@ -47,8 +79,12 @@ public final class SqlParser {
         Token t = current();
         return switch (t.getType()) {
             case TABLE -> parseCreateTable();
-            case INDEX -> parseCreateIndex();
-            default -> throw error("Expected TABLE or INDEX after CREATE, got " + t.getType(), t);
+            case INDEX -> parseCreateIndex(false);
+            case UNIQUE -> {
+                advance();
+                yield parseCreateIndex(true);
+            }
+            default -> throw error("Expected TABLE, INDEX or UNIQUE INDEX after CREATE, got " + t.getType(), t);
         };
     }
 
@@ -81,14 +117,28 @@ public final class SqlParser {
         return new ColumnDef(name, typeName);
     }
 
-    private Statement parseCreateIndex() {
+    private Statement parseCreateIndex(boolean unique) {
         expect(TokenType.INDEX);
         SqlIdent indexName = expectIdent();
         expect(TokenType.ON);
         SqlIdent tableName = expectIdent();
         expect(TokenType.LPAREN);
-        SqlIdent columnName = expectIdent();
+        List<SqlIdent> columnNames = new ArrayList<>();
+        columnNames.add(expectIdent());
+        while (match(TokenType.COMMA)) {
+            columnNames.add(expectIdent());
+        }
         expect(TokenType.RPAREN);
+
+        List<SqlIdent> includeColumns = new ArrayList<>();
+        if (match(TokenType.INCLUDE)) {
+            expect(TokenType.LPAREN);
+            includeColumns.add(expectIdent());
+            while (match(TokenType.COMMA)) {
+                includeColumns.add(expectIdent());
+            }
+            expect(TokenType.RPAREN);
+        }
         expect(TokenType.USING);
 
         IndexType type = switch (current().getType()) {
@@ -104,7 +154,7 @@ public final class SqlParser {
         };
 
         match(TokenType.SEMICOLON);
-        return new CreateIndexStmt(indexName, tableName, columnName, type);
+        return new CreateIndexStmt(indexName, tableName, columnNames, includeColumns, type, unique);
     }
 
     private Statement parseInsert() {
@@ -125,31 +175,149 @@ public final class SqlParser {
         return new InsertStmt(tableName, values);
     }
 
+    private Statement parseDelete() {
+        expect(TokenType.DELETE);
+        expect(TokenType.FROM);
+        SqlIdent tableName = expectIdent();
+
+        Expr where = null;
+        if (match(TokenType.WHERE)) {
+            where = parseExpr();
+        }
+
+        match(TokenType.SEMICOLON);
+        return new DeleteStmt(tableName, where);
+    }
+
+    private Statement parseUpdate() {
+        expect(TokenType.UPDATE);
+        SqlIdent tableName = expectIdent();
+        expect(TokenType.SET);
+
+        List<Assignment> assignments = new ArrayList<>();
+        assignments.add(parseAssignment());
+        while (match(TokenType.COMMA)) {
+            assignments.add(parseAssignment());
+        }
+
+        Expr where = null;
+        if (match(TokenType.WHERE)) {
+            where = parseExpr();
+        }
+
+        match(TokenType.SEMICOLON);
+        return new UpdateStmt(tableName, assignments, where);
+    }
+
+    private Assignment parseAssignment() {
+        SqlIdent column = expectIdent();
+        expect(TokenType.EQ);
+        return new Assignment(column, parseLiteral());
+    }
+
     private Statement parseSelect() {
         expect(TokenType.SELECT);
 
         boolean selectAll = false;
-        List<SqlIdent> columns = new ArrayList<>();
+        List<Expr> targets = new ArrayList<>();
 
         if (match(TokenType.ASTERISK)) {
             selectAll = true;
         } else {
-            columns.add(expectIdent());
+            targets.add(parseSelectTarget());
             while (match(TokenType.COMMA)) {
-                columns.add(expectIdent());
+                targets.add(parseSelectTarget());
             }
         }
 
         expect(TokenType.FROM);
-        SqlIdent tableName = expectIdent();
+        TableRef from = parseTableRef();
+
+        List<JoinClause> joins = new ArrayList<>();
+        JoinType joinType;
+        while ((joinType = parseJoinType()) != null) {
+            TableRef table = parseTableRef();
+            expect(TokenType.ON);
+            Expr condition = parseExpr();
+            joins.add(new JoinClause(joinType, table, condition));
+        }
 
         Expr where = null;
         if (match(TokenType.WHERE)) {
             where = parseExpr();
         }
 
+        List<ColumnRefExpr> groupBy = new ArrayList<>();
+        if (match(TokenType.GROUP)) {
+            expect(TokenType.BY);
+            groupBy.add(parseColumnRef(expectIdent()));
+            while (match(TokenType.COMMA)) {
+                groupBy.add(parseColumnRef(expectIdent()));
+            }
+        }
+
         match(TokenType.SEMICOLON);
-        return new SelectStmt(selectAll, columns, tableName, where);
+        return new SelectStmt(selectAll, targets, from, joins, where, groupBy);
+    }
+
+    private TableRef parseTableRef() {
+        SqlIdent name = expectIdent();
+        SqlIdent alias = null;
+        if (current().getType() == TokenType.IDENT) {
+            alias = expectIdent();
+        }
+        return new TableRef(name, alias);
+    }
+
+    private JoinType parseJoinType() {
+        if (match(TokenType.JOIN)) {
+            return JoinType.INNER;
+        }
+        if (match(TokenType.INNER)) {
+            expect(TokenType.JOIN);
+            return JoinType.INNER;
+        }
+        if (match(TokenType.LEFT)) {
+            match(TokenType.OUTER);
+            expect(TokenType.JOIN);
+            return JoinType.LEFT;
+        }
+        return null;
+    }
+
+    private Expr parseSelectTarget() {
+        SqlIdent ident = expectIdent();
+        if (current().getType() != TokenType.LPAREN) {
+            return parseColumnRef(ident);
+        }
+        return parseAggregateCall(ident);
+    }
+
+    private ColumnRefExpr parseColumnRef(SqlIdent first) {
+        if (match(TokenType.DOT)) {
+            return new ColumnRefExpr(first, expectIdent());
+        }
+        return new ColumnRefExpr(first);
+    }
+
+    private Expr parseAggregateCall(SqlIdent function) {
+        String name = function.text().toUpperCase();
+        if (!AGGREGATE_FUNCTIONS.contains(name)) {
+            throw new SqlSyntaxException("Unknown function: " + function.text(), function.offset(), function.line(), function.column());
+        }
+
+        expect(TokenType.LPAREN);
+        Expr argument = null;
+        if (current().getType() == TokenType.ASTERISK) {
+            if (!name.equals("COUNT")) {
+                throw error(name + "(*) is not supported", current());
+            }
+            advance();
+        } else {
+            argument = parseColumnRef(expectIdent());
+        }
+        expect(TokenType.RPAREN);
+        return new AggregateExpr(function, argument);
     }
 
     
@@ -177,6 +345,15 @@ public final class SqlParser {
 
     private Expr parseComparison() {
         Expr left = parsePrimary();
+        if (match(TokenType.IN)) {
+            expect(TokenType.LPAREN);
+            List<Expr> values = new ArrayList<>();
+            do {
+                values.add(parsePrimary());
+            } while (match(TokenType.COMMA));
+            expect(TokenType.RPAREN);
+            return new InListExpr(left, values);
+        }
         TokenType t = current().getType();
         String op = switch (t) {
             case EQ -> "=";
@@ -200,9 +377,9 @@ public final class SqlParser {
         return switch (t.getType()) {
             case IDENT -> {
                 SqlIdent ident = expectIdent();
-                yield new ColumnRefExpr(ident);
+                yield parseColumnRef(ident);
             }
-            case NUMBER, STRING -> parseLiteral();
+            case NUMBER, STRING, PARAM -> parseLiteral();
             case LPAREN -> {
                 expect(TokenType.LPAREN);
                 Expr e = parseExpr();
@@ -228,7 +405,20 @@ public final class SqlParser {
                 advance();
                 yield new LiteralStringExpr(t.getText());
             }
-            default -> throw error("Expected literal (NUMBER or STRING)", t);
+            case PARAM -> {
+                advance();
+                int index;
+                try {
+                    index = Integer.parseInt(t.getText());
+                } catch (NumberFormatException e) {
+                    throw error("Invalid parameter: $" + t.getText(), t);
+                }
+                if (index < 1) {
+                    throw error("Parameter index must be >= 1: $" + t.getText(), t);
+                }
+                yield new ParamExpr(index, t.getStartOffset(), t.getLine(), t.getColumn());
+            }
+            default -> throw error("Expected literal (NUMBER, STRING or parameter)", t);
         };
     }
 
@@ -238,6 +428,16 @@ public final class SqlParser {
         return tokens.get(pos);
     }
 
+    private Token peek(int offset) {
+        int i = Math.min(pos + offset, tokens.size() - 1);
+        return tokens.get(i);
+    }
+
+    private static boolean isStatementStart(TokenType type) {
+        return type == TokenType.SELECT || type == TokenType.INSERT || type == TokenType.CREATE
+                || type == TokenType.DELETE || type == TokenType.UPDATE;
+    }
+
     private void advance() {
         if (pos < tokens.size()) pos++;
     }
@@ -0,0 +1,9 @@
+package ru.open.cu.student.sql.semantic;
+
+public enum AggregateFunction {
+    COUNT,
+    SUM,
+    MIN,
+    MAX,
+    AVG
+}
@@ -5,19 +5,28 @@ import ru.open.cu.student.catalog.model.TableDefinition;
 import ru.open.cu.student.index.IndexType;
 import ru.open.cu.student.sql.ast.SqlIdent;
 
+import java.util.List;
 import java.util.Objects;
 
 public record CreateIndexQueryTree(
         SqlIdent indexName,
         TableDefinition table,
-        ColumnDefinition column,
-        IndexType indexType
+        List<ColumnDefinition> columns,
+        List<ColumnDefinition> includeColumns,
+        IndexType indexType,
+        boolean unique
 ) implements QueryTree {
     public CreateIndexQueryTree {
         Objects.requireNonNull(indexName, "indexName");
         Objects.requireNonNull(table, "table");
-        Objects.requireNonNull(column, "column");
+        Objects.requireNonNull(columns, "columns");
+        Objects.requireNonNull(includeColumns, "includeColumns");
         Objects.requireNonNull(indexType, "indexType");
+        if (columns.isEmpty()) {
+            throw new IllegalArgumentException("columns must not be empty");
+        }
+        columns = List.copyOf(columns);
+        includeColumns = List.copyOf(includeColumns);
     }
 
     @Override
@@ -25,5 +34,3 @@ public record CreateIndexQueryTree(
         return QueryType.CREATE_INDEX;
     }
 }
-
-
@@ -0,0 +1,19 @@
+package ru.open.cu.student.sql.semantic;
+
+import ru.open.cu.student.catalog.model.ColumnDefinition;
+import ru.open.cu.student.catalog.model.TableDefinition;
+
+import java.util.List;
+import java.util.Objects;
+
+public record DeleteQueryTree(TableDefinition table, List<ColumnDefinition> columns, ResolvedExpr filter) implements QueryTree {
+    public DeleteQueryTree {
+        Objects.requireNonNull(table, "table");
+        Objects.requireNonNull(columns, "columns");
+    }
+
+    @Override
+    public QueryType getType() {
+        return QueryType.DELETE;
+    }
+}
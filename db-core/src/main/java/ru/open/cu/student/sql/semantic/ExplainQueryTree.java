@@ -2,11 +2,15 @@ package ru.open.cu.student.sql.semantic;
 
 import java.util.Objects;
 
-public record ExplainQueryTree(QueryTree inner) implements QueryTree {
+public record ExplainQueryTree(QueryTree inner, boolean analyze) implements QueryTree {
     public ExplainQueryTree {
         Objects.requireNonNull(inner, "inner");
     }
 
+    public ExplainQueryTree(QueryTree inner) {
+        this(inner, false);
+    }
+
     @Override
     public QueryType getType() {
         return QueryType.EXPLAIN;
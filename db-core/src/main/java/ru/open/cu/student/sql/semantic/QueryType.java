@@ -3,9 +3,13 @@ package ru.open.cu.student.sql.semantic;
 public enum QueryType {
     CREATE_TABLE,
     INSERT,
+    DELETE,
+    UPDATE,
     SELECT,
     CREATE_INDEX,
-    EXPLAIN
+    EXPLAIN,
+    ANALYZE,
+    VACUUM
 }
 
 
@@ -0,0 +1,25 @@
+package ru.open.cu.student.sql.semantic;
+
+import ru.open.cu.student.catalog.model.ColumnDefinition;
+
+import java.util.Objects;
+
+public record ResolvedAggregate(AggregateFunction function, ColumnDefinition argument, ExprType resultType) {
+    public ResolvedAggregate {
+        Objects.requireNonNull(function, "function");
+        Objects.requireNonNull(resultType, "resultType");
+    }
+
+    public boolean isCountStar() {
+        return function == AggregateFunction.COUNT && argument == null;
+    }
+
+    public String outputName() {
+        return function.name().toLowerCase();
+    }
+
+    @Override
+    public String toString() {
+        return function + "(" + (argument == null ? "*" : argument.getName()) + ")";
+    }
+}
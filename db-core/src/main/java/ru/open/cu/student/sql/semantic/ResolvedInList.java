@@ -0,0 +1,18 @@
+package ru.open.cu.student.sql.semantic;
+
+import java.util.List;
+import java.util.Objects;
+
+public record ResolvedInList(ResolvedExpr operand, List<ResolvedExpr> values, ExprType exprType) implements ResolvedExpr {
+    public ResolvedInList {
+        Objects.requireNonNull(operand, "operand");
+        Objects.requireNonNull(values, "values");
+        Objects.requireNonNull(exprType, "exprType");
+        values = List.copyOf(values);
+    }
+
+    @Override
+    public ExprType getExprType() {
+        return exprType;
+    }
+}
@@ -0,0 +1,27 @@
+package ru.open.cu.student.sql.semantic;
+
+import ru.open.cu.student.catalog.model.ColumnDefinition;
+import ru.open.cu.student.catalog.model.TableDefinition;
+import ru.open.cu.student.sql.ast.JoinType;
+
+import java.util.Objects;
+
+public record ResolvedJoin(
+        JoinType type,
+        TableDefinition table,
+        int columnOffset,
+        ColumnDefinition leftKey,
+        ColumnDefinition rightKey
+) {
+    public ResolvedJoin {
+        Objects.requireNonNull(type, "type");
+        Objects.requireNonNull(table, "table");
+        Objects.requireNonNull(leftKey, "leftKey");
+        Objects.requireNonNull(rightKey, "rightKey");
+    }
+
+    @Override
+    public String toString() {
+        return type + ", " + leftKey.getName() + " = " + table.getName() + "." + rightKey.getName();
+    }
+}
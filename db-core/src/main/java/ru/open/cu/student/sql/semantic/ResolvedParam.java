@@ -0,0 +1,22 @@
+package ru.open.cu.student.sql.semantic;
+
+import java.util.Objects;
+
+public record ResolvedParam(int index, ExprType exprType) implements ResolvedExpr {
+    public ResolvedParam {
+        Objects.requireNonNull(exprType, "exprType");
+        if (index < 1) {
+            throw new IllegalArgumentException("index must be >= 1");
+        }
+    }
+
+    @Override
+    public ExprType getExprType() {
+        return exprType;
+    }
+
+    @Override
+    public String toString() {
+        return "$" + index;
+    }
+}
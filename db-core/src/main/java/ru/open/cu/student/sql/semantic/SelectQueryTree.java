@@ -8,13 +8,26 @@ import java.util.Objects;
 
 public record SelectQueryTree(
         TableDefinition table,
+        List<ResolvedJoin> joins,
         List<ColumnDefinition> targetColumns,
-        ResolvedExpr filter
+        ResolvedExpr filter,
+        List<ColumnDefinition> groupBy,
+        List<ResolvedAggregate> aggregates
 ) implements QueryTree {
     public SelectQueryTree {
         Objects.requireNonNull(table, "table");
+        Objects.requireNonNull(joins, "joins");
         Objects.requireNonNull(targetColumns, "targetColumns");
-        
+        Objects.requireNonNull(groupBy, "groupBy");
+        Objects.requireNonNull(aggregates, "aggregates");
+    }
+
+    public SelectQueryTree(TableDefinition table, List<ColumnDefinition> targetColumns, ResolvedExpr filter) {
+        this(table, List.of(), targetColumns, filter, List.of(), List.of());
+    }
+
+    public boolean isAggregate() {
+        return !groupBy.isEmpty() || !aggregates.isEmpty();
     }
 
     @Override
@@ -22,5 +35,3 @@ public record SelectQueryTree(
         return QueryType.SELECT;
     }
 }
-
-
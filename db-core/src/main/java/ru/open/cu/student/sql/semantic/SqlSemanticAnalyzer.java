@@ -8,6 +8,7 @@ import ru.open.cu.student.index.IndexType;
 import ru.open.cu.student.sql.ast.*;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
@@ -20,7 +21,7 @@ public final class SqlSemanticAnalyzer {
         Objects.requireNonNull(catalog, "catalog");
 
         if (ast instanceof ExplainStmt ex) {
-            return new ExplainQueryTree(analyze(ex.inner(), catalog));
+            return new ExplainQueryTree(analyze(ex.inner(), catalog), ex.analyze());
         }
         if (ast instanceof CreateTableStmt ct) {
             return analyzeCreateTable(ct, catalog);
@@ -28,12 +29,24 @@ public final class SqlSemanticAnalyzer {
         if (ast instanceof InsertStmt ins) {
             return analyzeInsert(ins, catalog);
         }
+        if (ast instanceof DeleteStmt del) {
+            return analyzeDelete(del, catalog);
+        }
+        if (ast instanceof UpdateStmt upd) {
+            return analyzeUpdate(upd, catalog);
+        }
         if (ast instanceof SelectStmt sel) {
             return analyzeSelect(sel, catalog);
         }
         if (ast instanceof CreateIndexStmt ci) {
             return analyzeCreateIndex(ci, catalog);
         }
+        if (ast instanceof AnalyzeStmt an) {
+            return analyzeAnalyze(an, catalog);
+        }
+        if (ast instanceof VacuumStmt vac) {
+            return analyzeVacuum(vac, catalog);
+        }
 
         throw new SqlSemanticException("Unsupported statement type: " + ast.getClass().getSimpleName(), null, null, null);
     }
@@ -86,9 +99,14 @@ public final class SqlSemanticAnalyzer {
             }
 
             Expr expr = stmt.values().get(i);
+            ExprType ct = toExprType(type);
+            if (expr instanceof ParamExpr p) {
+                values.add(new ResolvedParam(p.index(), ct));
+                continue;
+            }
+
             Object v = resolveLiteral(expr);
             ExprType vt = inferLiteralType(expr);
-            ExprType ct = toExprType(type);
 
             if (vt != ct) {
                 throw new SqlSemanticException(
@@ -103,35 +121,224 @@ public final class SqlSemanticAnalyzer {
         return new InsertQueryTree(table, columns, values);
     }
 
+    private QueryTree analyzeDelete(DeleteStmt stmt, CatalogManager catalog) {
+        Scope scope = new Scope();
+        TableDefinition table = scope.add(new TableRef(stmt.tableName(), null), catalog);
+        ResolvedExpr filter = resolveWhere(stmt.where(), scope, catalog);
+        return new DeleteQueryTree(table, catalog.getColumns(table), filter);
+    }
+
+    private QueryTree analyzeUpdate(UpdateStmt stmt, CatalogManager catalog) {
+        Scope scope = new Scope();
+        TableDefinition table = scope.add(new TableRef(stmt.tableName(), null), catalog);
+
+        List<ColumnDefinition> setColumns = new ArrayList<>();
+        List<Object> setValues = new ArrayList<>();
+        for (Assignment a : stmt.assignments()) {
+            ColumnDefinition col = catalog.getColumn(table, a.column().text());
+            if (col == null) {
+                throw semanticError("Column not found: " + table.getName() + "." + a.column().text(), a.column());
+            }
+            if (indexOfColumn(setColumns, col) >= 0) {
+                throw semanticError("Column assigned more than once: " + col.getName(), a.column());
+            }
+
+            ExprType ct = toExprType(requireType(catalog, col));
+            setColumns.add(col);
+            if (a.value() instanceof ParamExpr p) {
+                setValues.add(new ResolvedParam(p.index(), ct));
+                continue;
+            }
+
+            ExprType vt = inferLiteralType(a.value());
+            if (vt != ct) {
+                throw semanticError("Type mismatch for column " + col.getName() + ": expected " + ct + " got " + vt, a.column());
+            }
+            setValues.add(resolveLiteral(a.value()));
+        }
+
+        ResolvedExpr filter = resolveWhere(stmt.where(), scope, catalog);
+        return new UpdateQueryTree(table, catalog.getColumns(table), setColumns, setValues, filter);
+    }
+
+    private ResolvedExpr resolveWhere(Expr where, Scope scope, CatalogManager catalog) {
+        if (where == null) {
+            return null;
+        }
+        ResolvedExpr filter = resolveExpr(where, scope, catalog);
+        if (filter.getExprType() != ExprType.BOOL) {
+            throw new SqlSemanticException("WHERE clause must be boolean", null, null, null);
+        }
+        return filter;
+    }
+
     private QueryTree analyzeSelect(SelectStmt stmt, CatalogManager catalog) {
-        SqlIdent tableName = stmt.tableName();
-        TableDefinition table = catalog.getTable(tableName.text());
-        if (table == null) {
-            throw semanticError("Table not found: " + tableName.text(), tableName);
+        Scope scope = new Scope();
+        TableDefinition table = scope.add(stmt.from(), catalog);
+
+        List<ResolvedJoin> joins = new ArrayList<>();
+        for (JoinClause join : stmt.joins()) {
+            joins.add(resolveJoin(join, scope, catalog));
+        }
+
+        ResolvedExpr filter = resolveWhere(stmt.where(), scope, catalog);
+
+        boolean hasAggregates = stmt.targets().stream().anyMatch(t -> t instanceof AggregateExpr);
+        if (hasAggregates || !stmt.groupBy().isEmpty()) {
+            return analyzeAggregateSelect(stmt, table, joins, filter, scope, catalog);
         }
 
         List<ColumnDefinition> outCols = new ArrayList<>();
         if (stmt.selectAll()) {
-            outCols.addAll(catalog.getColumns(table));
+            outCols.addAll(scope.allColumns());
         } else {
-            for (SqlIdent colName : stmt.columns()) {
-                ColumnDefinition col = catalog.getColumn(table, colName.text());
-                if (col == null) {
-                    throw semanticError("Column not found: " + tableName.text() + "." + colName.text(), colName);
+            for (Expr target : stmt.targets()) {
+                outCols.add(scope.resolve((ColumnRefExpr) target));
+            }
+        }
+
+        return new SelectQueryTree(table, joins, outCols, filter, List.of(), List.of());
+    }
+
+    private ResolvedJoin resolveJoin(JoinClause join, Scope scope, CatalogManager catalog) {
+        int offset = scope.width();
+        TableDefinition table = scope.add(join.table(), catalog);
+
+        if (join.condition() instanceof BinaryExpr b && b.op().equals("=")
+                && b.left() instanceof ColumnRefExpr l && b.right() instanceof ColumnRefExpr r) {
+            ColumnDefinition left = scope.resolve(l);
+            ColumnDefinition right = scope.resolve(r);
+            if (left.getPosition() >= offset && right.getPosition() < offset) {
+                ColumnDefinition tmp = left;
+                left = right;
+                right = tmp;
+            }
+            if (left.getPosition() < offset && right.getPosition() >= offset) {
+                if (left.getTypeOid() != right.getTypeOid()) {
+                    throw semanticError("Type mismatch in JOIN condition: " + left.getName() + " vs " + right.getName(), l.name());
+                }
+                ColumnDefinition rightKey = catalog.getColumn(table, right.getName());
+                return new ResolvedJoin(join.type(), table, offset, left, rightKey);
+            }
+        }
+
+        throw semanticError("JOIN condition must be an equality between a column of "
+                + join.table().refName() + " and a column of a preceding table", join.table().name());
+    }
+
+    private QueryTree analyzeAggregateSelect(
+            SelectStmt stmt,
+            TableDefinition table,
+            List<ResolvedJoin> joins,
+            ResolvedExpr filter,
+            Scope scope,
+            CatalogManager catalog
+    ) {
+        if (stmt.selectAll()) {
+            throw semanticError("SELECT * is not allowed with GROUP BY", stmt.tableName());
+        }
+
+        List<ColumnDefinition> groupBy = new ArrayList<>();
+        for (ColumnRefExpr ref : stmt.groupBy()) {
+            ColumnDefinition col = scope.resolve(ref);
+            if (indexOfColumn(groupBy, col) < 0) {
+                groupBy.add(col);
+            }
+        }
+
+        List<ResolvedAggregate> aggregates = new ArrayList<>();
+        List<ColumnDefinition> outCols = new ArrayList<>();
+        for (Expr target : stmt.targets()) {
+            if (target instanceof ColumnRefExpr cr) {
+                ColumnDefinition col = scope.resolve(cr);
+                int groupPos = indexOfColumn(groupBy, col);
+                if (groupPos < 0) {
+                    throw semanticError("Column " + col.getName() + " must appear in GROUP BY or be used in an aggregate function", cr.name());
                 }
-                outCols.add(col);
+                outCols.add(new ColumnDefinition(col.getOid(), col.getTableOid(), col.getTypeOid(), col.getName(), groupPos));
+                continue;
             }
+
+            AggregateExpr agg = (AggregateExpr) target;
+            ResolvedAggregate resolved = resolveAggregate(agg, scope, catalog);
+            aggregates.add(resolved);
+
+            TypeDefinition resultType = catalog.getTypeByName(resolved.resultType().name());
+            outCols.add(new ColumnDefinition(
+                    resultType.getOid(),
+                    resolved.outputName(),
+                    groupBy.size() + aggregates.size() - 1
+            ));
+        }
+
+        return new SelectQueryTree(table, joins, outCols, filter, groupBy, aggregates);
+    }
+
+    private ResolvedAggregate resolveAggregate(AggregateExpr agg, Scope scope, CatalogManager catalog) {
+        AggregateFunction function = AggregateFunction.valueOf(agg.function().text().toUpperCase());
+        if (agg.isStar()) {
+            return new ResolvedAggregate(function, null, ExprType.INT64);
         }
 
-        ResolvedExpr filter = null;
-        if (stmt.where() != null) {
-            filter = resolveExpr(stmt.where(), table, catalog);
-            if (filter.getExprType() != ExprType.BOOL) {
-                throw new SqlSemanticException("WHERE clause must be boolean", null, null, null);
+        if (!(agg.argument() instanceof ColumnRefExpr cr)) {
+            throw semanticError("Aggregate argument must be a column", agg.function());
+        }
+        ColumnDefinition col = scope.resolve(cr);
+        ExprType argType = toExprType(requireType(catalog, col));
+
+        return switch (function) {
+            case COUNT -> new ResolvedAggregate(function, col, ExprType.INT64);
+            case MIN, MAX -> new ResolvedAggregate(function, col, argType);
+            case SUM, AVG -> {
+                if (argType != ExprType.INT64) {
+                    throw semanticError(function + " expects INT64 argument, got " + argType, cr.name());
+                }
+                yield new ResolvedAggregate(function, col, ExprType.INT64);
             }
+        };
+    }
+
+    private static int indexOfColumn(List<ColumnDefinition> columns, ColumnDefinition col) {
+        for (int i = 0; i < columns.size(); i++) {
+            if (columns.get(i).getPosition() == col.getPosition()) return i;
         }
+        return -1;
+    }
 
-        return new SelectQueryTree(table, outCols, filter);
+    private static TypeDefinition requireType(CatalogManager catalog, ColumnDefinition col) {
+        TypeDefinition t = catalog.getTypeByOid(col.getTypeOid());
+        if (t == null) {
+            throw new SqlSemanticException("Unknown type oid: " + col.getTypeOid(), null, null, null);
+        }
+        return t;
+    }
+
+    private QueryTree analyzeAnalyze(AnalyzeStmt stmt, CatalogManager catalog) {
+        if (stmt.allTables()) {
+            List<TableDefinition> tables = new ArrayList<>(catalog.listTables());
+            tables.sort(Comparator.comparingInt(TableDefinition::getOid));
+            return new AnalyzeQueryTree(tables);
+        }
+
+        TableDefinition table = catalog.getTable(stmt.tableName().text());
+        if (table == null) {
+            throw semanticError("Table not found: " + stmt.tableName().text(), stmt.tableName());
+        }
+        return new AnalyzeQueryTree(List.of(table));
+    }
+
+    private QueryTree analyzeVacuum(VacuumStmt stmt, CatalogManager catalog) {
+        if (stmt.allTables()) {
+            List<TableDefinition> tables = new ArrayList<>(catalog.listTables());
+            tables.sort(Comparator.comparingInt(TableDefinition::getOid));
+            return new VacuumQueryTree(tables);
+        }
+
+        TableDefinition table = catalog.getTable(stmt.tableName().text());
+        if (table == null) {
+            throw semanticError("Table not found: " + stmt.tableName().text(), stmt.tableName());
+        }
+        return new VacuumQueryTree(List.of(table));
     }
 
     private QueryTree analyzeCreateIndex(CreateIndexStmt stmt, CatalogManager catalog) {
@@ -146,28 +353,55 @@ public final class SqlSemanticAnalyzer {
             throw semanticError("Table not found: " + tableName.text(), tableName);
         }
 
-        SqlIdent columnName = stmt.columnName();
-        ColumnDefinition col = catalog.getColumn(table, columnName.text());
-        if (col == null) {
-            throw semanticError("Column not found: " + tableName.text() + "." + columnName.text(), columnName);
+        IndexType indexType = stmt.indexType();
+        if (indexType != IndexType.BTREE && !stmt.includeColumns().isEmpty()) {
+            throw semanticError("INCLUDE is only supported for BTREE indexes", indexName);
+        }
+        if (indexType != IndexType.BTREE && stmt.columnNames().size() > 1) {
+            throw semanticError("Multi-column keys are only supported for BTREE indexes", indexName);
+        }
+        if (stmt.unique() && !stmt.includeColumns().isEmpty()) {
+            throw semanticError("UNIQUE indexes do not support INCLUDE columns", indexName);
         }
 
-        IndexType indexType = stmt.indexType();
-        return new CreateIndexQueryTree(indexName, table, col, indexType);
+        List<ColumnDefinition> seen = new ArrayList<>();
+        List<ColumnDefinition> columns = new ArrayList<>();
+        for (SqlIdent name : stmt.columnNames()) {
+            columns.add(resolveIndexColumn(catalog, table, tableName, name, seen));
+        }
+        List<ColumnDefinition> include = new ArrayList<>();
+        for (SqlIdent name : stmt.includeColumns()) {
+            include.add(resolveIndexColumn(catalog, table, tableName, name, seen));
+        }
+        return new CreateIndexQueryTree(indexName, table, columns, include, indexType, stmt.unique());
+    }
+
+    private ColumnDefinition resolveIndexColumn(
+            CatalogManager catalog,
+            TableDefinition table,
+            SqlIdent tableName,
+            SqlIdent name,
+            List<ColumnDefinition> seen
+    ) {
+        ColumnDefinition c = catalog.getColumn(table, name.text());
+        if (c == null) {
+            throw semanticError("Column not found: " + tableName.text() + "." + name.text(), name);
+        }
+        if (seen.contains(c)) {
+            throw semanticError("Duplicate index column: " + name.text(), name);
+        }
+        seen.add(c);
+        return c;
     }
 
-    private ResolvedExpr resolveExpr(Expr expr, TableDefinition table, CatalogManager catalog) {
+    private ResolvedExpr resolveExpr(Expr expr, Scope scope, CatalogManager catalog) {
         if (expr instanceof ColumnRefExpr cr) {
-            SqlIdent name = cr.name();
-            ColumnDefinition col = catalog.getColumn(table, name.text());
-            if (col == null) {
-                throw semanticError("Column not found: " + table.getName() + "." + name.text(), name);
-            }
-            TypeDefinition t = catalog.getTypeByOid(col.getTypeOid());
-            if (t == null) {
-                throw new SqlSemanticException("Unknown type oid: " + col.getTypeOid(), null, null, null);
-            }
-            return new ResolvedColumnRef(col, toExprType(t));
+            ColumnDefinition col = scope.resolve(cr);
+            return new ResolvedColumnRef(col, toExprType(requireType(catalog, col)));
+        }
+
+        if (expr instanceof AggregateExpr agg) {
+            throw semanticError("Aggregate functions are not allowed in WHERE", agg.function());
         }
 
         if (expr instanceof LiteralInt64Expr li) {
@@ -177,10 +411,23 @@ public final class SqlSemanticAnalyzer {
             return new ResolvedConst(ls.value(), ExprType.VARCHAR);
         }
 
+        if (expr instanceof ParamExpr p) {
+            throw new SqlSemanticException("Cannot infer type of parameter $" + p.index(), p.offset(), p.line(), p.column());
+        }
+
         if (expr instanceof BinaryExpr b) {
-            ResolvedExpr left = resolveExpr(b.left(), table, catalog);
-            ResolvedExpr right = resolveExpr(b.right(), table, catalog);
             String op = b.op();
+            if (isComparison(op) && b.left() instanceof ParamExpr p && !(b.right() instanceof ParamExpr)) {
+                ResolvedExpr right = resolveExpr(b.right(), scope, catalog);
+                return new ResolvedBinaryExpr(op, resolveParam(p, right), right, ExprType.BOOL);
+            }
+            if (isComparison(op) && b.right() instanceof ParamExpr p && !(b.left() instanceof ParamExpr)) {
+                ResolvedExpr left = resolveExpr(b.left(), scope, catalog);
+                return new ResolvedBinaryExpr(op, left, resolveParam(p, left), ExprType.BOOL);
+            }
+
+            ResolvedExpr left = resolveExpr(b.left(), scope, catalog);
+            ResolvedExpr right = resolveExpr(b.right(), scope, catalog);
 
             if (op.equals("AND") || op.equals("OR")) {
                 requireType(left, ExprType.BOOL, "Left operand of " + op);
@@ -202,9 +449,32 @@ public final class SqlSemanticAnalyzer {
             throw new SqlSemanticException("Unsupported operator: " + op, null, null, null);
         }
 
+        if (expr instanceof InListExpr in) {
+            ResolvedExpr operand = resolveExpr(in.operand(), scope, catalog);
+            if (operand.getExprType() == ExprType.BOOL) {
+                throw new SqlSemanticException("Cannot compare BOOL values", null, null, null);
+            }
+            List<ResolvedExpr> values = new ArrayList<>(in.values().size());
+            for (Expr v : in.values()) {
+                ResolvedExpr value = v instanceof ParamExpr p ? resolveParam(p, operand) : resolveExpr(v, scope, catalog);
+                if (value.getExprType() != operand.getExprType()) {
+                    throw new SqlSemanticException("Type mismatch in IN list: " + operand.getExprType() + " vs " + value.getExprType(), null, null, null);
+                }
+                values.add(value);
+            }
+            return new ResolvedInList(operand, values, ExprType.BOOL);
+        }
+
         throw new SqlSemanticException("Unsupported expression type: " + expr.getClass().getSimpleName(), null, null, null);
     }
 
+    private static ResolvedParam resolveParam(ParamExpr param, ResolvedExpr other) {
+        if (other.getExprType() == ExprType.BOOL) {
+            throw new SqlSemanticException("Cannot compare BOOL values", param.offset(), param.line(), param.column());
+        }
+        return new ResolvedParam(param.index(), other.getExprType());
+    }
+
     private static boolean isComparison(String op) {
         return op.equals("=") || op.equals("<>") || op.equals("<") || op.equals("<=") || op.equals(">") || op.equals(">=");
     }
@@ -222,7 +492,7 @@ public final class SqlSemanticAnalyzer {
         if (expr instanceof LiteralStringExpr ls) {
             return ls.value();
         }
-        throw new SqlSemanticException("Only literal values are supported in INSERT", null, null, null);
+        throw new SqlSemanticException("Only literal values are supported in INSERT and UPDATE", null, null, null);
     }
 
     private static ExprType inferLiteralType(Expr expr) {
@@ -251,6 +521,82 @@ public final class SqlSemanticAnalyzer {
             default -> upper;
         };
     }
-}
 
+    private record Source(String name, TableDefinition table, List<ColumnDefinition> columns) {
+    }
 
+    private static final class Scope {
+        private final List<Source> sources = new ArrayList<>();
+        private int width;
+
+        int width() {
+            return width;
+        }
+
+        TableDefinition add(TableRef ref, CatalogManager catalog) {
+            TableDefinition table = catalog.getTable(ref.name().text());
+            if (table == null) {
+                throw semanticError("Table not found: " + ref.name().text(), ref.name());
+            }
+            String name = ref.refName();
+            if (sources.stream().anyMatch(s -> s.name().equals(name))) {
+                throw semanticError("Duplicate table name in FROM: " + name, ref.alias() != null ? ref.alias() : ref.name());
+            }
+
+            List<ColumnDefinition> columns = new ArrayList<>();
+            for (ColumnDefinition c : catalog.getColumns(table)) {
+                columns.add(width == 0 ? c : new ColumnDefinition(
+                        c.getOid(), c.getTableOid(), c.getTypeOid(), c.getName(), c.getPosition() + width));
+            }
+            sources.add(new Source(name, table, columns));
+            width += columns.size();
+            return table;
+        }
+
+        ColumnDefinition resolve(ColumnRefExpr ref) {
+            SqlIdent name = ref.name();
+            if (ref.qualifier() != null) {
+                for (Source s : sources) {
+                    if (s.name().equals(ref.qualifier().text())) {
+                        ColumnDefinition col = find(s, name.text());
+                        if (col == null) {
+                            throw semanticError("Column not found: " + s.name() + "." + name.text(), name);
+                        }
+                        return col;
+                    }
+                }
+                throw semanticError("Unknown table reference: " + ref.qualifier().text(), ref.qualifier());
+            }
+
+            ColumnDefinition found = null;
+            for (Source s : sources) {
+                ColumnDefinition col = find(s, name.text());
+                if (col == null) continue;
+                if (found != null) {
+                    throw semanticError("Ambiguous column reference: " + name.text(), name);
+                }
+                found = col;
+            }
+            if (found == null) {
+                String where = sources.size() == 1 ? sources.get(0).table().getName() + "." : "";
+                throw semanticError("Column not found: " + where + name.text(), name);
+            }
+            return found;
+        }
+
+        List<ColumnDefinition> allColumns() {
+            List<ColumnDefinition> out = new ArrayList<>(width);
+            for (Source s : sources) {
+                out.addAll(s.columns());
+            }
+            return out;
+        }
+
+        private static ColumnDefinition find(Source source, String name) {
+            for (ColumnDefinition c : source.columns()) {
+                if (c.getName().equals(name)) return c;
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package ru.open.cu.student.sql.semantic;
+
+import ru.open.cu.student.catalog.model.ColumnDefinition;
+import ru.open.cu.student.catalog.model.TableDefinition;
+
+import java.util.List;
+import java.util.Objects;
+
+public record UpdateQueryTree(
+        TableDefinition table,
+        List<ColumnDefinition> columns,
+        List<ColumnDefinition> setColumns,
+        List<Object> setValues,
+        ResolvedExpr filter
+) implements QueryTree {
+    public UpdateQueryTree {
+        Objects.requireNonNull(table, "table");
+        Objects.requireNonNull(columns, "columns");
+        Objects.requireNonNull(setColumns, "setColumns");
+        Objects.requireNonNull(setValues, "setValues");
+        if (setColumns.size() != setValues.size()) {
+            throw new IllegalArgumentException("setColumns and setValues must have the same size");
+        }
+    }
+
+    @Override
+    public QueryType getType() {
+        return QueryType.UPDATE;
+    }
+}
@@ -0,0 +1,17 @@
+package ru.open.cu.student.sql.semantic;
+
+import ru.open.cu.student.catalog.model.TableDefinition;
+
+import java.util.List;
+import java.util.Objects;
+
+public record VacuumQueryTree(List<TableDefinition> tables) implements QueryTree {
+    public VacuumQueryTree {
+        Objects.requireNonNull(tables, "tables");
+    }
+
+    @Override
+    public QueryType getType() {
+        return QueryType.VACUUM;
+    }
+}
@@ -0,0 +1,92 @@
+package ru.open.cu.student.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.open.cu.student.catalog.manager.CatalogManager;
+import ru.open.cu.student.catalog.model.TableDefinition;
+import ru.open.cu.student.catalog.model.TableStatistics;
+import ru.open.cu.student.memory.buffer.BufferPoolManager;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public final class AutoVacuum {
+    private static final Logger log = LoggerFactory.getLogger(AutoVacuum.class);
+    private static final String THREAD_NAME = "AutoVacuum-WorkerThread";
+
+    public static final int DEFAULT_INTERVAL_MS = Integer.getInteger("db.autovacuum.intervalMs", 1_000);
+    private static final int DEAD_TUPLES_THRESHOLD = Integer.getInteger("db.autovacuum.threshold", 50);
+    private static final int SCALE_PERCENT = Integer.getInteger("db.autovacuum.scalePercent", 20);
+    private static final int PAGE_DEAD_PERCENT = Integer.getInteger("db.autovacuum.pageDeadPercent", 20);
+
+    private final Path root;
+    private final BufferPoolManager bufferPool;
+    private final CatalogManager catalog;
+    private final HeapFileRegistry heapFiles;
+    private final int intervalMs;
+
+    private final AtomicBoolean started = new AtomicBoolean(false);
+    private Thread worker;
+
+    public AutoVacuum(Path root, BufferPoolManager bufferPool, CatalogManager catalog, HeapFileRegistry heapFiles, int intervalMs) {
+        if (intervalMs <= 0) {
+            throw new IllegalArgumentException("intervalMs must be > 0");
+        }
+        this.root = Objects.requireNonNull(root, "root");
+        this.bufferPool = Objects.requireNonNull(bufferPool, "bufferPool");
+        this.catalog = Objects.requireNonNull(catalog, "catalog");
+        this.heapFiles = Objects.requireNonNull(heapFiles, "heapFiles");
+        this.intervalMs = intervalMs;
+    }
+
+    public void start() {
+        if (!started.compareAndSet(false, true)) return;
+
+        worker = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    Thread.sleep(intervalMs);
+                    runOnce();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (Throwable t) {
+                    log.warn("Autovacuum pass failed", t);
+                }
+            }
+        }, THREAD_NAME);
+
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    public void stop() {
+        Thread t = worker;
+        if (t != null) {
+            t.interrupt();
+        }
+    }
+
+    public int runOnce() {
+        int vacuumed = 0;
+        for (TableDefinition table : new ArrayList<>(catalog.listTables())) {
+            TableHeap heap = new TableHeap(root, bufferPool, catalog, heapFiles, table);
+            if (!needsVacuum(heap)) continue;
+
+            VacuumStats stats = heap.vacuum(PAGE_DEAD_PERCENT / 100.0);
+            vacuumed++;
+            log.info("Autovacuum table={} pagesScanned={} pagesCompacted={} bytesReclaimed={} pagesTruncated={}",
+                    table.getName(), stats.pagesScanned(), stats.pagesCompacted(), stats.bytesReclaimed(), stats.pagesTruncated());
+        }
+        return vacuumed;
+    }
+
+    private boolean needsVacuum(TableHeap heap) {
+        long dead = heap.deadTuples();
+        if (dead == 0) return false;
+        TableStatistics stats = catalog.getTableStatistics(heap.getTable());
+        long liveEstimate = stats == null ? 0 : stats.getRowCount();
+        return dead >= DEAD_TUPLES_THRESHOLD + liveEstimate * SCALE_PERCENT / 100;
+    }
+}
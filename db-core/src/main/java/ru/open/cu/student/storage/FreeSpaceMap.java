@@ -0,0 +1,40 @@
+package ru.open.cu.student.storage;
+
+import ru.open.cu.student.memory.page.HeapPage;
+
+import java.util.Arrays;
+
+final class FreeSpaceMap {
+    private static final int CATEGORY_BYTES = HeapPage.PAGE_SIZE / 256;
+
+    private byte[] categories = new byte[64];
+    private int pages;
+
+    synchronized void update(int pageId, int freeBytes) {
+        if (pageId < 0) {
+            throw new IllegalArgumentException("pageId must be >= 0");
+        }
+        if (pageId >= categories.length) {
+            categories = Arrays.copyOf(categories, Math.max(pageId + 1, categories.length * 2));
+        }
+        categories[pageId] = (byte) Math.min(255, Math.max(0, freeBytes) / CATEGORY_BYTES);
+        pages = Math.max(pages, pageId + 1);
+    }
+
+    synchronized int find(int requiredBytes) {
+        int wanted = (requiredBytes + CATEGORY_BYTES - 1) / CATEGORY_BYTES;
+        for (int pageId = 0; pageId < pages; pageId++) {
+            if (Byte.toUnsignedInt(categories[pageId]) >= wanted) {
+                return pageId;
+            }
+        }
+        return -1;
+    }
+
+    synchronized void truncate(int pageCount) {
+        if (pageCount < pages) {
+            Arrays.fill(categories, pageCount, pages, (byte) 0);
+            pages = pageCount;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package ru.open.cu.student.storage;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+public final class HeapFileRegistry {
+    private final ConcurrentHashMap<String, HeapFile> files = new ConcurrentHashMap<>();
+
+    HeapFile file(String fileNode) {
+        Objects.requireNonNull(fileNode, "fileNode");
+        return files.computeIfAbsent(fileNode, ignored -> new HeapFile());
+    }
+
+    static final class HeapFile {
+        final FreeSpaceMap freeSpace = new FreeSpaceMap();
+        final AtomicLong deadTuples = new AtomicLong();
+        boolean deadTuplesLoaded;
+        final Map<Integer, Integer> truncatedSlots = new HashMap<>();
+        volatile long truncations;
+    }
+}
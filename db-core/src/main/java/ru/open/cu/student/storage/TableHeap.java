@@ -4,6 +4,7 @@ import ru.open.cu.student.catalog.manager.CatalogManager;
 import ru.open.cu.student.catalog.model.ColumnDefinition;
 import ru.open.cu.student.catalog.model.TableDefinition;
 import ru.open.cu.student.catalog.model.TypeDefinition;
+import ru.open.cu.student.execution.CancellationToken;
 import ru.open.cu.student.memory.buffer.BufferPoolManager;
 import ru.open.cu.student.memory.buffer.PageKey;
 import ru.open.cu.student.memory.model.DataType;
@@ -16,17 +17,14 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Objects;
-import java.util.concurrent.ConcurrentHashMap;
 
 
 public final class TableHeap {
-    
-    private static final ConcurrentHashMap<String, Object> FILE_LOCKS = new ConcurrentHashMap<>();
-
     private final Path root;
     private final BufferPoolManager bufferPool;
     private final CatalogManager catalog;
@@ -35,13 +33,22 @@ public final class TableHeap {
     private final TableDefinition table;
     private final List<ColumnDefinition> columns;
     private final List<DataType> types;
+    private final HeapFileRegistry.HeapFile file;
     private final Object fileLock;
 
-    public TableHeap(Path root, BufferPoolManager bufferPool, CatalogManager catalog, TableDefinition table) {
-        this(root, bufferPool, catalog, table, new HeapTupleSerializer());
+    public TableHeap(Path root, BufferPoolManager bufferPool, CatalogManager catalog, HeapFileRegistry heapFiles, TableDefinition table) {
+        this(root, bufferPool, catalog, heapFiles, table, new HeapTupleSerializer());
     }
 
-    public TableHeap(Path root, BufferPoolManager bufferPool, CatalogManager catalog, TableDefinition table, TupleSerializer serializer) {
+    public TableHeap(
+            Path root,
+            BufferPoolManager bufferPool,
+            CatalogManager catalog,
+            HeapFileRegistry heapFiles,
+            TableDefinition table,
+            TupleSerializer serializer
+    ) {
+        Objects.requireNonNull(heapFiles, "heapFiles");
         this.root = Objects.requireNonNull(root, "root");
         this.bufferPool = Objects.requireNonNull(bufferPool, "bufferPool");
         this.catalog = Objects.requireNonNull(catalog, "catalog");
@@ -50,7 +57,8 @@ public final class TableHeap {
 
         this.columns = List.copyOf(catalog.getColumns(table));
         this.types = resolveTypes(this.columns);
-        this.fileLock = FILE_LOCKS.computeIfAbsent(table.getFileNode(), ignored -> new Object());
+        this.file = heapFiles.file(table.getFileNode());
+        this.fileLock = file;
     }
 
     public TableDefinition getTable() {
@@ -69,16 +77,24 @@ public final class TableHeap {
             String fileId = table.getFileNode();
             int pages = pageCount(fileId);
 
+            int required = rowBytes.length + HeapPage.SLOT_SIZE;
+            int candidate = file.freeSpace.find(required);
+            if (candidate >= 0 && candidate < pages - 1) {
+                PageKey key = new PageKey(fileId, candidate);
+                Page page = bufferPool.getPage(key).getPage();
+                if (page.freeSpace() >= required) {
+                    short slotId = (short) page.size();
+                    page.write(rowBytes);
+                    bufferPool.updatePage(key, page);
+                    bufferPool.flushPage(key);
+                    file.freeSpace.update(candidate, page.freeSpace());
+                    return new TID(candidate, slotId);
+                }
+                file.freeSpace.update(candidate, page.freeSpace());
+            }
+
             if (pages == 0) {
-                PageKey key = new PageKey(fileId, 0);
-                Page page = new HeapPage(0);
-                bufferPool.newPage(key, page);
-                short slotId = (short) page.size();
-                page.write(rowBytes);
-                bufferPool.updatePage(key, page);
-                bufferPool.flushPage(key);
-                updatePagesCountIfNeeded(fileId);
-                return new TID(0, slotId);
+                return appendRow(fileId, 0, rowBytes);
             }
 
             PageKey lastKey = new PageKey(fileId, pages - 1);
@@ -91,17 +107,34 @@ public final class TableHeap {
                 updatePagesCountIfNeeded(fileId);
                 return new TID(pages - 1, slotId);
             } catch (IllegalArgumentException noSpace) {
-                int newPageId = pages;
-                PageKey newKey = new PageKey(fileId, newPageId);
-                Page page = new HeapPage(newPageId);
-                bufferPool.newPage(newKey, page);
+                file.freeSpace.update(pages - 1, last.freeSpace());
+                return appendRow(fileId, pages, rowBytes);
+            }
+        }
+    }
+
+    private TID appendRow(String fileId, int pageId, byte[] rowBytes) {
+        while (true) {
+            PageKey key = new PageKey(fileId, pageId);
+            HeapPage page = new HeapPage(pageId);
+            Integer reserved = file.truncatedSlots.remove(pageId);
+            if (reserved != null) {
+                page.reserveSlots(reserved);
+            }
+            bufferPool.newPage(key, page);
+            if (reserved == null || page.freeSpace() >= rowBytes.length + HeapPage.SLOT_SIZE) {
                 short slotId = (short) page.size();
                 page.write(rowBytes);
-                bufferPool.updatePage(newKey, page);
-                bufferPool.flushPage(newKey);
+                bufferPool.updatePage(key, page);
+                bufferPool.flushPage(key);
                 updatePagesCountIfNeeded(fileId);
-                return new TID(newPageId, slotId);
+                return new TID(pageId, slotId);
             }
+            bufferPool.updatePage(key, page);
+            bufferPool.flushPage(key);
+            updatePagesCountIfNeeded(fileId);
+            file.freeSpace.update(pageId, page.freeSpace());
+            pageId++;
         }
     }
 
@@ -109,9 +142,195 @@ public final class TableHeap {
         Objects.requireNonNull(tid, "tid");
         synchronized (fileLock) {
             String fileId = table.getFileNode();
+            if (tid.pageId() >= pageCount(fileId)) {
+                return null;
+            }
             Page page = bufferPool.getPage(new PageKey(fileId, tid.pageId())).getPage();
-            byte[] rowBytes = page.read(Short.toUnsignedInt(tid.slotId()));
-            return RowCodec.decodeRow(rowBytes, types, serializer);
+            int slot = Short.toUnsignedInt(tid.slotId());
+            if (page.isDeleted(slot)) {
+                return null;
+            }
+            return RowCodec.decodeRow(page.read(slot), types, serializer);
+        }
+    }
+
+    public boolean deleteRow(TID tid) {
+        Objects.requireNonNull(tid, "tid");
+        synchronized (fileLock) {
+            if (tid.pageId() >= pageCount(table.getFileNode())) {
+                return false;
+            }
+            PageKey key = new PageKey(table.getFileNode(), tid.pageId());
+            Page page = bufferPool.getPage(key).getPage();
+            int slot = Short.toUnsignedInt(tid.slotId());
+            if (page.isDeleted(slot)) {
+                return false;
+            }
+            page.delete(slot);
+            bufferPool.updatePage(key, page);
+            bufferPool.flushPage(key);
+            file.deadTuples.incrementAndGet();
+            return true;
+        }
+    }
+
+    public TID updateRow(TID tid, List<Object> values) {
+        Objects.requireNonNull(tid, "tid");
+        Objects.requireNonNull(values, "values");
+        synchronized (fileLock) {
+            byte[] rowBytes = RowCodec.encodeRow(values, types, serializer);
+            if (tid.pageId() >= pageCount(table.getFileNode())) {
+                throw new IllegalStateException("Row is deleted: " + tid);
+            }
+            PageKey key = new PageKey(table.getFileNode(), tid.pageId());
+            Page page = bufferPool.getPage(key).getPage();
+            int slot = Short.toUnsignedInt(tid.slotId());
+            if (page.isDeleted(slot)) {
+                throw new IllegalStateException("Row is deleted: " + tid);
+            }
+            if (page.update(slot, rowBytes)) {
+                bufferPool.updatePage(key, page);
+                bufferPool.flushPage(key);
+                return tid;
+            }
+
+            TID moved = insertRow(values);
+            deleteRow(tid);
+            return moved;
+        }
+    }
+
+    public long countRows() {
+        synchronized (fileLock) {
+            TableDefinition current = catalog.getTable(table.getName());
+            int pages = (current != null ? current : table).getPagesCount();
+            long rows = 0;
+            for (int pageId = 0; pageId < pages; pageId++) {
+                CancellationToken.checkpoint();
+                rows += liveSlots(bufferPool.getPage(new PageKey(table.getFileNode(), pageId)).getPage()).length;
+            }
+            return rows;
+        }
+    }
+
+    public long deadTuples() {
+        loadDeadTuples();
+        return file.deadTuples.get();
+    }
+
+    public VacuumStats vacuum(double minDeadRatio) {
+        if (minDeadRatio < 0 || minDeadRatio > 1) {
+            throw new IllegalArgumentException("minDeadRatio must be in [0, 1]");
+        }
+        String fileId = table.getFileNode();
+        loadDeadTuples();
+        int pages;
+        synchronized (fileLock) {
+            pages = pageCount(fileId);
+        }
+
+        int compacted = 0;
+        long reclaimed = 0;
+        long removed = 0;
+        for (int pageId = 0; pageId < pages; pageId++) {
+            CancellationToken.checkpoint();
+            synchronized (fileLock) {
+                if (pageId >= pageCount(fileId)) break;
+                PageKey key = new PageKey(fileId, pageId);
+                Page page = bufferPool.getPage(key).getPage();
+                int dead = page.deadCount();
+                if (dead > 0 && dead >= minDeadRatio * page.size()) {
+                    removed += dead;
+                    reclaimed += page.compact();
+                    compacted++;
+                    bufferPool.updatePage(key, page);
+                    bufferPool.flushPage(key);
+                }
+                file.freeSpace.update(pageId, page.freeSpace());
+            }
+        }
+
+        int truncated;
+        synchronized (fileLock) {
+            truncated = truncateEmptyTail(fileId);
+        }
+        long compactedDead = removed;
+        file.deadTuples.updateAndGet(v -> Math.max(0, v - compactedDead));
+        return new VacuumStats(pages, compacted, reclaimed, truncated);
+    }
+
+    private void loadDeadTuples() {
+        synchronized (fileLock) {
+            if (file.deadTuplesLoaded) return;
+            String fileId = table.getFileNode();
+            int pages = pageCount(fileId);
+            long dead = 0;
+            for (int pageId = 0; pageId < pages; pageId++) {
+                dead += bufferPool.getPage(new PageKey(fileId, pageId)).getPage().deadCount();
+            }
+            file.deadTuples.set(dead);
+            file.deadTuplesLoaded = true;
+        }
+    }
+
+    private int truncateEmptyTail(String fileId) {
+        int pages = pageCount(fileId);
+        int keep = pages;
+        while (keep > 0) {
+            Page page = bufferPool.getPage(new PageKey(fileId, keep - 1)).getPage();
+            if (liveSlots(page).length > 0) break;
+            file.truncatedSlots.merge(keep - 1, page.size(), Math::max);
+            keep--;
+        }
+        if (keep == pages) {
+            return 0;
+        }
+        file.truncations++;
+        bufferPool.truncate(fileId, keep);
+        file.freeSpace.truncate(keep);
+        catalog.updatePagesCount(table, keep);
+        table.setPagesCount(keep);
+        return pages - keep;
+    }
+
+    public int pagesCount() {
+        synchronized (fileLock) {
+            return pageCount(table.getFileNode());
+        }
+    }
+
+    public List<List<Object>> readPageRows(int pageId) {
+        CancellationToken.checkpoint();
+        synchronized (fileLock) {
+            if (pageId >= pageCount(table.getFileNode())) {
+                return List.of();
+            }
+            Page page = bufferPool.getPage(new PageKey(table.getFileNode(), pageId)).getPage();
+            int[] slots = liveSlots(page);
+            List<List<Object>> rows = new ArrayList<>(slots.length);
+            for (int slot : slots) {
+                rows.add(RowCodec.decodeRow(page.read(slot), types, serializer));
+            }
+            return rows;
+        }
+    }
+
+    public List<List<Object>> readPageRows(int pageId, int[] slots) {
+        Objects.requireNonNull(slots, "slots");
+        CancellationToken.checkpoint();
+        synchronized (fileLock) {
+            if (pageId >= pageCount(table.getFileNode())) {
+                return List.of();
+            }
+            Page page = bufferPool.getPage(new PageKey(table.getFileNode(), pageId)).getPage();
+            int size = page.size();
+            List<List<Object>> rows = new ArrayList<>(slots.length);
+            for (int slot : slots) {
+                if (slot < size && !page.isDeleted(slot)) {
+                    rows.add(RowCodec.decodeRow(page.read(slot), types, serializer));
+                }
+            }
+            return rows;
         }
     }
 
@@ -123,47 +342,58 @@ public final class TableHeap {
         }
 
         return () -> new Iterator<>() {
+            int limit = pages;
+            long truncations = file.truncations;
             int pageId = 0;
-            int slotId = 0;
-            int slotCount = 0;
+            int[] slots = new int[0];
+            int index = 0;
 
             @Override
             public boolean hasNext() {
                 advanceToNextNonEmptyPage();
-                return pageId < pages && slotId < slotCount;
+                return index < slots.length;
             }
 
             @Override
             public TID next() {
                 if (!hasNext()) throw new NoSuchElementException();
-                TID tid = new TID(pageId, (short) slotId);
-                slotId++;
-                if (slotId >= slotCount) {
-                    pageId++;
-                    slotId = 0;
-                    slotCount = 0;
-                }
-                return tid;
+                return new TID(pageId - 1, (short) slots[index++]);
             }
 
             private void advanceToNextNonEmptyPage() {
-                while (pageId < pages && slotCount == 0) {
-                    Page page;
+                while (index >= slots.length && pageId < limit) {
+                    CancellationToken.checkpoint();
                     synchronized (fileLock) {
-                        page = bufferPool.getPage(new PageKey(fileId, pageId)).getPage();
-                        slotCount = page.size();
-                    }
-                    if (slotCount == 0) {
-                        pageId++;
+                        if (truncations != file.truncations) {
+                            truncations = file.truncations;
+                            limit = Math.min(limit, pageCount(fileId));
+                            if (pageId >= limit) break;
+                        }
+                        slots = liveSlots(bufferPool.getPage(new PageKey(fileId, pageId)).getPage());
                     }
+                    index = 0;
+                    pageId++;
                 }
             }
         };
     }
 
+    private static int[] liveSlots(Page page) {
+        int slots = page.size();
+        int[] live = new int[slots];
+        int n = 0;
+        for (int slot = 0; slot < slots; slot++) {
+            if (!page.isDeleted(slot)) {
+                live[n++] = slot;
+            }
+        }
+        return n == slots ? live : Arrays.copyOf(live, n);
+    }
+
     private void updatePagesCountIfNeeded(String fileId) {
         int actual = pageCount(fileId);
-        if (actual > table.getPagesCount()) {
+        TableDefinition current = catalog.getTable(table.getName());
+        if (actual > (current != null ? current : table).getPagesCount()) {
             catalog.updatePagesCount(table, actual);
             table.setPagesCount(actual);
         }
@@ -0,0 +1,158 @@
+package ru.open.cu.student.storage;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.TreeMap;
+
+public final class TidBitmap {
+    private final TreeMap<Integer, long[]> pages = new TreeMap<>();
+    private long cardinality;
+
+    public void add(TID tid) {
+        Objects.requireNonNull(tid, "tid");
+        int slot = Short.toUnsignedInt(tid.slotId());
+        int word = slot >>> 6;
+        long[] words = pages.get(tid.pageId());
+        if (words == null) {
+            words = new long[word + 1];
+            pages.put(tid.pageId(), words);
+        } else if (word >= words.length) {
+            words = Arrays.copyOf(words, word + 1);
+            pages.put(tid.pageId(), words);
+        }
+        long bit = 1L << slot;
+        if ((words[word] & bit) == 0) {
+            words[word] |= bit;
+            cardinality++;
+        }
+    }
+
+    public void addAll(Iterator<TID> tids) {
+        Objects.requireNonNull(tids, "tids");
+        while (tids.hasNext()) {
+            add(tids.next());
+        }
+    }
+
+    public boolean contains(TID tid) {
+        Objects.requireNonNull(tid, "tid");
+        long[] words = pages.get(tid.pageId());
+        int slot = Short.toUnsignedInt(tid.slotId());
+        return words != null && (slot >>> 6) < words.length && (words[slot >>> 6] & (1L << slot)) != 0;
+    }
+
+    public long cardinality() {
+        return cardinality;
+    }
+
+    public int pageCount() {
+        return pages.size();
+    }
+
+    public TidBitmap and(TidBitmap other) {
+        Objects.requireNonNull(other, "other");
+        TidBitmap out = new TidBitmap();
+        for (Map.Entry<Integer, long[]> e : pages.entrySet()) {
+            long[] theirs = other.pages.get(e.getKey());
+            if (theirs == null) continue;
+            long[] mine = e.getValue();
+            long[] words = new long[Math.min(mine.length, theirs.length)];
+            long bits = 0;
+            for (int i = 0; i < words.length; i++) {
+                words[i] = mine[i] & theirs[i];
+                bits += Long.bitCount(words[i]);
+            }
+            if (bits > 0) {
+                out.pages.put(e.getKey(), words);
+                out.cardinality += bits;
+            }
+        }
+        return out;
+    }
+
+    public TidBitmap or(TidBitmap other) {
+        Objects.requireNonNull(other, "other");
+        TidBitmap out = new TidBitmap();
+        for (Map.Entry<Integer, long[]> e : pages.entrySet()) {
+            out.pages.put(e.getKey(), e.getValue().clone());
+        }
+        for (Map.Entry<Integer, long[]> e : other.pages.entrySet()) {
+            long[] theirs = e.getValue();
+            out.pages.merge(e.getKey(), theirs.clone(), (mine, t) -> {
+                long[] words = mine.length >= t.length ? mine : Arrays.copyOf(mine, t.length);
+                for (int i = 0; i < t.length; i++) {
+                    words[i] |= t[i];
+                }
+                return words;
+            });
+        }
+        for (long[] words : out.pages.values()) {
+            for (long w : words) {
+                out.cardinality += Long.bitCount(w);
+            }
+        }
+        return out;
+    }
+
+    public Iterator<PageSlots> pages() {
+        Iterator<Map.Entry<Integer, long[]>> it = pages.entrySet().iterator();
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public PageSlots next() {
+                Map.Entry<Integer, long[]> e = it.next();
+                return new PageSlots(e.getKey(), slots(e.getValue()));
+            }
+        };
+    }
+
+    public Iterator<TID> tids() {
+        Iterator<PageSlots> it = pages();
+        return new Iterator<>() {
+            PageSlots page;
+            int index;
+
+            @Override
+            public boolean hasNext() {
+                while ((page == null || index >= page.slots().length) && it.hasNext()) {
+                    page = it.next();
+                    index = 0;
+                }
+                return page != null && index < page.slots().length;
+            }
+
+            @Override
+            public TID next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return new TID(page.pageId(), (short) page.slots()[index++]);
+            }
+        };
+    }
+
+    private static int[] slots(long[] words) {
+        int n = 0;
+        for (long w : words) {
+            n += Long.bitCount(w);
+        }
+        int[] out = new int[n];
+        int k = 0;
+        for (int i = 0; i < words.length; i++) {
+            long w = words[i];
+            while (w != 0) {
+                out[k++] = (i << 6) + Long.numberOfTrailingZeros(w);
+                w &= w - 1;
+            }
+        }
+        return out;
+    }
+
+    public record PageSlots(int pageId, int[] slots) {
+    }
+}
@@ -0,0 +1,4 @@
+package ru.open.cu.student.storage;
+
+public record VacuumStats(int pagesScanned, int pagesCompacted, long bytesReclaimed, int pagesTruncated) {
+}
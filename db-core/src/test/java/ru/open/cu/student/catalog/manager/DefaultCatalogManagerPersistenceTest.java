@@ -3,8 +3,10 @@ package ru.open.cu.student.catalog.manager;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 import ru.open.cu.student.catalog.model.ColumnDefinition;
+import ru.open.cu.student.catalog.model.ColumnStatistics;
 import ru.open.cu.student.catalog.model.IndexDefinition;
 import ru.open.cu.student.catalog.model.TableDefinition;
+import ru.open.cu.student.catalog.model.TableStatistics;
 import ru.open.cu.student.catalog.model.TypeDefinition;
 import ru.open.cu.student.index.IndexType;
 import ru.open.cu.student.memory.buffer.BufferPoolManager;
@@ -42,6 +44,12 @@ public class DefaultCatalogManagerPersistenceTest {
 
         IndexDefinition idx = catalog.createIndex("idx_users_id", "users", "id", IndexType.HASH);
         assertNotNull(idx);
+        catalog.createIndex("idx_users_cov", "users", "id", List.of("name"), IndexType.BTREE);
+        assertThrows(IllegalArgumentException.class,
+                () -> catalog.createIndex("idx_users_bad", "users", "id", List.of("id"), IndexType.BTREE));
+        catalog.createIndex("idx_users_name_id", "users", List.of("name", "id"), List.of(), IndexType.BTREE);
+        assertThrows(IllegalArgumentException.class,
+                () -> catalog.createIndex("idx_users_hash2", "users", List.of("id", "name"), List.of(), IndexType.HASH));
 
         
         BufferPoolManager bpm2 = new DefaultBufferPoolManager(8, new HeapPageFileManager(), new LRUReplacer(), tempDir);
@@ -68,7 +76,39 @@ public class DefaultCatalogManagerPersistenceTest {
         assertEquals(users2.getOid(), idx2.getTableOid());
         assertEquals(cols.get(0).getOid(), idx2.getColumnOid());
         assertEquals(cols.get(0).getTypeOid(), idx2.getKeyTypeOid());
+        assertTrue(idx2.getIncludeColumnOids().isEmpty());
+        assertEquals(List.of(cols.get(1).getOid()), catalog2.getIndex("idx_users_cov").getIncludeColumnOids());
+        assertEquals(List.of(cols.get(0).getOid()), catalog2.getIndex("idx_users_cov").getColumnOids());
+        IndexDefinition composite = catalog2.getIndex("idx_users_name_id");
+        assertEquals(List.of(cols.get(1).getOid(), cols.get(0).getOid()), composite.getColumnOids());
+        assertEquals(cols.get(1).getTypeOid(), composite.getKeyTypeOid());
     }
-}
 
+    @Test
+    void restart_loads_latest_statistics(@TempDir Path tempDir) {
+        BufferPoolManager bpm = new DefaultBufferPoolManager(8, new HeapPageFileManager(), new LRUReplacer(), tempDir);
+        DefaultCatalogManager catalog = new DefaultCatalogManager(tempDir, bpm);
+
+        TypeDefinition int64 = catalog.getTypeByName("INT64");
+        TypeDefinition varchar = catalog.getTypeByName("VARCHAR");
+        TableDefinition users = catalog.createTable("users", List.of(
+                new ColumnDefinition(int64.getOid(), "id", 0),
+                new ColumnDefinition(varchar.getOid(), "name", 1)
+        ));
+        List<ColumnDefinition> cols = catalog.getColumns(users);
+
+        catalog.updateStatistics(new TableStatistics(users.getOid(), 1, 1, 1), List.of());
+        ColumnStatistics nameStats = new ColumnStatistics(
+                users.getOid(), cols.get(1).getOid(), 3, 0.0,
+                List.of("bob"), new double[]{0.5}, List.of("alice", "carol", "dave"));
+        catalog.updateStatistics(new TableStatistics(users.getOid(), 10, 2, 10), List.of(nameStats));
+
+        BufferPoolManager bpm2 = new DefaultBufferPoolManager(8, new HeapPageFileManager(), new LRUReplacer(), tempDir);
+        DefaultCatalogManager catalog2 = new DefaultCatalogManager(tempDir, bpm2);
+        TableDefinition users2 = catalog2.getTable("users");
 
+        assertEquals(new TableStatistics(users.getOid(), 10, 2, 10), catalog2.getTableStatistics(users2));
+        assertEquals(nameStats, catalog2.getColumnStatistics(catalog2.getColumns(users2).get(1)));
+        assertNull(catalog2.getColumnStatistics(catalog2.getColumns(users2).get(0)));
+    }
+}
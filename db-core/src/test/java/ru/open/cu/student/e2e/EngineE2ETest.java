@@ -10,6 +10,8 @@ import ru.open.cu.student.memory.buffer.BufferPoolManager;
 import ru.open.cu.student.memory.buffer.DefaultBufferPoolManager;
 import ru.open.cu.student.memory.manager.HeapPageFileManager;
 import ru.open.cu.student.memory.replacer.LRUReplacer;
+import ru.open.cu.student.storage.TID;
+import ru.open.cu.student.storage.TableHeap;
 
 import java.nio.file.Path;
 import java.util.List;
@@ -82,6 +84,166 @@ public class EngineE2ETest {
         assertEquals(200, all2.rows().size());
     }
 
+    @Test
+    void inner_and_left_joins_across_all_join_operators(@TempDir Path tempDir) {
+        SqlService svc = newService(tempDir, 64);
+        SessionContext ctx = new SessionContext("s1", "r1", false);
+
+        svc.execute(ctx, "CREATE TABLE users (id INT64, name VARCHAR);");
+        svc.execute(ctx, "CREATE TABLE orders (id INT64, user_id INT64, total INT64);");
+        for (int i = 1; i <= 4; i++) {
+            svc.execute(ctx, "INSERT INTO users VALUES (" + i + ", 'u" + i + "');");
+        }
+        svc.execute(ctx, "INSERT INTO orders VALUES (10, 1, 100);");
+        svc.execute(ctx, "INSERT INTO orders VALUES (11, 1, 150);");
+        svc.execute(ctx, "INSERT INTO orders VALUES (12, 3, 70);");
+        svc.execute(ctx, "INSERT INTO orders VALUES (13, 9, 5);");
+
+        String inner = "SELECT u.name, o.total FROM users u JOIN orders o ON u.id = o.user_id WHERE u.id >= 1;";
+        String left = "SELECT u.name, o.total FROM users u LEFT JOIN orders o ON u.id = o.user_id WHERE u.id >= 1;";
+        List<List<Object>> expectedInner = List.of(List.of("u1", 100L), List.of("u1", 150L), List.of("u3", 70L));
+        List<List<Object>> expectedLeft = List.of(
+                List.of("u1", 100L), List.of("u1", 150L),
+                java.util.Arrays.asList("u2", null),
+                List.of("u3", 70L),
+                java.util.Arrays.asList("u4", null)
+        );
+
+        assertTrue(svc.execute(ctx, "EXPLAIN " + inner).explain().contains("HashJoin("));
+        assertEquals(expectedInner, sorted(svc.execute(ctx, inner).rows()));
+        assertEquals(expectedLeft, sorted(svc.execute(ctx, left).rows()));
+
+        svc.execute(ctx, "CREATE INDEX idx_users_id ON users(id) USING BTREE;");
+        svc.execute(ctx, "CREATE INDEX idx_orders_user ON orders(user_id) USING BTREE;");
+        assertTrue(svc.execute(ctx, "EXPLAIN " + inner).explain().contains("MergeJoin("));
+        assertEquals(expectedInner, sorted(svc.execute(ctx, inner).rows()));
+        assertEquals(expectedLeft, sorted(svc.execute(ctx, left).rows()));
+
+        String pointLeft = "SELECT u.name, o.total FROM users u LEFT JOIN orders o ON o.user_id = u.id WHERE u.id = 2;";
+        svc.execute(ctx, "CREATE INDEX idx_users_id_h ON users(id) USING HASH;");
+        for (int i = 0; i < 1500; i++) {
+            svc.execute(ctx, "INSERT INTO orders VALUES (" + (100 + i) + ", " + (1000 + i) + ", 0);");
+        }
+        assertTrue(svc.execute(ctx, "EXPLAIN " + pointLeft).explain().contains("IndexNestedLoopJoin("));
+        assertEquals(List.of(java.util.Arrays.asList("u2", null)), svc.execute(ctx, pointLeft).rows());
+        assertEquals(List.of(List.of("u1", 100L), List.of("u1", 150L)), sorted(svc.execute(ctx,
+                "SELECT u.name, o.total FROM users u JOIN orders o ON o.user_id = u.id WHERE u.id = 1;").rows()));
+    }
+
+    @Test
+    void index_nested_loop_left_join_keeps_rows_whose_index_hits_are_stale(@TempDir Path tempDir) {
+        BufferPoolManager bpm = new DefaultBufferPoolManager(64, new HeapPageFileManager(), new LRUReplacer(), tempDir);
+        DefaultCatalogManager catalog = new DefaultCatalogManager(tempDir, bpm);
+        SqlService svc = new SqlService(tempDir, bpm, catalog);
+        SessionContext ctx = new SessionContext("s1", "r1", false);
+
+        svc.execute(ctx, "CREATE TABLE users (id INT64, name VARCHAR);");
+        svc.execute(ctx, "CREATE TABLE orders (id INT64, user_id INT64, total INT64);");
+        svc.execute(ctx, "INSERT INTO users VALUES (3, 'u3');");
+        svc.execute(ctx, "INSERT INTO orders VALUES (12, 3, 70);");
+        for (int i = 0; i < 1500; i++) {
+            svc.execute(ctx, "INSERT INTO orders VALUES (" + (100 + i) + ", " + (1000 + i) + ", 0);");
+        }
+        svc.execute(ctx, "CREATE INDEX idx_users_id_h ON users(id) USING HASH;");
+        svc.execute(ctx, "CREATE INDEX idx_orders_user ON orders(user_id) USING BTREE;");
+
+        TableHeap orders = new TableHeap(tempDir, bpm, catalog, svc.heapFiles(), catalog.getTable("orders"));
+        for (TID tid : orders.scanTids()) {
+            List<Object> row = orders.readRow(tid);
+            if (row != null && row.get(0).equals(12L)) {
+                assertTrue(orders.deleteRow(tid));
+            }
+        }
+
+        String left = "SELECT u.name, o.total FROM users u LEFT JOIN orders o ON o.user_id = u.id WHERE u.id = 3;";
+        assertTrue(svc.execute(ctx, "EXPLAIN " + left).explain().contains("IndexNestedLoopJoin("));
+        assertEquals(List.of(java.util.Arrays.asList("u3", null)), svc.execute(ctx, left).rows());
+    }
+
+    @Test
+    void analyze_collects_statistics_and_drives_scan_choice(@TempDir Path tempDir) {
+        BufferPoolManager bpm = new DefaultBufferPoolManager(64, new HeapPageFileManager(), new LRUReplacer(), tempDir);
+        DefaultCatalogManager catalog = new DefaultCatalogManager(tempDir, bpm);
+        SqlService svc = new SqlService(tempDir, bpm, catalog);
+        SessionContext ctx = new SessionContext("s1", "r1", false);
+
+        svc.execute(ctx, "CREATE TABLE t (id INT64, grp VARCHAR);");
+        for (int i = 0; i < 400; i++) {
+            svc.execute(ctx, "INSERT INTO t VALUES (" + i + ", '" + (i % 10 == 0 ? "rare" + i : "common") + "');");
+        }
+        svc.execute(ctx, "CREATE INDEX idx_t_id ON t(id) USING BTREE;");
+
+        String wide = "EXPLAIN SELECT * FROM t WHERE id > 0;";
+        String narrow = "EXPLAIN SELECT * FROM t WHERE id > 395;";
+        assertTrue(svc.execute(ctx, wide).explain().contains("BTreeIndexScan(t"));
+
+        svc.execute(ctx, "ANALYZE t;");
+
+        var table = catalog.getTable("t");
+        assertEquals(400, catalog.getTableStatistics(table).getRowCount());
+        var idStats = catalog.getColumnStatistics(catalog.getColumn(table, "id"));
+        assertEquals(400, idStats.getDistinctCount());
+        assertEquals(0L, idStats.getHistogramBounds().get(0));
+        assertEquals(399L, idStats.getHistogramBounds().get(idStats.getHistogramBounds().size() - 1));
+        var grpStats = catalog.getColumnStatistics(catalog.getColumn(table, "grp"));
+        assertEquals(List.of("common"), grpStats.getMostCommonValues());
+        assertEquals(0.9, grpStats.getMostCommonFrequency(0), 1e-9);
+
+        String wideExplain = svc.execute(ctx, wide).explain();
+        assertTrue(wideExplain.contains("SeqScan(t)"), wideExplain);
+        String narrowExplain = svc.execute(ctx, narrow).explain();
+        assertTrue(narrowExplain.contains("BTreeIndexScan(t"), narrowExplain);
+        assertEquals(4, svc.execute(ctx, "SELECT * FROM t WHERE id > 395;").rows().size());
+        assertEquals(399, svc.execute(ctx, "SELECT * FROM t WHERE id > 0;").rows().size());
+    }
+
+    @Test
+    void varchar_ranges_match_between_seq_scan_and_btree_index(@TempDir Path tempDir) {
+        SqlService svc = newService(tempDir, 64);
+        SessionContext ctx = new SessionContext("s1", "r1", false);
+
+        svc.execute(ctx, "CREATE TABLE t (id INT64, name VARCHAR);");
+        for (int i = 0; i < 50; i++) {
+            svc.execute(ctx, "INSERT INTO t VALUES (" + i + ", 'u" + i + "');");
+        }
+        svc.execute(ctx, "INSERT INTO t VALUES (50, '😀');");
+        svc.execute(ctx, "INSERT INTO t VALUES (51, '￿');");
+        svc.execute(ctx, "INSERT INTO t VALUES (52, '￾');");
+        svc.execute(ctx, "INSERT INTO t VALUES (53, 'z');");
+
+        List<String> queries = List.of(
+                "SELECT id, name FROM t WHERE name < '￿';",
+                "SELECT id, name FROM t WHERE name > '￿';",
+                "SELECT id, name FROM t WHERE name >= '' AND name <= '￿';",
+                "SELECT id, name FROM t WHERE name > 'z' AND name < '😀';");
+        List<List<List<Object>>> seqScan = new java.util.ArrayList<>();
+        for (String q : queries) {
+            assertTrue(svc.execute(ctx, "EXPLAIN " + q).explain().contains("SeqScan(t)"));
+            seqScan.add(sorted(svc.execute(ctx, q).rows()));
+        }
+        assertEquals(List.of(List.of(50L, "😀")), seqScan.get(1));
+        assertFalse(seqScan.get(0).contains(List.of(50L, "😀")));
+
+        svc.execute(ctx, "CREATE INDEX idx_t_name ON t(name) USING BTREE;");
+        for (int i = 0; i < queries.size(); i++) {
+            String explain = svc.execute(ctx, "EXPLAIN " + queries.get(i)).explain();
+            assertTrue(explain.contains("BTreeIndexScan(t"), explain);
+            assertEquals(seqScan.get(i), sorted(svc.execute(ctx, queries.get(i)).rows()), queries.get(i));
+        }
+
+        svc.execute(ctx, "ANALYZE t;");
+        for (int i = 0; i < queries.size(); i++) {
+            assertEquals(seqScan.get(i), sorted(svc.execute(ctx, queries.get(i)).rows()), queries.get(i));
+        }
+    }
+
+    private static List<List<Object>> sorted(List<List<Object>> rows) {
+        List<List<Object>> out = new java.util.ArrayList<>(rows);
+        out.sort(java.util.Comparator.comparing((List<Object> r) -> String.valueOf(r.get(0)))
+                .thenComparing(r -> String.valueOf(r.get(1))));
+        return out;
+    }
+
     private static SqlService newService(Path root, int poolSize) {
         BufferPoolManager bpm = new DefaultBufferPoolManager(poolSize, new HeapPageFileManager(), new LRUReplacer(), root);
         DefaultCatalogManager catalog = new DefaultCatalogManager(root, bpm);
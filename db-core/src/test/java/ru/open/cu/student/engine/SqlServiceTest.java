@@ -3,12 +3,24 @@ package ru.open.cu.student.engine;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 import ru.open.cu.student.catalog.manager.DefaultCatalogManager;
+import ru.open.cu.student.execution.CancellationToken;
+import ru.open.cu.student.execution.QueryCancelledException;
+import ru.open.cu.student.execution.memory.QueryMemoryContext;
+import ru.open.cu.student.index.UniqueViolationException;
 import ru.open.cu.student.memory.buffer.BufferPoolManager;
 import ru.open.cu.student.memory.buffer.DefaultBufferPoolManager;
 import ru.open.cu.student.memory.manager.HeapPageFileManager;
 import ru.open.cu.student.memory.replacer.LRUReplacer;
+import ru.open.cu.student.storage.AutoVacuum;
+import ru.open.cu.student.storage.HeapFileRegistry;
+import ru.open.cu.student.storage.TID;
+import ru.open.cu.student.storage.TableHeap;
+import ru.open.cu.student.storage.VacuumStats;
 
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -59,6 +71,118 @@ public class SqlServiceTest {
         assertTrue(after.rows().isEmpty(), "EXPLAIN must not execute INSERT");
     }
 
+    @Test
+    void explain_analyze_reports_actual_and_estimated_rows_per_operator(@TempDir Path tempDir) {
+        BufferPoolManager bpm = new DefaultBufferPoolManager(16, new HeapPageFileManager(), new LRUReplacer(), tempDir);
+        DefaultCatalogManager catalog = new DefaultCatalogManager(tempDir, bpm);
+        SqlService svc = new SqlService(tempDir, bpm, catalog);
+        SessionContext ctx = new SessionContext("s1", "q", false);
+
+        svc.execute(ctx, "CREATE TABLE users (id INT64, name VARCHAR);");
+        for (int i = 0; i < 50; i++) {
+            svc.execute(ctx, "INSERT INTO users VALUES (" + i + ", 'u" + i + "');");
+        }
+        svc.execute(ctx, "ANALYZE users;");
+
+        ExecutionResult r = svc.execute(ctx, "EXPLAIN ANALYZE SELECT name FROM users WHERE id >= 10;");
+        assertTrue(r.rows().isEmpty());
+        String out = r.explain();
+        assertTrue(out.contains("EXPLAIN_ANALYZE:"), out);
+        assertTrue(out.contains("SeqScan(users) (estimated rows=50) (actual rows=50 loops=1 "), out);
+        assertTrue(out.contains("(actual rows=40 loops=1 "), out);
+        assertTrue(out.matches("(?s).*SeqScan\\(users\\).*buffers hit=\\d+ miss=\\d+ pages_read=\\d+.*"), out);
+        assertTrue(out.contains("Execution time:"), out);
+        assertTrue(out.contains("Peak memory:"), out);
+
+        ExecutionResult insert = svc.execute(ctx, "EXPLAIN ANALYZE INSERT INTO users VALUES (100, 'x');");
+        assertTrue(insert.explain().contains("Insert"), insert.explain());
+        assertEquals(1, svc.execute(ctx, "SELECT * FROM users WHERE id = 100;").rows().size());
+    }
+
+    @Test
+    void results_release_rows_unless_the_context_retains_them_until_close(@TempDir Path tempDir) {
+        BufferPoolManager bpm = new DefaultBufferPoolManager(16, new HeapPageFileManager(), new LRUReplacer(), tempDir);
+        DefaultCatalogManager catalog = new DefaultCatalogManager(tempDir, bpm);
+        SqlService svc = new SqlService(tempDir, bpm, catalog);
+        SessionContext ctx = new SessionContext("s1", "q", false);
+
+        svc.execute(ctx, "CREATE TABLE users (id INT64, name VARCHAR);");
+        for (int i = 0; i < 50; i++) {
+            svc.execute(ctx, "INSERT INTO users VALUES (" + i + ", 'u" + i + "');");
+        }
+        assertEquals(0, svc.memoryPool().getUsedBytes());
+
+        assertEquals(50, svc.execute(ctx, "SELECT id, name FROM users;").rows().size());
+        assertEquals(50, svc.execute("SELECT id, name FROM users;").rows().size());
+        assertEquals(50, svc.executeBatch(ctx, List.of("SELECT id, name FROM users;")).get(0).rows().size());
+        assertEquals(0, svc.memoryPool().getUsedBytes());
+
+        ExecutionResult r = svc.execute(ctx.retainingResultMemory(), "SELECT id, name FROM users;");
+        assertEquals(50, r.rows().size());
+        assertTrue(svc.memoryPool().getUsedBytes() > 0);
+        r.close();
+        assertEquals(0, svc.memoryPool().getUsedBytes());
+
+        List<List<Object>> streamed = new ArrayList<>();
+        ExecutionResult s = svc.execute(ctx.retainingResultMemory(), "SELECT id, name FROM users;", new ResultSink() {
+            @Override
+            public void begin(List<String> columns, List<String> columnTypes) {
+            }
+
+            @Override
+            public void row(List<Object> row) {
+                streamed.add(row);
+                QueryMemoryContext.current().reserve(QueryMemoryContext.estimateRowBytes(row), "ResultSet");
+            }
+        });
+        assertEquals(50, streamed.size());
+        assertTrue(svc.memoryPool().getUsedBytes() > 0);
+        s.close();
+        assertEquals(0, svc.memoryPool().getUsedBytes());
+
+        svc.execute(ctx, "EXPLAIN ANALYZE SELECT id, name FROM users;");
+        svc.execute(ctx, "DELETE FROM users WHERE id >= 25;");
+        assertEquals(0, svc.memoryPool().getUsedBytes());
+    }
+
+    @Test
+    void prepared_statements_reuse_cached_plans_until_catalog_changes(@TempDir Path tempDir) {
+        BufferPoolManager bpm = new DefaultBufferPoolManager(16, new HeapPageFileManager(), new LRUReplacer(), tempDir);
+        DefaultCatalogManager catalog = new DefaultCatalogManager(tempDir, bpm);
+        SqlService svc = new SqlService(tempDir, bpm, catalog);
+        SessionContext ctx = new SessionContext("s1", "q", false);
+
+        svc.execute(ctx, "CREATE TABLE users (id INT64, name VARCHAR);");
+        svc.prepare(ctx, "ins", "INSERT INTO users VALUES ($1, $2);");
+        for (long i = 0; i < 30; i++) {
+            assertEquals(1, svc.executePrepared(ctx, "ins", java.util.List.of(i, "u" + i)).affected());
+        }
+
+        ExecutionResult prepared = svc.prepare(ctx, "byId", "SELECT name FROM users WHERE id = $1;");
+        assertEquals(java.util.List.of("name"), prepared.columns());
+        assertEquals(java.util.List.of(java.util.List.of("u5")), svc.executePrepared(ctx, "byId", java.util.List.of(5)).rows());
+
+        assertThrows(IllegalArgumentException.class, () -> svc.executePrepared(ctx, "byId", java.util.List.of()));
+        assertThrows(IllegalArgumentException.class, () -> svc.executePrepared(ctx, "byId", java.util.List.of("5")));
+        assertThrows(IllegalArgumentException.class, () -> svc.executePrepared(ctx, "unknown", java.util.List.of()));
+
+        svc.execute(ctx, "CREATE INDEX idx_users_id ON users(id) USING HASH;");
+        assertEquals(java.util.List.of(java.util.List.of("u7")), svc.executePrepared(ctx, "byId", java.util.List.of(7)).rows());
+        assertTrue(svc.execute(new SessionContext("s1", "e", true), "EXPLAIN SELECT name FROM users WHERE id = $1;")
+                .explain().contains("HashIndexScan(users"));
+
+        svc.execute("SELECT   *  FROM users WHERE id = 3");
+        long hits = svc.globalPlanCache().getHits();
+        assertEquals(1, svc.execute("SELECT * FROM users WHERE id = 3;").rows().size());
+        assertEquals(hits + 1, svc.globalPlanCache().getHits());
+    }
+
+    @Test
+    void plan_cache_key_normalizes_whitespace_outside_literals() {
+        assertEquals("SELECT * FROM t WHERE name = 'a  b'", PlanCache.normalize("  SELECT *\n FROM t   WHERE name = 'a  b' ; "));
+        assertEquals("INSERT INTO t VALUES ('it''s ;')", PlanCache.normalize("INSERT INTO t VALUES ('it''s ;');"));
+    }
+
     @Test
     void trace_includes_explain_for_regular_queries(@TempDir Path tempDir) {
         BufferPoolManager bpm = new DefaultBufferPoolManager(16, new HeapPageFileManager(), new LRUReplacer(), tempDir);
@@ -71,6 +195,579 @@ public class SqlServiceTest {
         assertNotNull(r.explain());
         assertTrue(r.explain().contains("TOKENS:"));
     }
-}
 
+    @Test
+    void group_by_with_aggregates_end_to_end(@TempDir Path tempDir) {
+        BufferPoolManager bpm = new DefaultBufferPoolManager(16, new HeapPageFileManager(), new LRUReplacer(), tempDir);
+        DefaultCatalogManager catalog = new DefaultCatalogManager(tempDir, bpm);
+
+        SqlService svc = new SqlService(tempDir, bpm, catalog);
+        svc.execute("CREATE TABLE emp (id INT64, dept VARCHAR, salary INT64);");
+        svc.execute("INSERT INTO emp VALUES (1, 'eng', 100);");
+        svc.execute("INSERT INTO emp VALUES (2, 'eng', 300);");
+        svc.execute("INSERT INTO emp VALUES (3, 'ops', 50);");
+
+        ExecutionResult r = svc.execute("SELECT dept, COUNT(*), SUM(salary), MIN(salary), MAX(salary), AVG(salary) FROM emp GROUP BY dept;");
+        assertEquals(java.util.List.of("dept", "count", "sum", "min", "max", "avg"), r.columns());
+
+        java.util.Map<Object, java.util.List<Object>> byDept = new java.util.HashMap<>();
+        for (java.util.List<Object> row : r.rows()) {
+            byDept.put(row.get(0), row);
+        }
+        assertEquals(java.util.List.of("eng", 2L, 400L, 100L, 300L, 200L), byDept.get("eng"));
+        assertEquals(java.util.List.of("ops", 1L, 50L, 50L, 50L, 50L), byDept.get("ops"));
+
+        svc.execute("INSERT INTO emp VALUES (2, 'ops', 10);");
+        svc.execute("CREATE INDEX idx_emp_id ON emp(id) USING BTREE;");
+        ExecutionResult streamed = svc.execute("SELECT id, COUNT(*), MAX(dept) FROM emp WHERE id >= 2 GROUP BY id;");
+        assertEquals(java.util.List.of(
+                java.util.List.of(2L, 2L, "ops"),
+                java.util.List.of(3L, 1L, "ops")
+        ), streamed.rows());
+
+        ExecutionResult total = svc.execute("SELECT COUNT(*) FROM emp WHERE salary > 1000;");
+        assertEquals(java.util.List.of(java.util.List.of(0L)), total.rows());
+
+        svc.execute("CREATE TABLE bonus (emp_id INT64, amount INT64);");
+        svc.execute("INSERT INTO bonus VALUES (1, 5);");
+        ExecutionResult outer = svc.execute(
+                "SELECT b.amount, COUNT(*), COUNT(b.emp_id) FROM emp e LEFT JOIN bonus b ON e.id = b.emp_id GROUP BY b.amount;");
+        java.util.Map<Object, java.util.List<Object>> byAmount = new java.util.HashMap<>();
+        for (java.util.List<Object> row : outer.rows()) {
+            byAmount.put(row.get(0), row);
+        }
+        assertEquals(2, byAmount.size());
+        assertEquals(java.util.List.of(5L, 1L, 1L), byAmount.get(5L));
+        assertEquals(java.util.Arrays.asList(null, 3L, 0L), byAmount.get(null));
+    }
+
+    @Test
+    void cancelled_and_timed_out_queries_stop_with_query_cancelled(@TempDir Path tempDir) {
+        BufferPoolManager bpm = new DefaultBufferPoolManager(64, new HeapPageFileManager(), new LRUReplacer(), tempDir);
+        DefaultCatalogManager catalog = new DefaultCatalogManager(tempDir, bpm);
+        SqlService svc = new SqlService(tempDir, bpm, catalog);
+
+        java.util.List<String> statements = new java.util.ArrayList<>();
+        statements.add("CREATE TABLE t (id INT64, k INT64);");
+        for (int i = 0; i < 1500; i++) {
+            statements.add("INSERT INTO t VALUES (" + i + ", 1);");
+        }
+        svc.executeBatch(new SessionContext("s1", "load", false), statements);
+
+        CancellationToken cancelled = CancellationToken.create();
+        cancelled.cancel();
+        QueryCancelledException c = assertThrows(QueryCancelledException.class, () -> svc.execute(
+                new SessionContext("s1", "q1", false, cancelled), "SELECT * FROM t;"));
+        assertFalse(c.isTimedOut());
+
+        long start = System.nanoTime();
+        QueryCancelledException timeout = assertThrows(QueryCancelledException.class, () -> svc.execute(
+                new SessionContext("s1", "q2", false, CancellationToken.withTimeout(50)),
+                "SELECT a.id FROM t a JOIN t b ON a.k = b.k;",
+                new ResultSink() {
+                    @Override
+                    public void begin(java.util.List<String> columns, java.util.List<String> columnTypes) {
+                    }
+
+                    @Override
+                    public void row(java.util.List<Object> row) {
+                    }
+                }));
+        assertTrue(timeout.isTimedOut());
+        assertTrue(System.nanoTime() - start < 5_000_000_000L);
+
+        assertEquals(1500, svc.execute(new SessionContext("s1", "q3", false), "SELECT id FROM t;").rows().size());
+    }
+
+    @Test
+    void count_star_uses_page_headers_and_index_postings(@TempDir Path tempDir) {
+        BufferPoolManager bpm = new DefaultBufferPoolManager(16, new HeapPageFileManager(), new LRUReplacer(), tempDir);
+        DefaultCatalogManager catalog = new DefaultCatalogManager(tempDir, bpm);
+
+        SqlService svc = new SqlService(tempDir, bpm, catalog);
+        svc.execute("CREATE TABLE t (id INT64, payload VARCHAR);");
+        assertEquals(java.util.List.of(java.util.List.of(0L)), svc.execute("SELECT COUNT(*) FROM t;").rows());
+
+        String payload = "x".repeat(200);
+        for (int i = 0; i < 300; i++) {
+            svc.execute("INSERT INTO t VALUES (" + (i % 10) + ", '" + payload + "');");
+        }
+        svc.execute("CREATE INDEX idx_t_id ON t(id) USING HASH;");
+
+        ExecutionResult all = svc.execute("SELECT COUNT(*) FROM t;");
+        assertEquals(java.util.List.of("count"), all.columns());
+        assertEquals(java.util.List.of(java.util.List.of(300L)), all.rows());
+        assertTrue(catalog.getTable("t").getPagesCount() > 1);
+
+        ExecutionResult eq = svc.execute("SELECT COUNT(*) FROM t WHERE id = 3;");
+        assertEquals(java.util.List.of(java.util.List.of(30L)), eq.rows());
+    }
+
+    @Test
+    void delete_and_update_maintain_heap_and_indexes(@TempDir Path tempDir) {
+        BufferPoolManager bpm = new DefaultBufferPoolManager(32, new HeapPageFileManager(), new LRUReplacer(), tempDir);
+        DefaultCatalogManager catalog = new DefaultCatalogManager(tempDir, bpm);
+        SqlService svc = new SqlService(tempDir, bpm, catalog);
+        SessionContext ctx = new SessionContext("s1", "q", false);
+
+        svc.execute(ctx, "CREATE TABLE t (id INT64, grp INT64, name VARCHAR);");
+        for (int i = 0; i < 200; i++) {
+            svc.execute(ctx, "INSERT INTO t VALUES (" + i + ", " + (i % 4) + ", 'n" + i + "');");
+        }
+        svc.execute(ctx, "CREATE INDEX idx_t_id ON t(id) USING HASH;");
+        svc.execute(ctx, "CREATE INDEX idx_t_grp ON t(grp) USING BTREE;");
+
+        assertEquals(50, svc.execute(ctx, "DELETE FROM t WHERE grp = 3;").affected());
+        assertEquals(0, svc.execute(ctx, "DELETE FROM t WHERE grp = 3;").affected());
+        assertEquals(1, svc.execute(ctx, "DELETE FROM t WHERE id = 10;").affected());
+        assertEquals(java.util.List.of(java.util.List.of(149L)), svc.execute(ctx, "SELECT COUNT(*) FROM t;").rows());
+        assertTrue(svc.execute(ctx, "SELECT name FROM t WHERE id = 10;").rows().isEmpty());
+        assertTrue(svc.execute(ctx, "SELECT name FROM t WHERE grp >= 3;").rows().isEmpty());
+
+        assertEquals(1, svc.execute(ctx, "UPDATE t SET name = 'm' WHERE id = 5;").affected());
+        assertEquals(java.util.List.of(java.util.List.of(1L, "m")),
+                svc.execute(ctx, "SELECT grp, name FROM t WHERE id = 5;").rows());
+
+        assertEquals(50, svc.execute(ctx, "UPDATE t SET grp = 7, name = 'moved-to-seven' WHERE grp = 0;").affected());
+        assertTrue(svc.execute(ctx, "SELECT id FROM t WHERE grp = 0;").rows().isEmpty());
+        assertEquals(50, svc.execute(ctx, "SELECT id FROM t WHERE grp = 7;").rows().size());
+        assertEquals(java.util.List.of(java.util.List.of(7L, "moved-to-seven")),
+                svc.execute(ctx, "SELECT grp, name FROM t WHERE id = 8;").rows());
+        assertEquals(java.util.List.of(java.util.List.of(149L)), svc.execute(ctx, "SELECT COUNT(*) FROM t;").rows());
+
+        svc.prepare(ctx, "del", "DELETE FROM t WHERE id = $1;");
+        assertEquals(1, svc.executePrepared(ctx, "del", java.util.List.of(8L)).affected());
+        assertEquals(0, svc.executePrepared(ctx, "del", java.util.List.of(8L)).affected());
+        assertEquals(49, svc.execute(ctx, "SELECT id FROM t WHERE grp = 7;").rows().size());
+
+        IllegalArgumentException notPreparable = assertThrows(IllegalArgumentException.class,
+                () -> svc.prepare(ctx, "ddl", "CREATE TABLE u (id INT64);"));
+        assertEquals("Only SELECT, INSERT, UPDATE and DELETE statements can be prepared", notPreparable.getMessage());
+
+        assertEquals(148, svc.execute(ctx, "DELETE FROM t;").affected());
+        assertEquals(java.util.List.of(java.util.List.of(0L)), svc.execute(ctx, "SELECT COUNT(*) FROM t WHERE id = 5;").rows());
+        assertTrue(svc.execute(ctx, "SELECT * FROM t;").rows().isEmpty());
+    }
+
+    @Test
+    void vacuum_compacts_pages_reuses_space_and_truncates_tail(@TempDir Path tempDir) throws Exception {
+        BufferPoolManager bpm = new DefaultBufferPoolManager(32, new HeapPageFileManager(), new LRUReplacer(), tempDir);
+        DefaultCatalogManager catalog = new DefaultCatalogManager(tempDir, bpm);
+        SqlService svc = new SqlService(tempDir, bpm, catalog);
+        SessionContext ctx = new SessionContext("s1", "q", false);
+
+        svc.execute(ctx, "CREATE TABLE t (id INT64, pad VARCHAR);");
+        String pad = "x".repeat(200);
+        for (int i = 0; i < 400; i++) {
+            svc.execute(ctx, "INSERT INTO t VALUES (" + i + ", '" + pad + "');");
+        }
+        svc.execute(ctx, "CREATE INDEX idx_t_id ON t(id) USING BTREE;");
+        int pagesBefore = catalog.getTable("t").getPagesCount();
+        Path heapFile = tempDir.resolve(catalog.getTable("t").getFileNode());
+        assertTrue(pagesBefore > 4);
+
+        assertEquals(200, svc.execute(ctx, "DELETE FROM t WHERE id >= 200;").affected());
+        assertEquals(100, svc.execute(ctx, "DELETE FROM t WHERE id < 200 AND id >= 100;").affected());
+        assertEquals(50, svc.execute(ctx, "DELETE FROM t WHERE id < 50;").affected());
+        svc.execute(ctx, "VACUUM t;");
+
+        int pagesAfter = catalog.getTable("t").getPagesCount();
+        assertTrue(pagesAfter < pagesBefore, "pages " + pagesBefore + " -> " + pagesAfter);
+        assertEquals((long) pagesAfter * 8192, Files.size(heapFile));
+        assertEquals(java.util.List.of(java.util.List.of(50L)), svc.execute(ctx, "SELECT COUNT(*) FROM t;").rows());
+        assertEquals(java.util.List.of(java.util.List.of(70L, pad)), svc.execute(ctx, "SELECT id, pad FROM t WHERE id = 70;").rows());
+        assertTrue(svc.execute(ctx, "SELECT id FROM t WHERE id = 1;").rows().isEmpty());
+
+        for (int i = 1000; i < 1020; i++) {
+            svc.execute(ctx, "INSERT INTO t VALUES (" + i + ", '" + pad + "');");
+        }
+        assertEquals(pagesAfter, catalog.getTable("t").getPagesCount());
+        assertEquals(java.util.List.of(java.util.List.of(1010L)), svc.execute(ctx, "SELECT id FROM t WHERE id = 1010;").rows());
+        assertEquals(java.util.List.of(java.util.List.of(70L)), svc.execute(ctx, "SELECT COUNT(*) FROM t;").rows());
+
+        svc.execute(ctx, "VACUUM;");
+        assertThrows(RuntimeException.class, () -> svc.execute(ctx, "VACUUM missing;"));
+    }
+
+    @Test
+    void autovacuum_runs_only_for_tables_past_dead_tuple_threshold(@TempDir Path tempDir) {
+        BufferPoolManager bpm = new DefaultBufferPoolManager(32, new HeapPageFileManager(), new LRUReplacer(), tempDir);
+        DefaultCatalogManager catalog = new DefaultCatalogManager(tempDir, bpm);
+        SqlService svc = new SqlService(tempDir, bpm, catalog);
+        SessionContext ctx = new SessionContext("s1", "q", false);
+        AutoVacuum autoVacuum = new AutoVacuum(tempDir, bpm, catalog, svc.heapFiles(), 1_000);
+
+        svc.execute(ctx, "CREATE TABLE hot (id INT64, pad VARCHAR);");
+        svc.execute(ctx, "CREATE TABLE cold (id INT64, pad VARCHAR);");
+        for (int i = 0; i < 300; i++) {
+            svc.execute(ctx, "INSERT INTO hot VALUES (" + i + ", 'hot" + "x".repeat(100) + "');");
+            svc.execute(ctx, "INSERT INTO cold VALUES (" + i + ", 'cold" + "x".repeat(100) + "');");
+        }
+        assertEquals(0, autoVacuum.runOnce());
+
+        svc.execute(ctx, "DELETE FROM cold WHERE id < 5;");
+        svc.execute(ctx, "DELETE FROM hot WHERE id >= 100;");
+        int hotPages = catalog.getTable("hot").getPagesCount();
+
+        assertEquals(1, autoVacuum.runOnce());
+        assertTrue(catalog.getTable("hot").getPagesCount() < hotPages);
+        assertEquals(0, autoVacuum.runOnce());
+        assertEquals(java.util.List.of(java.util.List.of(100L)), svc.execute(ctx, "SELECT COUNT(*) FROM hot;").rows());
+        assertEquals(java.util.List.of(java.util.List.of(295L)), svc.execute(ctx, "SELECT COUNT(*) FROM cold;").rows());
+    }
+
+    @Test
+    void vacuumed_slots_read_as_deleted_and_dead_tuples_survive_restart(@TempDir Path tempDir) throws Exception {
+        Path dataDir = tempDir.resolve("data");
+        Files.createDirectories(dataDir);
+        BufferPoolManager bpm = new DefaultBufferPoolManager(32, new HeapPageFileManager(), new LRUReplacer(), dataDir);
+        DefaultCatalogManager catalog = new DefaultCatalogManager(dataDir, bpm);
+        SqlService svc = new SqlService(dataDir, bpm, catalog);
+        SessionContext ctx = new SessionContext("s1", "q", false);
+
+        svc.execute(ctx, "CREATE TABLE t (id INT64, pad VARCHAR);");
+        TableHeap heap = new TableHeap(dataDir, bpm, catalog, svc.heapFiles(), catalog.getTable("t"));
+        TID first = heap.insertRow(java.util.List.of(0L, "a"));
+        TID last = heap.insertRow(java.util.List.of(1L, "b"));
+        assertTrue(heap.deleteRow(last));
+        heap.vacuum(0.0);
+        assertEquals(java.util.List.of(0L, "a"), heap.readRow(first));
+        assertNull(heap.readRow(last));
+        assertFalse(heap.deleteRow(last));
+
+        for (int i = 0; i < 300; i++) {
+            svc.execute(ctx, "INSERT INTO t VALUES (" + i + ", '" + "x".repeat(100) + "');");
+        }
+        svc.execute(ctx, "DELETE FROM t WHERE id >= 100;");
+        long dead = heap.deadTuples();
+        assertTrue(dead >= 200, "dead=" + dead);
+        bpm.flushAllPages();
+
+        Path restarted = tempDir.resolve("restarted");
+        Files.createDirectories(restarted);
+        try (var files = Files.list(dataDir)) {
+            for (Path f : files.toList()) {
+                Files.copy(f, restarted.resolve(f.getFileName()));
+            }
+        }
+        BufferPoolManager bpm2 = new DefaultBufferPoolManager(32, new HeapPageFileManager(), new LRUReplacer(), restarted);
+        DefaultCatalogManager catalog2 = new DefaultCatalogManager(restarted, bpm2);
+        HeapFileRegistry heapFiles2 = new HeapFileRegistry();
+        assertEquals(dead, new TableHeap(restarted, bpm2, catalog2, heapFiles2, catalog2.getTable("t")).deadTuples());
+        assertEquals(1, new AutoVacuum(restarted, bpm2, catalog2, heapFiles2, 1_000).runOnce());
+    }
+
+    @Test
+    void vacuum_does_not_reissue_tids_of_compacted_or_truncated_slots(@TempDir Path tempDir) {
+        BufferPoolManager bpm = new DefaultBufferPoolManager(32, new HeapPageFileManager(), new LRUReplacer(), tempDir);
+        DefaultCatalogManager catalog = new DefaultCatalogManager(tempDir, bpm);
+        SqlService svc = new SqlService(tempDir, bpm, catalog);
+
+        svc.execute("CREATE TABLE t (id INT64, pad VARCHAR);");
+        TableHeap heap = new TableHeap(tempDir, bpm, catalog, svc.heapFiles(), catalog.getTable("t"));
+        java.util.List<TID> tids = new java.util.ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            tids.add(heap.insertRow(java.util.List.of((long) i, "x".repeat(100))));
+        }
+        int pages = heap.pagesCount();
+        assertTrue(pages > 2, "pages=" + pages);
+
+        java.util.Set<TID> deleted = new java.util.HashSet<>();
+        for (TID tid : tids) {
+            if (tid.pageId() == pages - 1 || tid.pageId() == 0 && tid.slotId() > 10) {
+                assertTrue(heap.deleteRow(tid));
+                deleted.add(tid);
+            }
+        }
+        VacuumStats stats = heap.vacuum(0.0);
+        assertEquals(1, stats.pagesTruncated());
+        assertEquals(pages - 1, heap.pagesCount());
+
+        for (int i = 0; i < 200; i++) {
+            TID tid = heap.insertRow(java.util.List.of(1_000L + i, "y".repeat(100)));
+            assertFalse(deleted.contains(tid), "reissued " + tid);
+        }
+        for (TID tid : deleted) {
+            assertNull(heap.readRow(tid));
+            assertFalse(heap.deleteRow(tid));
+        }
+    }
+
+    @Test
+    void partial_vacuum_keeps_dead_tuples_of_skipped_pages(@TempDir Path tempDir) {
+        BufferPoolManager bpm = new DefaultBufferPoolManager(32, new HeapPageFileManager(), new LRUReplacer(), tempDir);
+        DefaultCatalogManager catalog = new DefaultCatalogManager(tempDir, bpm);
+        SqlService svc = new SqlService(tempDir, bpm, catalog);
+        SessionContext ctx = new SessionContext("s1", "q", false);
+
+        svc.execute(ctx, "CREATE TABLE t (id INT64, pad VARCHAR);");
+        TableHeap heap = new TableHeap(tempDir, bpm, catalog, svc.heapFiles(), catalog.getTable("t"));
+        java.util.List<TID> tids = new java.util.ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            tids.add(heap.insertRow(java.util.List.of((long) i, "x".repeat(100))));
+        }
+        int pages = heap.pagesCount();
+        assertTrue(pages > 4, "pages=" + pages);
+
+        long sparse = 0;
+        for (int pageId = 0; pageId < pages - 1; pageId++) {
+            boolean first = true;
+            for (TID tid : tids) {
+                if (tid.pageId() != pageId) continue;
+                if (pageId == 0 || first) {
+                    assertTrue(heap.deleteRow(tid));
+                    if (pageId != 0) sparse++;
+                }
+                first = false;
+            }
+        }
+
+        VacuumStats stats = heap.vacuum(0.2);
+        assertEquals(1, stats.pagesCompacted());
+        assertEquals(sparse, heap.deadTuples());
+
+        heap.vacuum(0.0);
+        assertEquals(0, heap.deadTuples());
+    }
+
+    @Test
+    void covering_index_serves_lookups_without_heap_reads(@TempDir Path tempDir) throws Exception {
+        BufferPoolManager bpm = new DefaultBufferPoolManager(32, new HeapPageFileManager(), new LRUReplacer(), tempDir);
+        DefaultCatalogManager catalog = new DefaultCatalogManager(tempDir, bpm);
+        SqlService svc = new SqlService(tempDir, bpm, catalog);
+        SessionContext ctx = new SessionContext("s1", "q", false);
+
+        svc.execute(ctx, "CREATE TABLE t (id INT64, name VARCHAR, pad VARCHAR);");
+        for (int i = 0; i < 300; i++) {
+            svc.execute(ctx, "INSERT INTO t VALUES (" + i + ", 'n" + i + "', 'p" + i + "');");
+        }
+        svc.execute(ctx, "CREATE INDEX idx_t_cov ON t(id) INCLUDE (name) USING BTREE;");
+
+        String covered = "SELECT name, id FROM t WHERE id >= 10 AND id < 13;";
+        assertTrue(svc.execute(ctx, "EXPLAIN " + covered).explain().contains("IndexOnlyScan(t"));
+        assertFalse(svc.execute(ctx, "EXPLAIN SELECT pad FROM t WHERE id = 10;").explain().contains("IndexOnlyScan"));
+        assertFalse(svc.execute(ctx, "EXPLAIN SELECT name FROM t WHERE id = 10 AND pad = 'p10';").explain().contains("IndexOnlyScan"));
+
+        Files.delete(tempDir.resolve(catalog.getTable("t").getFileNode()));
+        bpm.truncate(catalog.getTable("t").getFileNode(), 0);
+        assertEquals(java.util.List.of(
+                java.util.List.of("n10", 10L),
+                java.util.List.of("n11", 11L),
+                java.util.List.of("n12", 12L)
+        ), svc.execute(ctx, covered).rows());
+    }
+
+    @Test
+    void covering_index_tracks_updates_of_included_columns(@TempDir Path tempDir) {
+        BufferPoolManager bpm = new DefaultBufferPoolManager(32, new HeapPageFileManager(), new LRUReplacer(), tempDir);
+        DefaultCatalogManager catalog = new DefaultCatalogManager(tempDir, bpm);
+        SqlService svc = new SqlService(tempDir, bpm, catalog);
+        SessionContext ctx = new SessionContext("s1", "q", false);
+
+        svc.execute(ctx, "CREATE TABLE t (id INT64, name VARCHAR);");
+        svc.execute(ctx, "CREATE INDEX idx_t_cov ON t(id) INCLUDE (name) USING BTREE;");
+        for (int i = 0; i < 50; i++) {
+            svc.execute(ctx, "INSERT INTO t VALUES (" + i + ", 'n" + i + "');");
+        }
+
+        svc.execute(ctx, "UPDATE t SET name = 'renamed' WHERE id = 7;");
+        svc.execute(ctx, "DELETE FROM t WHERE id = 8;");
+        assertEquals(java.util.List.of(java.util.List.of(6L, "n6"), java.util.List.of(7L, "renamed")),
+                svc.execute(ctx, "SELECT id, name FROM t WHERE id >= 6 AND id <= 8;").rows());
+        assertThrows(RuntimeException.class, () -> svc.execute(ctx, "CREATE INDEX idx_h ON t(id) INCLUDE (name) USING HASH;"));
+    }
+
+    @Test
+    void composite_index_serves_equality_prefix_plus_range_in_one_scan(@TempDir Path tempDir) {
+        BufferPoolManager bpm = new DefaultBufferPoolManager(32, new HeapPageFileManager(), new LRUReplacer(), tempDir);
+        DefaultCatalogManager catalog = new DefaultCatalogManager(tempDir, bpm);
+        SqlService svc = new SqlService(tempDir, bpm, catalog);
+        SessionContext ctx = new SessionContext("s1", "q", false);
+
+        svc.execute(ctx, "CREATE TABLE t (a INT64, b INT64, name VARCHAR);");
+        for (int i = 0; i < 200; i++) {
+            svc.execute(ctx, "INSERT INTO t VALUES (" + (i % 4) + ", " + i + ", 'n" + i + "');");
+        }
+        svc.execute(ctx, "CREATE INDEX idx_t_ab ON t(a, b) USING BTREE;");
+
+        String plan = svc.execute(ctx, "EXPLAIN SELECT name FROM t WHERE a = 1 AND b > 180;").explain();
+        assertTrue(plan.contains("BTreeIndexScan(t, idx=idx_t_ab, from=(1, 180) (exc), to=1 (inc))"), plan);
+        assertFalse(plan.contains("SeqScan"), plan);
+        String covered = svc.execute(ctx, "EXPLAIN SELECT b FROM t WHERE a = 1 AND b > 180;").explain();
+        assertTrue(covered.contains("IndexOnlyScan(t, idx=idx_t_ab, from=(1, 180) (exc), to=1 (inc))"), covered);
+        assertEquals(java.util.List.of(java.util.List.of(181L), java.util.List.of(185L), java.util.List.of(189L),
+                        java.util.List.of(193L), java.util.List.of(197L)),
+                svc.execute(ctx, "SELECT b FROM t WHERE a = 1 AND b > 180;").rows());
+        assertEquals(java.util.List.of(java.util.List.of(2L, 6L, "n6")),
+                svc.execute(ctx, "SELECT a, b, name FROM t WHERE b = 6 AND a = 2;").rows());
+        assertEquals(50, svc.execute(ctx, "SELECT b FROM t WHERE a = 3;").rows().size());
+
+        svc.prepare(ctx, "q", "SELECT name FROM t WHERE a = $1 AND b >= $2 AND b < $3;");
+        assertEquals(java.util.List.of(java.util.List.of("n10"), java.util.List.of("n14")),
+                svc.executePrepared(ctx, "q", java.util.List.of(2L, 10L, 18L)).rows());
+
+        svc.execute(ctx, "UPDATE t SET b = 1000 WHERE a = 1 AND b = 181;");
+        assertEquals(java.util.List.of(java.util.List.of(1000L)),
+                svc.execute(ctx, "SELECT b FROM t WHERE a = 1 AND b >= 999;").rows());
+        assertThrows(RuntimeException.class, () -> svc.execute(ctx, "CREATE INDEX idx_h ON t(a, b) USING HASH;"));
+        assertThrows(RuntimeException.class, () -> svc.execute(ctx, "CREATE INDEX idx_d ON t(a, a) USING BTREE;"));
+    }
+
+    @Test
+    void unique_indexes_reject_duplicates_and_leave_table_unchanged(@TempDir Path tempDir) {
+        BufferPoolManager bpm = new DefaultBufferPoolManager(32, new HeapPageFileManager(), new LRUReplacer(), tempDir);
+        DefaultCatalogManager catalog = new DefaultCatalogManager(tempDir, bpm);
+        SqlService svc = new SqlService(tempDir, bpm, catalog);
+        SessionContext ctx = new SessionContext("s1", "q", false);
+
+        svc.execute(ctx, "CREATE TABLE t (id INT64, a INT64, b VARCHAR);");
+        svc.execute(ctx, "CREATE INDEX idx_t_b ON t(b) USING BTREE;");
+        svc.execute(ctx, "CREATE UNIQUE INDEX idx_t_id ON t(id) USING HASH;");
+        svc.execute(ctx, "CREATE UNIQUE INDEX idx_t_ab ON t(a, b) USING BTREE;");
+        for (int i = 0; i < 30; i++) {
+            svc.execute(ctx, "INSERT INTO t VALUES (" + i + ", " + (i % 3) + ", 'v" + i + "');");
+        }
+
+        assertThrows(UniqueViolationException.class, () -> svc.execute(ctx, "INSERT INTO t VALUES (5, 9, 'new');"));
+        assertThrows(UniqueViolationException.class, () -> svc.execute(ctx, "INSERT INTO t VALUES (100, 1, 'v4');"));
+        assertEquals(java.util.List.of(java.util.List.of(30L)), svc.execute(ctx, "SELECT COUNT(*) FROM t;").rows());
+        assertTrue(svc.execute(ctx, "SELECT id FROM t WHERE b = 'new';").rows().isEmpty());
+        assertTrue(svc.execute(ctx, "SELECT id FROM t WHERE id = 100;").rows().isEmpty());
+        svc.execute(ctx, "INSERT INTO t VALUES (100, 2, 'v4');");
+
+        assertThrows(UniqueViolationException.class, () -> svc.execute(ctx, "UPDATE t SET id = 7, b = 'longer value that moves the row' WHERE id = 8;"));
+        assertEquals(java.util.List.of(java.util.List.of(8L, 2L, "v8")), svc.execute(ctx, "SELECT id, a, b FROM t WHERE id = 8;").rows());
+        assertEquals(java.util.List.of(java.util.List.of(8L)), svc.execute(ctx, "SELECT id FROM t WHERE a = 2 AND b = 'v8';").rows());
+        assertTrue(svc.execute(ctx, "SELECT id FROM t WHERE b = 'longer value that moves the row';").rows().isEmpty());
+        svc.execute(ctx, "UPDATE t SET id = 8, b = 'w8' WHERE id = 8;");
+        assertEquals(java.util.List.of(java.util.List.of(8L)), svc.execute(ctx, "SELECT id FROM t WHERE b = 'w8';").rows());
+
+        assertThrows(UniqueViolationException.class, () -> svc.execute(ctx, "CREATE UNIQUE INDEX idx_t_a ON t(a) USING BTREE;"));
+        assertNull(catalog.getIndex("idx_t_a"));
+        assertThrows(RuntimeException.class, () -> svc.execute(ctx, "CREATE UNIQUE INDEX idx_t_cov ON t(id) INCLUDE (b) USING BTREE;"));
+    }
+
+    @Test
+    void bitmap_or_combines_two_indexes_for_disjunctions(@TempDir Path tempDir) {
+        BufferPoolManager bpm = new DefaultBufferPoolManager(32, new HeapPageFileManager(), new LRUReplacer(), tempDir);
+        DefaultCatalogManager catalog = new DefaultCatalogManager(tempDir, bpm);
+        SqlService svc = new SqlService(tempDir, bpm, catalog);
+        SessionContext ctx = new SessionContext("s1", "q", false);
+
+        svc.execute(ctx, "CREATE TABLE t (a INT64, b INT64, name VARCHAR);");
+        for (int i = 0; i < 300; i++) {
+            svc.execute(ctx, "INSERT INTO t VALUES (" + (i % 50) + ", " + (i % 30) + ", 'n" + i + "');");
+        }
+        svc.execute(ctx, "CREATE INDEX idx_t_a ON t(a) USING BTREE;");
+        svc.execute(ctx, "CREATE INDEX idx_t_b ON t(b) USING HASH;");
+
+        String query = "SELECT name FROM t WHERE a = 1 OR b = 2;";
+        String plan = svc.execute(ctx, "EXPLAIN " + query).explain();
+        assertTrue(plan.contains("BitmapHeapScan(t)"), plan);
+        assertTrue(plan.contains("BitmapOr"), plan);
+        assertTrue(plan.contains("BitmapIndexScan(t, idx=idx_t_a, from=1 (inc), to=1 (inc))"), plan);
+        assertTrue(plan.contains("BitmapIndexScan(t, idx=idx_t_b, value=2)"), plan);
+        assertFalse(plan.contains("SeqScan"), plan);
+
+        java.util.Set<Object> expected = new java.util.HashSet<>();
+        for (int i = 0; i < 300; i++) {
+            if (i % 50 == 1 || i % 30 == 2) expected.add("n" + i);
+        }
+        java.util.List<java.util.List<Object>> rows = svc.execute(ctx, query).rows();
+        assertEquals(expected.size(), rows.size());
+        assertEquals(expected, new java.util.HashSet<>(rows.stream().map(r -> r.get(0)).toList()));
+
+        String analyzed = svc.execute(ctx, "EXPLAIN ANALYZE " + query).explain();
+        assertTrue(analyzed.contains("BitmapOr (estimated rows="), analyzed);
+        assertTrue(analyzed.contains("(actual rows=" + expected.size() + " loops=1"), analyzed);
 
+        svc.execute(ctx, "DELETE FROM t WHERE a = 1 OR b = 2;");
+        assertTrue(svc.execute(ctx, query).rows().isEmpty());
+        assertEquals(java.util.List.of(java.util.List.of((long) (300 - expected.size()))),
+                svc.execute(ctx, "SELECT COUNT(*) FROM t;").rows());
+    }
+
+    @Test
+    void bitmap_heap_scan_reads_large_ranges_in_page_order(@TempDir Path tempDir) {
+        BufferPoolManager bpm = new DefaultBufferPoolManager(8, new HeapPageFileManager(), new LRUReplacer(), tempDir);
+        DefaultCatalogManager catalog = new DefaultCatalogManager(tempDir, bpm);
+        SqlService svc = new SqlService(tempDir, bpm, catalog);
+        SessionContext ctx = new SessionContext("s1", "q", false);
+
+        svc.execute(ctx, "CREATE TABLE t (id INT64, grp INT64, pad VARCHAR);");
+        String pad = "x".repeat(100);
+        for (int i = 0; i < 3000; i++) {
+            svc.execute(ctx, "INSERT INTO t VALUES (" + (i * 7919 % 3000) + ", " + (i % 7) + ", '" + pad + "');");
+        }
+        svc.execute(ctx, "CREATE INDEX idx_t_id ON t(id) USING BTREE;");
+        svc.execute(ctx, "CREATE INDEX idx_t_grp ON t(grp) USING HASH;");
+        svc.execute(ctx, "ANALYZE t;");
+
+        String query = "SELECT id, grp FROM t WHERE id >= 1000 AND id < 1030;";
+        String plan = svc.execute(ctx, "EXPLAIN " + query).explain();
+        assertTrue(plan.contains("BitmapHeapScan(t)"), plan);
+        assertTrue(plan.contains("BitmapIndexScan(t, idx=idx_t_id, from=1000 (inc), to=1030 (exc))"), plan);
+        java.util.List<Long> ids = new java.util.ArrayList<>();
+        for (java.util.List<Object> row : svc.execute(ctx, query).rows()) {
+            ids.add((Long) row.get(0));
+        }
+        java.util.Collections.sort(ids);
+        assertEquals(java.util.stream.LongStream.range(1000, 1030).boxed().toList(), ids);
+
+        String both = "SELECT id FROM t WHERE id >= 1000 AND id < 1030 AND grp = 3;";
+        long expected = java.util.stream.IntStream.range(0, 3000)
+                .filter(i -> i * 7919 % 3000 >= 1000 && i * 7919 % 3000 < 1030 && i % 7 == 3)
+                .count();
+        String bothPlan = svc.execute(ctx, "EXPLAIN " + both).explain();
+        assertTrue(bothPlan.contains("BitmapAnd"), bothPlan);
+        assertEquals(expected, svc.execute(ctx, both).rows().size());
+    }
+
+    @Test
+    void in_lists_and_or_ranges_use_one_sorted_multi_range_index_scan(@TempDir Path tempDir) {
+        BufferPoolManager bpm = new DefaultBufferPoolManager(32, new HeapPageFileManager(), new LRUReplacer(), tempDir);
+        DefaultCatalogManager catalog = new DefaultCatalogManager(tempDir, bpm);
+        SqlService svc = new SqlService(tempDir, bpm, catalog);
+        SessionContext ctx = new SessionContext("s1", "q", false);
+
+        svc.execute(ctx, "CREATE TABLE t (id INT64, grp INT64, name VARCHAR);");
+        for (int i = 0; i < 200; i++) {
+            svc.execute(ctx, "INSERT INTO t VALUES (" + (199 - i) + ", " + (i % 10) + ", 'n" + (199 - i) + "');");
+        }
+        svc.execute(ctx, "CREATE INDEX idx_t_id ON t(id) USING BTREE;");
+        svc.execute(ctx, "CREATE INDEX idx_t_grp ON t(grp) USING HASH;");
+
+        String or = "SELECT name FROM t WHERE id = 42 OR id = 7 OR id = 1 OR id = 7;";
+        String plan = svc.execute(ctx, "EXPLAIN " + or).explain();
+        assertTrue(plan.contains("MultiRangeIndexScan(t, idx=idx_t_id, ranges=[1, 7, 42])"), plan);
+        assertFalse(plan.contains("SeqScan"), plan);
+        assertEquals(java.util.List.of(java.util.List.of("n1"), java.util.List.of("n7"), java.util.List.of("n42")),
+                svc.execute(ctx, or).rows());
+
+        assertEquals(java.util.List.of(java.util.List.of("n3"), java.util.List.of("n5"), java.util.List.of("n150")),
+                svc.execute(ctx, "SELECT name FROM t WHERE id IN (150, 5, 3, 5);").rows());
+
+        String ranges = "SELECT id FROM t WHERE id < 2 OR (id >= 100 AND id <= 101) OR id = 1 OR id > 197;";
+        assertTrue(svc.execute(ctx, "EXPLAIN " + ranges).explain()
+                .contains("ranges=[(-inf, 2), [100, 101], (197, +inf)]"));
+        assertEquals(java.util.List.of(java.util.List.of(0L), java.util.List.of(1L), java.util.List.of(100L),
+                        java.util.List.of(101L), java.util.List.of(198L), java.util.List.of(199L)),
+                svc.execute(ctx, ranges).rows());
+
+        svc.prepare(ctx, "q", "SELECT name FROM t WHERE id IN ($1, $2, $1);");
+        assertEquals(java.util.List.of(java.util.List.of("n4"), java.util.List.of("n9")),
+                svc.executePrepared(ctx, "q", java.util.List.of(9L, 4L)).rows());
+
+        String hashed = "SELECT id FROM t WHERE grp IN (1, 2);";
+        assertTrue(svc.execute(ctx, "EXPLAIN " + hashed).explain().contains("MultiRangeIndexScan(t, idx=idx_t_grp, ranges=[1, 2])"));
+        assertEquals(40, svc.execute(ctx, hashed).rows().size());
+
+        String names = "SELECT id FROM t WHERE name IN ('n1', 'n2', 'n3', 'n4', 'n5', 'n6', 'n7', 'n8', 'n9', 'missing');";
+        assertTrue(svc.execute(ctx, "EXPLAIN " + names).explain().contains("SeqScan(t)"));
+        assertEquals(9, svc.execute(ctx, names).rows().size());
+
+        svc.execute(ctx, "DELETE FROM t WHERE id IN (1, 2) OR name IN ('n3', 'n4', 'n5', 'n6', 'n7', 'n8', 'n9', 'n10');");
+        assertEquals(java.util.List.of(java.util.List.of(190L)), svc.execute(ctx, "SELECT COUNT(*) FROM t;").rows());
+        assertThrows(RuntimeException.class, () -> svc.execute(ctx, "SELECT id FROM t WHERE id IN ('a');"));
+    }
+}
@@ -0,0 +1,98 @@
+package ru.open.cu.student.execution.executors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.open.cu.student.catalog.manager.DefaultCatalogManager;
+import ru.open.cu.student.engine.SqlService;
+import ru.open.cu.student.execution.CancellationToken;
+import ru.open.cu.student.execution.QueryCancelledException;
+import ru.open.cu.student.execution.memory.MemoryLimitExceededException;
+import ru.open.cu.student.execution.memory.MemoryPool;
+import ru.open.cu.student.execution.memory.QueryMemoryContext;
+import ru.open.cu.student.memory.buffer.BufferPoolManager;
+import ru.open.cu.student.memory.buffer.DefaultBufferPoolManager;
+import ru.open.cu.student.memory.manager.HeapPageFileManager;
+import ru.open.cu.student.memory.replacer.LRUReplacer;
+import ru.open.cu.student.storage.TableHeap;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DeleteExecutorTest {
+
+    @Test
+    void delete_checks_cancellation_before_removing_rows(@TempDir Path tempDir) {
+        TableHeap heap = loadTable(tempDir, 1_000);
+        CancellationToken token = CancellationToken.create();
+        DeleteExecutor exec = new DeleteExecutor(heap, () -> {
+            token.cancel();
+            return heap.scanTids().iterator();
+        }, null, List.of());
+
+        CancellationToken previous = CancellationToken.bind(token);
+        try {
+            exec.open();
+            assertThrows(QueryCancelledException.class, exec::next);
+        } finally {
+            CancellationToken.restore(previous);
+            exec.close();
+        }
+        assertEquals(1_000, heap.countRows());
+    }
+
+    @Test
+    void delete_and_update_reserve_collected_rows_and_release_them(@TempDir Path tempDir) {
+        TableHeap heap = loadTable(tempDir, 1_000);
+        MemoryPool pool = new MemoryPool(1L << 20);
+
+        QueryMemoryContext tight = new QueryMemoryContext(pool, 4096);
+        QueryMemoryContext previous = QueryMemoryContext.bind(tight);
+        try {
+            DeleteExecutor delete = new DeleteExecutor(heap, () -> heap.scanTids().iterator(), null, List.of());
+            delete.open();
+            assertThrows(MemoryLimitExceededException.class, delete::next);
+            assertEquals(0, tight.getReservedBytes());
+
+            UpdateExecutor update = new UpdateExecutor(
+                    heap, () -> heap.scanTids().iterator(), null, new int[]{1}, List.of(7L), List.of());
+            update.open();
+            assertThrows(MemoryLimitExceededException.class, update::next);
+            assertEquals(0, tight.getReservedBytes());
+        } finally {
+            QueryMemoryContext.restore(previous);
+        }
+        assertEquals(1_000, heap.countRows());
+        assertEquals(0, pool.getUsedBytes());
+
+        QueryMemoryContext roomy = new QueryMemoryContext(pool, 1L << 20);
+        previous = QueryMemoryContext.bind(roomy);
+        try {
+            DeleteExecutor delete = new DeleteExecutor(heap, () -> heap.scanTids().iterator(), null, List.of());
+            delete.open();
+            assertEquals(List.of(1_000L), delete.next());
+            assertTrue(roomy.getPeakBytes() > 0);
+            assertEquals(0, roomy.getReservedBytes());
+        } finally {
+            QueryMemoryContext.restore(previous);
+        }
+        assertEquals(0, heap.countRows());
+        assertEquals(0, pool.getUsedBytes());
+    }
+
+    private static TableHeap loadTable(Path dir, int rows) {
+        BufferPoolManager bpm = new DefaultBufferPoolManager(32, new HeapPageFileManager(), new LRUReplacer(), dir);
+        DefaultCatalogManager catalog = new DefaultCatalogManager(dir, bpm);
+        SqlService svc = new SqlService(dir, bpm, catalog);
+        svc.execute("CREATE TABLE t (id INT64, k INT64);");
+        TableHeap heap = new TableHeap(dir, bpm, catalog, svc.heapFiles(), catalog.getTable("t"));
+        List<Object> row = new ArrayList<>(List.of(0L, 1L));
+        for (long i = 0; i < rows; i++) {
+            row.set(0, i);
+            heap.insertRow(row);
+        }
+        return heap;
+    }
+}
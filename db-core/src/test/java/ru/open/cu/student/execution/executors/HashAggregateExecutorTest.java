@@ -0,0 +1,196 @@
+package ru.open.cu.student.execution.executors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.open.cu.student.catalog.model.ColumnDefinition;
+import ru.open.cu.student.execution.CancellationToken;
+import ru.open.cu.student.execution.Executor;
+import ru.open.cu.student.execution.QueryCancelledException;
+import ru.open.cu.student.execution.memory.MemoryPool;
+import ru.open.cu.student.execution.memory.QueryMemoryContext;
+import ru.open.cu.student.sql.semantic.AggregateFunction;
+import ru.open.cu.student.sql.semantic.ExprType;
+import ru.open.cu.student.sql.semantic.ResolvedAggregate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HashAggregateExecutorTest {
+
+    private static final ColumnDefinition KEY = new ColumnDefinition(1, "k", 0);
+    private static final ColumnDefinition VAL = new ColumnDefinition(1, "v", 1);
+    private static final List<ResolvedAggregate> AGGS = List.of(
+            new ResolvedAggregate(AggregateFunction.COUNT, null, ExprType.INT64),
+            new ResolvedAggregate(AggregateFunction.SUM, VAL, ExprType.INT64)
+    );
+
+    @Test
+    void spilling_produces_same_groups_as_in_memory(@TempDir Path tempDir) {
+        List<List<Object>> input = new ArrayList<>();
+        for (long i = 0; i < 5_000; i++) {
+            input.add(List.of(i % 997, i));
+        }
+
+        Map<Object, List<Object>> inMemory = drain(new HashAggregateExecutor(
+                new ListExecutor(input), List.of(KEY), AGGS, true, tempDir));
+
+        HashAggregateExecutor spilling = new HashAggregateExecutor(
+                new ListExecutor(input), List.of(KEY), AGGS, true, tempDir, 1024);
+        Map<Object, List<Object>> spilled = drain(spilling);
+
+        assertTrue(spilling.spilledRows() > 0);
+        assertEquals(997, spilled.size());
+        assertEquals(inMemory, spilled);
+    }
+
+    @Test
+    void generic_keys_spill_and_clean_up_files(@TempDir Path tempDir) throws Exception {
+        List<List<Object>> input = new ArrayList<>();
+        for (long i = 0; i < 2_000; i++) {
+            input.add(List.of("key-" + (i % 300), i));
+        }
+        Path spillDir = tempDir.resolve("tmp");
+
+        HashAggregateExecutor exec = new HashAggregateExecutor(
+                new ListExecutor(input), List.of(KEY), AGGS, false, spillDir, 2048);
+        Map<Object, List<Object>> groups = drain(exec);
+
+        assertEquals(300, groups.size());
+        assertEquals(List.of("key-7", 7L, 7L + 307 + 607 + 907 + 1207 + 1507 + 1807), groups.get("key-7"));
+        try (var files = Files.list(spillDir)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void null_int64_keys_form_one_group_and_count_skips_nulls(@TempDir Path tempDir) {
+        List<List<Object>> input = new ArrayList<>();
+        for (long i = 0; i < 10; i++) {
+            input.add(java.util.Arrays.asList(i % 3 == 0 ? null : i % 2, i % 4 == 0 ? null : i));
+        }
+        List<ResolvedAggregate> aggs = List.of(
+                new ResolvedAggregate(AggregateFunction.COUNT, null, ExprType.INT64),
+                new ResolvedAggregate(AggregateFunction.COUNT, VAL, ExprType.INT64),
+                new ResolvedAggregate(AggregateFunction.SUM, VAL, ExprType.INT64)
+        );
+
+        Map<Object, List<Object>> inMemory = drain(new HashAggregateExecutor(
+                new ListExecutor(input), List.of(KEY), aggs, true, tempDir));
+        assertEquals(3, inMemory.size());
+        assertEquals(java.util.Arrays.asList(null, 4L, 3L, 3L + 6 + 9), inMemory.get(null));
+        assertEquals(java.util.Arrays.asList(0L, 3L, 1L, 2L), inMemory.get(0L));
+        assertEquals(java.util.Arrays.asList(1L, 3L, 3L, 1L + 5 + 7), inMemory.get(1L));
+
+        assertEquals(inMemory, drain(new HashAggregateExecutor(
+                new ListExecutor(input), List.of(KEY), aggs, true, tempDir, 64)));
+    }
+
+    @Test
+    void keys_spilled_before_memory_frees_up_are_not_split_across_groups(@TempDir Path tempDir) {
+        List<List<Object>> input = new ArrayList<>();
+        for (int round = 0; round < 2; round++) {
+            for (long k = 0; k < 10; k++) {
+                input.add(List.of(k, 1L));
+            }
+        }
+        MemoryPool pool = new MemoryPool(4096);
+        QueryMemoryContext other = new QueryMemoryContext(pool, 4096);
+        other.reserve(4096 - 128, "other");
+        QueryMemoryContext memory = new QueryMemoryContext(pool, 4096);
+
+        Executor child = new ListExecutor(input) {
+            private int served;
+
+            @Override
+            public List<Object> next() {
+                if (served++ == 10) {
+                    other.release(other.getReservedBytes());
+                }
+                return super.next();
+            }
+        };
+        HashAggregateExecutor exec = new HashAggregateExecutor(child, List.of(KEY), AGGS, true, tempDir);
+        QueryMemoryContext previous = QueryMemoryContext.bind(memory);
+        try {
+            Map<Object, List<Object>> groups = drain(exec);
+            assertTrue(exec.spilledRows() > 0);
+            assertEquals(10, groups.size());
+            for (long k = 0; k < 10; k++) {
+                assertEquals(List.of(k, 2L, 2L), groups.get(k));
+            }
+        } finally {
+            QueryMemoryContext.restore(previous);
+        }
+    }
+
+    @Test
+    void empty_input_without_group_by_yields_single_row(@TempDir Path tempDir) {
+        HashAggregateExecutor exec = new HashAggregateExecutor(
+                new ListExecutor(List.of()), List.of(), AGGS, false, tempDir);
+        exec.open();
+        assertEquals(java.util.Arrays.asList(0L, null), exec.next());
+        assertNull(exec.next());
+        exec.close();
+    }
+
+    @Test
+    void cancellation_is_checked_while_consuming_input(@TempDir Path tempDir) {
+        List<List<Object>> input = new ArrayList<>();
+        for (long i = 0; i < 1_000; i++) {
+            input.add(List.of(i % 7, i));
+        }
+        HashAggregateExecutor exec = new HashAggregateExecutor(
+                new ListExecutor(input), List.of(), AGGS, false, tempDir);
+        CancellationToken token = CancellationToken.create();
+        token.cancel();
+        CancellationToken previous = CancellationToken.bind(token);
+        try {
+            assertThrows(QueryCancelledException.class, exec::open);
+        } finally {
+            CancellationToken.restore(previous);
+            exec.close();
+        }
+    }
+
+    private static Map<Object, List<Object>> drain(Executor exec) {
+        Map<Object, List<Object>> out = new HashMap<>();
+        exec.open();
+        List<Object> row;
+        while ((row = exec.next()) != null) {
+            assertNull(out.put(row.get(0), row));
+        }
+        exec.close();
+        return out;
+    }
+
+    private static class ListExecutor implements Executor {
+        private final List<List<Object>> rows;
+        private Iterator<List<Object>> it;
+
+        ListExecutor(List<List<Object>> rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public void open() {
+            it = rows.iterator();
+        }
+
+        @Override
+        public List<Object> next() {
+            return it.hasNext() ? it.next() : null;
+        }
+
+        @Override
+        public void close() {
+            it = null;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package ru.open.cu.student.execution.executors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.open.cu.student.execution.Executor;
+import ru.open.cu.student.execution.QueryExecutionEngineImpl;
+import ru.open.cu.student.execution.memory.MemoryLimitExceededException;
+import ru.open.cu.student.execution.memory.MemoryPool;
+import ru.open.cu.student.execution.memory.QueryMemoryContext;
+import ru.open.cu.student.sql.ast.JoinType;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HashJoinExecutorTest {
+
+    @Test
+    void spilled_join_matches_in_memory_join(@TempDir Path tempDir) {
+        List<List<Object>> left = new ArrayList<>();
+        for (long i = 0; i < 1_000; i++) {
+            left.add(List.of(i, "l" + i));
+        }
+        List<List<Object>> right = new ArrayList<>();
+        for (long i = 0; i < 3_000; i += 2) {
+            right.add(List.of(i % 1_200, "r" + i));
+        }
+
+        for (JoinType type : JoinType.values()) {
+            for (boolean buildLeft : new boolean[]{true, false}) {
+                List<List<Object>> inMemory = drain(new HashJoinExecutor(
+                        new ListExecutor(left), new ListExecutor(right), 0, 0, 2, type, buildLeft, tempDir));
+
+                HashJoinExecutor spilling = new HashJoinExecutor(
+                        new ListExecutor(left), new ListExecutor(right), 0, 0, 2, type, buildLeft, tempDir, 4096);
+                List<List<Object>> spilled = drain(spilling);
+
+                assertTrue(spilling.spilledRows() > 0);
+                assertEquals(inMemory, spilled, type + " buildLeft=" + buildLeft);
+                assertEquals(type == JoinType.INNER ? 1_300 : 1_800, spilled.size());
+            }
+        }
+    }
+
+    @Test
+    void query_memory_budget_forces_spill_and_is_released(@TempDir Path tempDir) {
+        List<List<Object>> left = new ArrayList<>();
+        for (long i = 0; i < 1_000; i++) {
+            left.add(List.of(i, "l" + i));
+        }
+        List<List<Object>> inMemory = drain(new HashJoinExecutor(
+                new ListExecutor(left), new ListExecutor(left), 0, 0, 2, JoinType.INNER, true, tempDir));
+
+        MemoryPool pool = new MemoryPool(1024 * 1024);
+        QueryMemoryContext memory = new QueryMemoryContext(pool, 16 * 1024);
+        QueryMemoryContext previous = QueryMemoryContext.bind(memory);
+        try {
+            HashJoinExecutor join = new HashJoinExecutor(
+                    new ListExecutor(left), new ListExecutor(left), 0, 0, 2, JoinType.INNER, true, tempDir);
+            assertEquals(inMemory, drain(join));
+            assertTrue(join.spilledRows() > 0);
+            assertTrue(memory.getPeakBytes() > 0 && memory.getPeakBytes() <= 16 * 1024);
+            assertEquals(0, memory.getReservedBytes());
+
+            MemoryLimitExceededException e = assertThrows(MemoryLimitExceededException.class,
+                    () -> new QueryExecutionEngineImpl().execute(new ListExecutor(left)));
+            assertTrue(e.getMessage().contains("ResultSet"));
+        } finally {
+            QueryMemoryContext.restore(previous);
+            memory.close();
+        }
+        assertEquals(0, pool.getUsedBytes());
+        assertTrue(pool.getPeakBytes() > 0);
+    }
+
+    private static List<List<Object>> drain(Executor exec) {
+        List<List<Object>> out = new ArrayList<>();
+        exec.open();
+        List<Object> row;
+        while ((row = exec.next()) != null) {
+            out.add(row);
+        }
+        exec.close();
+        out.sort(Comparator.comparing(Object::toString));
+        return out;
+    }
+
+    private static final class ListExecutor implements Executor {
+        private final List<List<Object>> rows;
+        private Iterator<List<Object>> it;
+
+        ListExecutor(List<List<Object>> rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public void open() {
+            it = rows.iterator();
+        }
+
+        @Override
+        public List<Object> next() {
+            return it.hasNext() ? it.next() : null;
+        }
+
+        @Override
+        public void close() {
+            it = null;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package ru.open.cu.student.execution.executors;
+
+import org.junit.jupiter.api.Test;
+import ru.open.cu.student.execution.Executor;
+import ru.open.cu.student.sql.ast.JoinType;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MergeJoinExecutorTest {
+
+    @Test
+    void varchar_keys_follow_index_utf8_order() {
+        String bmp = "\uE000";
+        String supplementary = "\uD83D\uDE00";
+        List<List<Object>> left = List.of(List.of(bmp, 1L), List.of(supplementary, 2L));
+        List<List<Object>> right = List.of(List.of(supplementary, "r"));
+
+        List<List<Object>> inner = drain(new MergeJoinExecutor(
+                new ListExecutor(left), new ListExecutor(right), 0, 0, 2, JoinType.INNER));
+        assertEquals(List.of(List.of(supplementary, 2L, supplementary, "r")), inner);
+
+        List<List<Object>> outer = drain(new MergeJoinExecutor(
+                new ListExecutor(left), new ListExecutor(right), 0, 0, 2, JoinType.LEFT));
+        assertEquals(List.of(
+                java.util.Arrays.asList(bmp, 1L, null, null),
+                List.of(supplementary, 2L, supplementary, "r")
+        ), outer);
+    }
+
+    private static List<List<Object>> drain(Executor exec) {
+        List<List<Object>> out = new ArrayList<>();
+        exec.open();
+        List<Object> row;
+        while ((row = exec.next()) != null) {
+            out.add(row);
+        }
+        exec.close();
+        return out;
+    }
+
+    private static final class ListExecutor implements Executor {
+        private final List<List<Object>> rows;
+        private Iterator<List<Object>> it;
+
+        ListExecutor(List<List<Object>> rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public void open() {
+            it = rows.iterator();
+        }
+
+        @Override
+        public List<Object> next() {
+            return it.hasNext() ? it.next() : null;
+        }
+
+        @Override
+        public void close() {
+            it = null;
+        }
+    }
+}
@@ -14,6 +14,9 @@ import ru.open.cu.student.storage.TID;
 
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -84,6 +87,345 @@ public class DiskBTreeIndexTest {
         assertEquals(List.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9), seen);
     }
 
+    @Test
+    void scan_cursor_walks_leaves_forward_and_backward(@TempDir Path tempDir) {
+        BufferPoolManager bpm = new DefaultBufferPoolManager(256, new HeapPageFileManager(), new LRUReplacer(), tempDir);
+        DefaultCatalogManager catalog = new DefaultCatalogManager(tempDir, bpm);
+        createTable(catalog);
+
+        IndexDefinition def = catalog.createIndex("idx_t_id", "t", "id", IndexType.BTREE);
+        IndexManager mgr = new IndexManager(tempDir, bpm, catalog);
+        Index idx = mgr.getOrCreate(def);
+
+        int n = 2_000;
+        for (int i = 0; i < n; i++) {
+            idx.insert((long) i, new TID(i / 100, (short) (i % 100)));
+        }
+        assertTrue(((DiskBTreeIndex) idx).debugHeight() >= 2);
+
+        List<Long> forward = keys(idx.scan(100L, false, 1_500L, true, false));
+        assertEquals(1_400, forward.size());
+        assertEquals(101L, forward.get(0));
+        assertEquals(1_500L, forward.get(forward.size() - 1));
+
+        List<Long> backward = keys(idx.scan(100L, true, 1_500L, false, true));
+        assertEquals(1_400, backward.size());
+        assertEquals(1_499L, backward.get(0));
+        assertEquals(100L, backward.get(backward.size() - 1));
+        for (int i = 1; i < backward.size(); i++) {
+            assertEquals(backward.get(i - 1) - 1, backward.get(i));
+        }
+
+        List<Long> all = keys(idx.scan(null, true, null, true, true));
+        assertEquals(n, all.size());
+        assertEquals(n - 1L, all.get(0));
+
+        Iterator<TID> early = idx.scan(null, true, null, true, false);
+        assertEquals(new TID(0, (short) 0), early.next());
+        idx.insert(5_000L, new TID(50, (short) 0));
+        int rest = 0;
+        while (early.hasNext()) {
+            early.next();
+            rest++;
+        }
+        assertEquals(n, rest);
+
+        assertFalse(idx.scan(10L, true, 5L, true, false).hasNext());
+    }
+
+    @Test
+    void varchar_keys_are_ordered_by_utf8_bytes_across_splits(@TempDir Path tempDir) {
+        BufferPoolManager bpm = new DefaultBufferPoolManager(256, new HeapPageFileManager(), new LRUReplacer(), tempDir);
+        DefaultCatalogManager catalog = new DefaultCatalogManager(tempDir, bpm);
+        TypeDefinition varchar = catalog.getTypeByName("VARCHAR");
+        catalog.createTable("u", List.of(new ColumnDefinition(varchar.getOid(), "name", 0)));
+
+        IndexDefinition def = catalog.createIndex("idx_u_name", "u", "name", IndexType.BTREE);
+        IndexManager mgr = new IndexManager(tempDir, bpm, catalog);
+        Index idx = mgr.getOrCreate(def);
+
+        int n = 3_000;
+        for (int i = n - 1; i >= 0; i--) {
+            idx.insert(String.format("user-%05d", i), new TID(i, (short) 0));
+        }
+        idx.insert("user-00042", new TID(9_999, (short) 1));
+        assertTrue(((DiskBTreeIndex) idx).debugHeight() >= 2);
+
+        assertEquals(List.of(new TID(42, (short) 0), new TID(9_999, (short) 1)), idx.search("user-00042"));
+        assertEquals(List.of(), idx.search("user-"));
+        assertEquals(List.of(), idx.search("user-99999"));
+
+        List<TID> range = idx.rangeSearch("user-00100", true, "user-00199", true);
+        assertEquals(100, range.size());
+        assertEquals(new TID(100, (short) 0), range.get(0));
+        assertEquals(new TID(199, (short) 0), range.get(99));
+
+        List<TID> all = idx.rangeSearch(null, true, null, true);
+        assertEquals(n + 1, all.size());
+        assertEquals(new TID(0, (short) 0), all.get(0));
+        assertEquals(new TID(n - 1, (short) 0), all.get(n));
+
+        assertThrows(IllegalArgumentException.class, () -> idx.insert("x".repeat(2_000), new TID(0, (short) 0)));
+    }
+
+    @Test
+    void shared_key_prefixes_are_stored_once_per_leaf(@TempDir Path tempDir) {
+        BufferPoolManager bpm = new DefaultBufferPoolManager(256, new HeapPageFileManager(), new LRUReplacer(), tempDir);
+        DefaultCatalogManager catalog = new DefaultCatalogManager(tempDir, bpm);
+        TypeDefinition varchar = catalog.getTypeByName("VARCHAR");
+        catalog.createTable("u", List.of(new ColumnDefinition(varchar.getOid(), "url", 0)));
+
+        IndexDefinition def = catalog.createIndex("idx_u_url", "u", "url", IndexType.BTREE);
+        IndexManager mgr = new IndexManager(tempDir, bpm, catalog);
+        DiskBTreeIndex idx = (DiskBTreeIndex) mgr.getOrCreate(def);
+
+        String prefix = "https://shop.example.com/tenant-0007/catalog/items/";
+        int n = 6_000;
+        for (int i = 0; i < n; i++) {
+            int k = (int) ((i * 2_654_435_761L) % n);
+            idx.insert(prefix + String.format("%06d", k), new TID(k, (short) 0));
+        }
+        idx.insert("a", new TID(-1, (short) 0));
+        idx.insert("zzz", new TID(-2, (short) 0));
+
+        assertEquals(2, idx.debugHeight());
+        assertTrue(idx.debugPageCount() < 40, "pages=" + idx.debugPageCount());
+
+        assertEquals(List.of(new TID(4_321, (short) 0)), idx.search(prefix + "004321"));
+        assertEquals(List.of(), idx.search(prefix));
+        assertEquals(List.of(), idx.search(prefix + "0043210"));
+        assertEquals(List.of(new TID(-1, (short) 0)), idx.search("a"));
+
+        List<TID> range = idx.rangeSearch(prefix + "001000", true, prefix + "001099", false);
+        assertEquals(99, range.size());
+        assertEquals(new TID(1_000, (short) 0), range.get(0));
+        assertEquals(new TID(1_098, (short) 0), range.get(98));
+
+        List<TID> all = idx.rangeSearch(null, true, null, true);
+        assertEquals(n + 2, all.size());
+        assertEquals(new TID(-1, (short) 0), all.get(0));
+        for (int i = 0; i < n; i++) {
+            assertEquals(new TID(i, (short) 0), all.get(i + 1));
+        }
+        assertEquals(new TID(-2, (short) 0), all.get(n + 1));
+    }
+
+    @Test
+    void bulk_load_packs_sorted_runs_into_leaves(@TempDir Path tempDir) {
+        BufferPoolManager bpm = new DefaultBufferPoolManager(256, new HeapPageFileManager(), new LRUReplacer(), tempDir);
+        DefaultCatalogManager catalog = new DefaultCatalogManager(tempDir, bpm);
+        createTable(catalog);
+
+        IndexDefinition def = catalog.createIndex("idx_t_id", "t", "id", IndexType.BTREE);
+        IndexManager mgr = new IndexManager(tempDir, bpm, catalog);
+        DiskBTreeIndex idx = (DiskBTreeIndex) mgr.getOrCreate(def);
+
+        int n = 20_000;
+        try (IndexBuildSorter sorter = new IndexBuildSorter(tempDir.resolve("tmp"), idx.keyOrder(), 3_000)) {
+            for (int i = n - 1; i >= 0; i--) {
+                sorter.add((long) (i / 2), new TID(i / 100, (short) (i % 100)));
+            }
+            assertTrue(sorter.runCount() >= 6);
+            idx.bulkLoad(sorter.sorted(), 70);
+        }
+        assertTrue(idx.debugHeight() >= 2);
+
+        assertEquals(List.of(new TID(0, (short) 84), new TID(0, (short) 85)), idx.search(42L));
+        List<TID> range = idx.rangeSearch(1_000L, true, 1_999L, true);
+        assertEquals(2_000, range.size());
+        assertEquals(new TID(20, (short) 0), range.get(0));
+        assertEquals(n, keys(idx.scan(null, true, null, true, true)).size());
+
+        for (int i = 0; i < 2_000; i++) {
+            idx.insert(20_000L + i, new TID(900, (short) i));
+        }
+        assertEquals(List.of(new TID(900, (short) 1_999)), idx.search(21_999L));
+        assertEquals(List.of(new TID(49, (short) 98), new TID(49, (short) 99)), idx.search(2_499L));
+        assertEquals(n + 2_000, idx.rangeSearch(null, true, null, true).size());
+
+        assertThrows(IllegalStateException.class, () -> idx.bulkLoad(List.<IndexBuildSorter.Entry>of().iterator(), 90));
+    }
+
+    @Test
+    void hot_keys_spill_postings_to_overflow_pages(@TempDir Path tempDir) {
+        BufferPoolManager bpm = new DefaultBufferPoolManager(256, new HeapPageFileManager(), new LRUReplacer(), tempDir);
+        DefaultCatalogManager catalog = new DefaultCatalogManager(tempDir, bpm);
+        createTable(catalog);
+
+        IndexManager mgr = new IndexManager(tempDir, bpm, catalog);
+        DiskBTreeIndex idx = (DiskBTreeIndex) mgr.getOrCreate(catalog.createIndex("idx_t_id", "t", "id", IndexType.BTREE));
+
+        int n = 40_000;
+        for (int i = 0; i < n; i++) {
+            idx.insert((long) (i % 4), new TID(i / 100, (short) (i % 100)));
+        }
+        idx.insert(2L, new TID(-5, (short) 3));
+        assertEquals(1, idx.debugHeight());
+        assertTrue(idx.debugPageCount() < 20, "pages=" + idx.debugPageCount());
+
+        List<TID> two = idx.search(2L);
+        assertEquals(n / 4 + 1, two.size());
+        assertEquals(new TID(-5, (short) 3), two.get(0));
+        assertEquals(new TID(0, (short) 2), two.get(1));
+        assertEquals(new TID(399, (short) 98), two.get(n / 4));
+        assertEquals(n / 4 + 1, idx.count(2L));
+        assertEquals(0, idx.count(9L));
+
+        List<Long> asc = keys(idx.scan(1L, true, 2L, true, false));
+        assertEquals(n / 2 + 1, asc.size());
+        assertEquals(List.of(1L, 5L), asc.subList(0, 2));
+        assertEquals(List.of(n - 3L, -497L, 2L), asc.subList(n / 4 - 1, n / 4 + 2));
+        assertEquals(n - 2L, asc.get(n / 2));
+
+        List<Long> desc = keys(idx.scan(null, true, null, true, true));
+        assertEquals(n + 1, desc.size());
+        assertEquals(List.of(3L, 7L), desc.subList(0, 2));
+        assertEquals(List.of(n - 4L), desc.subList(n, n + 1));
+
+        DiskBTreeIndex bulk = (DiskBTreeIndex) mgr.getOrCreate(catalog.createIndex("idx_t_id_bulk", "t", "id", IndexType.BTREE));
+        try (IndexBuildSorter sorter = new IndexBuildSorter(tempDir.resolve("tmp"), bulk.keyOrder(), 7_000)) {
+            for (int i = n - 1; i >= 0; i--) {
+                sorter.add((long) (i % 4), new TID(i / 100, (short) (i % 100)));
+            }
+            bulk.bulkLoad(sorter.sorted(), 90);
+        }
+        assertEquals(idx.search(1L), bulk.search(1L));
+        assertEquals(keys(idx.scan(3L, true, null, true, false)), keys(bulk.scan(3L, true, null, true, false)));
+        bulk.insert(3L, new TID(5, (short) 50));
+        assertEquals(n / 4 + 1, bulk.search(3L).size());
+    }
+
+    @Test
+    void concurrent_inserts_and_scans_keep_the_tree_consistent(@TempDir Path tempDir) throws Exception {
+        BufferPoolManager bpm = new DefaultBufferPoolManager(512, new HeapPageFileManager(), new LRUReplacer(), tempDir);
+        DefaultCatalogManager catalog = new DefaultCatalogManager(tempDir, bpm);
+        createTable(catalog);
+
+        IndexDefinition def = catalog.createIndex("idx_t_id", "t", "id", IndexType.BTREE);
+        IndexManager mgr = new IndexManager(tempDir, bpm, catalog);
+        Index idx = mgr.getOrCreate(def);
+
+        int writers = 4;
+        int n = 20_000;
+        AtomicBoolean done = new AtomicBoolean();
+        List<Throwable> errors = new CopyOnWriteArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            int offset = w;
+            threads.add(new Thread(() -> {
+                try {
+                    for (int i = offset; i < n; i += writers) {
+                        long k = (i * 7_919L) % n;
+                        idx.insert(k, new TID((int) (k / 100), (short) (k % 100)));
+                    }
+                } catch (Throwable t) {
+                    errors.add(t);
+                }
+            }));
+        }
+        for (int r = 0; r < 2; r++) {
+            boolean descending = r == 1;
+            threads.add(new Thread(() -> {
+                try {
+                    while (!done.get()) {
+                        List<Long> seen = keys(idx.scan(null, true, null, true, descending));
+                        for (int i = 1; i < seen.size(); i++) {
+                            assertEquals(descending, seen.get(i) < seen.get(i - 1));
+                        }
+                    }
+                } catch (Throwable t) {
+                    errors.add(t);
+                }
+            }));
+        }
+
+        for (Thread t : threads) t.start();
+        for (int i = 0; i < writers; i++) threads.get(i).join(60_000);
+        done.set(true);
+        for (Thread t : threads) t.join(60_000);
+
+        assertEquals(List.of(), errors);
+        List<Long> all = keys(idx.scan(null, true, null, true, false));
+        assertEquals(n, all.size());
+        for (int i = 0; i < n; i++) {
+            assertEquals(i, all.get(i));
+        }
+        assertEquals(List.of(new TID(123, (short) 45)), idx.search(12_345L));
+    }
+
+    @Test
+    void deletes_merge_underfull_leaves_and_shrink_the_tree(@TempDir Path tempDir) {
+        BufferPoolManager bpm = new DefaultBufferPoolManager(256, new HeapPageFileManager(), new LRUReplacer(), tempDir);
+        DefaultCatalogManager catalog = new DefaultCatalogManager(tempDir, bpm);
+        createTable(catalog);
+
+        IndexManager mgr = new IndexManager(tempDir, bpm, catalog);
+        DiskBTreeIndex idx = (DiskBTreeIndex) mgr.getOrCreate(catalog.createIndex("idx_t_id", "t", "id", IndexType.BTREE));
+
+        int n = 20_000;
+        int keep = 200;
+        for (int i = 0; i < n; i++) {
+            idx.insert((long) i, new TID(i / 100, (short) (i % 100)));
+        }
+        idx.insert(7L, new TID(-1, (short) 1));
+        int tallHeight = idx.debugHeight();
+        assertTrue(tallHeight >= 2);
+
+        assertFalse(idx.delete(7L, new TID(5, (short) 5)));
+        assertTrue(idx.delete(7L, new TID(-1, (short) 1)));
+        assertEquals(List.of(new TID(0, (short) 7)), idx.search(7L));
+
+        for (int i = 0; i < n; i++) {
+            if (i % keep != 0) {
+                assertTrue(idx.delete((long) i, new TID(i / 100, (short) (i % 100))), "key=" + i);
+            }
+        }
+        assertTrue(idx.debugHeight() < tallHeight, "height=" + idx.debugHeight());
+        assertEquals(List.of(), idx.search(7L));
+        assertEquals(List.of(new TID(6, (short) 0)), idx.search(600L));
+        assertEquals(List.of(), idx.search(650L));
+
+        List<Long> asc = keys(idx.scan(null, true, null, true, false));
+        assertEquals(n / keep, asc.size());
+        for (int i = 0; i < asc.size(); i++) {
+            assertEquals((long) i * keep, asc.get(i));
+        }
+        assertEquals(List.of(1_800L, 1_600L, 1_400L, 1_200L, 1_000L), keys(idx.scan(1_000L, true, 2_000L, false, true)));
+
+        for (int i = 0; i < n; i += keep) {
+            assertTrue(idx.delete((long) i, new TID(i / 100, (short) (i % 100))));
+        }
+        assertEquals(1, idx.debugHeight());
+        assertFalse(idx.scan(null, true, null, true, false).hasNext());
+        idx.insert(3L, new TID(0, (short) 3));
+        assertEquals(List.of(new TID(0, (short) 3)), idx.search(3L));
+    }
+
+    @Test
+    void removing_postings_from_hot_keys_unlinks_overflow_pages(@TempDir Path tempDir) {
+        BufferPoolManager bpm = new DefaultBufferPoolManager(256, new HeapPageFileManager(), new LRUReplacer(), tempDir);
+        DefaultCatalogManager catalog = new DefaultCatalogManager(tempDir, bpm);
+        createTable(catalog);
+
+        IndexManager mgr = new IndexManager(tempDir, bpm, catalog);
+        DiskBTreeIndex idx = (DiskBTreeIndex) mgr.getOrCreate(catalog.createIndex("idx_t_id", "t", "id", IndexType.BTREE));
+
+        int n = 20_000;
+        for (int i = 0; i < n; i++) {
+            idx.insert((long) (i % 2), new TID(i / 100, (short) (i % 100)));
+        }
+        for (int i = 0; i < n; i += 2) {
+            if (i % 1_000 != 0) {
+                assertTrue(idx.delete(0L, new TID(i / 100, (short) (i % 100))));
+            }
+        }
+        List<TID> zero = idx.search(0L);
+        assertEquals(n / 1_000, zero.size());
+        assertEquals(new TID(10, (short) 0), zero.get(1));
+        assertEquals(n / 2, idx.search(1L).size());
+        assertEquals(n / 1_000 + n / 2, keys(idx.scan(null, true, null, true, false)).size());
+    }
+
     @Test
     void splits_increase_height_and_persistence_restart(@TempDir Path tempDir) {
         BufferPoolManager bpm = new DefaultBufferPoolManager(256, new HeapPageFileManager(), new LRUReplacer(), tempDir);
@@ -127,6 +469,113 @@ public class DiskBTreeIndexTest {
         }
     }
 
+    private static List<Long> keys(Iterator<TID> it) {
+        List<Long> out = new ArrayList<>();
+        while (it.hasNext()) {
+            TID tid = it.next();
+            out.add(tid.pageId() * 100L + tid.slotId());
+        }
+        return out;
+    }
+
+    @Test
+    void include_columns_are_stored_in_leaves_and_matched_by_key_prefix(@TempDir Path tempDir) {
+        BufferPoolManager bpm = new DefaultBufferPoolManager(128, new HeapPageFileManager(), new LRUReplacer(), tempDir);
+        DefaultCatalogManager catalog = new DefaultCatalogManager(tempDir, bpm);
+        TypeDefinition int64 = catalog.getTypeByName("INT64");
+        TypeDefinition varchar = catalog.getTypeByName("VARCHAR");
+        catalog.createTable("c", List.of(
+                new ColumnDefinition(int64.getOid(), "id", 0),
+                new ColumnDefinition(varchar.getOid(), "name", 1),
+                new ColumnDefinition(int64.getOid(), "score", 2)
+        ));
+
+        IndexDefinition def = catalog.createIndex("idx_c_id", "c", "id", List.of("name", "score"), IndexType.BTREE);
+        IndexManager mgr = new IndexManager(tempDir, bpm, catalog);
+        DiskBTreeIndex idx = (DiskBTreeIndex) mgr.getOrCreate(def);
+
+        for (int i = 0; i < 2_000; i++) {
+            idx.insert(CompositeKey.of((long) (i - 1_000), "n\u0000" + i, (long) -i), new TID(i / 100, (short) (i % 100)));
+        }
+        idx.insert(CompositeKey.of(-5L, "again", 1L), new TID(99, (short) 1));
+        assertTrue(idx.debugHeight() > 1);
+        assertThrows(IllegalArgumentException.class, () -> idx.insert(7L, new TID(0, (short) 0)));
+
+        assertEquals(List.of(new TID(99, (short) 1), new TID(9, (short) 95)), idx.search(-5L));
+        assertEquals(3, idx.rangeSearch(-5L, true, -4L, true).size());
+        assertEquals(2, idx.rangeSearch(-6L, false, -4L, false).size());
+        assertTrue(idx.search(5_000L).isEmpty());
+
+        List<IndexEntry> entries = new ArrayList<>();
+        idx.scanEntries(998L, true, null, false).forEachRemaining(entries::add);
+        assertEquals(2, entries.size());
+        assertEquals(List.of(998L, "n\u00001998", -1998L), entries.get(0).values());
+        assertEquals(new TID(19, (short) 99), entries.get(1).tid());
+
+        assertTrue(idx.delete(CompositeKey.of(-5L, "again", 1L), new TID(99, (short) 1)));
+        assertFalse(idx.delete(CompositeKey.of(-5L, "other", 1L), new TID(9, (short) 95)));
+        assertEquals(List.of(new TID(9, (short) 95)), idx.search(-5L));
+    }
+
+    @Test
+    void composite_keys_support_prefix_equality_and_range_on_next_column(@TempDir Path tempDir) {
+        BufferPoolManager bpm = new DefaultBufferPoolManager(128, new HeapPageFileManager(), new LRUReplacer(), tempDir);
+        DefaultCatalogManager catalog = new DefaultCatalogManager(tempDir, bpm);
+        TypeDefinition int64 = catalog.getTypeByName("INT64");
+        TypeDefinition varchar = catalog.getTypeByName("VARCHAR");
+        catalog.createTable("m", List.of(
+                new ColumnDefinition(varchar.getOid(), "region", 0),
+                new ColumnDefinition(int64.getOid(), "ts", 1)
+        ));
+
+        IndexDefinition def = catalog.createIndex("idx_m", "m", List.of("region", "ts"), List.of(), IndexType.BTREE);
+        assertEquals(2, def.getColumnOids().size());
+        IndexManager mgr = new IndexManager(tempDir, bpm, catalog);
+        DiskBTreeIndex idx = (DiskBTreeIndex) mgr.getOrCreate(def);
+
+        String[] regions = {"eu", "eu-west", "us"};
+        for (int i = 0; i < 3_000; i++) {
+            idx.insert(CompositeKey.of(regions[i % 3], (long) (i - 1_500)), new TID(i / 100, (short) (i % 100)));
+        }
+        assertTrue(idx.debugHeight() > 1);
+
+        assertEquals(1_000, idx.search("eu").size());
+        assertEquals(List.of(new TID(0, (short) 0)), idx.search(CompositeKey.of("eu", -1_500L)));
+        assertEquals(3, idx.rangeSearch(CompositeKey.of("eu", 0L), false, CompositeKey.of("eu", 9L), true).size());
+        assertEquals(500, idx.rangeSearch(CompositeKey.of("us", 0L), true, "us", true).size());
+        assertEquals(500, idx.rangeSearch("eu-west", true, CompositeKey.of("eu-west", 0L), false).size());
+        assertEquals(2_000, idx.rangeSearch("eu-west", true, null, false).size());
+        assertTrue(idx.search("e").isEmpty());
+
+        List<IndexEntry> entries = new ArrayList<>();
+        idx.scanEntries(CompositeKey.of("us", 1_490L), true, "us", true).forEachRemaining(entries::add);
+        assertEquals(List.of(List.of("us", 1_490L), List.of("us", 1_493L), List.of("us", 1_496L), List.of("us", 1_499L)),
+                entries.stream().map(IndexEntry::values).toList());
+    }
+
+    @Test
+    void unique_index_rejects_duplicates_found_during_insert_descent(@TempDir Path tempDir) {
+        BufferPoolManager bpm = new DefaultBufferPoolManager(128, new HeapPageFileManager(), new LRUReplacer(), tempDir);
+        DefaultCatalogManager catalog = new DefaultCatalogManager(tempDir, bpm);
+        createTable(catalog);
+
+        IndexDefinition def = catalog.createIndex("idx_t_id", "t", List.of("id"), List.of(), IndexType.BTREE, true);
+        IndexManager mgr = new IndexManager(tempDir, bpm, catalog);
+        DiskBTreeIndex idx = (DiskBTreeIndex) mgr.getOrCreate(def);
+
+        for (int i = 0; i < 5_000; i++) {
+            idx.insert((long) i, new TID(i / 100, (short) (i % 100)));
+        }
+        assertTrue(idx.debugHeight() > 1);
+        UniqueViolationException e = assertThrows(UniqueViolationException.class, () -> idx.insert(4_321L, new TID(99, (short) 0)));
+        assertTrue(e.getMessage().contains("4321"), e.getMessage());
+        assertEquals(List.of(new TID(43, (short) 21)), idx.search(4_321L));
+
+        assertTrue(idx.delete(4_321L, new TID(43, (short) 21)));
+        idx.insert(4_321L, new TID(99, (short) 0));
+        assertEquals(List.of(new TID(99, (short) 0)), idx.search(4_321L));
+    }
+
     private static void createTable(DefaultCatalogManager catalog) {
         TypeDefinition int64 = catalog.getTypeByName("INT64");
         assertNotNull(int64);
@@ -81,6 +81,104 @@ public class DiskHashIndexTest {
         }
     }
 
+    @Test
+    void delete_removes_entries_and_compacts_overflow_chains(@TempDir Path tempDir) {
+        BufferPoolManager bpm = new DefaultBufferPoolManager(128, new HeapPageFileManager(), new LRUReplacer(), tempDir);
+        DefaultCatalogManager catalog = new DefaultCatalogManager(tempDir, bpm);
+        createTable(catalog);
+
+        IndexManager mgr = new IndexManager(tempDir, bpm, catalog);
+        DiskHashIndex idx = (DiskHashIndex) mgr.getOrCreate(catalog.createIndex("idx_t_id", "t", "id", IndexType.HASH));
+
+        int n = 3_000;
+        for (int i = 0; i < n; i++) {
+            idx.insert(5L, new TID(i / 100, (short) (i % 100)));
+        }
+        int longChain = idx.debugChainLength(5L);
+        assertTrue(longChain > 2, "chain=" + longChain);
+
+        assertFalse(idx.delete(5L, new TID(-1, (short) 0)));
+        assertFalse(idx.delete(6L, new TID(0, (short) 0)));
+        for (int i = 0; i < n; i++) {
+            if (i % 10 != 0) {
+                assertTrue(idx.delete(5L, new TID(i / 100, (short) (i % 100))), "i=" + i);
+            }
+        }
+        assertEquals(n / 10, idx.search(5L).size());
+        assertEquals(n / 10, idx.count(5L));
+        assertEquals(0, idx.count(6L));
+        assertEquals(n / 10, idx.debugRecordCount());
+        assertTrue(idx.debugChainLength(5L) < longChain, "chain=" + idx.debugChainLength(5L));
+
+        int pages = idx.debugPageCount();
+        for (int i = 0; i < n; i++) {
+            if (i % 10 != 0) {
+                idx.insert(5L, new TID(i / 100, (short) (i % 100)));
+            }
+        }
+        assertEquals(n, idx.search(5L).size());
+        assertEquals(pages, idx.debugPageCount());
+    }
+
+    @Test
+    void presized_index_skips_incremental_splits(@TempDir Path tempDir) {
+        BufferPoolManager bpm = new DefaultBufferPoolManager(128, new HeapPageFileManager(), new LRUReplacer(), tempDir);
+        DefaultCatalogManager catalog = new DefaultCatalogManager(tempDir, bpm);
+        createTable(catalog);
+
+        IndexDefinition def = catalog.createIndex("idx_t_id", "t", "id", IndexType.HASH);
+        IndexManager mgr = new IndexManager(tempDir, bpm, catalog);
+        DiskHashIndex idx = (DiskHashIndex) mgr.getOrCreate(def);
+
+        int n = 5_000;
+        idx.presize(n);
+        int buckets = idx.debugBucketCount();
+        assertEquals(128, buckets);
+
+        for (int i = 0; i < n; i++) {
+            idx.insert((long) i, new TID(i / 100, (short) (i % 100)));
+        }
+        assertEquals(buckets, idx.debugBucketCount());
+        for (int k : new int[]{0, 77, 2_500, 4_999}) {
+            assertEquals(List.of(new TID(k / 100, (short) (k % 100))), idx.search((long) k));
+        }
+        assertThrows(IllegalStateException.class, () -> idx.presize(100_000));
+    }
+
+    @Test
+    void unique_index_probes_whole_overflow_chain_and_survives_reload(@TempDir Path tempDir) {
+        BufferPoolManager bpm = new DefaultBufferPoolManager(128, new HeapPageFileManager(), new LRUReplacer(), tempDir);
+        DefaultCatalogManager catalog = new DefaultCatalogManager(tempDir, bpm);
+        createTable(catalog);
+
+        IndexDefinition def = catalog.createIndex("idx_t_id", "t", List.of("id"), List.of(), IndexType.HASH, true);
+        IndexManager mgr = new IndexManager(tempDir, bpm, catalog);
+        DiskHashIndex idx = (DiskHashIndex) mgr.getOrCreate(def);
+
+        int n = 2_000;
+        for (int i = 0; i < n; i++) {
+            idx.insert(((long) i << 32) | i, new TID(i / 100, (short) (i % 100)));
+        }
+        assertTrue(idx.debugChainLength(0L) > 1);
+        assertThrows(UniqueViolationException.class, () -> idx.insert(0L, new TID(99, (short) 0)));
+        assertThrows(UniqueViolationException.class, () -> idx.insert(((long) 1_999 << 32) | 1_999, new TID(99, (short) 0)));
+        assertEquals(n, idx.debugRecordCount());
+
+        assertTrue(idx.delete(0L, new TID(0, (short) 0)));
+        idx.insert(0L, new TID(99, (short) 0));
+        assertEquals(List.of(new TID(99, (short) 0)), idx.search(0L));
+        bpm.flushAllPages();
+
+        BufferPoolManager bpm2 = new DefaultBufferPoolManager(128, new HeapPageFileManager(), new LRUReplacer(), tempDir);
+        DefaultCatalogManager catalog2 = new DefaultCatalogManager(tempDir, bpm2);
+        IndexDefinition def2 = catalog2.getIndex("idx_t_id");
+        assertTrue(def2.isUnique());
+        Index idx2 = new IndexManager(tempDir, bpm2, catalog2).getOrCreate(def2);
+        assertThrows(UniqueViolationException.class, () -> idx2.insert(((long) 777 << 32) | 777, new TID(98, (short) 0)));
+        idx2.insert(5_000L, new TID(98, (short) 1));
+        assertEquals(List.of(new TID(98, (short) 1)), idx2.search(5_000L));
+    }
+
     private static void createTable(DefaultCatalogManager catalog) {
         TypeDefinition int64 = catalog.getTypeByName("INT64");
         assertNotNull(int64);
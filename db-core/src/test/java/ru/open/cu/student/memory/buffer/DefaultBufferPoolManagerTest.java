@@ -22,6 +22,7 @@ class DefaultBufferPoolManagerTest {
     static class FakePFM implements PageFileManager {
         int readCount = 0;
         int writeCount = 0;
+        int truncatedTo = -1;
 
         @Override
         public void write(Page page, Path path) {
@@ -33,6 +34,11 @@ class DefaultBufferPoolManagerTest {
             readCount++;
             return new HeapPage(pageId);
         }
+
+        @Override
+        public void truncate(Path path, int pageCount) {
+            truncatedTo = pageCount;
+        }
     }
 
     static class FIFOReplacer implements Replacer {
@@ -102,6 +108,33 @@ class DefaultBufferPoolManagerTest {
         assertThrows(IllegalStateException.class, () -> m.getPage(p2));
     }
 
+    @Test
+    void testPinsAreCountedUntilLastUnpin() {
+        FakePFM pfm = new FakePFM();
+        DefaultBufferPoolManager m = newManager(1, pfm);
+        PageKey p1 = new PageKey("a.dat", 1);
+        PageKey p2 = new PageKey("a.dat", 2);
+
+        m.getPage(p1);
+        m.pinPage(p1);
+        m.pinPage(p1);
+        m.unpinPage(p1);
+        assertThrows(IllegalStateException.class, () -> m.getPage(p2));
+        m.unpinPage(p1);
+        m.getPage(p2);
+    }
+
+    @Test
+    void testNewDirtyPageIsWrittenOnEviction() {
+        FakePFM pfm = new FakePFM();
+        DefaultBufferPoolManager m = newManager(1, pfm);
+        PageKey p1 = new PageKey("a.dat", 1);
+
+        assertTrue(m.newDirtyPage(p1, new HeapPage(1)).isDirty());
+        m.getPage(new PageKey("a.dat", 2));
+        assertEquals(1, pfm.writeCount);
+    }
+
     @Test
     void testFlushPageWritesOnceAndClearsDirty() {
         FakePFM pfm = new FakePFM();
@@ -150,6 +183,28 @@ class DefaultBufferPoolManagerTest {
         assertTrue(keys.contains(p1));
         assertFalse(keys.contains(p2));
     }
-}
 
+    @Test
+    void testTruncateDropsTailPagesWithoutWritingThem() {
+        FakePFM pfm = new FakePFM();
+        DefaultBufferPoolManager m = newManager(4, pfm);
+        PageKey p1 = new PageKey("a.dat", 1);
+        PageKey p2 = new PageKey("a.dat", 2);
+        PageKey other = new PageKey("b.dat", 2);
 
+        m.getPage(p1);
+        m.updatePage(p1, new HeapPage(1));
+        m.getPage(p2);
+        m.updatePage(p2, new HeapPage(2));
+        m.getPage(other);
+        m.truncate("a.dat", 2);
+
+        assertEquals(2, pfm.truncatedTo);
+        Set<PageKey> dirty = m.getDirtyPages().stream().map(BufferSlot::getKey).collect(Collectors.toSet());
+        assertEquals(Set.of(p1), dirty);
+        m.flushAllPages();
+        assertEquals(1, pfm.writeCount);
+        m.getPage(other);
+        assertEquals(3, pfm.readCount);
+    }
+}
@@ -34,6 +34,115 @@ public class HeapPageTest {
         assertArrayEquals(c, page.read(2));
     }
 
+    @Test
+    void deleted_slots_keep_numbering_and_refuse_reads() {
+        Page page = new HeapPage(3);
+        page.write(new byte[]{1, 2});
+        page.write(new byte[]{3});
+        page.write(new byte[]{4, 5, 6});
+
+        page.delete(1);
+        assertTrue(page.isDeleted(1));
+        assertFalse(page.isDeleted(0));
+        assertEquals(3, page.size());
+        assertThrows(IllegalStateException.class, () -> page.read(1));
+        assertThrows(IllegalStateException.class, () -> page.delete(1));
+        assertArrayEquals(new byte[]{4, 5, 6}, page.read(2));
+
+        Page copy = new HeapPage(3, page.bytes());
+        assertTrue(copy.isDeleted(1));
+        assertArrayEquals(new byte[]{1, 2}, copy.read(0));
+    }
+
+    @Test
+    void update_rewrites_in_place_or_relocates_within_page() {
+        Page page = new HeapPage(4);
+        page.write(new byte[]{1, 2, 3});
+        page.write(new byte[]{9});
+
+        assertTrue(page.update(0, new byte[]{7}));
+        assertArrayEquals(new byte[]{7}, page.read(0));
+        assertTrue(page.update(0, new byte[]{1, 2, 3, 4, 5, 6}));
+        assertArrayEquals(new byte[]{1, 2, 3, 4, 5, 6}, page.read(0));
+        assertArrayEquals(new byte[]{9}, page.read(1));
+        assertEquals(2, page.size());
+
+        assertFalse(page.update(1, new byte[HeapPage.PAGE_SIZE]));
+        assertArrayEquals(new byte[]{9}, page.read(1));
+    }
+
+    @Test
+    void compact_repacks_live_tuples_and_keeps_slot_numbers() {
+        Page page = new HeapPage(5);
+        page.write(new byte[100]);
+        page.write(new byte[]{1, 2, 3});
+        page.write(new byte[200]);
+        page.write(new byte[]{4, 5});
+        page.write(new byte[50]);
+
+        page.delete(0);
+        page.delete(2);
+        int before = page.freeSpace();
+        assertEquals(2, page.deadCount());
+
+        assertEquals(300, page.compact());
+        assertEquals(before + 300, page.freeSpace());
+        assertEquals(5, page.size());
+        assertTrue(page.isDeleted(0));
+        assertTrue(page.isDeleted(2));
+        assertArrayEquals(new byte[]{1, 2, 3}, page.read(1));
+        assertArrayEquals(new byte[]{4, 5}, page.read(3));
+        assertEquals(50, page.read(4).length);
+        assertEquals(0, page.compact());
+        assertEquals(0, page.deadCount());
+
+        Page copy = new HeapPage(5, page.bytes());
+        assertArrayEquals(new byte[]{4, 5}, copy.read(3));
+        assertTrue(copy.isDeleted(2));
+    }
+
+    @Test
+    void compact_keeps_trailing_dead_slots_so_their_ids_are_not_reissued() {
+        Page page = new HeapPage(6);
+        page.write("alice".getBytes());
+        page.write("bob".getBytes());
+        page.write(new byte[]{3});
+        page.delete(1);
+        page.delete(2);
+        int before = page.freeSpace();
+
+        assertEquals(4, page.compact());
+        assertEquals(3, page.size());
+        assertEquals(0, page.deadCount());
+        assertTrue(page.isDeleted(1));
+        assertTrue(page.isDeleted(2));
+        assertEquals(before + 4, page.freeSpace());
+        assertArrayEquals("alice".getBytes(), page.read(0));
+
+        page.write("mallory".getBytes());
+        assertEquals(4, page.size());
+        assertTrue(page.isDeleted(1));
+        assertTrue(page.isDeleted(2));
+        assertArrayEquals("mallory".getBytes(), page.read(3));
+    }
+
+    @Test
+    void reserved_slots_start_as_deleted() {
+        HeapPage page = new HeapPage(8);
+        int before = page.freeSpace();
+        page.reserveSlots(3);
+
+        assertEquals(3, page.size());
+        assertEquals(0, page.deadCount());
+        assertEquals(before - 3 * HeapPage.SLOT_SIZE, page.freeSpace());
+        assertTrue(page.isDeleted(0));
+        assertTrue(page.isDeleted(2));
+
+        page.write(new byte[]{7});
+        assertArrayEquals(new byte[]{7}, page.read(3));
+        assertThrows(IllegalArgumentException.class, () -> page.reserveSlots(HeapPage.PAGE_SIZE));
+    }
+
     @Test
     void fill_until_full_then_throw() {
         Page page = new HeapPage(7);
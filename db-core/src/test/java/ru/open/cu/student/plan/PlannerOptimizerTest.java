@@ -91,6 +91,90 @@ public class PlannerOptimizerTest {
         assertInstanceOf(PhysicalBTreeIndexScanNode.class, scan);
     }
 
+    @Test
+    void selects_hash_aggregate_for_unordered_input(@TempDir Path tempDir) {
+        DefaultCatalogManager catalog = newCatalog(tempDir);
+        createUsersTable(catalog);
+
+        QueryTree qt = new SqlSemanticAnalyzer().analyze(parse("SELECT name, COUNT(*) FROM users GROUP BY name;"), catalog);
+        PhysicalPlanNode physical = new OptimizerImpl(catalog).optimize(new PlannerImpl().plan(qt));
+
+        assertInstanceOf(PhysicalProjectNode.class, physical);
+        PhysicalPlanNode agg = ((PhysicalProjectNode) physical).child();
+        assertInstanceOf(PhysicalHashAggregateNode.class, agg);
+        assertInstanceOf(PhysicalSeqScanNode.class, ((PhysicalHashAggregateNode) agg).child());
+    }
+
+    @Test
+    void selects_stream_aggregate_over_btree_ordered_input(@TempDir Path tempDir) {
+        DefaultCatalogManager catalog = newCatalog(tempDir);
+        createUsersTable(catalog);
+        catalog.createIndex("idx_users_id_b", "users", "id", IndexType.BTREE);
+
+        QueryTree qt = new SqlSemanticAnalyzer().analyze(parse("SELECT id, COUNT(*) FROM users WHERE id >= 10 GROUP BY id;"), catalog);
+        PhysicalPlanNode physical = new OptimizerImpl(catalog).optimize(new PlannerImpl().plan(qt));
+
+        assertInstanceOf(PhysicalProjectNode.class, physical);
+        PhysicalPlanNode agg = ((PhysicalProjectNode) physical).child();
+        assertInstanceOf(PhysicalStreamAggregateNode.class, agg);
+    }
+
+    @Test
+    void answers_unfiltered_count_from_metadata(@TempDir Path tempDir) {
+        DefaultCatalogManager catalog = newCatalog(tempDir);
+        createUsersTable(catalog);
+
+        QueryTree qt = new SqlSemanticAnalyzer().analyze(parse("SELECT COUNT(*) FROM users;"), catalog);
+        PhysicalPlanNode physical = new OptimizerImpl(catalog).optimize(new PlannerImpl().plan(qt));
+
+        assertInstanceOf(PhysicalProjectNode.class, physical);
+        assertInstanceOf(PhysicalMetadataCountNode.class, ((PhysicalProjectNode) physical).child());
+    }
+
+    @Test
+    void answers_equality_count_from_index(@TempDir Path tempDir) {
+        DefaultCatalogManager catalog = newCatalog(tempDir);
+        createUsersTable(catalog);
+        catalog.createIndex("idx_users_id", "users", "id", IndexType.HASH);
+
+        QueryTree qt = new SqlSemanticAnalyzer().analyze(parse("SELECT COUNT(*) FROM users WHERE id = 7;"), catalog);
+        PhysicalPlanNode physical = new OptimizerImpl(catalog).optimize(new PlannerImpl().plan(qt));
+        assertInstanceOf(PhysicalIndexCountNode.class, ((PhysicalProjectNode) physical).child());
+
+        QueryTree other = new SqlSemanticAnalyzer().analyze(parse("SELECT COUNT(*) FROM users WHERE name = 'x';"), catalog);
+        PhysicalPlanNode fallback = new OptimizerImpl(catalog).optimize(new PlannerImpl().plan(other));
+        assertInstanceOf(PhysicalStreamAggregateNode.class, ((PhysicalProjectNode) fallback).child());
+    }
+
+    @Test
+    void chooses_join_algorithm_by_cardinality_and_order(@TempDir Path tempDir) {
+        DefaultCatalogManager catalog = newCatalog(tempDir);
+        createUsersTable(catalog);
+        TypeDefinition int64 = catalog.getTypeByName("INT64");
+        catalog.createTable("orders", List.of(
+                new ColumnDefinition(int64.getOid(), "id", 0),
+                new ColumnDefinition(int64.getOid(), "user_id", 1)
+        ));
+
+        String sql = "SELECT * FROM users u JOIN orders o ON u.id = o.user_id WHERE u.id >= 5;";
+        assertInstanceOf(PhysicalHashJoinNode.class, optimizeSelect(catalog, sql).child());
+
+        catalog.createIndex("idx_users_id_b", "users", "id", IndexType.BTREE);
+        catalog.createIndex("idx_orders_user_b", "orders", "user_id", IndexType.BTREE);
+        assertInstanceOf(PhysicalMergeJoinNode.class, optimizeSelect(catalog, sql).child());
+
+        catalog.updatePagesCount(catalog.getTable("orders"), 100);
+        catalog.createIndex("idx_users_id_h", "users", "id", IndexType.HASH);
+        PhysicalPlanNode join = optimizeSelect(catalog, "SELECT * FROM users u JOIN orders o ON u.id = o.user_id WHERE u.id = 5;").child();
+        assertInstanceOf(PhysicalIndexNestedLoopJoinNode.class, join);
+    }
+
+    private static PhysicalProjectNode optimizeSelect(DefaultCatalogManager catalog, String sql) {
+        QueryTree qt = new SqlSemanticAnalyzer().analyze(parse(sql), catalog);
+        PhysicalPlanNode physical = new OptimizerImpl(catalog).optimize(new PlannerImpl().plan(qt));
+        return assertInstanceOf(PhysicalProjectNode.class, physical);
+    }
+
     @Test
     void explain_wraps_plan(@TempDir Path tempDir) {
         DefaultCatalogManager catalog = newCatalog(tempDir);
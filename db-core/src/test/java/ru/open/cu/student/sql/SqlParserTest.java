@@ -7,6 +7,8 @@ import ru.open.cu.student.sql.lexer.SqlLexer;
 import ru.open.cu.student.sql.lexer.SqlSyntaxException;
 import ru.open.cu.student.sql.parser.SqlParser;
 
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 public class SqlParserTest {
@@ -57,6 +59,43 @@ public class SqlParserTest {
         assertEquals("AND", and.op());
     }
 
+    @Test
+    void parses_select_with_aggregates_and_group_by() {
+        Statement s = parse("SELECT dept, COUNT(*), SUM(salary) FROM emp WHERE id > 0 GROUP BY dept;");
+        assertInstanceOf(SelectStmt.class, s);
+        SelectStmt sel = (SelectStmt) s;
+        assertEquals(3, sel.targets().size());
+        assertInstanceOf(ColumnRefExpr.class, sel.targets().get(0));
+        AggregateExpr count = assertInstanceOf(AggregateExpr.class, sel.targets().get(1));
+        assertTrue(count.isStar());
+        AggregateExpr sum = assertInstanceOf(AggregateExpr.class, sel.targets().get(2));
+        assertEquals("SUM", sum.function().text().toUpperCase());
+        assertEquals(1, sel.groupBy().size());
+        assertEquals("dept", sel.groupBy().get(0).name().text());
+    }
+
+    @Test
+    void parses_joins_with_aliases_and_qualified_columns() {
+        Statement s = parse("SELECT u.name, o.total FROM users u JOIN orders o ON u.id = o.user_id LEFT OUTER JOIN items ON items.order_id = o.id;");
+        SelectStmt sel = assertInstanceOf(SelectStmt.class, s);
+        assertEquals("users", sel.tableName().text());
+        assertEquals("u", sel.from().alias().text());
+        assertEquals(2, sel.joins().size());
+        assertEquals(JoinType.INNER, sel.joins().get(0).type());
+        assertEquals("o", sel.joins().get(0).table().refName());
+        assertEquals(JoinType.LEFT, sel.joins().get(1).type());
+        assertNull(sel.joins().get(1).table().alias());
+
+        ColumnRefExpr first = assertInstanceOf(ColumnRefExpr.class, sel.targets().get(0));
+        assertEquals("u", first.qualifier().text());
+        assertEquals("name", first.name().text());
+    }
+
+    @Test
+    void star_argument_only_allowed_for_count() {
+        assertThrows(SqlSyntaxException.class, () -> parse("SELECT SUM(*) FROM emp;"));
+    }
+
     @Test
     void parses_create_index() {
         Statement s = parse("CREATE INDEX idx_users_id ON users(id) USING HASH;");
@@ -64,8 +103,32 @@ public class SqlParserTest {
         CreateIndexStmt ci = (CreateIndexStmt) s;
         assertEquals("idx_users_id", ci.indexName().text());
         assertEquals("users", ci.tableName().text());
-        assertEquals("id", ci.columnName().text());
+        assertEquals(List.of("id"), ci.columnNames().stream().map(SqlIdent::text).toList());
         assertEquals(IndexType.HASH, ci.indexType());
+        assertTrue(ci.includeColumns().isEmpty());
+
+        CreateIndexStmt covering = assertInstanceOf(CreateIndexStmt.class,
+                parse("CREATE INDEX idx_cov ON users(id) INCLUDE (name, age) USING BTREE;"));
+        assertEquals(List.of("name", "age"), covering.includeColumns().stream().map(SqlIdent::text).toList());
+        assertEquals(IndexType.BTREE, covering.indexType());
+
+        CreateIndexStmt composite = assertInstanceOf(CreateIndexStmt.class,
+                parse("CREATE INDEX idx_ab ON users(a, b) INCLUDE (c) USING BTREE;"));
+        assertEquals(List.of("a", "b"), composite.columnNames().stream().map(SqlIdent::text).toList());
+        assertEquals(List.of("c"), composite.includeColumns().stream().map(SqlIdent::text).toList());
+        assertFalse(composite.unique());
+
+        CreateIndexStmt unique = assertInstanceOf(CreateIndexStmt.class,
+                parse("CREATE UNIQUE INDEX idx_u ON users(email) USING HASH;"));
+        assertTrue(unique.unique());
+    }
+
+    @Test
+    void parses_analyze_with_and_without_table() {
+        AnalyzeStmt one = assertInstanceOf(AnalyzeStmt.class, parse("ANALYZE users;"));
+        assertEquals("users", one.tableName().text());
+        AnalyzeStmt all = assertInstanceOf(AnalyzeStmt.class, parse("ANALYZE;"));
+        assertTrue(all.allTables());
     }
 
     @Test
@@ -76,6 +139,60 @@ public class SqlParserTest {
         assertInstanceOf(SelectStmt.class, ex.inner());
     }
 
+    @Test
+    void parses_explain_analyze_but_keeps_explain_of_analyze_statement() {
+        ExplainStmt run = assertInstanceOf(ExplainStmt.class, parse("EXPLAIN ANALYZE SELECT * FROM users;"));
+        assertTrue(run.analyze());
+        assertInstanceOf(SelectStmt.class, run.inner());
+
+        ExplainStmt stats = assertInstanceOf(ExplainStmt.class, parse("EXPLAIN ANALYZE users;"));
+        assertFalse(stats.analyze());
+        assertInstanceOf(AnalyzeStmt.class, stats.inner());
+    }
+
+    @Test
+    void parses_positional_parameters() {
+        SelectStmt select = assertInstanceOf(SelectStmt.class, parse("SELECT * FROM users WHERE id = $1;"));
+        BinaryExpr where = assertInstanceOf(BinaryExpr.class, select.where());
+        assertEquals(1, assertInstanceOf(ParamExpr.class, where.right()).index());
+
+        InsertStmt insert = assertInstanceOf(InsertStmt.class, parse("INSERT INTO users VALUES ($1, $2);"));
+        assertEquals(2, assertInstanceOf(ParamExpr.class, insert.values().get(1)).index());
+
+        assertThrows(SqlSyntaxException.class, () -> parse("SELECT * FROM users WHERE id = $0;"));
+    }
+
+    @Test
+    void parses_delete_and_update() {
+        DeleteStmt del = assertInstanceOf(DeleteStmt.class, parse("DELETE FROM users WHERE id = 1;"));
+        assertEquals("users", del.tableName().text());
+        assertInstanceOf(BinaryExpr.class, del.where());
+        assertNull(assertInstanceOf(DeleteStmt.class, parse("DELETE FROM users")).where());
+
+        UpdateStmt upd = assertInstanceOf(UpdateStmt.class, parse("UPDATE users SET name = 'b', age = $1 WHERE id >= 2;"));
+        assertEquals("users", upd.tableName().text());
+        assertEquals(2, upd.assignments().size());
+        assertEquals("name", upd.assignments().get(0).column().text());
+        assertInstanceOf(LiteralStringExpr.class, upd.assignments().get(0).value());
+        assertInstanceOf(ParamExpr.class, upd.assignments().get(1).value());
+        assertNotNull(upd.where());
+
+        assertThrows(SqlSyntaxException.class, () -> parse("UPDATE users SET name = id;"));
+    }
+
+    @Test
+    void parses_in_lists() {
+        SelectStmt select = assertInstanceOf(SelectStmt.class, parse("SELECT * FROM users WHERE id IN (1, $1, 3) AND name = 'a';"));
+        BinaryExpr and = assertInstanceOf(BinaryExpr.class, select.where());
+        InListExpr in = assertInstanceOf(InListExpr.class, and.left());
+        assertEquals("id", assertInstanceOf(ColumnRefExpr.class, in.operand()).name().text());
+        assertEquals(3, in.values().size());
+        assertInstanceOf(ParamExpr.class, in.values().get(1));
+
+        assertThrows(SqlSyntaxException.class, () -> parse("SELECT * FROM users WHERE id IN ();"));
+        assertThrows(SqlSyntaxException.class, () -> parse("SELECT * FROM users WHERE id IN 1;"));
+    }
+
     @Test
     void bad_sql_throws_with_position() {
         SqlSyntaxException ex = assertThrows(SqlSyntaxException.class, () -> parse("SELECT FROM users;"));
@@ -52,6 +52,35 @@ public class SqlSemanticAnalyzerTest {
         assertEquals(ExprType.BOOL, s.filter().getExprType());
     }
 
+    @Test
+    void update_assignments_are_resolved_and_type_checked(@TempDir Path tempDir) {
+        BufferPoolManager bpm = new DefaultBufferPoolManager(8, new HeapPageFileManager(), new LRUReplacer(), tempDir);
+        DefaultCatalogManager catalog = new DefaultCatalogManager(tempDir, bpm);
+
+        TypeDefinition int64 = catalog.getTypeByName("INT64");
+        TypeDefinition varchar = catalog.getTypeByName("VARCHAR");
+        catalog.createTable("users", List.of(
+                new ColumnDefinition(int64.getOid(), "id", 0),
+                new ColumnDefinition(varchar.getOid(), "name", 1)
+        ));
+
+        UpdateQueryTree upd = assertInstanceOf(UpdateQueryTree.class,
+                newAnalyzer().analyze(parse("UPDATE users SET name = $1 WHERE id = 3;"), catalog));
+        assertEquals(1, upd.setColumns().get(0).getPosition());
+        assertEquals(new ResolvedParam(1, ExprType.VARCHAR), upd.setValues().get(0));
+        assertEquals(ExprType.BOOL, upd.filter().getExprType());
+
+        DeleteQueryTree del = assertInstanceOf(DeleteQueryTree.class, newAnalyzer().analyze(parse("DELETE FROM users;"), catalog));
+        assertNull(del.filter());
+
+        assertThrows(SqlSemanticException.class,
+                () -> newAnalyzer().analyze(parse("UPDATE users SET id = 'x';"), catalog));
+        assertThrows(SqlSemanticException.class,
+                () -> newAnalyzer().analyze(parse("UPDATE users SET id = 1, id = 2;"), catalog));
+        assertThrows(SqlSemanticException.class,
+                () -> newAnalyzer().analyze(parse("DELETE FROM users WHERE age = 1;"), catalog));
+    }
+
     @Test
     void missing_table_throws_with_position(@TempDir Path tempDir) {
         BufferPoolManager bpm = new DefaultBufferPoolManager(8, new HeapPageFileManager(), new LRUReplacer(), tempDir);
@@ -108,6 +137,36 @@ public class SqlSemanticAnalyzerTest {
         QueryTree qt2 = newAnalyzer().analyze(parse("CREATE TABLE t2 (a INTEGER);"), catalog);
         assertInstanceOf(CreateTableQueryTree.class, qt2);
     }
-}
 
+    @Test
+    void join_resolves_shifted_positions_and_rejects_ambiguous_columns(@TempDir Path tempDir) {
+        BufferPoolManager bpm = new DefaultBufferPoolManager(8, new HeapPageFileManager(), new LRUReplacer(), tempDir);
+        DefaultCatalogManager catalog = new DefaultCatalogManager(tempDir, bpm);
 
+        TypeDefinition int64 = catalog.getTypeByName("INT64");
+        TypeDefinition varchar = catalog.getTypeByName("VARCHAR");
+        catalog.createTable("users", List.of(
+                new ColumnDefinition(int64.getOid(), "id", 0),
+                new ColumnDefinition(varchar.getOid(), "name", 1)
+        ));
+        catalog.createTable("orders", List.of(
+                new ColumnDefinition(int64.getOid(), "id", 0),
+                new ColumnDefinition(int64.getOid(), "user_id", 1)
+        ));
+
+        SelectQueryTree s = (SelectQueryTree) newAnalyzer().analyze(
+                parse("SELECT name, o.id FROM users u JOIN orders o ON o.user_id = u.id;"), catalog);
+        assertEquals(1, s.joins().size());
+        ResolvedJoin join = s.joins().get(0);
+        assertEquals(2, join.columnOffset());
+        assertEquals(0, join.leftKey().getPosition());
+        assertEquals("user_id", join.rightKey().getName());
+        assertEquals(1, join.rightKey().getPosition());
+        assertEquals(List.of(1, 2), s.targetColumns().stream().map(ColumnDefinition::getPosition).toList());
+
+        assertThrows(SqlSemanticException.class, () -> newAnalyzer().analyze(
+                parse("SELECT id FROM users u JOIN orders o ON o.user_id = u.id;"), catalog));
+        assertThrows(SqlSemanticException.class, () -> newAnalyzer().analyze(
+                parse("SELECT name FROM users u JOIN orders o ON u.id = u.id;"), catalog));
+    }
+}
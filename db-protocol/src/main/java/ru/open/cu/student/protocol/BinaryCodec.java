@@ -0,0 +1,265 @@
+package ru.open.cu.student.protocol;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public final class BinaryCodec {
+    public static final int MAGIC = 0xB1;
+    public static final int VERSION = 1;
+
+    static final int KIND_REQUEST = 1;
+    static final int KIND_RESPONSE = 2;
+
+    static final int TYPE_UNKNOWN = 0;
+    static final int TYPE_INT64 = 1;
+    static final int TYPE_VARCHAR = 2;
+
+    private static final int TAG_NULL = 0;
+    private static final int TAG_INT64 = 1;
+    private static final int TAG_STRING = 2;
+    private static final int TAG_TRUE = 3;
+    private static final int TAG_FALSE = 4;
+
+    private BinaryCodec() {
+    }
+
+    public static boolean isBinary(byte[] payload) {
+        return payload != null && payload.length > 0 && (payload[0] & 0xFF) == MAGIC;
+    }
+
+    public static byte[] encodeRequest(DbRequest req) {
+        if (req == null) throw new IllegalArgumentException("req is null");
+        BinaryOutput out = new BinaryOutput();
+        out.writeByte(MAGIC);
+        out.writeByte(VERSION);
+        out.writeByte(KIND_REQUEST);
+        out.writeNullableString(req.type);
+        out.writeNullableString(req.requestId);
+        out.writeNullableString(req.sql);
+        out.writeByte(req.trace ? 1 : 0);
+        out.writeNullableString(req.statement);
+        if (req.params == null) {
+            out.writeVarLong(0);
+        } else {
+            out.writeVarLong(req.params.size() + 1L);
+            for (Object p : req.params) {
+                writeValue(out, p);
+            }
+        }
+        if (req.statements == null) {
+            out.writeVarLong(0);
+        } else {
+            out.writeVarLong(req.statements.size() + 1L);
+            for (String s : req.statements) {
+                out.writeNullableString(s);
+            }
+        }
+        out.writeNullableString(req.priority);
+        out.writeNullableLong(req.timeoutMs);
+        out.writeNullableString(req.target);
+        return out.toByteArray();
+    }
+
+    public static DbRequest decodeRequest(byte[] payload) {
+        BinaryInput in = header(payload, KIND_REQUEST);
+        String type = in.readNullableString();
+        String requestId = in.readNullableString();
+        String sql = in.readNullableString();
+        boolean trace = in.readByte() != 0;
+        String statement = in.readNullableString();
+
+        List<Object> params = null;
+        long paramCount = in.readVarLong();
+        if (paramCount > 0) {
+            params = new ArrayList<>();
+            for (long i = 1; i < paramCount; i++) {
+                params.add(readValue(in));
+            }
+        }
+
+        List<String> statements = null;
+        long statementCount = in.readVarLong();
+        if (statementCount > 0) {
+            statements = new ArrayList<>();
+            for (long i = 1; i < statementCount; i++) {
+                statements.add(in.readNullableString());
+            }
+        }
+        String priority = in.readNullableString();
+        Long timeoutMs = in.readNullableLong();
+        String target = in.readNullableString();
+        return new DbRequest(type, requestId, sql, trace, statement, params, statements, priority, timeoutMs, target);
+    }
+
+    public static String peekRequestType(byte[] payload) {
+        return header(payload, KIND_REQUEST).readNullableString();
+    }
+
+    public static byte[] encodeResponse(DbResponse resp) {
+        if (resp == null) throw new IllegalArgumentException("resp is null");
+        BinaryOutput out = new BinaryOutput();
+        out.writeByte(MAGIC);
+        out.writeByte(VERSION);
+        out.writeByte(KIND_RESPONSE);
+        writeResponseBody(out, resp);
+        return out.toByteArray();
+    }
+
+    public static DbResponse decodeResponse(byte[] payload) {
+        return readResponseBody(header(payload, KIND_RESPONSE));
+    }
+
+    static void writeResponseBody(BinaryOutput out, DbResponse resp) {
+        BinaryResponseWriter w = new BinaryResponseWriter(out, resp.requestId, false);
+        if (resp.columns != null || resp.rows != null) {
+            w.writeColumns(resp.columns == null ? List.of() : resp.columns, resp.columnTypes);
+            if (resp.rows != null) {
+                w.startRows();
+                for (List<Object> row : resp.rows) {
+                    w.row(row);
+                }
+            }
+        }
+        w.finishBody(resp.status, resp.affected, resp.explain, resp.error, resp.queueTimeMicros, resp.results);
+    }
+
+    private static DbResponse readResponseBody(BinaryInput in) {
+        String requestId = in.readNullableString();
+
+        List<String> columns = null;
+        List<String> columnTypes = null;
+        int[] types = new int[0];
+        long columnCount = in.readVarLong();
+        if (columnCount > 0) {
+            if (columnCount < 0 || columnCount - 1 > in.remaining()) {
+                throw new IllegalArgumentException("Invalid column count: " + (columnCount - 1));
+            }
+            int n = (int) (columnCount - 1);
+            columns = new ArrayList<>(n);
+            columnTypes = new ArrayList<>(n);
+            types = new int[n];
+            for (int i = 0; i < n; i++) {
+                columns.add(in.readNullableString());
+                types[i] = in.readByte();
+                columnTypes.add(typeName(types[i]));
+            }
+        }
+
+        List<List<Object>> rows = null;
+        if (in.readByte() != 0) {
+            rows = new ArrayList<>();
+            while (in.readByte() != 0) {
+                rows.add(readRow(in, types));
+            }
+        }
+
+        String status = in.readNullableString();
+        Integer affected = in.readNullableInt();
+        String explain = in.readNullableString();
+        Long queueTimeMicros = in.readNullableLong();
+
+        DbError error = null;
+        if (in.readByte() != 0) {
+            String code = in.readNullableString();
+            String message = in.readNullableString();
+            DbErrorPos pos = null;
+            if (in.readByte() != 0) {
+                pos = new DbErrorPos(in.readNullableInt(), in.readNullableInt(), in.readNullableInt());
+            }
+            error = new DbError(code, message, pos);
+        }
+
+        List<DbResponse> results = null;
+        long resultCount = in.readVarLong();
+        if (resultCount > 0) {
+            results = new ArrayList<>();
+            for (long i = 1; i < resultCount; i++) {
+                results.add(readResponseBody(in));
+            }
+        }
+
+        return new DbResponse(requestId, status, columns, rows, affected, explain, error, results, columnTypes, queueTimeMicros);
+    }
+
+    private static List<Object> readRow(BinaryInput in, int[] types) {
+        int n = types.length;
+        int[] bitmap = new int[(n + 7) / 8];
+        for (int b = 0; b < bitmap.length; b++) {
+            bitmap[b] = in.readByte();
+        }
+        List<Object> row = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            if ((bitmap[i / 8] & (1 << (i % 8))) != 0) {
+                row.add(null);
+                continue;
+            }
+            row.add(switch (types[i]) {
+                case TYPE_INT64 -> in.readZigZag();
+                case TYPE_VARCHAR -> in.readString();
+                default -> readValue(in);
+            });
+        }
+        return row;
+    }
+
+    static void writeValue(BinaryOutput out, Object v) {
+        if (v == null) {
+            out.writeByte(TAG_NULL);
+        } else if (v instanceof Long || v instanceof Integer || v instanceof Short || v instanceof Byte) {
+            out.writeByte(TAG_INT64);
+            out.writeZigZag(((Number) v).longValue());
+        } else if (v instanceof String s) {
+            out.writeByte(TAG_STRING);
+            out.writeString(s);
+        } else if (v instanceof Boolean b) {
+            out.writeByte(b ? TAG_TRUE : TAG_FALSE);
+        } else {
+            throw new IllegalArgumentException("Unsupported value type: " + v.getClass().getSimpleName());
+        }
+    }
+
+    private static Object readValue(BinaryInput in) {
+        int tag = in.readByte();
+        return switch (tag) {
+            case TAG_NULL -> null;
+            case TAG_INT64 -> in.readZigZag();
+            case TAG_STRING -> in.readString();
+            case TAG_TRUE -> Boolean.TRUE;
+            case TAG_FALSE -> Boolean.FALSE;
+            default -> throw new IllegalArgumentException("Unknown value tag: " + tag);
+        };
+    }
+
+    static int typeCode(String type) {
+        if (type == null) return TYPE_UNKNOWN;
+        return switch (type) {
+            case "INT64" -> TYPE_INT64;
+            case "VARCHAR" -> TYPE_VARCHAR;
+            default -> TYPE_UNKNOWN;
+        };
+    }
+
+    private static String typeName(int code) {
+        return switch (code) {
+            case TYPE_INT64 -> "INT64";
+            case TYPE_VARCHAR -> "VARCHAR";
+            default -> "UNKNOWN";
+        };
+    }
+
+    private static BinaryInput header(byte[] payload, int kind) {
+        BinaryInput in = new BinaryInput(payload);
+        if (in.readByte() != MAGIC) {
+            throw new IllegalArgumentException("Not a binary payload");
+        }
+        int version = in.readByte();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported binary protocol version: " + version);
+        }
+        int actual = in.readByte();
+        if (actual != kind) {
+            throw new IllegalArgumentException("Unexpected payload kind: " + actual);
+        }
+        return in;
+    }
+}
@@ -0,0 +1,90 @@
+package ru.open.cu.student.protocol;
+
+import java.nio.charset.StandardCharsets;
+
+public final class BinaryInput {
+    private final byte[] buf;
+    private int pos;
+
+    public BinaryInput(byte[] buf) {
+        if (buf == null) throw new IllegalArgumentException("buf is null");
+        this.buf = buf;
+    }
+
+    public boolean hasRemaining() {
+        return pos < buf.length;
+    }
+
+    public int remaining() {
+        return buf.length - pos;
+    }
+
+    public int readByte() {
+        require(1);
+        return buf[pos++] & 0xFF;
+    }
+
+    public long readVarLong() {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    public long readZigZag() {
+        long v = readVarLong();
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    public int readLength() {
+        long len = readVarLong();
+        if (len < 0 || len > buf.length - pos) {
+            throw new IllegalArgumentException("Invalid length: " + len);
+        }
+        return (int) len;
+    }
+
+    public String readString() {
+        int len = readLength();
+        String s = new String(buf, pos, len, StandardCharsets.UTF_8);
+        pos += len;
+        return s;
+    }
+
+    public String readNullableString() {
+        long tag = readVarLong();
+        if (tag == 0) return null;
+        long len = tag - 1;
+        if (len < 0 || len > buf.length - pos) {
+            throw new IllegalArgumentException("Invalid length: " + len);
+        }
+        String s = new String(buf, pos, (int) len, StandardCharsets.UTF_8);
+        pos += (int) len;
+        return s;
+    }
+
+    public Long readNullableLong() {
+        long tag = readVarLong();
+        if (tag == 0) return null;
+        long v = tag - 1;
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    public Integer readNullableInt() {
+        long tag = readVarLong();
+        if (tag == 0) return null;
+        long v = tag - 1;
+        return (int) ((v >>> 1) ^ -(v & 1));
+    }
+
+    private void require(int n) {
+        if (pos + n > buf.length) {
+            throw new IllegalArgumentException("Unexpected end of binary payload");
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package ru.open.cu.student.protocol;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public final class BinaryOutput {
+    private byte[] buf;
+    private int size;
+
+    public BinaryOutput() {
+        this(256);
+    }
+
+    public BinaryOutput(int initialCapacity) {
+        if (initialCapacity <= 0) throw new IllegalArgumentException("initialCapacity must be > 0");
+        this.buf = new byte[initialCapacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void writeByte(int b) {
+        ensure(1);
+        buf[size++] = (byte) b;
+    }
+
+    public void writeBytes(byte[] bytes) {
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, buf, size, bytes.length);
+        size += bytes.length;
+    }
+
+    public void writeVarLong(long v) {
+        ensure(10);
+        while ((v & ~0x7FL) != 0) {
+            buf[size++] = (byte) ((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        buf[size++] = (byte) v;
+    }
+
+    public void writeZigZag(long v) {
+        writeVarLong((v << 1) ^ (v >> 63));
+    }
+
+    public void writeString(String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(bytes.length);
+        writeBytes(bytes);
+    }
+
+    public void writeNullableString(String s) {
+        if (s == null) {
+            writeVarLong(0);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(bytes.length + 1L);
+        writeBytes(bytes);
+    }
+
+    public void writeNullableInt(Integer v) {
+        writeVarLong(v == null ? 0 : (((long) v << 1) ^ ((long) v >> 63)) + 1);
+    }
+
+    public void writeNullableLong(Long v) {
+        writeVarLong(v == null ? 0 : ((v << 1) ^ (v >> 63)) + 1);
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buf, size);
+    }
+
+    private void ensure(int extra) {
+        if (size + extra > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(buf.length * 2, size + extra));
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package ru.open.cu.student.protocol;
+
+import java.util.List;
+
+public final class BinaryResponseWriter {
+    private final BinaryOutput out;
+    private int[] types;
+    private boolean columnsWritten;
+    private boolean rowsStarted;
+
+    public BinaryResponseWriter(String requestId) {
+        this(new BinaryOutput(), requestId, true);
+    }
+
+    BinaryResponseWriter(BinaryOutput out, String requestId, boolean header) {
+        this.out = out;
+        if (header) {
+            out.writeByte(BinaryCodec.MAGIC);
+            out.writeByte(BinaryCodec.VERSION);
+            out.writeByte(BinaryCodec.KIND_RESPONSE);
+        }
+        out.writeNullableString(requestId);
+    }
+
+    public boolean isStarted() {
+        return columnsWritten;
+    }
+
+    public int size() {
+        return out.size();
+    }
+
+    public void begin(List<String> columns, List<String> columnTypes) {
+        writeColumns(columns, columnTypes);
+        startRows();
+    }
+
+    public void row(List<Object> row) {
+        if (!rowsStarted) throw new IllegalStateException("begin() was not called");
+        out.writeByte(1);
+
+        int n = types.length;
+        if (row.size() != n) {
+            throw new IllegalArgumentException("Row width " + row.size() + " does not match " + n + " columns");
+        }
+        int bitmapBytes = (n + 7) / 8;
+        for (int b = 0; b < bitmapBytes; b++) {
+            int bits = 0;
+            for (int i = b * 8; i < Math.min(n, b * 8 + 8); i++) {
+                if (row.get(i) == null) bits |= 1 << (i - b * 8);
+            }
+            out.writeByte(bits);
+        }
+
+        for (int i = 0; i < n; i++) {
+            Object v = row.get(i);
+            if (v == null) continue;
+            switch (types[i]) {
+                case BinaryCodec.TYPE_INT64 -> out.writeZigZag(((Number) v).longValue());
+                case BinaryCodec.TYPE_VARCHAR -> out.writeString((String) v);
+                default -> BinaryCodec.writeValue(out, v);
+            }
+        }
+    }
+
+    public byte[] finish(String status, Integer affected, String explain, DbError error, Long queueTimeMicros) {
+        finishBody(status, affected, explain, error, queueTimeMicros, null);
+        return out.toByteArray();
+    }
+
+    void writeColumns(List<String> columns, List<String> columnTypes) {
+        if (columnsWritten) throw new IllegalStateException("columns already written");
+        columnsWritten = true;
+        if (columns == null) {
+            out.writeVarLong(0);
+            types = new int[0];
+            return;
+        }
+        types = new int[columns.size()];
+        out.writeVarLong(columns.size() + 1L);
+        for (int i = 0; i < columns.size(); i++) {
+            String type = (columnTypes != null && i < columnTypes.size()) ? columnTypes.get(i) : null;
+            types[i] = BinaryCodec.typeCode(type);
+            out.writeNullableString(columns.get(i));
+            out.writeByte(types[i]);
+        }
+    }
+
+    void startRows() {
+        out.writeByte(1);
+        rowsStarted = true;
+    }
+
+    void finishBody(
+            String status,
+            Integer affected,
+            String explain,
+            DbError error,
+            Long queueTimeMicros,
+            List<DbResponse> results
+    ) {
+        if (!columnsWritten) {
+            writeColumns(null, null);
+        }
+        out.writeByte(0);
+
+        out.writeNullableString(status);
+        out.writeNullableInt(affected);
+        out.writeNullableString(explain);
+        out.writeNullableLong(queueTimeMicros);
+        if (error == null) {
+            out.writeByte(0);
+        } else {
+            out.writeByte(1);
+            out.writeNullableString(error.code);
+            out.writeNullableString(error.message);
+            if (error.pos == null) {
+                out.writeByte(0);
+            } else {
+                out.writeByte(1);
+                out.writeNullableInt(error.pos.offset);
+                out.writeNullableInt(error.pos.line);
+                out.writeNullableInt(error.pos.column);
+            }
+        }
+
+        if (results == null) {
+            out.writeVarLong(0);
+        } else {
+            out.writeVarLong(results.size() + 1L);
+            for (DbResponse r : results) {
+                BinaryCodec.writeResponseBody(out, r);
+            }
+        }
+    }
+}
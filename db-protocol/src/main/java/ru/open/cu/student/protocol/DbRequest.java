@@ -1,26 +1,88 @@
 package ru.open.cu.student.protocol;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+import java.util.List;
 
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public final class DbRequest {
     public final String type;       
     public final String requestId;  
     public final String sql;
     public final boolean trace;
+    public final String statement;
+    public final List<Object> params;
+    public final List<String> statements;
+    public final String priority;
+    public final Long timeoutMs;
+    public final String target;
+
+    public DbRequest(String type, String requestId, String sql, boolean trace) {
+        this(type, requestId, sql, trace, null, null, null);
+    }
+
+    public DbRequest(
+            String type,
+            String requestId,
+            String sql,
+            boolean trace,
+            String statement,
+            List<Object> params,
+            List<String> statements
+    ) {
+        this(type, requestId, sql, trace, statement, params, statements, null, null, null);
+    }
 
     @JsonCreator
     public DbRequest(
             @JsonProperty("type") String type,
             @JsonProperty("requestId") String requestId,
             @JsonProperty("sql") String sql,
-            @JsonProperty("trace") boolean trace
+            @JsonProperty("trace") boolean trace,
+            @JsonProperty("statement") String statement,
+            @JsonProperty("params") List<Object> params,
+            @JsonProperty("statements") List<String> statements,
+            @JsonProperty("priority") String priority,
+            @JsonProperty("timeoutMs") Long timeoutMs,
+            @JsonProperty("target") String target
     ) {
         this.type = type;
         this.requestId = requestId;
         this.sql = sql;
         this.trace = trace;
+        this.statement = statement;
+        this.params = params;
+        this.statements = statements;
+        this.priority = priority;
+        this.timeoutMs = timeoutMs;
+        this.target = target;
+    }
+
+    public DbRequest withPriority(String priority) {
+        return new DbRequest(type, requestId, sql, trace, statement, params, statements, priority, timeoutMs, target);
+    }
+
+    public DbRequest withTimeout(Long timeoutMs) {
+        return new DbRequest(type, requestId, sql, trace, statement, params, statements, priority, timeoutMs, target);
+    }
+
+    public static DbRequest prepare(String requestId, String statement, String sql) {
+        return new DbRequest("prepare", requestId, sql, false, statement, null, null);
+    }
+
+    public static DbRequest execute(String requestId, String statement, List<Object> params) {
+        return new DbRequest("execute", requestId, null, false, statement, params, null);
+    }
+
+    public static DbRequest cancel(String requestId, String target) {
+        return new DbRequest("cancel", requestId, null, false, null, null, null, null, null, target);
+    }
+
+    public static DbRequest batch(String requestId, List<String> statements, boolean trace) {
+        return new DbRequest("batch", requestId, null, trace, null, null, statements);
     }
 }
 
@@ -18,6 +18,36 @@ public final class DbResponse {
 
     public final DbError error;
 
+    public final List<DbResponse> results;
+    public final List<String> columnTypes;
+    public final Long queueTimeMicros;
+
+    public DbResponse(
+            String requestId,
+            String status,
+            List<String> columns,
+            List<List<Object>> rows,
+            Integer affected,
+            String explain,
+            DbError error
+    ) {
+        this(requestId, status, columns, rows, affected, explain, error, null, null);
+    }
+
+    public DbResponse(
+            String requestId,
+            String status,
+            List<String> columns,
+            List<List<Object>> rows,
+            Integer affected,
+            String explain,
+            DbError error,
+            List<DbResponse> results,
+            List<String> columnTypes
+    ) {
+        this(requestId, status, columns, rows, affected, explain, error, results, columnTypes, null);
+    }
+
     @JsonCreator
     public DbResponse(
             @JsonProperty("requestId") String requestId,
@@ -26,7 +56,10 @@ public final class DbResponse {
             @JsonProperty("rows") List<List<Object>> rows,
             @JsonProperty("affected") Integer affected,
             @JsonProperty("explain") String explain,
-            @JsonProperty("error") DbError error
+            @JsonProperty("error") DbError error,
+            @JsonProperty("results") List<DbResponse> results,
+            @JsonProperty("columnTypes") List<String> columnTypes,
+            @JsonProperty("queueTimeMicros") Long queueTimeMicros
     ) {
         this.requestId = requestId;
         this.status = status;
@@ -35,15 +68,41 @@ public final class DbResponse {
         this.affected = affected;
         this.explain = explain;
         this.error = error;
+        this.results = results;
+        this.columnTypes = columnTypes;
+        this.queueTimeMicros = queueTimeMicros;
+    }
+
+    public DbResponse withQueueTime(Long queueTimeMicros) {
+        return new DbResponse(requestId, status, columns, rows, affected, explain, error, results, columnTypes, queueTimeMicros);
     }
 
     public static DbResponse ok(String requestId, List<String> columns, List<List<Object>> rows, Integer affected, String explain) {
         return new DbResponse(requestId, "ok", columns, rows, affected, explain, null);
     }
 
+    public static DbResponse ok(
+            String requestId,
+            List<String> columns,
+            List<String> columnTypes,
+            List<List<Object>> rows,
+            Integer affected,
+            String explain
+    ) {
+        return new DbResponse(requestId, "ok", columns, rows, affected, explain, null, null, columnTypes);
+    }
+
     public static DbResponse error(String requestId, DbError error) {
         return new DbResponse(requestId, "error", null, null, null, null, error);
     }
+
+    public static DbResponse batch(String requestId, List<DbResponse> results, DbError error) {
+        int affected = 0;
+        for (DbResponse r : results) {
+            if (r.affected != null) affected += r.affected;
+        }
+        return new DbResponse(requestId, error == null ? "ok" : "error", null, null, affected, null, error, results, null);
+    }
 }
 
 
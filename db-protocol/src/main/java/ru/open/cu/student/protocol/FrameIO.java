@@ -10,7 +10,8 @@ import java.io.OutputStream;
 
 public final class FrameIO {
     
-    private static final int MAX_FRAME_BYTES = 16 * 1024 * 1024; 
+    public static final int MAX_FRAME_BYTES = 16 * 1024 * 1024;
+    private static final int COALESCE_BYTES = 8 * 1024;
 
     private FrameIO() {
     }
@@ -33,14 +34,30 @@ public final class FrameIO {
     }
 
     public static void writeFrame(OutputStream out, byte[] payload) throws IOException {
+        writeFrame(out, payload, true);
+    }
+
+    public static void writeFrame(OutputStream out, byte[] payload, boolean flush) throws IOException {
         if (payload == null) throw new IllegalArgumentException("payload is null");
         if (payload.length > MAX_FRAME_BYTES) {
             throw new IOException("Payload too large: " + payload.length);
         }
-        DataOutputStream dout = (out instanceof DataOutputStream d) ? d : new DataOutputStream(out);
-        dout.writeInt(payload.length);
-        dout.write(payload);
-        dout.flush();
+        if (payload.length <= COALESCE_BYTES) {
+            byte[] frame = new byte[Integer.BYTES + payload.length];
+            frame[0] = (byte) (payload.length >>> 24);
+            frame[1] = (byte) (payload.length >>> 16);
+            frame[2] = (byte) (payload.length >>> 8);
+            frame[3] = (byte) payload.length;
+            System.arraycopy(payload, 0, frame, Integer.BYTES, payload.length);
+            out.write(frame);
+        } else {
+            DataOutputStream dout = (out instanceof DataOutputStream d) ? d : new DataOutputStream(out);
+            dout.writeInt(payload.length);
+            dout.write(payload);
+        }
+        if (flush) {
+            out.flush();
+        }
     }
 }
 
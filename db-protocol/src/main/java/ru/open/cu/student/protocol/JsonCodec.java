@@ -1,6 +1,8 @@
 package ru.open.cu.student.protocol;
 
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
@@ -26,6 +28,23 @@ public final class JsonCodec {
             throw new IllegalArgumentException("Failed to parse JSON", e);
         }
     }
-}
-
 
+    public static String peekString(byte[] bytes, String field) {
+        try (JsonParser p = MAPPER.getFactory().createParser(bytes)) {
+            if (p.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String name = p.currentName();
+                JsonToken value = p.nextToken();
+                if (name.equals(field)) {
+                    return value == JsonToken.VALUE_STRING ? p.getText() : null;
+                }
+                p.skipChildren();
+            }
+            return null;
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Failed to parse JSON", e);
+        }
+    }
+}
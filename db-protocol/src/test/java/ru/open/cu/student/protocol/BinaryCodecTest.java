@@ -0,0 +1,71 @@
+package ru.open.cu.student.protocol;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BinaryCodecTest {
+
+    @Test
+    void round_trips_requests_and_responses() {
+        DbRequest req = DbRequest.execute("r1", "q", Arrays.asList(1L, "a", null));
+        DbRequest decoded = BinaryCodec.decodeRequest(BinaryCodec.encodeRequest(req));
+        assertEquals("r1", decoded.requestId);
+        assertEquals("q", decoded.statement);
+        assertEquals(Arrays.asList(1L, "a", null), decoded.params);
+
+        DbResponse resp = DbResponse.ok("r1", List.of("id", "name"), List.of(Arrays.asList(7L, null)), null, null);
+        DbResponse back = BinaryCodec.decodeResponse(BinaryCodec.encodeResponse(resp));
+        assertEquals(List.of("id", "name"), back.columns);
+        assertEquals(List.of(Arrays.asList(7L, null)), back.rows);
+    }
+
+    @Test
+    void peek_reads_only_the_request_type() {
+        byte[] cancel = BinaryCodec.encodeRequest(DbRequest.cancel("c1", "r1"));
+        assertEquals("cancel", BinaryCodec.peekRequestType(cancel));
+
+        byte[] truncatedBody = Arrays.copyOf(cancel, 3 + 1 + "cancel".length());
+        assertEquals("cancel", BinaryCodec.peekRequestType(truncatedBody));
+        assertThrows(IllegalArgumentException.class, () -> BinaryCodec.decodeRequest(truncatedBody));
+    }
+
+    @Test
+    void negative_string_length_is_rejected_as_malformed() {
+        byte[] frame = new byte[19];
+        frame[0] = (byte) 0xB1;
+        frame[1] = 1;
+        frame[2] = 1;
+        Arrays.fill(frame, 3, 12, (byte) 0xFF);
+        frame[12] = 1;
+        System.arraycopy("cancel".getBytes(StandardCharsets.US_ASCII), 0, frame, 13, 6);
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> BinaryCodec.decodeRequest(frame));
+        assertTrue(e.getMessage().contains("Invalid length"), e.getMessage());
+    }
+
+    @Test
+    void truncated_and_oversized_payloads_are_rejected() {
+        byte[] full = BinaryCodec.encodeRequest(new DbRequest("query", "r1", "SELECT 1", false));
+        for (int n = 0; n < full.length; n++) {
+            byte[] truncated = Arrays.copyOf(full, n);
+            assertThrows(IllegalArgumentException.class, () -> BinaryCodec.decodeRequest(truncated), "length " + n);
+        }
+
+        byte[] longString = {(byte) 0xB1, 1, 1, 0x7F, 'a'};
+        assertThrows(IllegalArgumentException.class, () -> BinaryCodec.decodeRequest(longString));
+
+        byte[] manyColumns = {(byte) 0xB1, 1, 2, 0, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07};
+        assertThrows(IllegalArgumentException.class, () -> BinaryCodec.decodeResponse(manyColumns));
+
+        assertThrows(IllegalArgumentException.class, () -> BinaryCodec.decodeRequest(new byte[]{(byte) 0xB1, 2, 1}));
+        assertThrows(IllegalArgumentException.class, () -> BinaryCodec.decodeRequest(new byte[]{(byte) 0xB1, 1, 2}));
+        assertThrows(IllegalArgumentException.class,
+                () -> BinaryCodec.decodeRequest(new byte[]{(byte) 0xB1, 1, 1, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF,
+                        (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 1}));
+    }
+}
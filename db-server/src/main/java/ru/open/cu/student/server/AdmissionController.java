@@ -0,0 +1,345 @@
+package ru.open.cu.student.server;
+
+import ru.open.cu.student.execution.CancellationToken;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+final class AdmissionController {
+    private static final long PRIORITY_STEP_NANOS = TimeUnit.MILLISECONDS.toNanos(250);
+
+    enum Priority {
+        HIGH,
+        NORMAL,
+        LOW;
+
+        static Priority parse(String s) {
+            if (s == null || s.isBlank()) return NORMAL;
+            try {
+                return valueOf(s.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown priority: " + s);
+            }
+        }
+    }
+
+    static final class BusyException extends RuntimeException {
+        BusyException(String message) {
+            super(message);
+        }
+    }
+
+    interface Grant {
+        void admitted(long queuedNanos);
+
+        void failed(RuntimeException e);
+    }
+
+    private static final class Waiter {
+        private final long start;
+        private final long rank;
+        private final long seq;
+        private final Condition granted;
+        private final Grant grant;
+        private final CancellationToken token;
+        private ScheduledFuture<?> expiry;
+        private boolean admitted;
+
+        private Waiter(long start, long rank, long seq, Condition granted, Grant grant, CancellationToken token) {
+            this.start = start;
+            this.rank = rank;
+            this.seq = seq;
+            this.granted = granted;
+            this.grant = grant;
+            this.token = token;
+        }
+    }
+
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final long queueTimeoutNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final PriorityQueue<Waiter> queue = new PriorityQueue<>(
+            Comparator.comparingLong((Waiter w) -> w.rank).thenComparingLong(w -> w.seq));
+
+    private ScheduledThreadPoolExecutor timer;
+    private int running;
+    private long seq;
+    private long admitted;
+    private long rejected;
+    private long totalQueueNanos;
+    private long maxQueueNanos;
+
+    AdmissionController(int maxConcurrent, int maxQueued, long queueTimeoutMs) {
+        if (maxConcurrent <= 0) throw new IllegalArgumentException("maxConcurrent must be > 0");
+        if (maxQueued < 0) throw new IllegalArgumentException("maxQueued must be >= 0");
+        if (queueTimeoutMs <= 0) throw new IllegalArgumentException("queueTimeoutMs must be > 0");
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = maxQueued;
+        this.queueTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(queueTimeoutMs);
+    }
+
+    long acquire(Priority priority, CancellationToken token) {
+        Objects.requireNonNull(token, "token");
+        long start = System.nanoTime();
+        lock.lock();
+        try {
+            token.throwIfCancelled();
+            if (running < maxConcurrent && queue.isEmpty()) {
+                running++;
+                admitted++;
+                return 0;
+            }
+            if (queue.size() >= maxQueued) {
+                rejected++;
+                throw new BusyException("Server is busy: " + running + " queries running, " + queue.size() + " queued");
+            }
+
+            Waiter w = new Waiter(start, start + priority.ordinal() * PRIORITY_STEP_NANOS, seq++, lock.newCondition(), null, token);
+            queue.add(w);
+            long queueDeadline = start + queueTimeoutNanos;
+            try {
+                while (!w.admitted) {
+                    if (token.isCancelled() || token.remainingNanos() == 0) {
+                        queue.remove(w);
+                        token.throwIfCancelled();
+                    }
+                    long remaining = queueDeadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        queue.remove(w);
+                        rejected++;
+                        throw new BusyException("Server is busy: query waited "
+                                + TimeUnit.NANOSECONDS.toMillis(queueTimeoutNanos) + " ms in the admission queue");
+                    }
+                    w.granted.awaitNanos(Math.min(remaining, token.remainingNanos()));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                if (w.admitted) {
+                    grantLater(releaseLocked());
+                } else {
+                    queue.remove(w);
+                }
+                throw new IllegalStateException("Interrupted while waiting for admission", e);
+            }
+
+            return recordAdmission(w);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void acquire(Priority priority, CancellationToken token, Grant grant) {
+        Objects.requireNonNull(token, "token");
+        Objects.requireNonNull(grant, "grant");
+        long start = System.nanoTime();
+        boolean granted = false;
+        RuntimeException failure = null;
+        lock.lock();
+        try {
+            token.throwIfCancelled();
+            if (running < maxConcurrent && queue.isEmpty()) {
+                running++;
+                admitted++;
+                granted = true;
+            } else if (queue.size() >= maxQueued) {
+                rejected++;
+                throw new BusyException("Server is busy: " + running + " queries running, " + queue.size() + " queued");
+            } else {
+                Waiter w = new Waiter(start, start + priority.ordinal() * PRIORITY_STEP_NANOS, seq++, null, grant, token);
+                long delay = Math.min(queueTimeoutNanos, token.remainingNanos());
+                w.expiry = timer().schedule(() -> expire(w), delay, TimeUnit.NANOSECONDS);
+                queue.add(w);
+            }
+        } catch (RuntimeException e) {
+            failure = e;
+        } finally {
+            lock.unlock();
+        }
+        if (failure != null) {
+            grant.failed(failure);
+        } else if (granted) {
+            grant.admitted(0);
+        }
+    }
+
+    void release() {
+        Waiter next;
+        lock.lock();
+        try {
+            next = releaseLocked();
+        } finally {
+            lock.unlock();
+        }
+        grantLater(next);
+    }
+
+    void wakeWaiters() {
+        List<Waiter> dropped = new ArrayList<>();
+        lock.lock();
+        try {
+            for (Waiter w : new ArrayList<>(queue)) {
+                if (w.grant == null) {
+                    w.granted.signal();
+                } else if (w.token.isCancelled() || w.token.remainingNanos() == 0) {
+                    queue.remove(w);
+                    w.expiry.cancel(false);
+                    dropped.add(w);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        for (Waiter w : dropped) {
+            w.grant.failed(cancellation(w.token));
+        }
+    }
+
+    void close() {
+        lock.lock();
+        try {
+            if (timer != null) {
+                timer.shutdownNow();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int running() {
+        lock.lock();
+        try {
+            return running;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int queued() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long admittedCount() {
+        lock.lock();
+        try {
+            return admitted;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long rejectedCount() {
+        lock.lock();
+        try {
+            return rejected;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long totalQueueNanos() {
+        lock.lock();
+        try {
+            return totalQueueNanos;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long maxQueueNanos() {
+        lock.lock();
+        try {
+            return maxQueueNanos;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Waiter releaseLocked() {
+        Waiter next = queue.poll();
+        if (next == null) {
+            running--;
+            return null;
+        }
+        next.admitted = true;
+        if (next.grant == null) {
+            next.granted.signal();
+            return null;
+        }
+        next.expiry.cancel(false);
+        return next;
+    }
+
+    private void grantLater(Waiter w) {
+        if (w == null) return;
+        long waited;
+        lock.lock();
+        try {
+            waited = recordAdmission(w);
+        } finally {
+            lock.unlock();
+        }
+        w.grant.admitted(waited);
+    }
+
+    private long recordAdmission(Waiter w) {
+        long waited = System.nanoTime() - w.start;
+        admitted++;
+        totalQueueNanos += waited;
+        maxQueueNanos = Math.max(maxQueueNanos, waited);
+        return waited;
+    }
+
+    private void expire(Waiter w) {
+        RuntimeException failure;
+        lock.lock();
+        try {
+            if (w.admitted || !queue.remove(w)) return;
+            failure = cancellation(w.token);
+            if (failure == null) {
+                rejected++;
+                failure = new BusyException("Server is busy: query waited "
+                        + TimeUnit.NANOSECONDS.toMillis(queueTimeoutNanos) + " ms in the admission queue");
+            }
+        } finally {
+            lock.unlock();
+        }
+        w.grant.failed(failure);
+    }
+
+    private ScheduledThreadPoolExecutor timer() {
+        if (timer == null) {
+            timer = new ScheduledThreadPoolExecutor(1, r -> {
+                Thread t = new Thread(r, "db-admission-timer");
+                t.setDaemon(true);
+                return t;
+            });
+            timer.setRemoveOnCancelPolicy(true);
+        }
+        return timer;
+    }
+
+    private static RuntimeException cancellation(CancellationToken token) {
+        try {
+            token.throwIfCancelled();
+            return null;
+        } catch (RuntimeException e) {
+            return e;
+        }
+    }
+}
@@ -3,16 +3,27 @@ package ru.open.cu.student.server;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import ru.open.cu.student.catalog.manager.DefaultCatalogManager;
+import ru.open.cu.student.engine.BatchExecutionException;
 import ru.open.cu.student.engine.ExecutionResult;
+import ru.open.cu.student.engine.ResultSink;
 import ru.open.cu.student.engine.SessionContext;
 import ru.open.cu.student.engine.SqlService;
+import ru.open.cu.student.execution.CancellationToken;
+import ru.open.cu.student.execution.QueryCancelledException;
+import ru.open.cu.student.execution.memory.MemoryLimitExceededException;
+import ru.open.cu.student.execution.memory.QueryMemoryContext;
 import ru.open.cu.student.index.IndexManager;
+import ru.open.cu.student.index.UniqueViolationException;
 import ru.open.cu.student.memory.buffer.BufferPoolManager;
 import ru.open.cu.student.memory.buffer.DefaultBufferPoolManager;
 import ru.open.cu.student.memory.io.DefaultDirtyPageWriter;
 import ru.open.cu.student.memory.io.DirtyPageWriter;
 import ru.open.cu.student.memory.manager.HeapPageFileManager;
 import ru.open.cu.student.memory.replacer.LRUReplacer;
+import ru.open.cu.student.storage.AutoVacuum;
+import ru.open.cu.student.storage.HeapFileRegistry;
+import ru.open.cu.student.protocol.BinaryCodec;
+import ru.open.cu.student.protocol.BinaryResponseWriter;
 import ru.open.cu.student.protocol.DbError;
 import ru.open.cu.student.protocol.DbErrorPos;
 import ru.open.cu.student.protocol.DbRequest;
@@ -22,15 +33,35 @@ import ru.open.cu.student.protocol.JsonCodec;
 import ru.open.cu.student.sql.lexer.SqlSyntaxException;
 import ru.open.cu.student.sql.semantic.SqlSemanticException;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public final class DbServer {
     private static final Logger log = LoggerFactory.getLogger(DbServer.class);
+    private static final int IO_BUFFER_BYTES = 64 * 1024;
+    private static final int MAX_PENDING_CANCELS = 64;
+    private static final int MAX_PENDING_FRAMES = 256;
+    private static final long READER_POLL_MS = 100;
+    private static final byte[] CANCEL_BYTES = "cancel".getBytes(StandardCharsets.US_ASCII);
 
     private final int port;
     private final Path dataDir;
@@ -39,13 +70,23 @@ public final class DbServer {
     private final int flushIntervalMs;
     private final int flushBatchSize;
     private final int checkpointIntervalMs;
+    private final ServerOptions options;
 
     private volatile boolean running;
-    private ServerSocket serverSocket;
+    private volatile ServerSocket serverSocket;
+    private volatile NioServerLoop eventLoop;
+    private final AtomicInteger activeConnections = new AtomicInteger();
 
     private final BufferPoolManager bufferPool;
     private final DirtyPageWriter dirtyPageWriter;
+    private final AutoVacuum autoVacuum;
     private final SqlService sqlService;
+    private final AdmissionController admission;
+    private final Set<RunningQuery> runningQueries = ConcurrentHashMap.newKeySet();
+    private final ConcurrentHashMap<String, Set<String>> pendingCancels = new ConcurrentHashMap<>();
+
+    private record RunningQuery(String sessionId, String requestId, CancellationToken token) {
+    }
 
     public DbServer(int port, String dataDir) {
         this(port, Path.of(dataDir), 256);
@@ -56,6 +97,18 @@ public final class DbServer {
     }
 
     public DbServer(int port, Path dataDir, int bufferPoolSize, int flushIntervalMs, int flushBatchSize, int checkpointIntervalMs) {
+        this(port, dataDir, bufferPoolSize, flushIntervalMs, flushBatchSize, checkpointIntervalMs, ServerOptions.defaults());
+    }
+
+    public DbServer(
+            int port,
+            Path dataDir,
+            int bufferPoolSize,
+            int flushIntervalMs,
+            int flushBatchSize,
+            int checkpointIntervalMs,
+            ServerOptions options
+    ) {
         if (port <= 0 || port > 65535) {
             throw new IllegalArgumentException("Invalid port: " + port);
         }
@@ -68,6 +121,7 @@ public final class DbServer {
         this.flushIntervalMs = flushIntervalMs;
         this.flushBatchSize = flushBatchSize;
         this.checkpointIntervalMs = checkpointIntervalMs;
+        this.options = Objects.requireNonNull(options, "options");
 
         this.bufferPool = new DefaultBufferPoolManager(
                 bufferPoolSize,
@@ -76,26 +130,88 @@ public final class DbServer {
                 this.dataDir
         );
         DefaultCatalogManager catalog = new DefaultCatalogManager(this.dataDir, this.bufferPool);
+        HeapFileRegistry heapFiles = new HeapFileRegistry();
         IndexManager indexManager = new IndexManager(this.dataDir, this.bufferPool, catalog);
-        this.sqlService = new SqlService(this.dataDir, this.bufferPool, catalog, indexManager);
+        this.sqlService = new SqlService(this.dataDir, this.bufferPool, catalog, indexManager, heapFiles, options.queryMemoryBudgetBytes());
+        this.admission = new AdmissionController(options.maxConcurrentQueries(), options.maxQueuedQueries(), options.queueTimeoutMs());
         this.dirtyPageWriter = new DefaultDirtyPageWriter(this.bufferPool, flushIntervalMs, flushBatchSize, checkpointIntervalMs);
+        this.autoVacuum = new AutoVacuum(this.dataDir, this.bufferPool, catalog, heapFiles, AutoVacuum.DEFAULT_INTERVAL_MS);
     }
 
     public void start() {
         running = true;
+        if (options.mode() == ServerOptions.Mode.NIO) {
+            startEventLoop();
+        } else {
+            startThreadPerConnection();
+        }
+    }
+
+    private void startEventLoop() {
+        try (ServerSocketChannel channel = ServerSocketChannel.open()) {
+            channel.bind(new InetSocketAddress(port));
+            NioServerLoop loop = new NioServerLoop(
+                    channel,
+                    options.workerThreads(),
+                    options.maxConnections(),
+                    JsonCodec.toJsonBytes(tooManyConnections()),
+                    new NioServerLoop.SessionHandler() {
+                        @Override
+                        public NioServerLoop.Request open(String sessionId, byte[] frame) {
+                            return DbServer.this.open(sessionId, frame);
+                        }
+
+                        @Override
+                        public byte[] handleUrgent(String sessionId, byte[] frame) {
+                            return DbServer.this.handleUrgent(sessionId, frame);
+                        }
+
+                        @Override
+                        public void disconnected(String sessionId) {
+                            cancelSession(sessionId);
+                        }
+
+                        @Override
+                        public void closed(String sessionId) {
+                            closeSession(sessionId);
+                        }
+                    }
+            );
+            this.eventLoop = loop;
+            logStarted();
+            if (running) {
+                loop.run();
+            }
+        } catch (IOException e) {
+            if (running) {
+                log.error("Server stopped due to I/O error", e);
+            }
+        } finally {
+            running = false;
+            log.info("Server stopped");
+        }
+    }
+
+    private void startThreadPerConnection() {
         try (ServerSocket ss = new ServerSocket(port)) {
             this.serverSocket = ss;
-            log.info("DB server started on port={} dataDir={} bufferPoolSize={}", port, dataDir, bufferPoolSize);
-            log.info("DirtyPageWriter enabled: flushIntervalMs={} batchSize={} checkpointIntervalMs={}",
-                    flushIntervalMs, flushBatchSize, checkpointIntervalMs);
-
-            dirtyPageWriter.startBackgroundWriter();
-            dirtyPageWriter.startCheckPointer();
+            logStarted();
 
             while (running) {
                 Socket client = ss.accept();
+                if (activeConnections.incrementAndGet() > options.maxConnections()) {
+                    activeConnections.decrementAndGet();
+                    rejectConnection(client);
+                    continue;
+                }
                 String sessionId = UUID.randomUUID().toString();
-                Thread t = new Thread(() -> handleClient(sessionId, client), "db-session-" + sessionId);
+                Thread t = new Thread(() -> {
+                    try {
+                        handleClient(sessionId, client);
+                    } finally {
+                        activeConnections.decrementAndGet();
+                    }
+                }, "db-session-" + sessionId);
                 t.setDaemon(true);
                 t.start();
             }
@@ -110,8 +226,40 @@ public final class DbServer {
         }
     }
 
+    private void logStarted() {
+        log.info("DB server started on port={} dataDir={} bufferPoolSize={} mode={} workers={} maxConnections={}",
+                port, dataDir, bufferPoolSize, options.mode(), options.workerThreads(), options.maxConnections());
+        log.info("Admission control: maxConcurrentQueries={} maxQueuedQueries={} queueTimeoutMs={}",
+                options.maxConcurrentQueries(), options.maxQueuedQueries(), options.queueTimeoutMs());
+        log.info("DirtyPageWriter enabled: flushIntervalMs={} batchSize={} checkpointIntervalMs={}",
+                flushIntervalMs, flushBatchSize, checkpointIntervalMs);
+
+        dirtyPageWriter.startBackgroundWriter();
+        dirtyPageWriter.startCheckPointer();
+        log.info("AutoVacuum enabled: intervalMs={}", AutoVacuum.DEFAULT_INTERVAL_MS);
+        autoVacuum.start();
+    }
+
+    private void rejectConnection(Socket client) {
+        log.warn("Rejecting connection remote={}: max connections {} reached",
+                client.getRemoteSocketAddress(), options.maxConnections());
+        try (Socket s = client) {
+            FrameIO.writeFrame(s.getOutputStream(), JsonCodec.toJsonBytes(tooManyConnections()));
+        } catch (IOException ignored) {
+        }
+    }
+
+    private DbResponse tooManyConnections() {
+        return DbResponse.error(null, new DbError("EXEC", "Too many connections (max " + options.maxConnections() + ")", null));
+    }
+
     public void stop() {
         running = false;
+        autoVacuum.stop();
+        admission.close();
+        log.info("Admission stats: admitted={} rejected={} totalQueueMs={} maxQueueMs={}",
+                admission.admittedCount(), admission.rejectedCount(),
+                admission.totalQueueNanos() / 1_000_000, admission.maxQueueNanos() / 1_000_000);
         try {
             bufferPool.flushAllPages();
         } catch (Exception e) {
@@ -123,68 +271,413 @@ public final class DbServer {
             }
         } catch (IOException ignored) {
         }
+        NioServerLoop loop = eventLoop;
+        if (loop != null) {
+            loop.close();
+        }
     }
 
     private void handleClient(String sessionId, Socket socket) {
         String remote = socket.getRemoteSocketAddress() == null ? "unknown" : socket.getRemoteSocketAddress().toString();
         log.info("Session started sessionId={} remote={}", sessionId, remote);
 
+        BlockingQueue<byte[]> inbox = new ArrayBlockingQueue<>(MAX_PENDING_FRAMES);
+        Thread reader = null;
         try (Socket s = socket) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream(), IO_BUFFER_BYTES));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream(), IO_BUFFER_BYTES));
+            reader = new Thread(() -> readFrames(sessionId, remote, in, out, inbox), "db-reader-" + sessionId);
+            reader.setDaemon(true);
+            reader.start();
             while (true) {
-                byte[] frame = FrameIO.readFrame(s.getInputStream());
+                byte[] frame = inbox.poll(READER_POLL_MS, TimeUnit.MILLISECONDS);
                 if (frame == null) {
-                    break; 
-                }
-
-                DbRequest req;
-                try {
-                    req = JsonCodec.fromJsonBytes(frame, DbRequest.class);
-                } catch (Exception badJson) {
-                    DbResponse resp = DbResponse.error(null, new DbError("SYNTAX", "Invalid JSON request", null));
-                    FrameIO.writeFrame(s.getOutputStream(), JsonCodec.toJsonBytes(resp));
+                    if (!reader.isAlive() && inbox.isEmpty()) break;
                     continue;
                 }
 
-                DbResponse resp = processRequest(sessionId, req);
-                FrameIO.writeFrame(s.getOutputStream(), JsonCodec.toJsonBytes(resp));
+                byte[] response = handleFrame(sessionId, frame);
+                synchronized (out) {
+                    FrameIO.writeFrame(out, response, inbox.isEmpty());
+                }
+            }
+            synchronized (out) {
+                out.flush();
             }
         } catch (IOException io) {
             log.info("Session IO closed sessionId={} remote={} err={}", sessionId, remote, io.toString());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         } catch (Throwable t) {
             log.error("Session crashed sessionId={} remote={}", sessionId, remote, t);
         } finally {
+            if (reader != null) {
+                reader.interrupt();
+            }
+            closeSession(sessionId);
             log.info("Session ended sessionId={} remote={}", sessionId, remote);
         }
     }
 
-    private DbResponse processRequest(String sessionId, DbRequest req) {
+    private void readFrames(String sessionId, String remote, DataInputStream in, DataOutputStream out, BlockingQueue<byte[]> inbox) {
+        try {
+            byte[] frame;
+            while ((frame = FrameIO.readFrame(in)) != null) {
+                byte[] urgent = handleUrgent(sessionId, frame);
+                if (urgent == null) {
+                    inbox.put(frame);
+                    continue;
+                }
+                synchronized (out) {
+                    FrameIO.writeFrame(out, urgent, true);
+                }
+            }
+        } catch (IOException io) {
+            log.info("Session IO closed sessionId={} remote={} err={}", sessionId, remote, io.toString());
+        } catch (InterruptedException ignored) {
+        } finally {
+            inbox.clear();
+            cancelSession(sessionId);
+        }
+    }
+
+    private void cancelSession(String sessionId) {
+        for (RunningQuery q : runningQueries) {
+            if (q.sessionId().equals(sessionId)) q.token().cancel();
+        }
+        admission.wakeWaiters();
+    }
+
+    private void closeSession(String sessionId) {
+        cancelSession(sessionId);
+        pendingCancels.remove(sessionId);
+        sqlService.closeSession(sessionId);
+    }
+
+    private byte[] handleFrame(String sessionId, byte[] frame) {
+        Call call = open(sessionId, frame);
+        call.admitBlocking();
+        return call.run();
+    }
+
+    private Call open(String sessionId, byte[] frame) {
+        Call call = new Call(sessionId, BinaryCodec.isBinary(frame));
+        DbRequest req;
+        try {
+            req = call.binary ? BinaryCodec.decodeRequest(frame) : JsonCodec.fromJsonBytes(frame, DbRequest.class);
+        } catch (IllegalArgumentException badFrame) {
+            String message = call.binary ? "Invalid binary request" : "Invalid JSON request";
+            call.response = DbResponse.error(null, new DbError("SYNTAX", message, null));
+            return call;
+        }
+        call.response = accept(call, req);
+        return call;
+    }
+
+    private DbResponse accept(Call call, DbRequest req) {
+        call.req = req;
         String requestId = req == null ? null : req.requestId;
         if (req == null) {
             return DbResponse.error(null, new DbError("EXEC", "Request is null", null));
         }
-        if (!"query".equalsIgnoreCase(req.type)) {
+        String type = req.type == null ? "" : req.type.toLowerCase();
+        call.type = type;
+        if (type.equals("cancel")) {
+            return cancel(call.sessionId, req);
+        }
+        if (!type.equals("query") && !type.equals("prepare") && !type.equals("execute") && !type.equals("batch")) {
             return DbResponse.error(requestId, new DbError("EXEC", "Unsupported request type: " + req.type, null));
         }
-        if (req.sql == null) {
+        if ((type.equals("query") || type.equals("prepare")) && req.sql == null) {
             return DbResponse.error(requestId, new DbError("EXEC", "sql is null", null));
         }
+        if ((type.equals("prepare") || type.equals("execute")) && req.statement == null) {
+            return DbResponse.error(requestId, new DbError("EXEC", "statement is null", null));
+        }
+        if (type.equals("prepare")) {
+            return null;
+        }
 
         try {
-            ExecutionResult r = sqlService.execute(new SessionContext(sessionId, requestId, req.trace), req.sql);
-            return DbResponse.ok(requestId, r.columns(), r.rows(), r.affected(), r.explain());
-        } catch (SqlSyntaxException e) {
-            return DbResponse.error(requestId, new DbError("SYNTAX", e.getMessage(), new DbErrorPos(e.getOffset(), e.getLine(), e.getColumn())));
-        } catch (SqlSemanticException e) {
+            call.priority = AdmissionController.Priority.parse(req.priority);
+            CancellationToken token = req.timeoutMs == null
+                    ? CancellationToken.create()
+                    : CancellationToken.withTimeout(req.timeoutMs);
+            call.running = register(call.sessionId, requestId, token);
+        } catch (Throwable t) {
+            return DbResponse.error(requestId, toError(t));
+        }
+        return null;
+    }
+
+    private final class Call implements NioServerLoop.Request {
+        private final String sessionId;
+        private final boolean binary;
+        private DbRequest req;
+        private String type;
+        private AdmissionController.Priority priority;
+        private RunningQuery running;
+        private DbResponse response;
+        private boolean admitted;
+        private long queuedNanos;
+
+        private Call(String sessionId, boolean binary) {
+            this.sessionId = sessionId;
+            this.binary = binary;
+        }
+
+        private boolean needsAdmission() {
+            return response == null && running != null;
+        }
+
+        private void admitBlocking() {
+            if (!needsAdmission()) return;
+            try {
+                granted(admission.acquire(priority, running.token()));
+            } catch (Throwable t) {
+                response = DbResponse.error(req.requestId, toError(t));
+            }
+        }
+
+        @Override
+        public void admit(Runnable ready) {
+            if (!needsAdmission()) {
+                ready.run();
+                return;
+            }
+            admission.acquire(priority, running.token(), new AdmissionController.Grant() {
+                @Override
+                public void admitted(long queuedNanos) {
+                    granted(queuedNanos);
+                    ready.run();
+                }
+
+                @Override
+                public void failed(RuntimeException e) {
+                    response = DbResponse.error(req.requestId, toError(e));
+                    ready.run();
+                }
+            });
+        }
+
+        @Override
+        public boolean isAnswered() {
+            return response != null;
+        }
+
+        private void granted(long queuedNanos) {
+            this.admitted = true;
+            this.queuedNanos = queuedNanos;
+        }
+
+        @Override
+        public byte[] run() {
+            BinaryResponseWriter writer = binary && req != null ? new BinaryResponseWriter(req.requestId) : null;
+            List<ExecutionResult> results = new ArrayList<>();
+            try {
+                try {
+                    if (response == null) {
+                        try {
+                            CancellationToken token = running == null ? CancellationToken.NONE : running.token();
+                            response = dispatch(sessionId, req, type, writer == null ? null : sinkOf(writer), token, results);
+                            if (admitted) {
+                                response = response.withQueueTime(queuedNanos / 1_000);
+                            }
+                        } finally {
+                            if (admitted) {
+                                admission.release();
+                            }
+                        }
+                    }
+                } finally {
+                    if (running != null) {
+                        runningQueries.remove(running);
+                    }
+                }
+
+                if (!binary) {
+                    return JsonCodec.toJsonBytes(response);
+                }
+                if (response.error == null && writer != null && writer.isStarted()) {
+                    return writer.finish(response.status, response.affected, response.explain, null, response.queueTimeMicros);
+                }
+                return BinaryCodec.encodeResponse(response);
+            } finally {
+                for (ExecutionResult r : results) {
+                    r.close();
+                }
+            }
+        }
+    }
+
+    private static ResultSink sinkOf(BinaryResponseWriter writer) {
+        return new ResultSink() {
+            @Override
+            public void begin(List<String> columns, List<String> columnTypes) {
+                writer.begin(columns, columnTypes);
+            }
+
+            @Override
+            public void row(List<Object> row) {
+                int start = writer.size();
+                writer.row(row);
+                QueryMemoryContext.current().reserve(writer.size() - start, "ResultSet");
+            }
+        };
+    }
+
+    private RunningQuery register(String sessionId, String requestId, CancellationToken token) {
+        RunningQuery running = new RunningQuery(sessionId, requestId, token);
+        synchronized (pendingCancels) {
+            runningQueries.add(running);
+            Set<String> pending = pendingCancels.get(sessionId);
+            if (requestId != null && pending != null && pending.remove(requestId)) {
+                token.cancel();
+            }
+        }
+        return running;
+    }
+
+    private DbResponse cancel(String sessionId, DbRequest req) {
+        if (req.target == null) {
+            return DbResponse.error(req.requestId, new DbError("EXEC", "target is null", null));
+        }
+
+        List<RunningQuery> targets;
+        synchronized (pendingCancels) {
+            targets = new ArrayList<>();
+            for (RunningQuery q : runningQueries) {
+                if (req.target.equals(q.requestId()) && q.sessionId().equals(sessionId)) targets.add(q);
+            }
+
+            if (targets.isEmpty() && sessionId != null) {
+                Set<String> pending = pendingCancels.computeIfAbsent(sessionId, ignored -> ConcurrentHashMap.newKeySet());
+                if (pending.size() < MAX_PENDING_CANCELS) {
+                    pending.add(req.target);
+                }
+            }
+        }
+        for (RunningQuery q : targets) {
+            q.token().cancel();
+        }
+        if (!targets.isEmpty()) {
+            admission.wakeWaiters();
+        }
+        log.info("Cancel sessionId={} requestId={} target={} cancelled={}", sessionId, req.requestId, req.target, targets.size());
+        return DbResponse.ok(req.requestId, null, null, targets.size(), null);
+    }
+
+    private byte[] handleUrgent(String sessionId, byte[] frame) {
+        boolean binary = BinaryCodec.isBinary(frame);
+        if (!binary && !mentionsCancel(frame)) {
+            return null;
+        }
+        DbRequest req;
+        try {
+            String type = binary ? BinaryCodec.peekRequestType(frame) : JsonCodec.peekString(frame, "type");
+            if (type == null || !type.equalsIgnoreCase("cancel")) {
+                return null;
+            }
+            req = binary ? BinaryCodec.decodeRequest(frame) : JsonCodec.fromJsonBytes(frame, DbRequest.class);
+        } catch (RuntimeException bad) {
+            return null;
+        }
+        if (req == null) {
+            return null;
+        }
+        DbResponse resp = cancel(sessionId, req);
+        return binary ? BinaryCodec.encodeResponse(resp) : JsonCodec.toJsonBytes(resp);
+    }
+
+    private static boolean mentionsCancel(byte[] frame) {
+        outer:
+        for (int i = 0; i + CANCEL_BYTES.length <= frame.length; i++) {
+            for (int j = 0; j < CANCEL_BYTES.length; j++) {
+                if ((frame[i + j] | 0x20) != CANCEL_BYTES[j]) continue outer;
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private DbResponse dispatch(
+            String sessionId,
+            DbRequest req,
+            String type,
+            ResultSink sink,
+            CancellationToken token,
+            List<ExecutionResult> results
+    ) {
+        if (type.equals("batch")) {
+            return processBatch(sessionId, req, token, results);
+        }
+        String requestId = req.requestId;
+        try {
+            SessionContext ctx = new SessionContext(sessionId, requestId, req.trace, token).retainingResultMemory();
+            ExecutionResult r = switch (type) {
+                case "prepare" -> sqlService.prepare(ctx, req.statement, req.sql);
+                case "execute" -> sqlService.executePrepared(ctx, req.statement, req.params, sink);
+                default -> sink == null ? sqlService.execute(ctx, req.sql) : sqlService.execute(ctx, req.sql, sink);
+            };
+            results.add(r);
+            return DbResponse.ok(requestId, r.columns(), r.columnTypes(), r.rows(), r.affected(), r.explain());
+        } catch (Throwable t) {
+            return DbResponse.error(requestId, toError(t));
+        }
+    }
+
+    private DbResponse processBatch(String sessionId, DbRequest req, CancellationToken token, List<ExecutionResult> results) {
+        String requestId = req.requestId;
+        if (req.statements == null) {
+            return DbResponse.error(requestId, new DbError("EXEC", "statements is null", null));
+        }
+
+        List<DbResponse> responses = new ArrayList<>(req.statements.size());
+        SessionContext ctx = new SessionContext(sessionId, requestId, req.trace, token).retainingResultMemory();
+        try {
+            for (ExecutionResult r : sqlService.executeBatch(ctx, req.statements)) {
+                results.add(r);
+                responses.add(DbResponse.ok(requestId, r.columns(), r.columnTypes(), r.rows(), r.affected(), r.explain()));
+            }
+            return DbResponse.batch(requestId, responses, null);
+        } catch (BatchExecutionException e) {
+            for (ExecutionResult r : e.getCompleted()) {
+                results.add(r);
+                responses.add(DbResponse.ok(requestId, r.columns(), r.columnTypes(), r.rows(), r.affected(), r.explain()));
+            }
+            DbError error = toError(e.getCause());
+            responses.add(DbResponse.error(requestId, error));
+            return DbResponse.batch(requestId, responses, error);
+        } catch (Throwable t) {
+            return DbResponse.error(requestId, toError(t));
+        }
+    }
+
+    private static DbError toError(Throwable t) {
+        if (t instanceof QueryCancelledException e) {
+            return new DbError(e.isTimedOut() ? "TIMEOUT" : "CANCELLED", e.getMessage(), null);
+        }
+        if (t instanceof MemoryLimitExceededException) {
+            return new DbError("MEMORY_LIMIT", t.getMessage(), null);
+        }
+        if (t instanceof UniqueViolationException) {
+            return new DbError("UNIQUE_VIOLATION", t.getMessage(), null);
+        }
+        if (t instanceof AdmissionController.BusyException) {
+            return new DbError("BUSY", t.getMessage(), null);
+        }
+        if (t instanceof SqlSyntaxException e) {
+            return new DbError("SYNTAX", e.getMessage(), new DbErrorPos(e.getOffset(), e.getLine(), e.getColumn()));
+        }
+        if (t instanceof SqlSemanticException e) {
             DbErrorPos pos = (e.getOffset() == null && e.getLine() == null && e.getColumn() == null)
                     ? null
                     : new DbErrorPos(e.getOffset(), e.getLine(), e.getColumn());
-            return DbResponse.error(requestId, new DbError("SEMANTIC", e.getMessage(), pos));
-        } catch (IllegalArgumentException e) {
-            return DbResponse.error(requestId, new DbError("EXEC", e.getMessage(), null));
-        } catch (Throwable t) {
-            return DbResponse.error(requestId, new DbError("EXEC", t.getClass().getSimpleName() + ": " + t.getMessage(), null));
+            return new DbError("SEMANTIC", e.getMessage(), pos);
+        }
+        if (t instanceof IllegalArgumentException) {
+            return new DbError("EXEC", t.getMessage(), null);
         }
+        return new DbError("EXEC", t.getClass().getSimpleName() + ": " + t.getMessage(), null);
     }
 }
-
-
@@ -1,6 +1,7 @@
 package ru.open.cu.student.server;
 
 import java.nio.file.Path;
+import java.util.Locale;
 
 public final class DbServerMain {
     public static void main(String[] args) {
@@ -10,6 +11,7 @@ public final class DbServerMain {
         int flushIntervalMs = 200;
         int flushBatchSize = 64;
         int checkpointIntervalMs = 5_000;
+        ServerOptions options = ServerOptions.defaults();
 
         for (int i = 0; i < args.length; i++) {
             switch (args[i]) {
@@ -19,15 +21,25 @@ public final class DbServerMain {
                 case "--flushIntervalMs" -> flushIntervalMs = Integer.parseInt(args[++i]);
                 case "--flushBatchSize" -> flushBatchSize = Integer.parseInt(args[++i]);
                 case "--checkpointIntervalMs" -> checkpointIntervalMs = Integer.parseInt(args[++i]);
+                case "--mode" -> options = options.withMode(ServerOptions.Mode.valueOf(args[++i].toUpperCase(Locale.ROOT)));
+                case "--workers" -> options = options.withWorkerThreads(Integer.parseInt(args[++i]));
+                case "--maxConnections" -> options = options.withMaxConnections(Integer.parseInt(args[++i]));
+                case "--maxConcurrentQueries" -> options = options.withAdmission(
+                        Integer.parseInt(args[++i]), options.maxQueuedQueries(), options.queueTimeoutMs());
+                case "--maxQueuedQueries" -> options = options.withAdmission(
+                        options.maxConcurrentQueries(), Integer.parseInt(args[++i]), options.queueTimeoutMs());
+                case "--queueTimeoutMs" -> options = options.withAdmission(
+                        options.maxConcurrentQueries(), options.maxQueuedQueries(), Long.parseLong(args[++i]));
+                case "--queryMemoryBytes" -> options = options.withQueryMemoryBudget(Long.parseLong(args[++i]));
                 default -> {
                     System.err.println("Unknown arg: " + args[i]);
-                    System.err.println("Usage: --port <port> --dataDir <path> [--poolSize <n>] [--flushIntervalMs <ms>] [--flushBatchSize <n>] [--checkpointIntervalMs <ms>]");
+                    System.err.println("Usage: --port <port> --dataDir <path> [--poolSize <n>] [--flushIntervalMs <ms>] [--flushBatchSize <n>] [--checkpointIntervalMs <ms>] [--mode nio|thread_per_connection] [--workers <n>] [--maxConnections <n>] [--maxConcurrentQueries <n>] [--maxQueuedQueries <n>] [--queueTimeoutMs <ms>] [--queryMemoryBytes <n>]");
                     System.exit(2);
                 }
             }
         }
 
-        DbServer server = new DbServer(port, Path.of(dataDir), poolSize, flushIntervalMs, flushBatchSize, checkpointIntervalMs);
+        DbServer server = new DbServer(port, Path.of(dataDir), poolSize, flushIntervalMs, flushBatchSize, checkpointIntervalMs, options);
 
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
             server.stop();
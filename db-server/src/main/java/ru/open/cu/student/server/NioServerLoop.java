@@ -0,0 +1,447 @@
+package ru.open.cu.student.server;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.open.cu.student.protocol.FrameIO;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+final class NioServerLoop {
+    private static final Logger log = LoggerFactory.getLogger(NioServerLoop.class);
+    private static final int READ_BUFFER_BYTES = 64 * 1024;
+    private static final int MAX_PENDING_FRAMES = 256;
+    private static final int MAX_OUTBOX_BYTES = Integer.getInteger("db.server.maxOutboxBytes", 8 * 1024 * 1024);
+
+    interface SessionHandler {
+        Request open(String sessionId, byte[] frame);
+
+        byte[] handleUrgent(String sessionId, byte[] frame);
+
+        void disconnected(String sessionId);
+
+        void closed(String sessionId);
+    }
+
+    interface Request {
+        void admit(Runnable ready);
+
+        boolean isAnswered();
+
+        byte[] run();
+    }
+
+    private final ServerSocketChannel serverChannel;
+    private final SessionHandler handler;
+    private final int maxConnections;
+    private final byte[] rejectFrame;
+    private final Selector selector;
+    private final ExecutorService workers;
+    private final ConcurrentLinkedQueue<Runnable> selectorTasks = new ConcurrentLinkedQueue<>();
+    private final Set<Connection> connections = new HashSet<>();
+
+    private volatile boolean running = true;
+
+    NioServerLoop(ServerSocketChannel serverChannel, int workerThreads, int maxConnections, byte[] rejectFrame, SessionHandler handler) throws IOException {
+        this.serverChannel = Objects.requireNonNull(serverChannel, "serverChannel");
+        this.handler = Objects.requireNonNull(handler, "handler");
+        this.rejectFrame = Objects.requireNonNull(rejectFrame, "rejectFrame");
+        this.maxConnections = maxConnections;
+        this.selector = Selector.open();
+
+        AtomicInteger workerIds = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(
+                workerThreads,
+                workerThreads,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                r -> {
+                    Thread t = new Thread(r, "db-worker-" + workerIds.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }
+        );
+
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    void run() {
+        try {
+            while (running) {
+                selector.select();
+                Runnable task;
+                while ((task = selectorTasks.poll()) != null) {
+                    task.run();
+                }
+
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    if (!key.isValid()) continue;
+
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+
+                    Connection c = (Connection) key.attachment();
+                    try {
+                        if (key.isReadable()) {
+                            read(c);
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            write(c);
+                        }
+                    } catch (IOException io) {
+                        log.info("Session IO closed sessionId={} remote={} err={}", c.sessionId, c.remote, io.toString());
+                        closeConnection(c);
+                    } catch (RuntimeException e) {
+                        log.error("Session failed sessionId={} remote={}", c.sessionId, c.remote, e);
+                        closeConnection(c);
+                    }
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            if (running) {
+                log.error("Event loop stopped due to I/O error", e);
+            }
+        } finally {
+            running = false;
+            for (Connection c : new ArrayList<>(connections)) {
+                closeConnection(c);
+            }
+            workers.shutdownNow();
+            try {
+                selector.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    void close() {
+        running = false;
+        selector.wakeup();
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            if (connections.size() >= maxConnections) {
+                reject(channel);
+                continue;
+            }
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            Connection c = new Connection(UUID.randomUUID().toString(), channel);
+            c.key = channel.register(selector, SelectionKey.OP_READ, c);
+            connections.add(c);
+            log.info("Session started sessionId={} remote={}", c.sessionId, c.remote);
+        }
+    }
+
+    private void reject(SocketChannel channel) {
+        log.warn("Rejecting connection remote={}: max connections {} reached", remoteOf(channel), maxConnections);
+        try (SocketChannel ch = channel) {
+            ch.write(frame(rejectFrame));
+        } catch (IOException ignored) {
+        }
+    }
+
+    private void read(Connection c) throws IOException {
+        int n = c.channel.read(c.in);
+        if (n < 0) {
+            closeConnection(c);
+            return;
+        }
+
+        List<byte[]> frames = new ArrayList<>();
+        c.in.flip();
+        while (true) {
+            if (c.body == null) {
+                if (c.in.remaining() < Integer.BYTES) break;
+                int len = c.in.getInt();
+                if (len < 0 || len > FrameIO.MAX_FRAME_BYTES) {
+                    throw new IOException("Invalid frame length: " + len);
+                }
+                c.body = new byte[len];
+                c.bodyPos = 0;
+            }
+            int take = Math.min(c.in.remaining(), c.body.length - c.bodyPos);
+            c.in.get(c.body, c.bodyPos, take);
+            c.bodyPos += take;
+            if (c.bodyPos < c.body.length) break;
+            byte[] urgent = handler.handleUrgent(c.sessionId, c.body);
+            if (urgent != null) {
+                send(c, urgent);
+            } else {
+                frames.add(c.body);
+            }
+            c.body = null;
+        }
+        c.in.compact();
+
+        if (!frames.isEmpty()) {
+            enqueue(c, frames);
+        }
+    }
+
+    private void enqueue(Connection c, List<byte[]> frames) {
+        boolean submit = false;
+        synchronized (c) {
+            c.inbox.addAll(frames);
+            if (c.inbox.size() >= MAX_PENDING_FRAMES && !c.readPaused) {
+                c.readPaused = true;
+                c.key.interestOps(c.key.interestOps() & ~SelectionKey.OP_READ);
+            }
+            if (!c.scheduled && !c.outputBlocked) {
+                c.scheduled = true;
+                submit = true;
+            }
+        }
+        if (submit) {
+            schedule(c);
+        }
+    }
+
+    private void serve(Connection c, Request request) {
+        if (request != null) {
+            byte[] response;
+            try {
+                response = request.run();
+            } catch (Throwable t) {
+                log.error("Session crashed sessionId={} remote={}", c.sessionId, c.remote, t);
+                onSelector(() -> closeConnection(c));
+                response = null;
+            }
+            if (response != null) {
+                send(c, response);
+            }
+        }
+
+        boolean again = false;
+        boolean release = false;
+        boolean resume = false;
+        synchronized (c) {
+            if (c.closed) {
+                c.scheduled = false;
+                release = !c.released;
+                c.released = true;
+            } else if (!c.inbox.isEmpty() && !c.outputBlocked) {
+                again = true;
+            } else {
+                c.scheduled = false;
+            }
+            if (c.readPaused && !c.closed && !c.outputBlocked && c.inbox.size() < MAX_PENDING_FRAMES / 2) {
+                c.readPaused = false;
+                resume = true;
+            }
+        }
+
+        if (resume) {
+            onSelector(() -> {
+                if (c.key.isValid()) c.key.interestOps(c.key.interestOps() | SelectionKey.OP_READ);
+            });
+        }
+        if (release) {
+            release(c);
+        }
+        if (again) {
+            schedule(c);
+        }
+    }
+
+    private void schedule(Connection c) {
+        byte[] frame;
+        synchronized (c) {
+            frame = c.closed || c.outputBlocked ? null : c.inbox.pollFirst();
+        }
+        if (frame == null) {
+            submit(c, null);
+            return;
+        }
+
+        Request request;
+        try {
+            request = handler.open(c.sessionId, frame);
+        } catch (Throwable t) {
+            log.error("Session crashed sessionId={} remote={}", c.sessionId, c.remote, t);
+            onSelector(() -> closeConnection(c));
+            submit(c, null);
+            return;
+        }
+        request.admit(() -> {
+            if (request.isAnswered()) {
+                serve(c, request);
+            } else {
+                submit(c, request);
+            }
+        });
+    }
+
+    private void submit(Connection c, Request request) {
+        try {
+            workers.execute(() -> serve(c, request));
+        } catch (RejectedExecutionException e) {
+            if (running) throw e;
+        }
+    }
+
+    private void send(Connection c, byte[] payload) {
+        boolean arm;
+        boolean pause = false;
+        synchronized (c) {
+            if (c.closed) return;
+            ByteBuffer buf = frame(payload);
+            c.outbox.addLast(buf);
+            c.outboxBytes += buf.remaining();
+            if (!c.outputBlocked && c.outboxBytes > MAX_OUTBOX_BYTES) {
+                c.outputBlocked = true;
+                pause = !c.readPaused;
+                c.readPaused = true;
+            }
+            arm = !c.writeArmed;
+            c.writeArmed = true;
+        }
+        if (arm || pause) {
+            boolean stopReading = pause;
+            onSelector(() -> {
+                if (!c.key.isValid()) return;
+                int ops = c.key.interestOps() | SelectionKey.OP_WRITE;
+                if (stopReading) ops &= ~SelectionKey.OP_READ;
+                c.key.interestOps(ops);
+            });
+        }
+    }
+
+    private void write(Connection c) throws IOException {
+        boolean submit = false;
+        synchronized (c) {
+            if (!c.outbox.isEmpty()) {
+                c.outboxBytes -= c.channel.write(c.outbox.toArray(new ByteBuffer[0]));
+                while (!c.outbox.isEmpty() && !c.outbox.peekFirst().hasRemaining()) {
+                    c.outbox.pollFirst();
+                }
+            }
+            if (c.outbox.isEmpty()) {
+                c.writeArmed = false;
+                c.key.interestOps(c.key.interestOps() & ~SelectionKey.OP_WRITE);
+            }
+            if (c.outputBlocked && c.outboxBytes <= MAX_OUTBOX_BYTES / 2) {
+                c.outputBlocked = false;
+                if (c.readPaused && c.inbox.size() < MAX_PENDING_FRAMES / 2) {
+                    c.readPaused = false;
+                    c.key.interestOps(c.key.interestOps() | SelectionKey.OP_READ);
+                }
+                if (!c.scheduled && !c.inbox.isEmpty()) {
+                    c.scheduled = true;
+                    submit = true;
+                }
+            }
+        }
+        if (submit) {
+            schedule(c);
+        }
+    }
+
+    private void closeConnection(Connection c) {
+        if (!connections.remove(c)) return;
+        c.key.cancel();
+        try {
+            c.channel.close();
+        } catch (IOException ignored) {
+        }
+
+        synchronized (c) {
+            c.closed = true;
+            c.inbox.clear();
+            c.outbox.clear();
+            c.outboxBytes = 0;
+        }
+        handler.disconnected(c.sessionId);
+        boolean release;
+        synchronized (c) {
+            release = !c.scheduled && !c.released;
+            c.released = true;
+        }
+        if (release) {
+            release(c);
+        }
+    }
+
+    private void release(Connection c) {
+        try {
+            handler.closed(c.sessionId);
+        } finally {
+            log.info("Session ended sessionId={} remote={}", c.sessionId, c.remote);
+        }
+    }
+
+    private void onSelector(Runnable task) {
+        selectorTasks.add(task);
+        selector.wakeup();
+    }
+
+    private static ByteBuffer frame(byte[] payload) {
+        ByteBuffer buf = ByteBuffer.allocate(Integer.BYTES + payload.length);
+        buf.putInt(payload.length).put(payload).flip();
+        return buf;
+    }
+
+    private static String remoteOf(SocketChannel channel) {
+        try {
+            return String.valueOf(channel.getRemoteAddress());
+        } catch (IOException e) {
+            return "unknown";
+        }
+    }
+
+    private static final class Connection {
+        private final String sessionId;
+        private final SocketChannel channel;
+        private final String remote;
+        private final ByteBuffer in = ByteBuffer.allocate(READ_BUFFER_BYTES);
+        private final ArrayDeque<byte[]> inbox = new ArrayDeque<>();
+        private final ArrayDeque<ByteBuffer> outbox = new ArrayDeque<>();
+
+        private SelectionKey key;
+        private byte[] body;
+        private int bodyPos;
+        private long outboxBytes;
+
+        private boolean scheduled;
+        private boolean readPaused;
+        private boolean writeArmed;
+        private boolean outputBlocked;
+        private boolean closed;
+        private boolean released;
+
+        private Connection(String sessionId, SocketChannel channel) {
+            this.sessionId = sessionId;
+            this.channel = channel;
+            this.remote = remoteOf(channel);
+        }
+    }
+}
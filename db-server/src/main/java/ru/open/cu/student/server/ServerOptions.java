@@ -0,0 +1,76 @@
+package ru.open.cu.student.server;
+
+import ru.open.cu.student.engine.SqlService;
+
+import java.util.Locale;
+import java.util.Objects;
+
+public record ServerOptions(
+        Mode mode,
+        int workerThreads,
+        int maxConnections,
+        int maxConcurrentQueries,
+        int maxQueuedQueries,
+        long queueTimeoutMs,
+        long queryMemoryBudgetBytes
+) {
+    public enum Mode {
+        NIO,
+        THREAD_PER_CONNECTION
+    }
+
+    public ServerOptions {
+        Objects.requireNonNull(mode, "mode");
+        if (workerThreads <= 0) {
+            throw new IllegalArgumentException("workerThreads must be > 0");
+        }
+        if (maxConnections <= 0) {
+            throw new IllegalArgumentException("maxConnections must be > 0");
+        }
+        if (maxConcurrentQueries <= 0) {
+            throw new IllegalArgumentException("maxConcurrentQueries must be > 0");
+        }
+        if (maxQueuedQueries < 0) {
+            throw new IllegalArgumentException("maxQueuedQueries must be >= 0");
+        }
+        if (queueTimeoutMs <= 0) {
+            throw new IllegalArgumentException("queueTimeoutMs must be > 0");
+        }
+        if (queryMemoryBudgetBytes <= 0) {
+            throw new IllegalArgumentException("queryMemoryBudgetBytes must be > 0");
+        }
+    }
+
+    public static ServerOptions defaults() {
+        int cpus = Math.max(2, Runtime.getRuntime().availableProcessors());
+        return new ServerOptions(
+                Mode.valueOf(System.getProperty("db.server.mode", "NIO").toUpperCase(Locale.ROOT)),
+                Integer.getInteger("db.server.workers", cpus),
+                Integer.getInteger("db.server.maxConnections", 1024),
+                Integer.getInteger("db.server.maxConcurrentQueries", cpus),
+                Integer.getInteger("db.server.maxQueuedQueries", 256),
+                Long.getLong("db.server.queueTimeoutMs", 30_000L),
+                SqlService.DEFAULT_QUERY_MEMORY_BUDGET_BYTES
+        );
+    }
+
+    public ServerOptions withMode(Mode mode) {
+        return new ServerOptions(mode, workerThreads, maxConnections, maxConcurrentQueries, maxQueuedQueries, queueTimeoutMs, queryMemoryBudgetBytes);
+    }
+
+    public ServerOptions withWorkerThreads(int workerThreads) {
+        return new ServerOptions(mode, workerThreads, maxConnections, maxConcurrentQueries, maxQueuedQueries, queueTimeoutMs, queryMemoryBudgetBytes);
+    }
+
+    public ServerOptions withMaxConnections(int maxConnections) {
+        return new ServerOptions(mode, workerThreads, maxConnections, maxConcurrentQueries, maxQueuedQueries, queueTimeoutMs, queryMemoryBudgetBytes);
+    }
+
+    public ServerOptions withAdmission(int maxConcurrentQueries, int maxQueuedQueries, long queueTimeoutMs) {
+        return new ServerOptions(mode, workerThreads, maxConnections, maxConcurrentQueries, maxQueuedQueries, queueTimeoutMs, queryMemoryBudgetBytes);
+    }
+
+    public ServerOptions withQueryMemoryBudget(long queryMemoryBudgetBytes) {
+        return new ServerOptions(mode, workerThreads, maxConnections, maxConcurrentQueries, maxQueuedQueries, queueTimeoutMs, queryMemoryBudgetBytes);
+    }
+}
@@ -0,0 +1,206 @@
+package ru.open.cu.student.server;
+
+import org.junit.jupiter.api.Test;
+import ru.open.cu.student.execution.CancellationToken;
+import ru.open.cu.student.execution.QueryCancelledException;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdmissionControllerTest {
+
+    @Test
+    void rejects_with_busy_when_queue_is_full() throws Exception {
+        AdmissionController admission = new AdmissionController(1, 1, 10_000);
+        assertEquals(0, admission.acquire(AdmissionController.Priority.NORMAL, CancellationToken.NONE));
+
+        CountDownLatch admitted = new CountDownLatch(1);
+        Thread waiter = new Thread(() -> {
+            admission.acquire(AdmissionController.Priority.NORMAL, CancellationToken.NONE);
+            admitted.countDown();
+        });
+        waiter.start();
+        awaitQueued(admission, 1);
+
+        assertThrows(AdmissionController.BusyException.class, () -> admission.acquire(AdmissionController.Priority.HIGH, CancellationToken.NONE));
+        assertEquals(1, admission.rejectedCount());
+
+        admission.release();
+        assertTrue(admitted.await(5, TimeUnit.SECONDS));
+        assertEquals(1, admission.running());
+        admission.release();
+        assertEquals(0, admission.running());
+        assertTrue(admission.maxQueueNanos() > 0);
+    }
+
+    @Test
+    void higher_priority_waiters_are_admitted_first() throws Exception {
+        AdmissionController admission = new AdmissionController(1, 8, 10_000);
+        admission.acquire(AdmissionController.Priority.NORMAL, CancellationToken.NONE);
+
+        List<String> order = new CopyOnWriteArrayList<>();
+        Thread low = startWaiter(admission, AdmissionController.Priority.LOW, "low", order);
+        awaitQueued(admission, 1);
+        Thread high = startWaiter(admission, AdmissionController.Priority.HIGH, "high", order);
+        awaitQueued(admission, 2);
+
+        admission.release();
+        low.join(5_000);
+        high.join(5_000);
+
+        assertEquals(List.of("high", "low"), order);
+        assertEquals(0, admission.running());
+    }
+
+    @Test
+    void waiting_too_long_is_reported_as_busy() {
+        AdmissionController admission = new AdmissionController(1, 4, 50);
+        admission.acquire(AdmissionController.Priority.NORMAL, CancellationToken.NONE);
+
+        AdmissionController.BusyException e = assertThrows(AdmissionController.BusyException.class,
+                () -> admission.acquire(AdmissionController.Priority.NORMAL, CancellationToken.NONE));
+        assertTrue(e.getMessage().contains("admission queue"));
+        assertEquals(0, admission.queued());
+    }
+
+    @Test
+    void cancelled_waiter_leaves_the_queue_without_waiting_for_a_slot() throws Exception {
+        AdmissionController admission = new AdmissionController(1, 4, 10_000);
+        admission.acquire(AdmissionController.Priority.NORMAL, CancellationToken.NONE);
+
+        CancellationToken token = CancellationToken.create();
+        CountDownLatch failed = new CountDownLatch(1);
+        List<Throwable> errors = new CopyOnWriteArrayList<>();
+        Thread waiter = new Thread(() -> {
+            try {
+                admission.acquire(AdmissionController.Priority.NORMAL, token);
+            } catch (Throwable t) {
+                errors.add(t);
+                failed.countDown();
+            }
+        });
+        waiter.start();
+        awaitQueued(admission, 1);
+
+        token.cancel();
+        admission.wakeWaiters();
+        assertTrue(failed.await(5, TimeUnit.SECONDS));
+        assertInstanceOf(QueryCancelledException.class, errors.get(0));
+        assertEquals(0, admission.queued());
+        assertEquals(1, admission.running());
+    }
+
+    @Test
+    void request_deadline_bounds_the_queue_wait() {
+        AdmissionController admission = new AdmissionController(1, 4, 10_000);
+        admission.acquire(AdmissionController.Priority.NORMAL, CancellationToken.NONE);
+
+        long start = System.nanoTime();
+        QueryCancelledException e = assertThrows(QueryCancelledException.class,
+                () -> admission.acquire(AdmissionController.Priority.NORMAL, CancellationToken.withTimeout(50)));
+        assertTrue(e.isTimedOut());
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        assertEquals(0, admission.queued());
+    }
+
+    @Test
+    void callback_waiters_are_granted_on_release_in_priority_order() throws Exception {
+        AdmissionController admission = new AdmissionController(1, 2, 10_000);
+        List<String> order = new CopyOnWriteArrayList<>();
+        admission.acquire(AdmissionController.Priority.NORMAL, CancellationToken.NONE, recorder("first", order));
+        admission.acquire(AdmissionController.Priority.LOW, CancellationToken.NONE, recorder("low", order));
+        admission.acquire(AdmissionController.Priority.HIGH, CancellationToken.NONE, recorder("high", order));
+        admission.acquire(AdmissionController.Priority.HIGH, CancellationToken.NONE, recorder("busy", order));
+
+        assertEquals(List.of("first", "busy:BusyException"), order);
+        assertEquals(2, admission.queued());
+
+        admission.release();
+        assertEquals(List.of("first", "busy:BusyException", "high"), order);
+        admission.release();
+        assertEquals(List.of("first", "busy:BusyException", "high", "low"), order);
+        admission.release();
+        assertEquals(0, admission.running());
+        admission.close();
+    }
+
+    @Test
+    void callback_waiters_expire_and_leave_on_cancel() throws Exception {
+        AdmissionController admission = new AdmissionController(1, 4, 50);
+        admission.acquire(AdmissionController.Priority.NORMAL, CancellationToken.NONE);
+
+        List<String> order = new CopyOnWriteArrayList<>();
+        CancellationToken token = CancellationToken.create();
+        admission.acquire(AdmissionController.Priority.NORMAL, token, recorder("cancelled", order));
+        token.cancel();
+        admission.wakeWaiters();
+        assertEquals(List.of("cancelled:QueryCancelledException"), order);
+
+        CountDownLatch expired = new CountDownLatch(1);
+        admission.acquire(AdmissionController.Priority.NORMAL, CancellationToken.NONE, new AdmissionController.Grant() {
+            @Override
+            public void admitted(long queuedNanos) {
+                order.add("admitted");
+            }
+
+            @Override
+            public void failed(RuntimeException e) {
+                order.add(e.getMessage());
+                expired.countDown();
+            }
+        });
+        assertTrue(expired.await(5, TimeUnit.SECONDS));
+        assertTrue(order.get(1).contains("admission queue"));
+        assertEquals(0, admission.queued());
+        assertEquals(1, admission.running());
+        admission.close();
+    }
+
+    @Test
+    void parses_priority_classes() {
+        assertEquals(AdmissionController.Priority.NORMAL, AdmissionController.Priority.parse(null));
+        assertEquals(AdmissionController.Priority.HIGH, AdmissionController.Priority.parse("high"));
+        assertThrows(IllegalArgumentException.class, () -> AdmissionController.Priority.parse("urgent"));
+    }
+
+    private static Thread startWaiter(
+            AdmissionController admission,
+            AdmissionController.Priority priority,
+            String name,
+            List<String> order
+    ) {
+        Thread t = new Thread(() -> {
+            admission.acquire(priority, CancellationToken.NONE);
+            order.add(name);
+            admission.release();
+        });
+        t.start();
+        return t;
+    }
+
+    private static AdmissionController.Grant recorder(String name, List<String> order) {
+        return new AdmissionController.Grant() {
+            @Override
+            public void admitted(long queuedNanos) {
+                order.add(name);
+            }
+
+            @Override
+            public void failed(RuntimeException e) {
+                order.add(name + ":" + e.getClass().getSimpleName());
+            }
+        };
+    }
+
+    private static void awaitQueued(AdmissionController admission, int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (admission.queued() < expected) {
+            if (System.currentTimeMillis() > deadline) fail("waiter was not queued");
+            Thread.sleep(5);
+        }
+    }
+}
@@ -2,6 +2,7 @@ package ru.open.cu.student.server;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
+import ru.open.cu.student.protocol.BinaryCodec;
 import ru.open.cu.student.protocol.DbRequest;
 import ru.open.cu.student.protocol.DbResponse;
 import ru.open.cu.student.protocol.FrameIO;
@@ -144,14 +145,458 @@ public class DbServerE2ETest {
         }
     }
 
+    @Test
+    void prepare_and_execute_with_parameters(@TempDir Path tempDir) throws Exception {
+        int port = findFreePort();
+        DbServer server = new DbServer(port, tempDir, 128);
+        Thread t = new Thread(server::start, "test-db-server");
+        t.setDaemon(true);
+        t.start();
+
+        waitForServer(port);
+
+        try (Socket sock = new Socket("127.0.0.1", port)) {
+            assertEquals("ok", send(sock, "CREATE TABLE users (id INT64, name VARCHAR);", false).status);
+
+            DbResponse prep = send(sock, DbRequest.prepare("p1", "ins", "INSERT INTO users VALUES ($1, $2);"));
+            assertEquals("ok", prep.status);
+            for (int i = 0; i < 20; i++) {
+                DbResponse r = send(sock, DbRequest.execute("e" + i, "ins", List.of(i, "user" + i)));
+                assertEquals("ok", r.status, () -> r.error == null ? "" : r.error.message);
+                assertEquals(1, r.affected);
+            }
+
+            assertEquals("ok", send(sock, DbRequest.prepare("p2", "byId", "SELECT name FROM users WHERE id = $1;")).status);
+            DbResponse row = send(sock, DbRequest.execute("e", "byId", List.of(7)));
+            assertEquals("ok", row.status);
+            assertEquals(List.of("name"), row.columns);
+            assertEquals(List.of(List.of("user7")), row.rows);
+
+            DbResponse badType = send(sock, DbRequest.execute("bad", "byId", List.of("x")));
+            assertEquals("error", badType.status);
+            assertEquals("EXEC", badType.error.code);
+
+            DbResponse missing = send(sock, DbRequest.execute("missing", "nope", List.of()));
+            assertEquals("error", missing.status);
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    void pipelined_requests_are_answered_in_order(@TempDir Path tempDir) throws Exception {
+        int port = findFreePort();
+        DbServer server = new DbServer(port, tempDir, 128);
+        Thread t = new Thread(server::start, "test-db-server");
+        t.setDaemon(true);
+        t.start();
+
+        waitForServer(port);
+
+        try (Socket sock = new Socket("127.0.0.1", port)) {
+            assertEquals("ok", send(sock, "CREATE TABLE t (id INT64);", false).status);
+
+            int n = 50;
+            List<String> ids = new ArrayList<>();
+            DataOutputStream out = new DataOutputStream(new java.io.BufferedOutputStream(sock.getOutputStream()));
+            for (int i = 0; i < n; i++) {
+                String id = "req-" + i;
+                ids.add(id);
+                String sql = i == 10 ? "SELEC nonsense;" : "INSERT INTO t VALUES (" + i + ");";
+                FrameIO.writeFrame(out, JsonCodec.toJsonBytes(new DbRequest("query", id, sql, false)), false);
+            }
+            out.flush();
+
+            for (int i = 0; i < n; i++) {
+                DbResponse r = JsonCodec.fromJsonBytes(FrameIO.readFrame(sock.getInputStream()), DbResponse.class);
+                assertEquals(ids.get(i), r.requestId);
+                assertEquals(i == 10 ? "error" : "ok", r.status);
+            }
+
+            assertEquals(n - 1, send(sock, "SELECT * FROM t;", false).rows.size());
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    void batch_executes_statements_in_one_request(@TempDir Path tempDir) throws Exception {
+        int port = findFreePort();
+        DbServer server = new DbServer(port, tempDir, 128);
+        Thread t = new Thread(server::start, "test-db-server");
+        t.setDaemon(true);
+        t.start();
+
+        waitForServer(port);
+
+        try (Socket sock = new Socket("127.0.0.1", port)) {
+            List<String> statements = new ArrayList<>();
+            statements.add("CREATE TABLE t (id INT64, name VARCHAR);");
+            for (int i = 0; i < 100; i++) {
+                statements.add("INSERT INTO t VALUES (" + i + ", 'n" + i + "');");
+            }
+            statements.add("SELECT name FROM t WHERE id = 42;");
+
+            DbResponse ok = send(sock, DbRequest.batch("b1", statements, false));
+            assertEquals("ok", ok.status);
+            assertEquals("b1", ok.requestId);
+            assertEquals(102, ok.results.size());
+            assertEquals(100, ok.affected);
+            assertEquals(List.of(List.of("n42")), ok.results.get(101).rows);
+
+            DbResponse failed = send(sock, DbRequest.batch("b2", List.of(
+                    "INSERT INTO t VALUES (1000, 'x');",
+                    "INSERT INTO missing VALUES (1);",
+                    "INSERT INTO t VALUES (1001, 'y');"
+            ), false));
+            assertEquals("error", failed.status);
+            assertEquals("SEMANTIC", failed.error.code);
+            assertEquals(2, failed.results.size());
+            assertEquals("ok", failed.results.get(0).status);
+            assertEquals("error", failed.results.get(1).status);
+
+            assertEquals(101, send(sock, "SELECT * FROM t;", false).rows.size());
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    void binary_protocol_streams_typed_rows_alongside_json(@TempDir Path tempDir) throws Exception {
+        int port = findFreePort();
+        DbServer server = new DbServer(port, tempDir, 128);
+        Thread t = new Thread(server::start, "test-db-server");
+        t.setDaemon(true);
+        t.start();
+
+        waitForServer(port);
+
+        try (Socket sock = new Socket("127.0.0.1", port)) {
+            assertEquals("ok", sendBinary(sock, new DbRequest("query", "c", "CREATE TABLE t (id INT64, name VARCHAR);", false)).status);
+            for (int i = -5; i < 300; i++) {
+                DbResponse r = sendBinary(sock, new DbRequest("query", "i" + i, "INSERT INTO t VALUES (" + i + ", 'n" + i + "');", false));
+                assertEquals("ok", r.status);
+                assertEquals(1, r.affected);
+            }
+
+            DbResponse rows = sendBinary(sock, new DbRequest("query", "s", "SELECT id, name FROM t;", false));
+            assertEquals("ok", rows.status);
+            assertEquals("s", rows.requestId);
+            assertEquals(List.of("id", "name"), rows.columns);
+            assertEquals(List.of("INT64", "VARCHAR"), rows.columnTypes);
+            assertEquals(305, rows.rows.size());
+            assertEquals(List.of(-5L, "n-5"), rows.rows.get(0));
+
+            assertEquals("ok", sendBinary(sock, DbRequest.prepare("p", "byId", "SELECT name FROM t WHERE id = $1;")).status);
+            DbResponse one = sendBinary(sock, DbRequest.execute("e", "byId", List.of(299L)));
+            assertEquals(List.of(List.of("n299")), one.rows);
+
+            DbResponse bad = sendBinary(sock, new DbRequest("query", "bad", "SELEC nonsense;", false));
+            assertEquals("error", bad.status);
+            assertEquals("SYNTAX", bad.error.code);
+            assertNotNull(bad.error.pos);
+
+            DbResponse batch = sendBinary(sock, DbRequest.batch("b", List.of(
+                    "INSERT INTO t VALUES (1000, 'x');",
+                    "SELECT name FROM t WHERE id = 1000;"
+            ), false));
+            assertEquals("ok", batch.status);
+            assertEquals(List.of(List.of("x")), batch.results.get(1).rows);
+
+            DbResponse json = send(sock, "SELECT id FROM t WHERE id = 1000;", false);
+            assertEquals(List.of(List.of(1000)), json.rows);
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    void binary_select_over_query_memory_budget_fails_with_memory_limit(@TempDir Path tempDir) throws Exception {
+        int port = findFreePort();
+        ServerOptions options = ServerOptions.defaults().withQueryMemoryBudget(64 * 1024);
+        DbServer server = new DbServer(port, tempDir, 128, 200, 64, 5_000, options);
+        Thread t = new Thread(server::start, "test-db-server");
+        t.setDaemon(true);
+        t.start();
+
+        waitForServer(port);
+
+        try (Socket sock = new Socket("127.0.0.1", port)) {
+            List<String> statements = new ArrayList<>();
+            statements.add("CREATE TABLE t (id INT64, name VARCHAR);");
+            for (int i = 0; i < 1000; i++) {
+                statements.add("INSERT INTO t VALUES (" + i + ", '" + "n".repeat(100) + "');");
+            }
+            assertEquals("ok", sendBinary(sock, DbRequest.batch("load", statements, false)).status);
+
+            DbResponse all = sendBinary(sock, new DbRequest("query", "all", "SELECT id, name FROM t;", false));
+            assertEquals("error", all.status);
+            assertEquals("MEMORY_LIMIT", all.error.code);
+
+            DbResponse one = sendBinary(sock, new DbRequest("query", "one", "SELECT id FROM t WHERE id = 7;", false));
+            assertEquals("ok", one.status);
+            assertEquals(List.of(List.of(7L)), one.rows);
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    void event_loop_serves_many_sessions_with_few_workers_and_caps_connections(@TempDir Path tempDir) throws Exception {
+        int port = findFreePort();
+        ServerOptions options = ServerOptions.defaults().withWorkerThreads(2).withMaxConnections(40);
+        DbServer server = new DbServer(port, tempDir, 128, 200, 64, 5_000, options);
+        Thread t = new Thread(server::start, "test-db-server");
+        t.setDaemon(true);
+        t.start();
+
+        waitForServer(port);
+
+        List<Socket> sockets = new ArrayList<>();
+        try {
+            sockets.add(new Socket("127.0.0.1", port));
+            assertEquals("ok", send(sockets.get(0), "CREATE TABLE t (id INT64);", false).status);
+            for (int i = 1; i < 40; i++) {
+                sockets.add(new Socket("127.0.0.1", port));
+            }
+            for (int i = 0; i < sockets.size(); i++) {
+                assertEquals("ok", send(sockets.get(i), "INSERT INTO t VALUES (" + i + ");", false).status);
+            }
+
+            try (Socket extra = new Socket("127.0.0.1", port)) {
+                DbResponse rejected = JsonCodec.fromJsonBytes(FrameIO.readFrame(extra.getInputStream()), DbResponse.class);
+                assertEquals("error", rejected.status);
+                assertTrue(rejected.error.message.contains("Too many connections"));
+                assertNull(FrameIO.readFrame(extra.getInputStream()));
+            }
+
+            assertEquals(40, send(sockets.get(39), "SELECT * FROM t;", false).rows.size());
+        } finally {
+            for (Socket s : sockets) {
+                s.close();
+            }
+            server.stop();
+        }
+    }
+
+    @Test
+    void thread_per_connection_mode_still_works(@TempDir Path tempDir) throws Exception {
+        int port = findFreePort();
+        ServerOptions options = ServerOptions.defaults().withMode(ServerOptions.Mode.THREAD_PER_CONNECTION);
+        DbServer server = new DbServer(port, tempDir, 128, 200, 64, 5_000, options);
+        Thread t = new Thread(server::start, "test-db-server");
+        t.setDaemon(true);
+        t.start();
+
+        waitForServer(port);
+
+        try (Socket sock = new Socket("127.0.0.1", port)) {
+            assertEquals("ok", send(sock, "CREATE TABLE t (id INT64);", false).status);
+            assertEquals("ok", send(sock, "INSERT INTO t VALUES (1);", false).status);
+            assertEquals(List.of(List.of(1)), send(sock, "SELECT id FROM t;", false).rows);
+
+            DbResponse high = send(sock, new DbRequest("query", "h", "SELECT id FROM t;", false).withPriority("high"));
+            assertEquals("ok", high.status);
+            assertNotNull(high.queueTimeMicros);
+
+            DbResponse bad = send(sock, new DbRequest("query", "p", "SELECT id FROM t;", false).withPriority("urgent"));
+            assertEquals("EXEC", bad.error.code);
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    void cancel_and_timeout_stop_running_queries(@TempDir Path tempDir) throws Exception {
+        assertCancelStopsRunningQuery(tempDir, ServerOptions.defaults());
+    }
+
+    @Test
+    void thread_per_connection_mode_reads_cancel_while_query_runs(@TempDir Path tempDir) throws Exception {
+        assertCancelStopsRunningQuery(tempDir, ServerOptions.defaults().withMode(ServerOptions.Mode.THREAD_PER_CONNECTION));
+    }
+
+    @Test
+    void thread_per_connection_mode_cancels_queries_of_dropped_clients(@TempDir Path tempDir) throws Exception {
+        int port = findFreePort();
+        ServerOptions options = ServerOptions.defaults()
+                .withMode(ServerOptions.Mode.THREAD_PER_CONNECTION)
+                .withAdmission(1, 8, 30_000);
+        DbServer server = new DbServer(port, tempDir, 128, 200, 64, 5_000, options);
+        Thread t = new Thread(server::start, "test-db-server");
+        t.setDaemon(true);
+        t.start();
+
+        waitForServer(port);
+
+        try (Socket sock = new Socket("127.0.0.1", port)) {
+            List<String> statements = new ArrayList<>();
+            statements.add("CREATE TABLE t (id INT64, k INT64);");
+            for (int i = 0; i < 1000; i++) {
+                statements.add("INSERT INTO t VALUES (" + i + ", 1);");
+            }
+            assertEquals("ok", send(sock, DbRequest.batch("load", statements, false)).status);
+
+            String slow = "SELECT COUNT(*) FROM t a JOIN t b ON a.k = b.k JOIN t c ON b.k = c.k;";
+            try (Socket dropped = new Socket("127.0.0.1", port)) {
+                FrameIO.writeFrame(dropped.getOutputStream(), JsonCodec.toJsonBytes(new DbRequest("query", "slow", slow, false)));
+                Thread.sleep(200);
+            }
+
+            DbResponse next = send(sock, new DbRequest("query", "next", "SELECT COUNT(*) FROM t;", false).withTimeout(5_000L));
+            assertEquals("ok", next.status);
+            assertEquals(List.of(List.of(1000)), next.rows);
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    void event_loop_queues_queries_by_priority_and_rejects_when_full(@TempDir Path tempDir) throws Exception {
+        int port = findFreePort();
+        ServerOptions options = ServerOptions.defaults();
+        DbServer server = new DbServer(port, tempDir, 128, 200, 64, 5_000, options);
+        Thread t = new Thread(server::start, "test-db-server");
+        t.setDaemon(true);
+        t.start();
+
+        waitForServer(port);
+
+        List<Socket> sockets = new ArrayList<>();
+        try {
+            Socket admin = connect(sockets, port);
+            List<String> statements = new ArrayList<>();
+            statements.add("CREATE TABLE t (id INT64, k INT64);");
+            for (int i = 0; i < 1000; i++) {
+                statements.add("INSERT INTO t VALUES (" + i + ", 1);");
+            }
+            assertEquals("ok", send(admin, DbRequest.batch("load", statements, false)).status);
+
+            String slow = "SELECT COUNT(*) FROM t a JOIN t b ON a.k = b.k JOIN t c ON b.k = c.k;";
+            List<Socket> blockers = new ArrayList<>();
+            for (int i = 0; i < options.maxConcurrentQueries(); i++) {
+                Socket s = connect(sockets, port);
+                FrameIO.writeFrame(s.getOutputStream(), JsonCodec.toJsonBytes(new DbRequest("query", "block", slow, false)));
+                blockers.add(s);
+            }
+            Thread.sleep(200);
+
+            Socket low = connect(sockets, port);
+            FrameIO.writeFrame(low.getOutputStream(), JsonCodec.toJsonBytes(new DbRequest("query", "low", slow, false).withPriority("low")));
+            Thread.sleep(50);
+            Socket high = connect(sockets, port);
+            FrameIO.writeFrame(high.getOutputStream(), JsonCodec.toJsonBytes(new DbRequest("query", "high", "SELECT COUNT(*) FROM t;", false).withPriority("high")));
+            for (int i = 2; i < options.maxQueuedQueries(); i++) {
+                Socket s = connect(sockets, port);
+                FrameIO.writeFrame(s.getOutputStream(), JsonCodec.toJsonBytes(new DbRequest("query", "fill", "SELECT id FROM t WHERE id = 1;", false)));
+            }
+            Thread.sleep(300);
+
+            DbResponse busy = send(admin, "SELECT id FROM t WHERE id = 2;", false);
+            assertEquals("error", busy.status);
+            assertEquals("BUSY", busy.error.code);
+
+            FrameIO.writeFrame(blockers.get(0).getOutputStream(), JsonCodec.toJsonBytes(DbRequest.cancel("stop", "block")));
+            high.setSoTimeout(10_000);
+            DbResponse highFirst = JsonCodec.fromJsonBytes(FrameIO.readFrame(high.getInputStream()), DbResponse.class);
+            assertEquals("ok", highFirst.status);
+            assertEquals(List.of(List.of(1000)), highFirst.rows);
+
+            FrameIO.writeFrame(low.getOutputStream(), JsonCodec.toJsonBytes(DbRequest.cancel("stop-low", "low")));
+            DbResponse lowLast = null;
+            DbResponse lowCancel = null;
+            for (int i = 0; i < 2; i++) {
+                DbResponse r = JsonCodec.fromJsonBytes(FrameIO.readFrame(low.getInputStream()), DbResponse.class);
+                if ("low".equals(r.requestId)) lowLast = r;
+                if ("stop-low".equals(r.requestId)) lowCancel = r;
+            }
+            assertNotNull(lowCancel);
+            assertEquals(1, lowCancel.affected);
+            assertNotNull(lowLast);
+            assertEquals("CANCELLED", lowLast.error.code);
+        } finally {
+            for (Socket s : sockets) {
+                s.close();
+            }
+            server.stop();
+        }
+    }
+
+    private static Socket connect(List<Socket> sockets, int port) throws Exception {
+        Socket s = new Socket("127.0.0.1", port);
+        sockets.add(s);
+        return s;
+    }
+
+    private static void assertCancelStopsRunningQuery(Path tempDir, ServerOptions options) throws Exception {
+        int port = findFreePort();
+        DbServer server = new DbServer(port, tempDir, 128, 200, 64, 5_000, options);
+        Thread t = new Thread(server::start, "test-db-server");
+        t.setDaemon(true);
+        t.start();
+
+        waitForServer(port);
+
+        try (Socket sock = new Socket("127.0.0.1", port)) {
+            List<String> statements = new ArrayList<>();
+            statements.add("CREATE TABLE t (id INT64, k INT64);");
+            for (int i = 0; i < 3000; i++) {
+                statements.add("INSERT INTO t VALUES (" + i + ", 1);");
+            }
+            assertEquals("ok", send(sock, DbRequest.batch("load", statements, false)).status);
+
+            String join = "SELECT a.id, b.id FROM t a JOIN t b ON a.k = b.k;";
+            DbResponse timedOut = send(sock, new DbRequest("query", "slow", join, false).withTimeout(100L));
+            assertEquals("error", timedOut.status);
+            assertEquals("TIMEOUT", timedOut.error.code);
+
+            FrameIO.writeFrame(sock.getOutputStream(), JsonCodec.toJsonBytes(new DbRequest("query", "victim", join, false)));
+            Thread.sleep(100);
+            try (Socket other = new Socket("127.0.0.1", port)) {
+                DbResponse foreign = send(other, DbRequest.cancel("steal", "victim"));
+                assertEquals("ok", foreign.status);
+                assertEquals(0, foreign.affected);
+            }
+            FrameIO.writeFrame(sock.getOutputStream(), JsonCodec.toJsonBytes(DbRequest.cancel("stop", "victim")));
+
+            DbResponse victim = null;
+            DbResponse cancel = null;
+            for (int i = 0; i < 2; i++) {
+                DbResponse r = JsonCodec.fromJsonBytes(FrameIO.readFrame(sock.getInputStream()), DbResponse.class);
+                if ("victim".equals(r.requestId)) victim = r;
+                if ("stop".equals(r.requestId)) cancel = r;
+            }
+            assertNotNull(cancel);
+            assertEquals("ok", cancel.status);
+            assertEquals(1, cancel.affected);
+            assertNotNull(victim);
+            assertEquals("CANCELLED", victim.error.code);
+
+            assertEquals(3000, send(sock, "SELECT id FROM t;", false).rows.size());
+        } finally {
+            server.stop();
+        }
+    }
+
     private static DbResponse send(Socket sock, String sql, boolean trace) throws Exception {
-        DbRequest req = new DbRequest("query", UUID.randomUUID().toString(), sql, trace);
+        return send(sock, new DbRequest("query", UUID.randomUUID().toString(), sql, trace));
+    }
+
+    private static DbResponse send(Socket sock, DbRequest req) throws Exception {
         FrameIO.writeFrame(sock.getOutputStream(), JsonCodec.toJsonBytes(req));
         byte[] resp = FrameIO.readFrame(sock.getInputStream());
         if (resp == null) throw new IllegalStateException("server closed connection");
         return JsonCodec.fromJsonBytes(resp, DbResponse.class);
     }
 
+    private static DbResponse sendBinary(Socket sock, DbRequest req) throws Exception {
+        FrameIO.writeFrame(sock.getOutputStream(), BinaryCodec.encodeRequest(req));
+        byte[] resp = FrameIO.readFrame(sock.getInputStream());
+        if (resp == null) throw new IllegalStateException("server closed connection");
+        assertTrue(BinaryCodec.isBinary(resp));
+        return BinaryCodec.decodeResponse(resp);
+    }
+
     private static int findFreePort() throws Exception {
         try (ServerSocket ss = new ServerSocket(0)) {
             return ss.getLocalPort();